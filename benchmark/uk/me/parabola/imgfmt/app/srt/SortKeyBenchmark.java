@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.srt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.mkgmap.general.MapElement;
+import uk.me.parabola.mkgmap.reader.osm.OsmMapDataSource;
+import uk.me.parabola.mkgmap.reader.osm.SampleData;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+
+/**
+ * Creating the sort keys for the names of the elements of the sample,
+ * with and without the cache that is used for repeated names.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SortKeyBenchmark {
+	@Param({"1252", "65001"})
+	public int codepage;
+
+	private Sort sort;
+	private List<String> names;
+
+	@Setup
+	public void setup() throws IOException {
+		sort = SrtTextReader.sortForCodepage(codepage);
+		OsmMapDataSource src = SampleData.loadMap();
+		List<MapElement> elements = new ArrayList<>();
+		elements.addAll(src.getPoints());
+		elements.addAll(src.getLines());
+		elements.addAll(src.getShapes());
+		names = new ArrayList<>();
+		for (MapElement el : elements) {
+			if (el.getName() != null)
+				names.add(el.getName());
+		}
+	}
+
+	@Benchmark
+	public void createSortKey(Blackhole bh) {
+		for (String name : names)
+			bh.consume(sort.createSortKey(null, name));
+	}
+
+	@Benchmark
+	public void createSortKeyCached(Blackhole bh) {
+		Map<String, byte[]> cache = new HashMap<>();
+		for (String name : names)
+			bh.consume(sort.createSortKey(null, name, 0, cache));
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.trergn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.general.MapShape;
+import uk.me.parabola.mkgmap.reader.osm.OsmMapDataSource;
+import uk.me.parabola.mkgmap.reader.osm.SampleData;
+
+/**
+ * Encoding the points of the lines and shapes of the sample. Like in the
+ * map builder, a line is split into parts with at most 250 points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LinePreparerBenchmark {
+	private static final int MAX_POINTS = 250;
+
+	@Param({"24", "20"})
+	public int resolution;
+
+	private List<Polyline> polylines;
+
+	@Setup
+	public void setup() throws IOException {
+		OsmMapDataSource src = SampleData.loadMap();
+		Coord center = src.getBounds().getCenter();
+		Zoom zoom = new Zoom(resolution == 24 ? 0 : 1, resolution);
+		Subdivision div = Subdivision.readSubdivision(zoom,
+				new SubdivData(0, center.getLatitude(), center.getLongitude(), 0, 0, 0, 0));
+
+		polylines = new ArrayList<>();
+		for (MapLine line : src.getLines()) {
+			List<Coord> points = line.getPoints();
+			for (int from = 0; from + 1 < points.size(); from += MAX_POINTS - 1) {
+				Polyline pl = new Polyline(div);
+				pl.setType(line.getType());
+				pl.addCoords(points.subList(from, Math.min(points.size(), from + MAX_POINTS)));
+				polylines.add(pl);
+			}
+		}
+		for (MapShape shape : src.getShapes()) {
+			// larger shapes are split by the map builder, they are left out here
+			if (shape.getPoints().size() <= MAX_POINTS) {
+				Polygon pg = new Polygon(div);
+				pg.setType(shape.getType());
+				pg.addCoords(shape.getPoints());
+				polylines.add(pg);
+			}
+		}
+	}
+
+	@Benchmark
+	public void makeShortestBitStream(Blackhole bh) {
+		for (Polyline pl : polylines) {
+			LinePreparer w = new LinePreparer(pl);
+			bh.consume(w.makeShortestBitStream(pl instanceof Polygon ? 3 : 2));
+		}
+	}
+}
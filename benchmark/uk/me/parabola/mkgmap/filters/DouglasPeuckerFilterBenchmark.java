@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.filters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.reader.osm.OsmMapDataSource;
+import uk.me.parabola.mkgmap.reader.osm.SampleData;
+
+/**
+ * Reducing the points of the lines and shapes of the sample with the
+ * default error distance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DouglasPeuckerFilterBenchmark {
+	@Param({"22", "20"})
+	public int resolution;
+
+	@Param({"2.6"})
+	public double filterDistance;
+
+	private List<MapLine> lines;
+	private DouglasPeuckerFilter filter;
+
+	@Setup
+	public void setup() throws IOException {
+		OsmMapDataSource src = SampleData.loadMap();
+		lines = new ArrayList<>(src.getLines());
+		lines.addAll(src.getShapes());
+
+		FilterConfig config = new FilterConfig();
+		config.setResolution(resolution);
+		filter = new DouglasPeuckerFilter(filterDistance);
+		filter.init(config);
+	}
+
+	@Benchmark
+	public void filter(Blackhole bh) {
+		MapFilterChain next = bh::consume;
+		for (MapLine line : lines)
+			filter.doFilter(line, next);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.Node;
+import uk.me.parabola.mkgmap.reader.osm.Rule;
+import uk.me.parabola.mkgmap.reader.osm.SampleData;
+import uk.me.parabola.mkgmap.reader.osm.Style;
+import uk.me.parabola.mkgmap.reader.osm.TypeResult;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Resolving the types of the ways and the tagged nodes of the sample with
+ * the rules of a style. The rules may change the tags, so each element is
+ * copied before the rules are applied.
+ *
+ * The rules are either interpreted or compiled (see
+ * --compile-style-rules), both with the same sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RuleSetBenchmark {
+	@Param({"default"})
+	public String style;
+
+	@Param({"false", "true"})
+	public boolean compile;
+
+	private Rule wayRules;
+	private Rule nodeRules;
+	private List<Way> ways;
+	private List<Node> nodes;
+
+	@Setup
+	public void setup() throws IOException {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style", style);
+		props.setProperty("compile-style-rules", Boolean.toString(compile));
+		Style st = StyleImpl.readStyle(props);
+		wayRules = st.getWayRules();
+		nodeRules = st.getNodeRules();
+
+		ElementSaver saver = SampleData.parse(SampleData.OSM_FILE, props);
+		ways = new ArrayList<>(saver.getWays().values());
+		nodes = new ArrayList<>(saver.getNodes().values());
+	}
+
+	@Benchmark
+	public void resolveWays(Blackhole bh) {
+		TypeResult result = (el, type) -> bh.consume(type);
+		for (Way way : ways)
+			wayRules.resolveType(way.copy(), result);
+	}
+
+	@Benchmark
+	public void resolveNodes(Blackhole bh) {
+		TypeResult result = (el, type) -> bh.consume(type);
+		for (Node node : nodes)
+			nodeRules.resolveType(node.copy(), result);
+	}
+}
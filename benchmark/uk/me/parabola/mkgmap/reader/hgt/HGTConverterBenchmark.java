@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.hgt;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.dem.DEMFile;
+import uk.me.parabola.mkgmap.reader.osm.SampleData;
+
+/**
+ * Reading the elevation of a grid of points from the sample hgt files,
+ * which cover the area from 2 degrees south to 1 degree north and from
+ * 91 to 89 degrees west.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HGTConverterBenchmark {
+	private static final int GRID_SIZE = 500;
+
+	@Param({"BICUBIC", "BILINEAR"})
+	public HGTConverter.InterpolationMethod interpolation;
+
+	private HGTConverter converter;
+	private int[] lats;
+	private int[] lons;
+
+	@Setup
+	public void setup() {
+		Area bbox = new Area(-1.5, -90.9, 0.5, -89.5);
+		converter = new HGTConverter(SampleData.HGT_PATH, bbox, null, DEMFile.EXTRA);
+		converter.setInterpolationMethod(interpolation);
+
+		// the positions in 32 bit units, the grid does not match the hgt raster
+		lats = new int[GRID_SIZE];
+		lons = new int[GRID_SIZE];
+		for (int i = 0; i < GRID_SIZE; i++) {
+			lats[i] = (bbox.getMinLat() + (int) ((long) bbox.getHeight() * i / GRID_SIZE)) << 8;
+			lons[i] = (bbox.getMinLong() + (int) ((long) bbox.getWidth() * i / GRID_SIZE)) << 8;
+		}
+	}
+
+	@Benchmark
+	public void getElevation(Blackhole bh) {
+		for (int lat32 : lats) {
+			for (int lon32 : lons)
+				bh.consume(converter.getElevation(lat32, lon32));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.MultiPolygonRelation.JoinedWay;
+
+/**
+ * The ring containment of a synthetic multipolygon with many rings, like a
+ * large lake with many islands. A big outer ring with many points (so that
+ * it is indexed) holds a grid of inner rings, every fourth inner ring
+ * holds an island that is an outer ring again.
+ *
+ * {@code containsMatrix} only measures which ring contains which, the
+ * {@code process} benchmark the whole processing of the relation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MultiPolygonRelationBenchmark {
+	private static final double LAT = 50.0;
+	private static final double LON = 8.0;
+	private static final double CELL = 0.001;
+
+	/** The number of cells of the grid, each one has an inner ring. */
+	@Param({"10000", "40000"})
+	public int cells;
+
+	private Area bbox;
+	private List<JoinedWay> polygons;
+
+	// a new relation for each call of process, it is changed by the processing
+	private GeneralRelation relation;
+	private Map<Long, Way> wayMap;
+
+	@Setup
+	public void setup() {
+		int n = gridSize();
+		bbox = new Area(LAT - CELL, LON - CELL, LAT + (n + 1) * CELL, LON + (n + 1) * CELL);
+		polygons = new ArrayList<>();
+		for (Way w : createWays(new HashMap<>()).values())
+			polygons.add(new JoinedWay(w));
+	}
+
+	@Setup(Level.Invocation)
+	public void setupRelation() {
+		Map<Long, String> roles = new HashMap<>();
+		wayMap = createWays(roles);
+		relation = new GeneralRelation(1);
+		relation.addTag("type", "multipolygon");
+		relation.addTag("natural", "water");
+		for (Way w : wayMap.values())
+			relation.addElement(roles.get(w.getId()), w);
+	}
+
+	@Benchmark
+	public MultiPolygonRelation containsMatrix() {
+		MultiPolygonRelation mp = new MultiPolygonRelation(new GeneralRelation(1), new HashMap<>(), bbox);
+		mp.createContainsMatrix(polygons);
+		return mp;
+	}
+
+	@Benchmark
+	public MultiPolygonRelation process() {
+		MultiPolygonRelation mp = new MultiPolygonRelation(relation, wayMap, bbox);
+		mp.processElements();
+		return mp;
+	}
+
+	private int gridSize() {
+		return (int) Math.ceil(Math.sqrt(cells));
+	}
+
+	/**
+	 * @param roles is filled with the roles of the ways
+	 * @return the ways of the relation by their id
+	 */
+	private Map<Long, Way> createWays(Map<Long, String> roles) {
+		int n = gridSize();
+		Map<Long, Way> ways = new LinkedHashMap<>();
+		long id = 1;
+
+		// the outer ring, with a point every tenth of a cell
+		List<Coord> outer = new ArrayList<>();
+		int steps = n * 10;
+		double min = -0.5 * CELL;
+		double max = (n + 0.5) * CELL;
+		double step = (max - min) / steps;
+		for (int i = 0; i < steps; i++)
+			outer.add(new Coord(LAT + min, LON + min + i * step));
+		for (int i = 0; i < steps; i++)
+			outer.add(new Coord(LAT + min + i * step, LON + max));
+		for (int i = 0; i < steps; i++)
+			outer.add(new Coord(LAT + max, LON + max - i * step));
+		for (int i = 0; i < steps; i++)
+			outer.add(new Coord(LAT + max - i * step, LON + min));
+		outer.add(outer.get(0));
+		addWay(ways, roles, id++, outer, "outer");
+
+		for (int i = 0; i < cells; i++) {
+			double lat = LAT + (i / n) * CELL;
+			double lon = LON + (i % n) * CELL;
+			addWay(ways, roles, id++, square(lat + 0.1 * CELL, lon + 0.1 * CELL, 0.8 * CELL), "inner");
+			if (i % 4 == 0)
+				addWay(ways, roles, id++, square(lat + 0.3 * CELL, lon + 0.3 * CELL, 0.4 * CELL), "outer");
+		}
+		return ways;
+	}
+
+	private static List<Coord> square(double lat, double lon, double size) {
+		List<Coord> points = new ArrayList<>();
+		points.add(new Coord(lat, lon));
+		points.add(new Coord(lat, lon + size));
+		points.add(new Coord(lat + size, lon + size));
+		points.add(new Coord(lat + size, lon));
+		points.add(points.get(0));
+		return points;
+	}
+
+	private static void addWay(Map<Long, Way> ways, Map<Long, String> roles, long id, List<Coord> points,
+			String role) {
+		ways.put(id, new Way(id, points));
+		roles.put(id, role);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Reading the same data with the XML, the o5m and the pbf parser
+ * ({@link uk.me.parabola.mkgmap.reader.osm.o5m.O5mBinHandler} and
+ * {@link uk.me.parabola.mkgmap.reader.osm.bin.OsmBinHandler}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OsmParseBenchmark {
+	@Param({"osm", "o5m", "pbf"})
+	public String format;
+
+	@Param({"1"})
+	public int readThreads;
+
+	private String file;
+	private EnhancedProperties props;
+
+	@Setup
+	public void setup() throws IOException {
+		file = SampleData.getFile(format);
+		props = new EnhancedProperties();
+		props.setProperty("read-threads", String.valueOf(readThreads));
+	}
+
+	@Benchmark
+	public ElementSaver parse() throws IOException {
+		return SampleData.parse(file, props);
+	}
+}
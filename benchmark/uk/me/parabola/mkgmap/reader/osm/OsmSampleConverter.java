@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.protobuf.ByteString;
+
+import crosby.binary.Fileformat;
+import crosby.binary.Osmformat;
+import uk.me.parabola.imgfmt.Utils;
+
+/**
+ * Converts an OSM XML file to the o5m and the pbf format, so that the
+ * parsers of the binary formats can be measured with the same data as the
+ * XML parser. Only the ids, the coordinates, the tags and the members are
+ * written, there is no version information.
+ */
+class OsmSampleConverter {
+	private static final String[] MEMBER_TYPES = {"node", "way", "relation"};
+	private static final int PBF_BLOCK_SIZE = 8000;
+
+	private final List<Entity> nodes = new ArrayList<>();
+	private final List<Entity> ways = new ArrayList<>();
+	private final List<Entity> relations = new ArrayList<>();
+
+	private static class Entity {
+		private final long id;
+		// in units of 100 nanodegrees, for nodes only
+		private int lat;
+		private int lon;
+		// alternating keys and values
+		private final List<String> tags = new ArrayList<>();
+		// node refs of a way or member ids of a relation
+		private final List<Long> refs = new ArrayList<>();
+		private final List<Integer> memberTypes = new ArrayList<>();
+		private final List<String> roles = new ArrayList<>();
+
+		Entity(long id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Read the elements of an OSM XML file. The nodes, ways and relations
+	 * are expected to be sorted by type and id as usual.
+	 * @param name the name of the file, it may be compressed with gzip
+	 */
+	void read(String name) throws IOException {
+		try (InputStream is = Utils.openFile(name)) {
+			SAXParserFactory.newInstance().newSAXParser().parse(is, new DefaultHandler() {
+				private Entity current;
+
+				@Override
+				public void startElement(String uri, String localName, String qName, Attributes attributes) {
+					switch (qName) {
+					case "node":
+						current = new Entity(Long.parseLong(attributes.getValue("id")));
+						current.lat = (int) Math.round(Double.parseDouble(attributes.getValue("lat")) * 1e7);
+						current.lon = (int) Math.round(Double.parseDouble(attributes.getValue("lon")) * 1e7);
+						nodes.add(current);
+						break;
+					case "way":
+						current = new Entity(Long.parseLong(attributes.getValue("id")));
+						ways.add(current);
+						break;
+					case "relation":
+						current = new Entity(Long.parseLong(attributes.getValue("id")));
+						relations.add(current);
+						break;
+					case "tag":
+						if (current != null) {
+							current.tags.add(attributes.getValue("k"));
+							current.tags.add(attributes.getValue("v"));
+						}
+						break;
+					case "nd":
+						if (current != null)
+							current.refs.add(Long.parseLong(attributes.getValue("ref")));
+						break;
+					case "member":
+						if (current != null) {
+							int type = Arrays.asList(MEMBER_TYPES).indexOf(attributes.getValue("type"));
+							if (type >= 0) {
+								current.refs.add(Long.parseLong(attributes.getValue("ref")));
+								current.memberTypes.add(type);
+								String role = attributes.getValue("role");
+								current.roles.add(role == null ? "" : role);
+							}
+						}
+						break;
+					default:
+					}
+				}
+
+				@Override
+				public void endElement(String uri, String localName, String qName) {
+					if ("node".equals(qName) || "way".equals(qName) || "relation".equals(qName))
+						current = null;
+				}
+			});
+		} catch (SAXException | ParserConfigurationException e) {
+			throw new IOException("cannot read " + name, e);
+		}
+	}
+
+	/**
+	 * Write the elements in o5m format. The string table is used as a
+	 * real o5m file would use it.
+	 */
+	void writeO5m(File file) throws IOException {
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+			O5mWriter writer = new O5mWriter(os);
+			writer.writeHeader();
+			for (Entity node : nodes)
+				writer.writeNode(node);
+			writer.reset();
+			for (Entity way : ways)
+				writer.writeWay(way);
+			writer.reset();
+			for (Entity rel : relations)
+				writer.writeRelation(rel);
+			os.write(0xfe);
+		}
+	}
+
+	private static class O5mWriter {
+		private static final int STRING_TABLE_SIZE = 15000;
+		private static final int MAX_STRING_PAIR_SIZE = 250 + 2;
+
+		private final OutputStream out;
+		private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream refs = new ByteArrayOutputStream();
+
+		private final Map<String, Integer> stringPositions = new HashMap<>();
+		private final String[] stringTable = new String[STRING_TABLE_SIZE];
+		private int stringTablePos;
+		private long lastId;
+		private int lastLat;
+		private int lastLon;
+		private final long[] lastRef = new long[3];
+
+		O5mWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		void writeHeader() throws IOException {
+			out.write(0xff);
+			data.write("o5m2".getBytes(StandardCharsets.US_ASCII));
+			writeDataSet(0xe0);
+		}
+
+		void reset() throws IOException {
+			out.write(0xff);
+			stringPositions.clear();
+			Arrays.fill(stringTable, null);
+			stringTablePos = 0;
+			lastId = 0;
+			lastLat = 0;
+			lastLon = 0;
+			lastRef[0] = lastRef[1] = lastRef[2] = 0;
+		}
+
+		void writeNode(Entity node) throws IOException {
+			writeId(node.id);
+			writeSigned(data, node.lon - lastLon);
+			writeSigned(data, node.lat - lastLat);
+			lastLon = node.lon;
+			lastLat = node.lat;
+			writeTags(node);
+			writeDataSet(0x10);
+		}
+
+		void writeWay(Entity way) throws IOException {
+			writeId(way.id);
+			for (long ref : way.refs) {
+				writeSigned(refs, ref - lastRef[0]);
+				lastRef[0] = ref;
+			}
+			writeRefs();
+			writeTags(way);
+			writeDataSet(0x11);
+		}
+
+		void writeRelation(Entity rel) throws IOException {
+			writeId(rel.id);
+			for (int i = 0; i < rel.refs.size(); i++) {
+				int type = rel.memberTypes.get(i);
+				long ref = rel.refs.get(i);
+				writeSigned(refs, ref - lastRef[type]);
+				lastRef[type] = ref;
+				// the type and the role are stored as one string
+				writeString(refs, (char) ('0' + type) + rel.roles.get(i) + "\0");
+			}
+			writeRefs();
+			writeTags(rel);
+			writeDataSet(0x12);
+		}
+
+		private void writeId(long id) {
+			writeSigned(data, id - lastId);
+			lastId = id;
+			// no version information
+			data.write(0);
+		}
+
+		private void writeRefs() throws IOException {
+			writeUnsigned(data, refs.size());
+			refs.writeTo(data);
+			refs.reset();
+		}
+
+		private void writeTags(Entity el) {
+			for (int i = 0; i < el.tags.size(); i += 2)
+				writeString(data, el.tags.get(i) + "\0" + el.tags.get(i + 1) + "\0");
+		}
+
+		/**
+		 * Write a string or a string pair, either as a reference to the
+		 * string table or inline.
+		 * @param s the string(s) with the terminating zero bytes
+		 */
+		private void writeString(ByteArrayOutputStream os, String s) {
+			Integer pos = stringPositions.get(s);
+			if (pos != null) {
+				int ref = stringTablePos - pos;
+				if (ref <= 0)
+					ref += STRING_TABLE_SIZE;
+				writeUnsigned(os, ref);
+				return;
+			}
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			os.write(0);
+			os.write(bytes, 0, bytes.length);
+			if (bytes.length <= MAX_STRING_PAIR_SIZE) {
+				String old = stringTable[stringTablePos];
+				if (old != null)
+					stringPositions.remove(old);
+				stringTable[stringTablePos] = s;
+				stringPositions.put(s, stringTablePos);
+				stringTablePos = (stringTablePos + 1) % STRING_TABLE_SIZE;
+			}
+		}
+
+		private void writeDataSet(int type) throws IOException {
+			head.write(type);
+			writeUnsigned(head, data.size());
+			head.writeTo(out);
+			data.writeTo(out);
+			head.reset();
+			data.reset();
+		}
+
+		private static void writeUnsigned(ByteArrayOutputStream os, long val) {
+			long v = val;
+			while ((v & ~0x7fL) != 0) {
+				os.write((int) (v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			os.write((int) v);
+		}
+
+		private static void writeSigned(ByteArrayOutputStream os, long val) {
+			writeUnsigned(os, val < 0 ? ((-1 - val) << 1) | 1 : val << 1);
+		}
+	}
+
+	/**
+	 * Write the elements in pbf format with dense nodes.
+	 */
+	void writePbf(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			Osmformat.HeaderBlock header = Osmformat.HeaderBlock.newBuilder()
+					.addRequiredFeatures("OsmSchema-V0.6")
+					.addRequiredFeatures("DenseNodes")
+					.setWritingprogram("mkgmap")
+					.build();
+			writeBlob(out, "OSMHeader", header.toByteArray());
+			for (int from = 0; from < nodes.size(); from += PBF_BLOCK_SIZE)
+				writeBlob(out, "OSMData", nodeBlock(nodes.subList(from, Math.min(nodes.size(), from + PBF_BLOCK_SIZE))));
+			for (int from = 0; from < ways.size(); from += PBF_BLOCK_SIZE)
+				writeBlob(out, "OSMData", wayBlock(ways.subList(from, Math.min(ways.size(), from + PBF_BLOCK_SIZE))));
+			for (int from = 0; from < relations.size(); from += PBF_BLOCK_SIZE)
+				writeBlob(out, "OSMData", relationBlock(relations.subList(from, Math.min(relations.size(), from + PBF_BLOCK_SIZE))));
+		}
+	}
+
+	private static byte[] nodeBlock(List<Entity> list) {
+		PbfStrings strings = new PbfStrings();
+		Osmformat.DenseNodes.Builder dense = Osmformat.DenseNodes.newBuilder();
+		long lastId = 0;
+		long lastLat = 0;
+		long lastLon = 0;
+		for (Entity node : list) {
+			dense.addId(node.id - lastId);
+			dense.addLat(node.lat - lastLat);
+			dense.addLon(node.lon - lastLon);
+			lastId = node.id;
+			lastLat = node.lat;
+			lastLon = node.lon;
+			for (String s : node.tags)
+				dense.addKeysVals(strings.get(s));
+			dense.addKeysVals(0);
+		}
+		return strings.block(Osmformat.PrimitiveGroup.newBuilder().setDense(dense));
+	}
+
+	private static byte[] wayBlock(List<Entity> list) {
+		PbfStrings strings = new PbfStrings();
+		Osmformat.PrimitiveGroup.Builder group = Osmformat.PrimitiveGroup.newBuilder();
+		for (Entity way : list) {
+			Osmformat.Way.Builder builder = Osmformat.Way.newBuilder().setId(way.id);
+			for (int i = 0; i < way.tags.size(); i += 2) {
+				builder.addKeys(strings.get(way.tags.get(i)));
+				builder.addVals(strings.get(way.tags.get(i + 1)));
+			}
+			long lastRef = 0;
+			for (long ref : way.refs) {
+				builder.addRefs(ref - lastRef);
+				lastRef = ref;
+			}
+			group.addWays(builder);
+		}
+		return strings.block(group);
+	}
+
+	private static byte[] relationBlock(List<Entity> list) {
+		PbfStrings strings = new PbfStrings();
+		Osmformat.PrimitiveGroup.Builder group = Osmformat.PrimitiveGroup.newBuilder();
+		for (Entity rel : list) {
+			Osmformat.Relation.Builder builder = Osmformat.Relation.newBuilder().setId(rel.id);
+			for (int i = 0; i < rel.tags.size(); i += 2) {
+				builder.addKeys(strings.get(rel.tags.get(i)));
+				builder.addVals(strings.get(rel.tags.get(i + 1)));
+			}
+			long lastRef = 0;
+			for (int i = 0; i < rel.refs.size(); i++) {
+				builder.addMemids(rel.refs.get(i) - lastRef);
+				lastRef = rel.refs.get(i);
+				builder.addTypes(Osmformat.Relation.MemberType.valueOf(rel.memberTypes.get(i)));
+				builder.addRolesSid(strings.get(rel.roles.get(i)));
+			}
+			group.addRelations(builder);
+		}
+		return strings.block(group);
+	}
+
+	/**
+	 * The string table of a pbf block, the first entry is always empty.
+	 */
+	private static class PbfStrings {
+		private final Map<String, Integer> index = new HashMap<>();
+		private final Osmformat.StringTable.Builder table = Osmformat.StringTable.newBuilder();
+
+		PbfStrings() {
+			table.addS(ByteString.EMPTY);
+		}
+
+		int get(String s) {
+			return index.computeIfAbsent(s, k -> {
+				table.addS(ByteString.copyFromUtf8(k));
+				return table.getSCount() - 1;
+			});
+		}
+
+		byte[] block(Osmformat.PrimitiveGroup.Builder group) {
+			return Osmformat.PrimitiveBlock.newBuilder()
+					.setStringtable(table)
+					.addPrimitivegroup(group)
+					.build().toByteArray();
+		}
+	}
+
+	private static void writeBlob(DataOutputStream out, String type, byte[] raw) throws IOException {
+		Deflater deflater = new Deflater();
+		deflater.setInput(raw);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		byte[] buf = new byte[1 << 16];
+		while (!deflater.finished()) {
+			int len = deflater.deflate(buf);
+			compressed.write(buf, 0, len);
+		}
+		deflater.end();
+
+		byte[] blob = Fileformat.Blob.newBuilder()
+				.setRawSize(raw.length)
+				.setZlibData(ByteString.copyFrom(compressed.toByteArray()))
+				.build().toByteArray();
+		byte[] header = Fileformat.BlobHeader.newBuilder()
+				.setType(type)
+				.setDatasize(blob.length)
+				.build().toByteArray();
+		out.writeInt(header.length);
+		out.write(header);
+		out.write(blob);
+	}
+}
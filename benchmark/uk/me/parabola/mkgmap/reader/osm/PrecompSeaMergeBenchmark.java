@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.RasterArea;
+
+/**
+ * Merging the precompiled sea tiles that are completely sea or land, as
+ * it is done by the SeaGenerator for the tiles of a map. The tiles form an
+ * island with a ragged coast, the tiles at the coast are mixed tiles and
+ * are not merged.
+ *
+ * {@code rasterArea} measures the merge with {@link RasterArea}, which
+ * is used by the SeaGenerator. {@code awtArea} measures the same merge
+ * with {@link java.awt.geom.Area} as it was done before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PrecompSeaMergeBenchmark {
+	private static final int RASTER = SeaGenerator.PRECOMP_RASTER;
+
+	/** The number of tiles in each direction. */
+	@Param({"8", "32"})
+	public int size;
+
+	// the lower left corners of the tiles in the order of the keys, lat and lon
+	private final List<int[]> seaTiles = new ArrayList<>();
+	private final List<int[]> landTiles = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		double centre = size / 2.0;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				double dist = Math.hypot(row + 0.5 - centre, col + 0.5 - centre);
+				double coast = size / 3.0 + random.nextDouble() * 2;
+				int[] tile = { (row - size / 2) * RASTER, (col - size / 2) * RASTER };
+				if (dist < coast - 1)
+					landTiles.add(tile);
+				else if (dist > coast + 1)
+					seaTiles.add(tile);
+			}
+		}
+	}
+
+	@Benchmark
+	public void rasterArea(Blackhole bh) {
+		for (List<int[]> tiles : Arrays.asList(seaTiles, landTiles)) {
+			List<RasterArea> areas = new ArrayList<>();
+			for (int[] tile : tiles) {
+				RasterArea r = new RasterArea(RASTER);
+				r.addCell(tile[0], tile[1]);
+				areas = SeaGenerator.addWithoutCreatingHoles(areas, r);
+			}
+			for (RasterArea area : areas)
+				bh.consume(area.toShapes());
+		}
+	}
+
+	@Benchmark
+	public void awtArea(Blackhole bh) {
+		for (List<int[]> tiles : Arrays.asList(seaTiles, landTiles)) {
+			List<java.awt.geom.Area> areas = new ArrayList<>();
+			for (int[] tile : tiles) {
+				Rectangle r = new Rectangle(tile[1], tile[0], RASTER, RASTER);
+				areas = addWithoutCreatingHoles(areas, new java.awt.geom.Area(r));
+			}
+			for (java.awt.geom.Area area : areas)
+				bh.consume(Java2DConverter.areaToShapes(area));
+		}
+	}
+
+	/**
+	 * The merge of the SeaGenerator with {@link java.awt.geom.Area}.
+	 */
+	private static List<java.awt.geom.Area> addWithoutCreatingHoles(List<java.awt.geom.Area> areas,
+			final java.awt.geom.Area toAdd) {
+		List<java.awt.geom.Area> result = new LinkedList<>();
+		java.awt.geom.Area toMerge = new java.awt.geom.Area(toAdd);
+
+		for (java.awt.geom.Area area : areas) {
+			java.awt.geom.Area mergedArea = new java.awt.geom.Area(area);
+			mergedArea.add(toMerge);
+			if (!mergedArea.isSingular()) {
+				result.add(area);
+				continue;
+			}
+			toMerge = mergedArea;
+		}
+		int dimNew = Math.max(toMerge.getBounds().width, toMerge.getBounds().height);
+		boolean added = false;
+		for (int i = 0; i < result.size(); i++) {
+			java.awt.geom.Area area = result.get(i);
+			if (dimNew < Math.max(area.getBounds().width, area.getBounds().height)) {
+				result.add(i, toMerge);
+				added = true;
+				break;
+			}
+		}
+		if (!added)
+			result.add(toMerge);
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Access to the sample data that is used by the benchmarks. It is the
+ * input of the functional tests, which is downloaded by the ant target
+ * obtain-test-input-files.
+ */
+public final class SampleData {
+	/** The OSM sample, all other formats are converted from it. */
+	public static final String OSM_FILE = "test/resources/in/osm/uk-test-1.osm.gz";
+	/** The directory with the hgt files. */
+	public static final String HGT_PATH = "test/resources/in/hgt";
+
+	private static final String CONVERTED_DIR = "build/benchmark-data";
+
+	private SampleData() {
+	}
+
+	/**
+	 * Get the sample in the given format. The o5m and pbf files are
+	 * converted from the OSM sample when they are needed for the first time.
+	 * @param format one of osm, o5m or pbf
+	 * @return the name of the file
+	 */
+	public static synchronized String getFile(String format) throws IOException {
+		checkExists(OSM_FILE);
+		if ("osm".equals(format))
+			return OSM_FILE;
+		File file = new File(CONVERTED_DIR, "uk-test-1." + format);
+		if (!file.exists()) {
+			OsmSampleConverter converter = new OsmSampleConverter();
+			converter.read(OSM_FILE);
+			file.getParentFile().mkdirs();
+			switch (format) {
+			case "o5m":
+				converter.writeO5m(file);
+				break;
+			case "pbf":
+				converter.writePbf(file);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown format " + format);
+			}
+		}
+		return file.getPath();
+	}
+
+	/**
+	 * Parse a file without running the hooks and the style.
+	 * @param name the name of the file
+	 * @param props the options
+	 * @return the saver with the elements that were read
+	 */
+	public static ElementSaver parse(String name, EnhancedProperties props) throws IOException {
+		OsmMapDataSource src = new OsmMapDataSource();
+		src.config(props);
+		try (InputStream is = name.endsWith(".gz") ? Utils.openFile(name) : new FileInputStream(name)) {
+			src.parse(is, name);
+		}
+		return src.getElementSaver();
+	}
+
+	/**
+	 * Load the OSM sample with the default style. The lines and shapes of
+	 * the result are the input for the filters and the encoding.
+	 * @return the loaded map data
+	 */
+	public static OsmMapDataSource loadMap() throws IOException {
+		checkExists(OSM_FILE);
+		OsmMapDataSource src = new OsmMapDataSource();
+		src.config(new EnhancedProperties());
+		src.load(OSM_FILE, false);
+		return src;
+	}
+
+	private static void checkExists(String name) throws FileNotFoundException {
+		if (!new File(name).exists())
+			throw new FileNotFoundException(name + " is missing, run ant obtain-test-input-files");
+	}
+}
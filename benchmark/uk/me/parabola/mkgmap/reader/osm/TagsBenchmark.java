@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Putting, getting and iterating the tags of the elements of the sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TagsBenchmark {
+	// the keys and values of each element
+	private String[][] keys;
+	private short[][] shortKeys;
+	private String[][] values;
+	private Tags[] tags;
+
+	@Setup
+	public void setup() throws IOException {
+		ElementSaver saver = SampleData.parse(SampleData.OSM_FILE, new EnhancedProperties());
+		List<Element> elements = new ArrayList<>();
+		elements.addAll(saver.getNodes().values());
+		elements.addAll(saver.getWays().values());
+		elements.addAll(saver.getRelations().values());
+
+		int n = elements.size();
+		keys = new String[n][];
+		shortKeys = new short[n][];
+		values = new String[n][];
+		tags = new Tags[n];
+		for (int i = 0; i < n; i++) {
+			Element el = elements.get(i);
+			int size = el.getTagCount();
+			keys[i] = new String[size];
+			shortKeys[i] = new short[size];
+			values[i] = new String[size];
+			int j = 0;
+			for (Map.Entry<String, String> tag : el.getTagEntryIterator()) {
+				keys[i][j] = tag.getKey();
+				shortKeys[i][j] = TagDict.getInstance().xlate(tag.getKey());
+				values[i][j] = tag.getValue();
+				j++;
+			}
+			tags[i] = el.getCopyOfTags();
+		}
+	}
+
+	@Benchmark
+	public void put(Blackhole bh) {
+		for (int i = 0; i < keys.length; i++) {
+			Tags t = new Tags();
+			for (int j = 0; j < keys[i].length; j++)
+				t.put(keys[i][j], values[i][j]);
+			bh.consume(t);
+		}
+	}
+
+	@Benchmark
+	public void get(Blackhole bh) {
+		for (int i = 0; i < keys.length; i++) {
+			for (String key : keys[i])
+				bh.consume(tags[i].get(key));
+		}
+	}
+
+	@Benchmark
+	public void getShort(Blackhole bh) {
+		for (int i = 0; i < shortKeys.length; i++) {
+			for (short key : shortKeys[i])
+				bh.consume(tags[i].get(key));
+		}
+	}
+
+	@Benchmark
+	public void iterate(Blackhole bh) {
+		for (Tags t : tags) {
+			Iterator<Map.Entry<String, String>> it = t.entryIterator();
+			while (it.hasNext())
+				bh.consume(it.next());
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.geom.Area;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.MapShape;
+import uk.me.parabola.mkgmap.reader.osm.SampleData;
+
+/**
+ * Converting the shapes of the sample to java.awt.geom.Area objects and
+ * back to lists of points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class Java2DConverterBenchmark {
+	private List<List<Coord>> shapes;
+	private List<Area> areas;
+
+	@Setup
+	public void setup() throws IOException {
+		shapes = new ArrayList<>();
+		areas = new ArrayList<>();
+		for (MapShape shape : SampleData.loadMap().getShapes()) {
+			shapes.add(shape.getPoints());
+			areas.add(Java2DConverter.createArea(shape.getPoints()));
+		}
+	}
+
+	@Benchmark
+	public void createArea(Blackhole bh) {
+		for (List<Coord> points : shapes)
+			bh.consume(Java2DConverter.createArea(points));
+	}
+
+	@Benchmark
+	public void areaToShapes(Blackhole bh) {
+		for (Area area : areas)
+			bh.consume(Java2DConverter.areaToShapes(area));
+	}
+
+	@Benchmark
+	public void roundTrip(Blackhole bh) {
+		for (List<Coord> points : shapes)
+			bh.consume(Java2DConverter.areaToShapes(Java2DConverter.createArea(points)));
+	}
+}
@@ -236,6 +236,14 @@ public class BufferedImgFileReader implements ImgFileReader {
 	 * @return A phone number possibly containing the delimiter character.
 	 */
 	public String getBase11str(byte firstChar, char delimiter) {
+		return getBase11str(this, firstChar, delimiter);
+	}
+
+	/**
+	 * Read a base 11 string with the given reader, shared by the
+	 * implementations of {@link ImgFileReader#getBase11str}.
+	 */
+	static String getBase11str(ImgFileReader reader, byte firstChar, char delimiter) {
 		// NB totally untested.
 		StringBuilder str11 = new StringBuilder();
 		int term = 2;
@@ -248,7 +256,7 @@ public class BufferedImgFileReader implements ImgFileReader {
 				--term;
 			str11.append(base(ch & 0x7F, 11, 2));
 			if (term != 0)
-				ch = get();
+				ch = reader.get();
 		} while (term != 0);
 
 		// Remove any trailing delimiters
@@ -265,7 +273,7 @@ public class BufferedImgFileReader implements ImgFileReader {
 		return str11.toString();
 	}
 
-	private String base(int inNum, int base, int width) {
+	private static String base(int inNum, int base, int width) {
 		int num = inNum;
 		StringBuilder val = new StringBuilder();
 
@@ -119,7 +119,39 @@ public class Coord implements Comparable<Coord> {
 		byte dLon = (byte) ((lon24 << DELTA_SHIFT) - lonHighPrec);
 		return new Coord(lat24, lon24, dLat, dLon);
 	}
-	
+
+	/**
+	 * Pack the position into a single long value. The map units and the
+	 * deltas to the high precision values are kept, so {@link #unpack(long)}
+	 * returns a Coord with exactly the same position. Flags and other
+	 * attributes are not stored.
+	 * @return the packed position
+	 */
+	public long packPosition() {
+		int lat = (latitude << 7) | (latDelta & 0x7f);
+		int lon = (longitude << 7) | (lonDelta & 0x7f);
+		return ((long) lat << 32) | (lon & 0xffffffffL);
+	}
+
+	/**
+	 * @return true if the position can be stored with {@link #packPosition()}
+	 */
+	public boolean isPackable() {
+		return Math.abs(latitude) < 1 << 24 && Math.abs(longitude) < 1 << 24
+				&& latDelta >= -64 && latDelta < 64 && lonDelta >= -64 && lonDelta < 64;
+	}
+
+	/**
+	 * Create a new Coord from a value returned by {@link #packPosition()}.
+	 * @param packed the packed position
+	 * @return new Coord instance
+	 */
+	public static Coord unpack(long packed) {
+		int lat = (int) (packed >> 32);
+		int lon = (int) packed;
+		return new Coord(lat >> 7, lon >> 7, (byte) ((lat << 25) >> 25), (byte) ((lon << 25) >> 25));
+	}
+
 	/**
 	 * Construct from other coord instance, copies 
 	 * the lat/lon values in high precision
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.imgfmt.ReadFailedException;
+import uk.me.parabola.imgfmt.fs.ImgChannel;
+
+/**
+ * Read from an img file that is held in a buffer, usually a view of a
+ * memory mapped img file.  There are no calls to the channel while
+ * reading.
+ *
+ * Reading beyond the end of the file gives zero bytes and leaves the
+ * position unchanged, just like {@link BufferedImgFileReader}.
+ */
+public class MappedImgFileReader implements ImgFileReader {
+	private final ImgChannel chan;
+	private final ByteBuffer buf;
+	private final int size;
+
+	private long position;
+
+	/**
+	 * @param chan The channel, only used to close it.
+	 * @param buf The contents of the file, from position zero to the limit.
+	 */
+	public MappedImgFileReader(ImgChannel chan, ByteBuffer buf) {
+		this.chan = chan;
+		this.buf = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.size = this.buf.limit();
+	}
+
+	/**
+	 * Create a reader for the channel.  The file is read straight from
+	 * the buffer if the channel has one, otherwise through a
+	 * {@link BufferedImgFileReader}.
+	 *
+	 * @param chan The file to read.
+	 * @return A reader for the file.
+	 */
+	public static ImgFileReader open(ImgChannel chan) {
+		ByteBuffer contents;
+		try {
+			contents = chan.mappedBuffer();
+		} catch (IOException e) {
+			throw new ReadFailedException("failed to map file", e);
+		}
+		if (contents == null)
+			return new BufferedImgFileReader(chan);
+		return new MappedImgFileReader(chan, contents);
+	}
+
+	public void close() throws IOException {
+		chan.close();
+	}
+
+	public long position() {
+		return position;
+	}
+
+	public void position(long pos) {
+		position = pos;
+	}
+
+	/**
+	 * @return True if n bytes can be read from the current position.
+	 */
+	private boolean available(int n) {
+		return position >= 0 && position + n <= size;
+	}
+
+	public byte get() throws ReadFailedException {
+		if (!available(1))
+			return 0;
+		return buf.get((int) position++);
+	}
+
+	public int get1s() throws ReadFailedException {
+		return get();
+	}
+
+	public int get2s() throws ReadFailedException {
+		if (!available(2))
+			return (get() & 0xff) | (get() << 8);
+		int val = buf.getShort((int) position);
+		position += 2;
+		return val;
+	}
+
+	public int get3s() throws ReadFailedException {
+		return (get3u() << 8) >> 8;
+	}
+
+	public int get1u() throws ReadFailedException {
+		return get() & 0xff;
+	}
+
+	public int get2u() throws ReadFailedException {
+		return get2s() & 0xffff;
+	}
+
+	public int get3u() throws ReadFailedException {
+		if (!available(3))
+			return (get() & 0xff) | ((get() & 0xff) << 8) | ((get() & 0xff) << 16);
+		int pos = (int) position;
+		position += 3;
+		return (buf.getShort(pos) & 0xffff) | ((buf.get(pos + 2) & 0xff) << 16);
+	}
+
+	public int getNu(int nBytes) throws ReadFailedException {
+		switch (nBytes) {
+		case 1: return get1u();
+		case 2: return get2u();
+		case 3: return get3u();
+		case 4: return get4();
+		default: // this is a programming error so exit
+			throw new MapFailedException("bad integer size " + nBytes);
+		}
+	}
+
+	public int get4() throws ReadFailedException {
+		if (!available(4))
+			return (get() & 0xff) | ((get() & 0xff) << 8) | ((get() & 0xff) << 16) | (get() << 24);
+		int val = buf.getInt((int) position);
+		position += 4;
+		return val;
+	}
+
+	public byte[] get(int len) throws ReadFailedException {
+		byte[] bytes = new byte[len];
+		if (available(len)) {
+			ByteBuffer src = buf.duplicate();
+			src.position((int) position);
+			src.get(bytes);
+			position += len;
+		} else {
+			for (int i = 0; i < len; i++)
+				bytes[i] = get();
+		}
+		return bytes;
+	}
+
+	public byte[] getZString() throws ReadFailedException {
+		int start = (int) position;
+		int end = start;
+		while (end >= 0 && end < size && buf.get(end) != 0)
+			end++;
+		byte[] bytes = get(end - start);
+		// skip the terminating zero
+		get();
+		return bytes;
+	}
+
+	public String getBase11str(byte firstChar, char delimiter) {
+		return BufferedImgFileReader.getBase11str(this, firstChar, delimiter);
+	}
+}
@@ -14,13 +14,14 @@
 package uk.me.parabola.imgfmt.app.dem;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Area;
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.BufferedImgFileWriter;
 import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.reader.hgt.HGTConverter;
@@ -49,7 +50,7 @@ public class DEMFile extends ImgFile {
 			setWriter(new BufferedImgFileWriter(chan));
 			position(DEMHeader.HEADER_LEN);
 		} else {
-			setReader(new BufferedImgFileReader(chan));
+			setReader(MappedImgFileReader.open(chan));
 			demHeader.readHeader(getReader());
 		}
 	}
@@ -68,10 +69,13 @@ public class DEMFile extends ImgFile {
 	 * @param outsidePolygonHeight
 	 *            the height value that should be used for points outside of the
 	 *            bounding polygon
+	 * @param maxThreads
+	 *            the number of threads that may be used to calculate the tiles
+	 *            of a section, the result doesn't depend on it
 	 * @return a new bounding box that should be used for the TRE file
 	 */
 	public Area calc(Area area, java.awt.geom.Area demPolygonMapUnits, String pathsToHGT, List<Integer> pointDistances,
-			short outsidePolygonHeight, InterpolationMethod interpolationMethod) {
+			short outsidePolygonHeight, InterpolationMethod interpolationMethod, int maxThreads) {
 		// HGT area is extended by EXTRA degrees in each direction
 		HGTConverter hgtConverter = new HGTConverter(pathsToHGT, area, demPolygonMapUnits, EXTRA);
 		hgtConverter.setInterpolationMethod(interpolationMethod);
@@ -88,6 +92,19 @@ public class DEMFile extends ImgFile {
 		int left = treArea.getMinLong() * 256;
 		int right = treArea.getMaxLong() * 256;
 
+		ForkJoinPool pool = (maxThreads > 1) ? new ForkJoinPool(maxThreads) : null;
+		try {
+			calcSections(hgtConverter, pointDistances, top, bottom, left, right, pool);
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+			hgtConverter.freeAllMem();
+		}
+		return treArea;
+	}
+
+	private void calcSections(HGTConverter hgtConverter, List<Integer> pointDistances, int top, int bottom, int left,
+			int right, ForkJoinPool pool) {
 		int zoom = 0;
 		int lastDist = pointDistances.get(pointDistances.size() - 1);
 		for (int pointDist : pointDistances) {
@@ -110,10 +127,9 @@ public class DEMFile extends ImgFile {
 			}
 
 			DEMSection section = new DEMSection(zoom++, xTop, xLeft, xTop - bottom, right - xLeft, hgtConverter,
-					distance, pointDist == lastDist);
+					distance, pointDist == lastDist, pool);
 			demHeader.addSection(section);
 		}
-		return treArea;
 	}
 
 	private Area calcTREBounds(Area area, int alignment) {
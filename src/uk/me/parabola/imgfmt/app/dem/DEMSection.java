@@ -13,7 +13,10 @@
 package uk.me.parabola.imgfmt.app.dem;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
@@ -56,9 +59,10 @@ public class DEMSection {
 	 * @param hgtConverter the hgt converter
 	 * @param pointDist distance in DEM units between to height samples  
 	 * @param lastLevel: set to true to signal that readers are no longer needed for further levels 
+	 * @param pool if not null, the rows of tiles are calculated in parallel with this pool
 	 */
 	public DEMSection(int zoomLevel, int areaTop, int areaLeft, int areaHeight, int areaWidth,
-			HGTConverter hgtConverter, int pointDist, boolean lastLevel) {
+			HGTConverter hgtConverter, int pointDist, boolean lastLevel, ForkJoinPool pool) {
 		this.zoomLevel = zoomLevel;
 		this.lastLevel = lastLevel;
 		
@@ -81,7 +85,7 @@ public class DEMSection {
 		nonStdHeight = latInfo[1];
 		nonStdWidth = lonInfo[1];
 		log.info("calculating zoom level:",zoomLevel,", dist:",pointDist,tilesLon,"x",tilesLat,"std tiles, nonstd x/y",nonStdWidth,"/",nonStdHeight);
-		calcTiles(hgtConverter);
+		calcTiles(hgtConverter, pool);
 	}
 
 	/**
@@ -113,50 +117,46 @@ public class DEMSection {
 	}
 	
 	
-	private void calcTiles(HGTConverter hgtConverter) {
-		int resLon = pointsPerLon * pointsDistanceLon;
-		int resLat = pointsPerLat * pointsDistanceLat;
-		int latOff;
-		int lonOff;
+	private void calcTiles(HGTConverter hgtConverter, ForkJoinPool pool) {
+		DEMTile[] calculated = new DEMTile[tilesLat * tilesLon];
+		if (pool == null || tilesLat == 1) {
+			for (int m = 0; m < tilesLat; m++) {
+				calcRow(hgtConverter, m, calculated);
+				if (lastLevel) {
+					hgtConverter.freeMem();
+				}
+			}
+		} else {
+			// each row gets its own converter, the readers are shared
+			HGTConverter[] workers = new HGTConverter[tilesLat];
+			for (int m = 0; m < tilesLat; m++) {
+				workers[m] = hgtConverter.copyForWorker();
+			}
+			pool.invoke(new RowCalculator(workers, 0, tilesLat, calculated, log.threadTag()));
+			for (HGTConverter worker : workers) {
+				hgtConverter.addStat(worker);
+			}
+		}
+		tiles.addAll(Arrays.asList(calculated));
+
 		int dataLen = 0;
 		int minBaseHeight = Integer.MAX_VALUE;
 		int maxBaseHeight = Integer.MIN_VALUE;
 		int maxDeltaHeight = Integer.MIN_VALUE;
-	
-		for (int m = 0; m < tilesLat; m++) {
-			latOff = top - m * resLat;
-			
-			int height = pointsPerLat;
-			if (m + 1 == tilesLat) {
-				height = nonStdHeight;
-			}
-			for (int n = 0; n < tilesLon; n++) {
-				lonOff = left + n * resLon;
-				int width = pointsPerLon;
-				if (n + 1 == tilesLon) {
-					width = nonStdWidth;
-				}
-				short[] realHeights = hgtConverter.getHeights(latOff, lonOff, height, width);
-				DEMTile tile;
-				tile = new DEMTile(n, m, width, height, realHeights);
-				tiles.add(tile);
-				if (tile.getEncodingType() != 0)
-					hasExtra = true;
-				if (tile.hasValidHeights()) {
-					if (tile.getBaseHeight() < minBaseHeight)
-						minBaseHeight = tile.getBaseHeight();
-					if (tile.getBaseHeight() > maxBaseHeight)
-						maxBaseHeight = tile.getBaseHeight();
-					if (tile.getMaxHeight() > maxHeight)
-						maxHeight = tile.getMaxHeight();
-					if (tile.getMaxDeltaHeight() > maxDeltaHeight)
-						maxDeltaHeight = tile.getMaxDeltaHeight();
-				}
-				dataLen += tile.getBitStreamLen();
-			}
-			if (lastLevel) {
-				hgtConverter.freeMem();
+		for (DEMTile tile : tiles) {
+			if (tile.getEncodingType() != 0)
+				hasExtra = true;
+			if (tile.hasValidHeights()) {
+				if (tile.getBaseHeight() < minBaseHeight)
+					minBaseHeight = tile.getBaseHeight();
+				if (tile.getBaseHeight() > maxBaseHeight)
+					maxBaseHeight = tile.getBaseHeight();
+				if (tile.getMaxHeight() > maxHeight)
+					maxHeight = tile.getMaxHeight();
+				if (tile.getMaxDeltaHeight() > maxDeltaHeight)
+					maxDeltaHeight = tile.getMaxDeltaHeight();
 			}
+			dataLen += tile.getBitStreamLen();
 		}
 		
 		hgtConverter.printStat();
@@ -182,6 +182,67 @@ public class DEMSection {
 		
 	}
 
+	/**
+	 * Calculate and encode one row of tiles.
+	 * @param hgtConverter the converter, it must not be used by other threads
+	 * @param m the row number, 0 is the top row
+	 * @param calculated the array that receives the tiles
+	 */
+	private void calcRow(HGTConverter hgtConverter, int m, DEMTile[] calculated) {
+		int resLon = pointsPerLon * pointsDistanceLon;
+		int resLat = pointsPerLat * pointsDistanceLat;
+		int latOff = top - m * resLat;
+		int height = pointsPerLat;
+		if (m + 1 == tilesLat) {
+			height = nonStdHeight;
+		}
+		for (int n = 0; n < tilesLon; n++) {
+			int lonOff = left + n * resLon;
+			int width = pointsPerLon;
+			if (n + 1 == tilesLon) {
+				width = nonStdWidth;
+			}
+			short[] realHeights = hgtConverter.getHeights(latOff, lonOff, height, width);
+			calculated[m * tilesLon + n] = new DEMTile(n, m, width, height, realHeights);
+		}
+	}
+
+	/**
+	 * Calculates a range of rows with fork/join. 
+	 */
+	private class RowCalculator extends RecursiveAction {
+		private final HGTConverter[] workers;
+		private final int from;
+		private final int to;
+		private final DEMTile[] calculated;
+		private final String threadTag;
+
+		RowCalculator(HGTConverter[] workers, int from, int to, DEMTile[] calculated, String threadTag) {
+			this.workers = workers;
+			this.from = from;
+			this.to = to;
+			this.calculated = calculated;
+			this.threadTag = threadTag;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				String oldTag = log.threadTag();
+				log.threadTag(threadTag);
+				try {
+					calcRow(workers[from], from, calculated);
+				} finally {
+					log.threadTag(oldTag);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RowCalculator(workers, from, mid, calculated, threadTag),
+					new RowCalculator(workers, mid, to, calculated, threadTag));
+		}
+	}
+
 	public void writeHeader(ImgFileWriter writer) {
 		writer.put1u(unknown1);	//0x00 
 		writer.put1u(zoomLevel);	//0x01 
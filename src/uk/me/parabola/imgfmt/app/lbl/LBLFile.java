@@ -27,6 +27,7 @@ import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import uk.me.parabola.imgfmt.app.Label;
 import uk.me.parabola.imgfmt.app.labelenc.BaseEncoder;
+import uk.me.parabola.imgfmt.app.labelenc.CharacterDecoder;
 import uk.me.parabola.imgfmt.app.labelenc.CharacterEncoder;
 import uk.me.parabola.imgfmt.app.labelenc.CodeFunctions;
 import uk.me.parabola.imgfmt.app.labelenc.EncodedText;
@@ -49,6 +50,10 @@ public class LBLFile extends ImgFile {
 	private static final Logger log = Logger.getLogger(LBLFile.class);
 
 	private CharacterEncoder textEncoder = CodeFunctions.getDefaultEncoder();
+	private CharacterDecoder textDecoder = CodeFunctions.getDefaultDecoder();
+
+	// the text of the labels as it is read back from the file, see keepLabelText()
+	private Map<Label, String> labelText;
 
 	private final Map<EncodedText, Label> labelCache = new HashMap<>();
 
@@ -108,6 +113,7 @@ public class LBLFile extends ImgFile {
 		
 		lblHeader.setEncodingType(cfuncs.getEncodingType());
 		textEncoder = cfuncs.getEncoder();
+		textDecoder = cfuncs.getDecoder();
 		if (forceUpper && textEncoder instanceof BaseEncoder) {
 			BaseEncoder baseEncoder = (BaseEncoder) textEncoder;
 			baseEncoder.setUpperCase(true);
@@ -119,6 +125,31 @@ public class LBLFile extends ImgFile {
 		
 		lblHeader.setEncodingType(cfuncs.getEncodingType());
 		textEncoder = cfuncs.getEncoder();
+		textDecoder = cfuncs.getDecoder();
+	}
+
+	public int getEncodingType() {
+		return lblHeader.getEncodingType();
+	}
+
+	/**
+	 * Keep the text of all labels that are created from now on, as it
+	 * would be read back from the file. For example, with the format 6
+	 * encoding it is in upper case.
+	 */
+	public void keepLabelText() {
+		labelText = new HashMap<>();
+	}
+
+	/**
+	 * @param label A label of this file.
+	 * @return The text of the label as it would be read back from the
+	 * file, only available after {@link #keepLabelText()}.
+	 */
+	public String getLabelText(Label label) {
+		if (label.getOffset() == 0)
+			return "";
+		return labelText.get(label);
 	}
 	
 	/**
@@ -139,6 +170,8 @@ public class LBLFile extends ImgFile {
 			l.setOffset(getNextLabelOffset());
 			if (encodedText.getLength() > 0)
 				getWriter().put(encodedText.getCtext(), 0, encodedText.getLength());
+			if (labelText != null)
+				labelText.put(l, decode(encodedText));
 
 			alignForNext();
 
@@ -149,6 +182,19 @@ public class LBLFile extends ImgFile {
 		return l;
 	}
 
+	private String decode(EncodedText encodedText) {
+		byte[] ctext = encodedText.getCtext();
+		textDecoder.reset();
+		boolean done = false;
+		for (int i = 0; i < encodedText.getLength() && !done; i++)
+			done = textDecoder.addByte(ctext[i]);
+		// The six bit format can end in the middle of the last byte, the
+		// end marker is then completed by whatever byte follows.
+		if (!done)
+			textDecoder.addByte(0);
+		return textDecoder.getText().getText();
+	}
+
 	/**
 	 * Align for the next label.
 	 *
@@ -20,10 +20,10 @@ import java.util.Map;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import uk.me.parabola.imgfmt.Utils;
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileReader;
 import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.app.labelenc.CharacterDecoder;
 import uk.me.parabola.imgfmt.app.labelenc.CodeFunctions;
 import uk.me.parabola.imgfmt.app.labelenc.DecodedText;
@@ -64,7 +64,7 @@ public class LBLFileReader extends ImgFile {
 	public LBLFileReader(ImgChannel chan, boolean fullData) {
 		setHeader(header);
 
-		setReader(new BufferedImgFileReader(chan));
+		setReader(MappedImgFileReader.open(chan));
 		header.readHeader(getReader());
 		if (!fullData)
 			return;
@@ -31,6 +31,7 @@ import uk.me.parabola.imgfmt.app.Label;
 import uk.me.parabola.imgfmt.app.srt.CombinedSortKey;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
 import uk.me.parabola.imgfmt.app.trergn.Subdivision;
 
 /**
@@ -88,11 +89,12 @@ public class PlacesFile {
 
 		placeHeader.endCity(writer.position());
 
+		SortKeyArena arena = sort.createKeyArena();
 		for (List<POIIndex> pil : poiIndex.values()) {
 			// sort entries by POI name
 			List<SortKey<POIIndex>> sorted = new ArrayList<>();
 			for (POIIndex index : pil) {
-				SortKey<POIIndex> sortKey = sort.createSortKey(index, index.getName());
+				SortKey<POIIndex> sortKey = arena.createSortKey(index, index.getName());
 				sorted.add(sortKey);
 			}
 			sorted.sort(null);
@@ -307,9 +309,10 @@ public class PlacesFile {
 	 * But why not?
 	 */
 	private void sortCountries() {
+		SortKeyArena arena = sort.createKeyArena();
 		List<SortKey<Country>> keys = new ArrayList<>();
 		for (Country c : countries.values()) {
-			SortKey<Country> key = sort.createSortKey(c, c.getLabel());
+			SortKey<Country> key = arena.createSortKey(c, c.getLabel());
 			keys.add(key);
 		}
 		keys.sort(null);
@@ -327,9 +330,10 @@ public class PlacesFile {
 	 * Sort the regions by the defined sort.
 	 */
 	private void sortRegions() {
+		SortKeyArena arena = sort.createKeyArena();
 		List<SortKey<Region>> keys = new ArrayList<>();
 		for (Region r : regions.values()) {
-			SortKey<Region> key = sort.createSortKey(r, r.getLabel(), r.getCountry().getIndex());
+			SortKey<Region> key = arena.createSortKey(r, r.getLabel(), r.getCountry().getIndex());
 			keys.add(key);
 		}
 		keys.sort(null);
@@ -347,9 +351,10 @@ public class PlacesFile {
 	 * Sort the cities by the defined sort.
 	 */
 	private void sortCities() {
+		SortKeyArena arena = sort.createKeyArena();
 		List<SortKey<City>> keys = new ArrayList<>();
 		for (City c : cityList) {
-			SortKey<City> sortKey = sort.createSortKey(c, c.getLabel());
+			SortKey<City> sortKey = arena.createSortKey(c, c.getLabel());
 			sortKey = new CombinedSortKey<>(sortKey, c.getRegionNumber(), c.getCountryNumber());
 			keys.add(sortKey);
 		}
@@ -365,9 +370,10 @@ public class PlacesFile {
 	}
 
 	private void sortZips() {
+		SortKeyArena arena = sort.createKeyArena();
 		List<SortKey<Zip>> keys = new ArrayList<>();
 		for (Zip c : postalCodes.values()) {
-			SortKey<Zip> sortKey = sort.createSortKey(c, c.getLabel());
+			SortKey<Zip> sortKey = arena.createSortKey(c, c.getLabel());
 			keys.add(sortKey);
 		}
 		keys.sort(null);
@@ -30,6 +30,7 @@ import uk.me.parabola.imgfmt.app.net.NODFile;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.trergn.InternalFiles;
 import uk.me.parabola.imgfmt.app.trergn.MapObject;
+import uk.me.parabola.imgfmt.app.trergn.OverviewFeatures;
 import uk.me.parabola.imgfmt.app.trergn.PointOverview;
 import uk.me.parabola.imgfmt.app.trergn.PolygonOverview;
 import uk.me.parabola.imgfmt.app.trergn.PolylineOverview;
@@ -71,6 +72,8 @@ public class Map implements InternalFiles, Configurable {
 	private NODFile nodFile;
 	private DEMFile demFile;
 
+	private OverviewFeatures overviewFeatures;
+
 	// Use createMap() or loadMap() instead of creating a map directly.
 	private Map() {
 	}
@@ -271,6 +274,18 @@ public class Map implements InternalFiles, Configurable {
 			netFile.setSort(sort);
 	}
 
+	/**
+	 * Keep the points, lines and shapes of the map as they are written, so
+	 * that they can be added to the overview map without reading the file.
+	 * Must be called before anything is added to the map.
+	 * @return The features, they are complete when the map is closed.
+	 */
+	public OverviewFeatures recordOverviewFeatures() {
+		overviewFeatures = new OverviewFeatures(lblFile);
+		rgnFile.setOverviewFeatures(overviewFeatures);
+		return overviewFeatures;
+	}
+
 	public void setLabelCharset(String desc, boolean forceUpper) {
 		lblFile.setCharacterType(desc, forceUpper);
 	}
@@ -281,6 +296,8 @@ public class Map implements InternalFiles, Configurable {
 	 * Some history: 
 	 */
 	public void close() {
+		if (overviewFeatures != null)
+			overviewFeatures.finish(treFile);
 		fileSystem.close();
 	}
 
@@ -60,7 +60,16 @@ public class MapReader implements Closeable {
 	private final Deque<Closeable> toClose = new ArrayDeque<>();
 
 	public MapReader(String filename) throws FileNotFoundException {
-		FileSystem fs = ImgFS.openFs(filename);
+		this(filename, false);
+	}
+
+	/**
+	 * @param filename The name of the img file.
+	 * @param mapped True to read the file through a memory mapping, see
+	 * {@link ImgFS#openFs(String, boolean)}.
+	 */
+	public MapReader(String filename, boolean mapped) throws FileNotFoundException {
+		FileSystem fs = ImgFS.openFs(filename, mapped);
 		saveForClose(fs);
 
 		List<DirectoryEntry> entries = fs.list();
@@ -12,26 +12,85 @@
  */
  package uk.me.parabola.imgfmt.app.mdr;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import uk.me.parabola.imgfmt.MapFailedException;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
+import uk.me.parabola.log.Logger;
 
 /**
  * Helper class to perform sort on possibly large lists using sort keys.
  * The list are divided into chunks so that the peak memory usage is reduced.
+ * The bytes of the keys are held in a {@link SortKeyArena}.
+ * With more than one thread the keys of a chunk are created and sorted
+ * with fork/join. The sort is stable, so the result doesn't depend on the
+ * number of threads.
+ *
+ * When a memory budget is given, lists whose keys need more memory are
+ * sorted with an external merge sort: the keys are written in sorted runs to
+ * temporary files, which are then merged.
  * @author Gerd Petermann
  *
  * @param <T>
  */
 public abstract class LargeListSorter<T extends NamedRecord> {
+	private static final Logger log = Logger.getLogger(LargeListSorter.class);
+
+	/** Chunks smaller than this are always sorted in the calling thread. */
+	private static final int MIN_PARALLEL_SIZE = 10_000;
+	/** The number of keys that are created by a single fork/join task. */
+	private static final int KEYS_PER_TASK = 4096;
+	/** The estimated heap size of a key in a run, not counting the key bytes. */
+	private static final int RUN_KEY_OVERHEAD = 64;
+	/** The limits for the buffer of each run while merging. */
+	private static final int MIN_RUN_BUFFER = 4096;
+	private static final int MAX_RUN_BUFFER = 1 << 20;
+
 	private final Sort sort;
+	private final int maxThreads;
+	private ForkJoinPool pool;
+	private File tmpDir;
+	private long memoryBudget;
 	
 	public LargeListSorter(Sort sort) {
+		this(sort, 1);
+	}
+
+	/**
+	 * @param sort the sort
+	 * @param maxThreads the number of threads that may be used
+	 */
+	public LargeListSorter(Sort sort, int maxThreads) {
 		this.sort = sort;
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * Use the number of threads, the directory for temporary files and the
+	 * memory budget of the configuration.
+	 * @param sort the sort
+	 * @param config the configuration of the index
+	 */
+	public LargeListSorter(Sort sort, MdrConfig config) {
+		this(sort, config.getMaxThreads());
+		tmpDir = config.getOutputDir();
+		memoryBudget = config.getSortMemory();
 	}
 
 	/**
@@ -39,7 +98,17 @@ public abstract class LargeListSorter<T extends NamedRecord> {
 	 * @param list list of records.
 	 */
 	public void sort(List<T> list) {
-		mergeSort(0, list, 0, list.size());
+		try {
+			if (memoryBudget > 0)
+				externalSort(list);
+			else
+				mergeSort(0, list, 0, list.size());
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
 	}
 	
 	/**
@@ -55,15 +124,16 @@ public abstract class LargeListSorter<T extends NamedRecord> {
 			mergeSort(depth+1,list, start, len / 2); // left
 			mergeSort(depth+1,list, start + len / 2, len - len / 2); // right
 			merge(list,start,len);
+		} else if (maxThreads > 1 && len >= MIN_PARALLEL_SIZE) {
+			sortChunkParallel(list, start, len);
 		} else {
 			// sort one chunk
-			Map<String, byte[]> cache = new HashMap<>();
+			SortKeyArena arena = sort.createKeyArena();
 			List<SortKey<T>> keys = new ArrayList<>(len);
 
 			for (int i = start; i < start + len; i++) {
-				keys.add(makeKey(list.get(i), sort, cache));
+				keys.add(makeKey(list.get(i), arena));
 			}
-			cache = null; // release memory
 			keys.sort(null);
 			
 			for (int i = 0; i < keys.size(); i++){ 
@@ -73,8 +143,299 @@ public abstract class LargeListSorter<T extends NamedRecord> {
 			}
 		}
 	}
+
+	/**
+	 * Sort one chunk using fork/join to create and sort the keys.
+	 */
+	private void sortChunkParallel(List<T> list, int start, int len) {
+		if (pool == null)
+			pool = new ForkJoinPool(maxThreads);
+		@SuppressWarnings("unchecked")
+		SortKey<T>[] keys = (SortKey<T>[]) new SortKey<?>[len];
+		pool.invoke(new KeyMaker(list, start, keys, 0, len));
+		// Arrays.parallelSort() is stable and uses the pool of the calling task
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				Arrays.parallelSort(keys);
+			}
+		});
+		for (int i = 0; i < len; i++) {
+			list.set(start + i, keys[i].getObject());
+		}
+	}
+
+	/**
+	 * Creates the keys for a range of the list. Each task that creates keys
+	 * has its own arena.
+	 */
+	private class KeyMaker extends RecursiveAction {
+		private final List<T> list;
+		private final int listStart;
+		private final SortKey<T>[] keys;
+		private final int from;
+		private final int to;
+
+		KeyMaker(List<T> list, int listStart, SortKey<T>[] keys, int from, int to) {
+			this.list = list;
+			this.listStart = listStart;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= KEYS_PER_TASK) {
+				SortKeyArena arena = sort.createKeyArena();
+				for (int i = from; i < to; i++)
+					keys[i] = makeKey(list.get(listStart + i), arena);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new KeyMaker(list, listStart, keys, from, mid),
+					new KeyMaker(list, listStart, keys, mid, to));
+		}
+	}
 	
-	
+	/**
+	 * Sort the list with runs that need at most the memory budget for their
+	 * keys. If there is more than one run, the runs are saved in temporary
+	 * files and merged. The keys are compared like the keys of the
+	 * {@link Sort}, equal keys are kept in the order of the list.
+	 */
+	private void externalSort(List<T> list) {
+		int size = list.size();
+		List<File> files = new ArrayList<>();
+		try {
+			List<IndexedKey<T>> run = new ArrayList<>();
+			SortKeyArena arena = sort.createKeyArena();
+			for (int i = 0; i < size; i++) {
+				run.add(new IndexedKey<>(makeKey(list.get(i), arena), i));
+				long used = arena.getSize() + (long) run.size() * RUN_KEY_OVERHEAD;
+				if (used >= memoryBudget && i + 1 < size) {
+					files.add(writeRun(sortRun(run)));
+					run.clear();
+					arena.clear();
+				}
+			}
+
+			int[] order = new int[size];
+			if (files.isEmpty()) {
+				IndexedKey<T>[] keys = sortRun(run);
+				for (int i = 0; i < size; i++)
+					order[i] = keys[i].index;
+			} else {
+				files.add(writeRun(sortRun(run)));
+				run = null;
+				log.info("merging", files.size(), "runs of", size, "sort keys");
+				mergeRuns(files, order);
+			}
+			permute(list, order);
+		} catch (IOException e) {
+			throw new MapFailedException("Could not sort with temporary files: " + e.getMessage());
+		} finally {
+			for (File f : files) {
+				if (!f.delete())
+					log.warn("could not delete temporary file", f);
+			}
+		}
+	}
+
+	private IndexedKey<T>[] sortRun(List<IndexedKey<T>> run) {
+		@SuppressWarnings("unchecked")
+		IndexedKey<T>[] keys = (IndexedKey<T>[]) run.toArray(new IndexedKey<?>[run.size()]);
+		if (maxThreads > 1 && keys.length >= MIN_PARALLEL_SIZE) {
+			if (pool == null)
+				pool = new ForkJoinPool(maxThreads);
+			pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					Arrays.parallelSort(keys);
+				}
+			});
+		} else {
+			Arrays.sort(keys);
+		}
+		return keys;
+	}
+
+	/**
+	 * Write a sorted run to a temporary file. The records have a fixed width,
+	 * the length of the longest key in the run:
+	 * key length (2 bytes), key bytes (padded), second (4), list index (4).
+	 */
+	private File writeRun(IndexedKey<T>[] keys) throws IOException {
+		int width = 0;
+		for (IndexedKey<T> k : keys)
+			width = Math.max(width, Sort.getKeyLength(k.key));
+
+		File f = File.createTempFile("mdrsort", null, tmpDir);
+		f.deleteOnExit();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 64 * 1024))) {
+			out.writeInt(width);
+			byte[] padding = new byte[width];
+			for (IndexedKey<T> k : keys) {
+				byte[] bytes = Sort.getKeyBytes(k.key);
+				out.writeShort(bytes.length);
+				out.write(bytes);
+				out.write(padding, 0, width - bytes.length);
+				out.writeInt(Sort.getSecond(k.key));
+				out.writeInt(k.index);
+			}
+		}
+		return f;
+	}
+
+	/**
+	 * Merge the runs with a heap of the first remaining key of each run.
+	 * @param files the files of the runs
+	 * @param order filled in with the list index of each position in the sorted list
+	 */
+	private void mergeRuns(List<File> files, int[] order) throws IOException {
+		int bufSize = (int) Math.max(MIN_RUN_BUFFER, Math.min(MAX_RUN_BUFFER, memoryBudget / files.size()));
+		List<RunReader> readers = new ArrayList<>();
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(files.size());
+		try {
+			for (File f : files) {
+				RunReader r = new RunReader(f, bufSize);
+				readers.add(r);
+				if (r.next())
+					queue.add(r);
+			}
+			int pos = 0;
+			while (!queue.isEmpty()) {
+				RunReader r = queue.poll();
+				order[pos++] = r.head.index;
+				if (r.next())
+					queue.add(r);
+			}
+			assert pos == order.length;
+		} finally {
+			for (RunReader r : readers)
+				r.close();
+		}
+	}
+
+	/**
+	 * Rearrange the list in place, so that position i gets the element that
+	 * was at order[i]. The order array is used up.
+	 */
+	private static <T> void permute(List<T> list, int[] order) {
+		for (int start = 0; start < order.length; start++) {
+			if (order[start] < 0)
+				continue;
+			if (order[start] == start) {
+				order[start] = -1;
+				continue;
+			}
+			// follow the cycle that starts here
+			T first = list.get(start);
+			int pos = start;
+			while (true) {
+				int from = order[pos];
+				order[pos] = -1;
+				if (from == start) {
+					list.set(pos, first);
+					break;
+				}
+				list.set(pos, list.get(from));
+				pos = from;
+			}
+		}
+	}
+
+	/**
+	 * The key of a record in a run and its position in the list, equal
+	 * keys are ordered by the position.
+	 */
+	private static class IndexedKey<T> implements Comparable<IndexedKey<T>> {
+		private final SortKey<T> key;
+		private final int index;
+
+		IndexedKey(SortKey<T> key, int index) {
+			this.key = key;
+			this.index = index;
+		}
+
+		public int compareTo(IndexedKey<T> other) {
+			int d = key.compareTo(other.key);
+			return d != 0 ? d : Integer.compare(index, other.index);
+		}
+	}
+
+	/**
+	 * The key of a record that was read from a run, compared like the sort
+	 * keys of {@link Sort} and then by the position in the list.
+	 */
+	private static class RunKey {
+		private final byte[] key;
+		private final int second;
+		private final int index;
+
+		RunKey(byte[] key, int second, int index) {
+			this.key = key;
+			this.second = second;
+			this.index = index;
+		}
+
+		int compare(RunKey other, int length1, int length2) {
+			if (key != other.key) {
+				int length = Math.min(length1, length2);
+				for (int i = 0; i < length; i++) {
+					int k1 = key[i] & 0xff;
+					int k2 = other.key[i] & 0xff;
+					if (k1 != k2)
+						return k1 < k2 ? -1 : 1;
+				}
+			}
+			if (second != other.second)
+				return second < other.second ? -1 : 1;
+			return Integer.compare(index, other.index);
+		}
+	}
+
+	/**
+	 * Reads the records of a run, the current record is in the head.
+	 */
+	private static class RunReader implements Comparable<RunReader> {
+		private final DataInputStream in;
+		private final byte[] key;
+		private RunKey head;
+		private int headLength;
+
+		RunReader(File f, int bufSize) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), bufSize));
+			key = new byte[in.readInt()];
+		}
+
+		/**
+		 * Read the next record.
+		 * @return false at the end of the run
+		 */
+		boolean next() throws IOException {
+			int length;
+			try {
+				length = in.readUnsignedShort();
+			} catch (EOFException e) {
+				return false;
+			}
+			// the key of the previous record is no longer in the queue
+			in.readFully(key);
+			head = new RunKey(key, in.readInt(), in.readInt());
+			headLength = length;
+			return true;
+		}
+
+		public int compareTo(RunReader other) {
+			return head.compare(other.head, headLength, other.headLength);
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+	}
+
 	private void merge(List<T> list, int start, int len) {
 		int pos1 = start;
 		int pos2 = start + len / 2;
@@ -85,13 +446,18 @@ public abstract class LargeListSorter<T extends NamedRecord> {
 		List<T> merged = new ArrayList<>();
 		SortKey<T> sk1 = null;
 		SortKey<T> sk2 = null;
+		// only the current key of each half is needed, so the arenas are reused
+		SortKeyArena arena1 = sort.createKeyArena();
+		SortKeyArena arena2 = sort.createKeyArena();
 		while (pos1 < stop1 &&  pos2 < stop2) {
 			if (fetch1) {
-				sk1 = makeKey(list.get(pos1), sort, null);
+				arena1.clear();
+				sk1 = makeKey(list.get(pos1), arena1);
 				fetch1 = false;
 			}
 			if (fetch2) {
-				sk2 = makeKey(list.get(pos2), sort, null);
+				arena2.clear();
+				sk2 = makeKey(list.get(pos2), arena2);
 				fetch2 = false;
 			}
 			int d = sk1.compareTo(sk2);
@@ -117,5 +483,11 @@ public abstract class LargeListSorter<T extends NamedRecord> {
 		}
 	}
 
-	protected abstract SortKey<T>  makeKey(T record, Sort sort, Map<String, byte[]> cache);
+	/**
+	 * Create the sort key for a record.
+	 * @param record the record
+	 * @param arena the arena that must be used to create the key
+	 * @return the key
+	 */
+	protected abstract SortKey<T> makeKey(T record, SortKeyArena arena);
 }
@@ -15,11 +15,11 @@ package uk.me.parabola.imgfmt.app.mdr;
 import java.util.Arrays;
 import java.util.Set;
 
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.FileBackedImgFileWriter;
 import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.app.lbl.Country;
 import uk.me.parabola.imgfmt.app.lbl.Region;
 import uk.me.parabola.imgfmt.app.lbl.Zip;
@@ -94,7 +94,7 @@ public class MDRFile extends ImgFile {
 			// Position at the start of the writable area.
 			position(mdrHeader.getHeaderLength());
 		} else {
-			setReader(new BufferedImgFileReader(chan));
+			setReader(MappedImgFileReader.open(chan));
 			mdrHeader.readHeader(getReader());
 		}
 
@@ -61,12 +61,12 @@ public class Mdr10 extends MdrMapSection {
 	}
 
 	public void writeSectData(ImgFileWriter writer) {
+		MdrUtils.sortLists(poiTypes, getConfig().getMaxThreads());
+
 		int count = 0;
 		for (List<Mdr10Record> poiGroup : poiTypes) {
 			if (poiGroup == null)
 				continue;
-			
-			poiGroup.sort(null);
 
 			String lastName = null;
 			int lastSub = -1;
@@ -16,11 +16,11 @@ package uk.me.parabola.imgfmt.app.mdr;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
 import uk.me.parabola.imgfmt.app.trergn.Point;
 
 /**
@@ -61,11 +61,11 @@ public class Mdr11 extends MdrMapSection {
 		pois.trimToSize();
 		Sort sort = getConfig().getSort();
 
-		LargeListSorter<Mdr11Record> sorter = new LargeListSorter<Mdr11Record>(sort) {
+		LargeListSorter<Mdr11Record> sorter = new LargeListSorter<Mdr11Record>(sort, getConfig()) {
 			
 			@Override
-			protected SortKey<Mdr11Record> makeKey(Mdr11Record r, Sort sort, Map<String, byte[]> cache) {
-				return sort.createSortKey(r, r.getName(), r.getMapIndex(), cache);
+			protected SortKey<Mdr11Record> makeKey(Mdr11Record r, SortKeyArena arena) {
+				return arena.createSortKey(r, r.getName(), r.getMapIndex());
 			}
 		};
 		sorter.sort(pois);
@@ -20,8 +20,8 @@ import java.util.List;
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import uk.me.parabola.imgfmt.app.srt.MultiSortKey;
-import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
 
 /**
  * Section containing cities.
@@ -57,15 +57,15 @@ public class Mdr5 extends MdrMapSection {
 		localCitySize = Utils.numberToPointerSize(maxCityIndex + 1);
 
 		List<SortKey<Mdr5Record>> sortKeys = new ArrayList<>(allCities.size());
-		Sort sort = getConfig().getSort();
+		SortKeyArena arena = getConfig().getSort().createKeyArena();
 		for (Mdr5Record m : allCities) {
 			if (m.getName() == null)
 				continue;
 
 			// Sort by city name, region name, country name and map index.
-			SortKey<Mdr5Record> sortKey = sort.createSortKey(m, m.getName());
-			SortKey<Mdr5Record> regionKey = sort.createSortKey(null, m.getRegionName());
-			SortKey<Mdr5Record> countryKey = sort.createSortKey(null, m.getCountryName(), m.getMapIndex());
+			SortKey<Mdr5Record> sortKey = arena.createSortKey(m, m.getName());
+			SortKey<Mdr5Record> regionKey = arena.createSortKey(null, m.getRegionName());
+			SortKey<Mdr5Record> countryKey = arena.createSortKey(null, m.getCountryName(), m.getMapIndex());
 			sortKey = new MultiSortKey<>(sortKey, regionKey, countryKey);
 			sortKeys.add(sortKey);
 		}
@@ -110,15 +110,15 @@ public class Mdr5 extends MdrMapSection {
 	 */
 	private void calcMdr20SortPos() {
 		List<SortKey<Mdr5Record>> sortKeys = new ArrayList<>(allCities.size());
-		Sort sort = getConfig().getSort();
+		SortKeyArena arena = getConfig().getSort().createKeyArena();
 		for (Mdr5Record m : allCities) {
 			if (m.getName() == null)
 				continue;
 
 			// Sort by city name, region name, and country name .
-			SortKey<Mdr5Record> sortKey = sort.createSortKey(m, m.getName());
-			SortKey<Mdr5Record> regionKey = sort.createSortKey(null, m.getRegionName());
-			SortKey<Mdr5Record> countryKey = sort.createSortKey(null, m.getCountryName());
+			SortKey<Mdr5Record> sortKey = arena.createSortKey(m, m.getName());
+			SortKey<Mdr5Record> regionKey = arena.createSortKey(null, m.getRegionName());
+			SortKey<Mdr5Record> countryKey = arena.createSortKey(null, m.getCountryName());
 			sortKey = new MultiSortKey<>(sortKey, regionKey, countryKey);
 			sortKeys.add(sortKey);
 		}
@@ -140,13 +140,13 @@ public class Mdr5 extends MdrMapSection {
 	 */
 	private void calcMdr21SortPos() {
 		List<SortKey<Mdr5Record>> sortKeys = new ArrayList<>(allCities.size());
-		Sort sort = getConfig().getSort();
+		SortKeyArena arena = getConfig().getSort().createKeyArena();
 		for (Mdr5Record m : allCities) {
 			if (m.getRegionName() == null) 
 				continue;
 
 			// Sort by region name.
-			sortKeys.add(sort.createSortKey(m, m.getRegionName()));
+			sortKeys.add(arena.createSortKey(m, m.getRegionName()));
 		}
 		sortKeys.sort(null);
 
@@ -167,13 +167,13 @@ public class Mdr5 extends MdrMapSection {
 
 	private void calcMdr22SortPos() {
 		List<SortKey<Mdr5Record>> sortKeys = new ArrayList<>(allCities.size());
-		Sort sort = getConfig().getSort();
+		SortKeyArena arena = getConfig().getSort().createKeyArena();
 		for (Mdr5Record m : allCities) {
 			if (m.getCountryName() == null)
 				continue;
 
 			// Sort by country name .
-			SortKey<Mdr5Record> countryKey = sort.createSortKey(m, m.getCountryName());
+			SortKey<Mdr5Record> countryKey = arena.createSortKey(m, m.getCountryName());
 			sortKeys.add(countryKey);
 		}
 		sortKeys.sort(null);
@@ -17,13 +17,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import uk.me.parabola.imgfmt.MapFailedException;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
 
 /**
  * The MDR 7 section is a list of all streets.  Only street names are saved
@@ -204,10 +204,10 @@ public class Mdr7 extends MdrMapSection {
 	@Override
 	protected void preWriteImpl() {
 		
-		LargeListSorter<Mdr7Record> partialSorter = new LargeListSorter<Mdr7Record>(sort) {
+		LargeListSorter<Mdr7Record> partialSorter = new LargeListSorter<Mdr7Record>(sort, getConfig()) {
 			@Override
-			protected SortKey<Mdr7Record> makeKey(Mdr7Record r, Sort sort, Map<String, byte[]> cache) {
-				return sort.createSortKey(r, r.getPartialName(), 0, cache); // first sort by partial name only
+			protected SortKey<Mdr7Record> makeKey(Mdr7Record r, SortKeyArena arena) {
+				return arena.createSortKey(r, r.getPartialName(), 0); // first sort by partial name only
 			}
 		};
 		
@@ -247,10 +247,10 @@ public class Mdr7 extends MdrMapSection {
 		// This sometimes presents search results in the wrong order. The partial sort fields allow to
 		// tell the right order.
 		
-		LargeListSorter<Mdr7Record> fullNameSorter = new LargeListSorter<Mdr7Record>(sort) {
+		LargeListSorter<Mdr7Record> fullNameSorter = new LargeListSorter<Mdr7Record>(sort, getConfig()) {
 			@Override
-			protected SortKey<Mdr7Record> makeKey(Mdr7Record r, Sort sort, Map<String, byte[]> cache) {
-				return sort.createSortKey(r, r.getName(), r.getMapIndex(), cache);
+			protected SortKey<Mdr7Record> makeKey(Mdr7Record r, SortKeyArena arena) {
+				return arena.createSortKey(r, r.getName(), r.getMapIndex());
 			}
 		};
 		
@@ -45,6 +45,8 @@ public class MdrConfig {
 	private Set<String> mdr7Excl = Collections.emptySet();
 	private Set<String> mdr7Del = Collections.emptySet();
 	private Set<Integer> poiExclTypes = Collections.emptySet();
+	private int maxThreads = 1;
+	private long sortMemory;
 	
 	public MdrConfig() {
 		
@@ -59,6 +61,8 @@ public class MdrConfig {
 		mdr7Del = base.getMdr7Del();
 		mdr7Excl = base.getMdr7Excl();
 		poiExclTypes = base.getPoiExclTypes();
+		maxThreads = base.getMaxThreads();
+		sortMemory = base.getSortMemory();
 	}
 
 	/**
@@ -193,10 +197,37 @@ public class MdrConfig {
 		return Collections.unmodifiableSet(poiExclTypes);
 	}
 
+	/**
+	 * The number of threads that can be used to read the maps and to sort
+	 * the larger sections.
+	 */
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	public void setMaxThreads(int maxThreads) {
+		this.maxThreads = Math.max(1, maxThreads);
+	}
+
+	/**
+	 * The memory in bytes that the sort keys of a section may use before
+	 * they are sorted with temporary files. Zero to always sort in memory.
+	 */
+	public long getSortMemory() {
+		return sortMemory;
+	}
+
+	public void setSortMemory(long sortMemory) {
+		this.sortMemory = Math.max(0, sortMemory);
+	}
+
 	public void setIndexOptions(CommandArgs args) {
 		setSplitName(args.get("split-name-index", false));
 		mdr7Excl = args.argToSet("mdr7-excl", null);
 		mdr7Del = args.argToSet("mdr7-del", null);
 		setPoiExcl(args.argToList("poi-excl-index", null));
+		// use as many threads as are used for the tiles, all cores if that isn't known
+		setMaxThreads(args.get("max-jobs", Runtime.getRuntime().availableProcessors()));
+		setSortMemory(args.get("index-sort-memory", 0) * 1024L * 1024);
 	}
 }
@@ -13,11 +13,15 @@
 package uk.me.parabola.imgfmt.app.mdr;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import uk.me.parabola.mkgmap.general.MapPoint;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
 
 /**
  * A bunch of static routines for use in creating the MDR file.
@@ -101,14 +105,58 @@ public class MdrUtils {
 	 */
 	public static <T extends NamedRecord> List<SortKey<T>> sortList(Sort sort, List<T> list) {
 		List<SortKey<T>> toSort = new ArrayList<>(list.size());
+		SortKeyArena arena = sort.createKeyArena();
 		for (T m : list) {
-			SortKey<T> sortKey = sort.createSortKey(m, m.getName(), m.getMapIndex());
+			SortKey<T> sortKey = arena.createSortKey(m, m.getName(), m.getMapIndex());
 			toSort.add(sortKey);
 		}
 		toSort.sort(null);
 		return toSort;
 	}
 
+	/**
+	 * Sort each of the given lists in natural order. The lists are sorted at
+	 * the same time, each one with a stable parallel sort, so the result is
+	 * the same as with {@link List#sort}.
+	 * @param lists The lists to be sorted, null entries are allowed.
+	 * @param maxThreads The number of threads to use.
+	 */
+	public static <T extends Comparable<? super T>> void sortLists(List<List<T>> lists, int maxThreads) {
+		if (maxThreads <= 1) {
+			for (List<T> list : lists) {
+				if (list != null)
+					list.sort(null);
+			}
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(maxThreads);
+		try {
+			pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					List<RecursiveAction> tasks = new ArrayList<>();
+					for (List<T> list : lists) {
+						if (list != null && list.size() > 1) {
+							tasks.add(new RecursiveAction() {
+								@Override
+								@SuppressWarnings("unchecked")
+								protected void compute() {
+									Object[] arr = list.toArray();
+									Arrays.parallelSort(arr, (o1, o2) -> ((T) o1).compareTo((T) o2));
+									for (int i = 0; i < arr.length; i++)
+										list.set(i, (T) arr[i]);
+								}
+							});
+						}
+					}
+					invokeAll(tasks);
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	/**
 	 * The 'natural' type is always a combination of the type and subtype with the type
 	 * shifted 5 bits and the sub type in the low 5 bits.
@@ -21,10 +21,10 @@ import java.util.Set;
 
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import uk.me.parabola.imgfmt.Utils;
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileReader;
 import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.app.lbl.City;
 import uk.me.parabola.imgfmt.app.lbl.LBLFileReader;
 import uk.me.parabola.imgfmt.app.lbl.Zip;
@@ -50,7 +50,7 @@ public class NETFileReader extends ImgFile {
 	public NETFileReader(ImgChannel chan) {
 		setHeader(netHeader);
 
-		setReader(new BufferedImgFileReader(chan));
+		setReader(MappedImgFileReader.open(chan));
 		netHeader.readHeader(getReader());
 
 		readLabelOffsets();
@@ -19,10 +19,10 @@ package uk.me.parabola.imgfmt.app.net;
 import java.util.ArrayList;
 import java.util.List;
 
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.BufferedImgFileWriter;
 import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.app.Section;
 import uk.me.parabola.imgfmt.app.SectionWriter;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
@@ -62,7 +62,7 @@ public class NODFile extends ImgFile {
 			setWriter(new BufferedImgFileWriter(chan));
 			position(NODHeader.HEADER_LEN);
 		} else {
-			setReader(new BufferedImgFileReader(chan));
+			setReader(MappedImgFileReader.open(chan));
 			nodHeader.readHeader(getReader());
 		}
 	}
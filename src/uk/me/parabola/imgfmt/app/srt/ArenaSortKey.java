@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.srt;
+
+import java.util.Arrays;
+
+/**
+ * A sort key whose bytes are held in a {@link SortKeyArena}. It compares
+ * like a {@link SrtSortKey}: by the bytes up to the length of the shorter
+ * key and then by the secondary value.
+ */
+class ArenaSortKey<T> implements SortKey<T> {
+	private final T orig;
+	private final SortKeyArena arena;
+	private final int offset;
+	private final int length;
+	private final int second;
+
+	ArenaSortKey(T orig, SortKeyArena arena, int offset, int length, int second) {
+		this.orig = orig;
+		this.arena = arena;
+		this.offset = offset;
+		this.length = length;
+		this.second = second;
+	}
+
+	public int compareTo(SortKey<T> o) {
+		ArenaSortKey<T> other = (ArenaSortKey<T>) o;
+		if (arena != other.arena || offset != other.offset) {
+			int d = SortKeyArena.compare(arena, offset, other.arena, other.offset, Math.min(length, other.length));
+			if (d != 0)
+				return d;
+		}
+		return Integer.compare(second, other.second);
+	}
+
+	public T getObject() {
+		return orig;
+	}
+
+	byte[] getKey() {
+		return arena.getKey(offset, length);
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	int getSecond() {
+		return second;
+	}
+
+	public String toString() {
+		return String.format("%s,%d", Arrays.toString(getKey()), second);
+	}
+}
@@ -66,7 +66,8 @@ public class Sort {
 	private final List<CodePosition> expansions = new ArrayList<>();
 	private int maxExpSize = 1;
 
-	private CharsetEncoder encoder;
+	// CharsetEncoder is not thread safe, so each thread has its own
+	private ThreadLocal<CharsetEncoder> encoder;
 	private boolean multi;
 	private int maxPage;
 	private int headerLen = SRTHeader.HEADER_LEN; 
@@ -96,7 +97,7 @@ public class Sort {
 			if (isMulti()) {
 				chars = s.toCharArray();
 			} else {
-				ByteBuffer out = encoder.encode(CharBuffer.wrap(s));
+				ByteBuffer out = encoder.get().encode(CharBuffer.wrap(s));
 				byte[] bval = out.array();
 				chars = new char[bval.length];
 				for (int i = 0; i < bval.length; i++)
@@ -216,7 +217,7 @@ public class Sort {
 			if (isMulti()) {
 				chars = s.toCharArray();
 			} else {
-				ByteBuffer out = encoder.encode(CharBuffer.wrap(s));
+				ByteBuffer out = encoder.get().encode(CharBuffer.wrap(s));
 				byte[] bval = out.array();
 				chars = new char[bval.length];
 				for (int i = 0; i < bval.length; i++)
@@ -323,6 +324,57 @@ public class Sort {
 		return new SrtSortKey<>(object, key, second);
 	}
 
+	/**
+	 * Get the collation bytes of a key that was created by one of the
+	 * createSortKey methods or by a {@link SortKeyArena}, for example to
+	 * save the key in a file.
+	 * Keys are compared by the bytes up to the length of the shorter key
+	 * and then by the secondary value.
+	 *
+	 * @param key The sort key.
+	 * @return The bytes of the key, or null if the key was not created by
+	 * this class.
+	 */
+	public static byte[] getKeyBytes(SortKey<?> key) {
+		if (key instanceof SrtSortKey)
+			return ((SrtSortKey<?>) key).getKey();
+		if (key instanceof ArenaSortKey)
+			return ((ArenaSortKey<?>) key).getKey();
+		return null;
+	}
+
+	/**
+	 * Get the number of bytes of a key that was created by one of the
+	 * createSortKey methods.
+	 * @see #getKeyBytes(SortKey)
+	 */
+	public static int getKeyLength(SortKey<?> key) {
+		if (key instanceof ArenaSortKey)
+			return ((ArenaSortKey<?>) key).getLength();
+		return ((SrtSortKey<?>) key).getKey().length;
+	}
+
+	/**
+	 * Get the secondary value of a key that was created by one of the
+	 * createSortKey methods.
+	 * @see #getKeyBytes(SortKey)
+	 */
+	public static int getSecond(SortKey<?> key) {
+		if (key instanceof ArenaSortKey)
+			return ((ArenaSortKey<?>) key).getSecond();
+		return ((SrtSortKey<?>) key).getSecond();
+	}
+
+	/**
+	 * Create an arena for sort keys. The keys that are created by the arena
+	 * compare like the keys that are created by this class, but their bytes
+	 * are held in one large array of the arena.
+	 * @return A new empty arena.
+	 */
+	public SortKeyArena createKeyArena() {
+		return new SortKeyArena(this);
+	}
+
 	/**
 	 * Convenient version of create sort key method.
 	 * @see #createSortKey(Object, String, int, Map)
@@ -367,7 +419,7 @@ public class Sort {
 			needed = fillCompleteKey(chars, key);
 		} catch (ArrayIndexOutOfBoundsException e) {
 			// Ok try again with the max possible key size allocated.
-			key = new byte[(chars.length+1) * 4 * maxExpSize];
+			key = new byte[maxKeySize(chars.length)];
 			needed = fillCompleteKey(chars, key);
 		}
 		// check if we can save bytes by copying
@@ -388,22 +440,63 @@ public class Sort {
 	 * @return the needed number of bytes in case the buffer was large enough
 	 */
 	private int fillCompleteKey(char[] bVal, byte[] key) {
-		int start = fillKey(Collator.PRIMARY, bVal, key, 0);
-		start = fillKey(Collator.SECONDARY, bVal, key, start);
-		return fillKey(Collator.TERTIARY, bVal, key, start);
+		return fillCompleteKey(bVal, bVal.length, key, 0);
+	}
+
+	/**
+	 * Fill in the key for the first len characters at the given position
+	 * of the output.
+	 * @return The position after the key.
+	 */
+	int fillCompleteKey(char[] bVal, int len, byte[] key, int start) {
+		start = fillKey(Collator.PRIMARY, bVal, len, key, start);
+		start = fillKey(Collator.SECONDARY, bVal, len, key, start);
+		return fillKey(Collator.TERTIARY, bVal, len, key, start);
+	}
+
+	/**
+	 * The length of the array that {@link #makeKey} returns for a key.
+	 * The keys are compared up to the length of the shorter array, so this
+	 * includes any zero padding that is left in the array.
+	 * @param nChars The number of characters.
+	 * @param needed The number of bytes that were filled in.
+	 */
+	int keyArrayLength(int nChars, int needed) {
+		int length = (nChars + 1 + 2) * 4;
+		if (needed > length)
+			length = maxKeySize(nChars);
+		int neededBytes = (needed + 7) & ~7;
+		return neededBytes < length ? needed : length;
+	}
+
+	/**
+	 * @return The largest possible key for the given number of characters.
+	 */
+	int maxKeySize(int nChars) {
+		return (nChars + 1) * 4 * maxExpSize;
+	}
+
+	CharsetEncoder getEncoder() {
+		return encoder.get();
+	}
+
+	static byte[] getZeroKey() {
+		return ZERO_KEY;
 	}
 
 	/**
 	 * Fill in the output key for a given strength.
 	 *
 	 * @param input The input string in a particular 8 bit codepage.
+	 * @param len The number of characters of the input.
 	 * @param outKey The output sort key.
 	 * @param start The index into the output key to start at.
 	 * @return The next position in the output key.
 	 */
-	private int fillKey(int type, char[] input, byte[] outKey, int start) {
+	private int fillKey(int type, char[] input, int len, byte[] outKey, int start) {
 		int index = start;
-		for (char c : input) {
+		for (int n = 0; n < len; n++) {
+			char c = input[n];
 
 			if (!hasPage(c >>> 8))
 				continue;
@@ -495,8 +588,12 @@ public class Sort {
 		this.codepage = codepage;
 		charset = charsetFromCodepage(codepage);
 
-		encoder = charset.newEncoder();
-		encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		final Charset cs = charset;
+		encoder = ThreadLocal.withInitial(() -> {
+			CharsetEncoder enc = cs.newEncoder();
+			enc.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			return enc;
+		});
 	}
 
 	public String getDescription() {
@@ -718,8 +815,8 @@ public class Sort {
 				CharBuffer in1 = CharBuffer.wrap(source);
 				CharBuffer in2 = CharBuffer.wrap(target);
 				try {
-					byte[] bytes1 = encoder.encode(in1).array();
-					byte[] bytes2 = encoder.encode(in2).array();
+					byte[] bytes1 = encoder.get().encode(in1).array();
+					byte[] bytes2 = encoder.get().encode(in2).array();
 					chars1 = new char[bytes1.length];
 					for (int i = 0; i < bytes1.length; i++)
 						chars1[i] = (char) (bytes1[i] & 0xff);
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.srt;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.me.parabola.imgfmt.app.Label;
+
+/**
+ * Creates sort keys whose bytes are held in one large array, instead of an
+ * array for each key. The keys compare exactly like the keys that are
+ * created by {@link Sort#createSortKey}, eight bytes at a time.
+ *
+ * The bytes of the same string or label are only stored once, so a
+ * separate cache is not needed. The buffers for encoding the strings are
+ * reused, so an arena must only be used by one thread at a time. Keys of
+ * different arenas of the same sort can be compared with each other.
+ */
+public class SortKeyArena {
+	private static final int INITIAL_SIZE = 1024;
+	private static final Object ZERO = new Object();
+
+	private final Sort sort;
+
+	private byte[] data = new byte[INITIAL_SIZE];
+	// the same array, for reading eight bytes at a time
+	private ByteBuffer words = ByteBuffer.wrap(data);
+	private int size;
+	// all bytes from here on are zero
+	private int clean;
+
+	// the position and length of the key for each string or label
+	private final Map<Object, Long> keys = new HashMap<>();
+
+	private char[] chars = new char[64];
+	private ByteBuffer encoded = ByteBuffer.allocate(64);
+
+	SortKeyArena(Sort sort) {
+		this.sort = sort;
+	}
+
+	public <T> SortKey<T> createSortKey(T object, String s) {
+		return createSortKey(object, s, 0);
+	}
+
+	/**
+	 * Create a sort key for a string.
+	 * @param object This is saved in the sort key for later retrieval and plays no part in the sorting.
+	 * @param s The string for which the sort key is to be created.
+	 * @param second Secondary sort key.
+	 * @return A sort key.
+	 * @see Sort#createSortKey(Object, String, int, Map)
+	 */
+	public <T> SortKey<T> createSortKey(T object, String s, int second) {
+		if (s.isEmpty())
+			return zeroKey(object, second);
+
+		Long pos = keys.get(s);
+		if (pos == null) {
+			int len;
+			try {
+				len = toChars(s);
+			} catch (CharacterCodingException e) {
+				return zeroKey(object, 0);
+			}
+			pos = add(len);
+			keys.put(s, pos);
+		}
+		return newKey(object, pos, second);
+	}
+
+	public <T> SortKey<T> createSortKey(T object, Label label) {
+		return createSortKey(object, label, 0);
+	}
+
+	/**
+	 * Create a sort key for a label.
+	 * @see Sort#createSortKey(Object, Label, int, Map)
+	 */
+	public <T> SortKey<T> createSortKey(T object, Label label, int second) {
+		if (label.getLength() == 0)
+			return zeroKey(object, second);
+
+		Long pos = keys.get(label);
+		if (pos == null) {
+			char[] encText = label.getEncText();
+			ensureChars(encText.length);
+			System.arraycopy(encText, 0, chars, 0, encText.length);
+			pos = add(encText.length);
+			keys.put(label, pos);
+		}
+		return newKey(object, pos, second);
+	}
+
+	/**
+	 * Remove all keys. The keys that were created before must not be used
+	 * any more.
+	 */
+	public void clear() {
+		size = 0;
+		keys.clear();
+	}
+
+	/**
+	 * @return The number of bytes that are used by the keys.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	private <T> SortKey<T> zeroKey(T object, int second) {
+		Long pos = keys.get(ZERO);
+		if (pos == null) {
+			byte[] zero = Sort.getZeroKey();
+			ensureCapacity(zero.length);
+			System.arraycopy(zero, 0, data, size, zero.length);
+			pos = ((long) size << 32) | zero.length;
+			size += zero.length;
+			keys.put(ZERO, pos);
+		}
+		return newKey(object, pos, second);
+	}
+
+	private <T> SortKey<T> newKey(T object, long pos, int second) {
+		return new ArenaSortKey<>(object, this, (int) (pos >>> 32), (int) pos, second);
+	}
+
+	/**
+	 * Add the key for the characters in the buffer.
+	 * @return The position and length of the key.
+	 */
+	private long add(int len) {
+		ensureCapacity(sort.maxKeySize(len));
+		int end = sort.fillCompleteKey(chars, len, data, size);
+		// the same length as a key of the sort, the rest of the bytes are still zero
+		int length = sort.keyArrayLength(len, end - size);
+		long pos = ((long) size << 32) | length;
+		size += length;
+		return pos;
+	}
+
+	/**
+	 * Put the characters of the string into the buffer, for a single byte
+	 * code page they are encoded first.
+	 * @return The number of characters.
+	 */
+	private int toChars(String s) throws CharacterCodingException {
+		int len = s.length();
+		if (sort.isMulti()) {
+			ensureChars(len);
+			s.getChars(0, len, chars, 0);
+			return len;
+		}
+
+		CharsetEncoder enc = sort.getEncoder();
+		int max = (int) Math.ceil(len * enc.maxBytesPerChar()) + enc.replacement().length;
+		if (encoded.capacity() < max)
+			encoded = ByteBuffer.allocate(Math.max(max, encoded.capacity() * 2));
+		encoded.clear();
+		enc.reset();
+		CoderResult cr = enc.encode(CharBuffer.wrap(s), encoded, true);
+		if (cr.isUnderflow())
+			cr = enc.flush(encoded);
+		if (!cr.isUnderflow())
+			cr.throwException();
+
+		// CharsetEncoder.encode(CharBuffer) returns an array of this size,
+		// which is zero padded if a pair of chars was replaced by one byte
+		int n = Math.max(encoded.position(), (int) (len * enc.averageBytesPerChar()));
+		ensureChars(n);
+		byte[] bytes = encoded.array();
+		for (int i = 0; i < n; i++)
+			chars[i] = i < encoded.position() ? (char) (bytes[i] & 0xff) : 0;
+		return n;
+	}
+
+	private void ensureChars(int len) {
+		if (chars.length < len)
+			chars = new char[Math.max(len, chars.length * 2)];
+	}
+
+	/**
+	 * Make sure that there are n zero bytes after the used part.
+	 */
+	private void ensureCapacity(int n) {
+		if (size + n > data.length) {
+			long newSize = Math.max((long) size + n, (long) data.length * 2);
+			data = Arrays.copyOf(data, (int) Math.min(newSize, Integer.MAX_VALUE - 8));
+			words = ByteBuffer.wrap(data);
+		}
+		// after a clear the bytes of the old keys are still there
+		if (clean > size)
+			Arrays.fill(data, size, Math.min(clean, size + n), (byte) 0);
+		clean = Math.max(clean, size + n);
+	}
+
+	byte[] getKey(int offset, int length) {
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	/**
+	 * Compare the bytes of two keys, as unsigned values.
+	 */
+	static int compare(SortKeyArena a1, int off1, SortKeyArena a2, int off2, int length) {
+		ByteBuffer w1 = a1.words;
+		ByteBuffer w2 = a2.words;
+		int i = 0;
+		for (; i + 8 <= length; i += 8) {
+			long l1 = w1.getLong(off1 + i);
+			long l2 = w2.getLong(off2 + i);
+			if (l1 != l2)
+				return Long.compareUnsigned(l1, l2) < 0 ? -1 : 1;
+		}
+		byte[] d1 = a1.data;
+		byte[] d2 = a2.data;
+		for (; i < length; i++) {
+			int k1 = d1[off1 + i] & 0xff;
+			int k2 = d2[off2 + i] & 0xff;
+			if (k1 != k2)
+				return k1 < k2 ? -1 : 1;
+		}
+		return 0;
+	}
+}
@@ -21,9 +21,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.ImgFile;
 import uk.me.parabola.imgfmt.app.ImgFileReader;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.app.Section;
 import uk.me.parabola.imgfmt.app.labelenc.CharacterDecoder;
 import uk.me.parabola.imgfmt.app.labelenc.CodeFunctions;
@@ -60,7 +60,7 @@ public class SrtFileReader extends ImgFile {
 		decoder = funcs.getDecoder();
 		sort = new Sort();
 		setHeader(header);
-		setReader(new BufferedImgFileReader(chan));
+		setReader(MappedImgFileReader.open(chan));
 		header.readHeader(getReader());
 		sort.setHeaderLen(header.getHeaderLength());
 		readSrt1();
@@ -68,6 +68,14 @@ class SrtSortKey<T> implements SortKey<T> {
 		return orig;
 	}
 
+	byte[] getKey() {
+		return key;
+	}
+
+	int getSecond() {
+		return second;
+	}
+
 	public String toString() {
 		return String.format("%s,%d", Arrays.toString(key), second);
 	}
@@ -234,7 +234,8 @@ public class LinePreparer {
 	 */
 	private void calcDeltas() {
 		Subdivision subdiv = polyline.getSubdiv();
-		if(log.isDebugEnabled())
+		// the label is not yet known when the line is prepared in advance
+		if(log.isDebugEnabled() && polyline.getLabel() != null)
 			log.debug("label offset", polyline.getLabel().getOffset());
 		List<Coord> points = polyline.getPoints();
 
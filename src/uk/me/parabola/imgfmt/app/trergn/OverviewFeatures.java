@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.trergn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.me.parabola.imgfmt.app.BitReader;
+import uk.me.parabola.imgfmt.app.BitWriter;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.imgfmt.app.CoordNode;
+import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.lbl.LBLFile;
+
+/**
+ * The points, lines and shapes of a map, recorded while it is written.
+ * They are the same as the ones that the
+ * {@link uk.me.parabola.imgfmt.app.map.MapReader} would read back from the
+ * file. This is used to pass the features of the overview file of a tile
+ * to the overview map without reading the file again.
+ *
+ * The points of the lines and shapes are decoded from their bit streams,
+ * so they are rounded in exactly the same way. The labels have the text
+ * as it is read back from the LBL file. Only the type, the position and
+ * the label are kept, in plain arrays, so that the features of many tiles
+ * can wait for the overview map without holding on to the files of the
+ * tiles.
+ */
+public class OverviewFeatures {
+	private static final FeatureList EMPTY = new FeatureList();
+
+	// only needed while the map is written
+	private LBLFile lblFile;
+
+	private final Map<Integer, FeatureList> points = new HashMap<>();
+	private final Map<Integer, FeatureList> lines = new HashMap<>();
+	private final Map<Integer, FeatureList> shapes = new HashMap<>();
+
+	// The features of the current subdivision, they are read back in a
+	// different order than they are written. They are only kept until the
+	// subdivision is complete.
+	private Subdivision currentDivision;
+	private final List<Point> divIndPoints = new ArrayList<>();
+	private final List<Point> divPoints = new ArrayList<>();
+	private final List<Polyline> divLines = new ArrayList<>();
+	private final List<Polyline> divExtLines = new ArrayList<>();
+	private final List<Polygon> divShapes = new ArrayList<>();
+	private final List<Polygon> divExtShapes = new ArrayList<>();
+
+	private Zoom[] levels;
+	private String[] copyrights;
+	private int encodingType;
+
+	public OverviewFeatures(LBLFile lblFile) {
+		this.lblFile = lblFile;
+		lblFile.keepLabelText();
+	}
+
+	void startDivision(Subdivision sd) {
+		flush();
+		currentDivision = sd;
+	}
+
+	/**
+	 * Record a map object of the current subdivision, before it is written.
+	 * @param item The point, line or shape.
+	 * @param indexed True if it is an indexed point.
+	 */
+	void add(MapObject item, boolean indexed) {
+		boolean ext = item.hasExtendedType();
+		if (item instanceof Point) {
+			// The reader doesn't find the extended type points, it is
+			// given the size of their data instead of the end. They are
+			// left out here as well, so that the overview map is the same.
+			if (ext)
+				return;
+			Point point = (Point) item;
+			Point p = new Point(currentDivision);
+			p.setType(point.getType());
+			p.setDeltaLat(point.getDeltaLat());
+			p.setDeltaLong(point.getDeltaLong());
+			Label label = point.hasPOIRecord() ? point.getPOIRecord().getNameLabel() : point.getLabel();
+			p.setLabel(new Label(lblFile.getLabelText(label)));
+			if (indexed)
+				divIndPoints.add(p);
+			else
+				divPoints.add(p);
+			return;
+		}
+
+		Polyline line = (Polyline) item;
+		BitWriter bw = line.getBitStream();
+		if (bw == null)
+			return; // the line is not written
+
+		Polyline pl;
+		if (item instanceof Polygon) {
+			pl = new Polygon(currentDivision);
+			pl.setType(ext ? extType(line.getType()) : line.getType() & 0x7f);
+		} else {
+			pl = new Polyline(currentDivision);
+			pl.setType(ext ? extType(line.getType()) : line.getType() & 0x3f);
+		}
+		pl.setDeltaLat(line.getDeltaLat());
+		pl.setDeltaLong(line.getDeltaLong());
+		if (!ext || line.getLabel().getOffset() != 0)
+			pl.setLabel(new Label(lblFile.getLabelText(line.getLabel())));
+
+		// the first byte is the base, as in the file
+		byte[] bytes = bw.getBytes();
+		int len = bw.getLength() - 1;
+		BitReader br = new BitReader(Arrays.copyOfRange(bytes, 1, len + 1));
+		RGNFileReader.readBitStream(br, currentDivision, pl, !ext && line.hasExtraBit(), len, bytes[0] & 0xff);
+
+		if (pl instanceof Polygon)
+			(ext ? divExtShapes : divShapes).add((Polygon) pl);
+		else
+			(ext ? divExtLines : divLines).add(pl);
+	}
+
+	/**
+	 * The type of an extended feature as it is read back.
+	 */
+	private static int extType(int type) {
+		return 0x10000 | (type & 0xff00) | (type & 0x1f);
+	}
+
+	/**
+	 * Called when the map is complete, before it is closed.
+	 */
+	public void finish(TREFile treFile) {
+		flush();
+		currentDivision = null;
+
+		List<Zoom> zooms = treFile.getZooms();
+		levels = new Zoom[zooms.size()];
+		for (int i = 0; i < levels.length; i++)
+			levels[i] = new Zoom(zooms.get(i).getLevel(), zooms.get(i).getResolution());
+
+		List<Label> labels = treFile.getCopyrights();
+		copyrights = new String[labels.size()];
+		for (int i = 0; i < copyrights.length; i++)
+			copyrights[i] = lblFile.getLabelText(labels.get(i));
+
+		encodingType = lblFile.getEncodingType();
+		lblFile = null;
+	}
+
+	private void flush() {
+		if (currentDivision == null)
+			return;
+
+		int level = currentDivision.getZoom().getLevel();
+		FeatureList pl = points.computeIfAbsent(level, k -> new FeatureList());
+		for (Point p : divIndPoints)
+			pl.add(p.getType(), p.getLabel(), p.getLocation());
+		for (Point p : divPoints)
+			pl.add(p.getType(), p.getLabel(), p.getLocation());
+		FeatureList ll = lines.computeIfAbsent(level, k -> new FeatureList());
+		for (Polyline l : divLines)
+			ll.add(l.getType(), l.getLabel(), l.getPoints());
+		for (Polyline l : divExtLines)
+			ll.add(l.getType(), l.getLabel(), l.getPoints());
+		FeatureList sl = shapes.computeIfAbsent(level, k -> new FeatureList());
+		for (Polygon sh : divShapes)
+			sl.add(sh.getType(), sh.getLabel(), sh.getPoints());
+		for (Polygon sh : divExtShapes)
+			sl.add(sh.getType(), sh.getLabel(), sh.getPoints());
+
+		divIndPoints.clear();
+		divPoints.clear();
+		divLines.clear();
+		divExtLines.clear();
+		divShapes.clear();
+		divExtShapes.clear();
+	}
+
+	/**
+	 * @return The levels of the map, the least detailed first.
+	 */
+	public Zoom[] getLevels() {
+		return levels;
+	}
+
+	public String[] getCopyrights() {
+		return copyrights;
+	}
+
+	public int getEncodingType() {
+		return encodingType;
+	}
+
+	public FeatureList pointsForLevel(int level) {
+		return points.getOrDefault(level, EMPTY);
+	}
+
+	public FeatureList linesForLevel(int level) {
+		return lines.getOrDefault(level, EMPTY);
+	}
+
+	public FeatureList shapesForLevel(int level) {
+		return shapes.getOrDefault(level, EMPTY);
+	}
+
+	/**
+	 * The features of one kind in one level. The coordinates of all the
+	 * features are stored one after the other, a point has one.
+	 */
+	public static final class FeatureList {
+		private int size;
+		private int[] types = new int[16];
+		private String[] labels = new String[16];
+		// the index of the first coordinate of each feature, and the end
+		private int[] starts = new int[17];
+
+		private int numCoords;
+		private int[] lats = new int[64];
+		private int[] lons = new int[64];
+		// the coordinates that are routing nodes
+		private final BitSet nodes = new BitSet();
+		// the features that end with their first coordinate object
+		private final BitSet closed = new BitSet();
+
+		void add(int type, Label label, Coord co) {
+			add(type, label);
+			addCoord(co);
+			starts[size] = numCoords;
+		}
+
+		void add(int type, Label label, List<Coord> coords) {
+			add(type, label);
+			for (Coord co : coords)
+				addCoord(co);
+			starts[size] = numCoords;
+			if (coords.size() > 1 && coords.get(0) == coords.get(coords.size() - 1))
+				closed.set(size - 1);
+		}
+
+		private void add(int type, Label label) {
+			if (size + 1 == types.length) {
+				int len = types.length * 2;
+				types = Arrays.copyOf(types, len);
+				labels = Arrays.copyOf(labels, len);
+				starts = Arrays.copyOf(starts, len + 1);
+			}
+			types[size] = type;
+			labels[size] = label == null ? null : label.getText();
+			size++;
+		}
+
+		private void addCoord(Coord co) {
+			if (numCoords == lats.length) {
+				lats = Arrays.copyOf(lats, numCoords * 2);
+				lons = Arrays.copyOf(lons, numCoords * 2);
+			}
+			if (co instanceof CoordNode)
+				nodes.set(numCoords);
+			lats[numCoords] = co.getLatitude();
+			lons[numCoords] = co.getLongitude();
+			numCoords++;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int getType(int i) {
+			return types[i];
+		}
+
+		/**
+		 * @return The text of the label, or null if there is no label.
+		 */
+		public String getLabel(int i) {
+			return labels[i];
+		}
+
+		/**
+		 * @return The position of a point, the first coordinate of a line.
+		 */
+		public Coord getLocation(int i) {
+			return coord(starts[i]);
+		}
+
+		/**
+		 * @return New coordinates of a line or shape, as the reader
+		 * would return them.
+		 */
+		public List<Coord> getPoints(int i) {
+			int end = starts[i + 1];
+			if (closed.get(i))
+				end--;
+			List<Coord> list = new ArrayList<>(starts[i + 1] - starts[i]);
+			for (int c = starts[i]; c < end; c++)
+				list.add(coord(c));
+			if (closed.get(i))
+				list.add(list.get(0));
+			return list;
+		}
+
+		private Coord coord(int c) {
+			if (nodes.get(c))
+				return new CoordNode(lats[c], lons[c], 0, false, false);
+			return new Coord(lats[c], lons[c]);
+		}
+	}
+}
@@ -122,6 +122,10 @@ public class Point extends MapObject {
 		return poi;
 	}
 
+	boolean hasPOIRecord() {
+		return poi != null;
+	}
+
 	public Coord getLocation() {
 		int shift = getSubdiv().getShift();
 		return new Coord(getSubdiv().getLatitude() + (getDeltaLat() << shift),
@@ -64,6 +64,11 @@ public class Polyline extends MapObject {
 	// The actual points that make up the line.
 	private final List<Coord> points = new ArrayList<>();
 
+	// The encoded points, see prepare()
+	private boolean prepared;
+	private BitWriter bitStream;
+	private boolean extraBit;
+
 	public Polyline(Subdivision div) {
 		setSubdiv(div);
 	}
@@ -75,29 +80,9 @@ public class Polyline extends MapObject {
 	 * @param file A reference to the file that should be written to.
 	 */
 	public void write(ImgFileWriter file) {
-
-		// Prepare for writing by doing all the required calculations.
-
-		LinePreparer w;
-		try {
-			// Prepare the information that we need.
-			w = new LinePreparer(this);
-		} catch (AssertionError ae) {
-			log.error("Problem writing line (" + getClass() + ") of type 0x" + Integer.toHexString(getType()) + " containing " + points.size() + " points and starting at " + points.get(0).toOSMURL());
-			log.error("  Subdivision shift is " + getSubdiv().getShift() +
-					  " and its centre is at " + getSubdiv().getCenter().toOSMURL());
-			log.error("  " + ae.getMessage());
-			if(roaddef != null)
-				log.error("  Way is " + roaddef);
-			return;
-		}
-
-		int minPointsRequired = (this instanceof Polygon)? 3 : 2;
-		BitWriter bw = w.makeShortestBitStream(minPointsRequired);
-		if (bw == null) {
-			log.error("Level " + getSubdiv().getZoom().getLevel() + " " + ((this instanceof Polygon)? "polygon" : "polyline") + " has less than " + minPointsRequired + " points, discarding");
+		BitWriter bw = takeBitStream();
+		if (bw == null)
 			return;
-		}
 
 		// The type of feature, also contains a couple of flags hidden inside.
 		int b1 = getType();
@@ -114,7 +99,7 @@ public class Polyline extends MapObject {
 
 		// The label, contains a couple of flags within it.
 		int loff = getLabel().getOffset();
-		if (w.isExtraBit())
+		if (extraBit)
 			loff |= FLAG_EXTRABIT;
 
 		// If this is a road, then we need to save the offset of the label
@@ -153,26 +138,9 @@ public class Polyline extends MapObject {
 		int labelOff = getLabel().getOffset();
 		byte[] extraBytes = getExtTypeExtraBytes();
 
-		LinePreparer w;
-		try {
-			// need to prepare line info before outputing lat/lon
-			w = new LinePreparer(this);
-		}
-		catch (AssertionError ae) {
-			log.error("Problem writing line (" + getClass() + ") of type 0x" + Integer.toHexString(getType()) + " containing " + points.size() + " points and starting at " + points.get(0).toOSMURL());
-			log.error("  Subdivision shift is " + getSubdiv().getShift() +
-					  " and its centre is at " + getSubdiv().getCenter().toOSMURL());
-			log.error("  " + ae.getMessage());
-			if(roaddef != null)
-				log.error("  Way is " + roaddef);
-			return;
-		}
-		int minPointsRequired = (this instanceof Polygon)? 3 : 2;
-		BitWriter bw = w.makeShortestBitStream(minPointsRequired);
-		if(bw == null) {
-			log.error("Level " + getSubdiv().getZoom().getLevel() + " " + ((this instanceof Polygon)? "polygon" : "polyline") + " has less than " + minPointsRequired + " points, discarding");
+		BitWriter bw = takeBitStream();
+		if (bw == null)
 			return;
-		}
 		int blen = bw.getLength();
 		assert blen > 1 : "zero length bitstream";
 		assert blen < 0x10000 : "bitstream too long " + blen;
@@ -211,6 +179,66 @@ public class Polyline extends MapObject {
 			stream.write(extraBytes);
 	}
 
+	/**
+	 * Encode the points of the line. This is done when the line is
+	 * written if it was not done before. It can be done in advance, for
+	 * example in parallel for the lines of several subdivisions, but the
+	 * points, the type and the road must not be changed afterwards.
+	 */
+	public void prepare() {
+		prepared = true;
+		bitStream = null;
+		LinePreparer w;
+		try {
+			// Prepare the information that we need.
+			w = new LinePreparer(this);
+		} catch (AssertionError ae) {
+			log.error("Problem writing line (" + getClass() + ") of type 0x" + Integer.toHexString(getType()) + " containing " + points.size() + " points and starting at " + points.get(0).toOSMURL());
+			log.error("  Subdivision shift is " + getSubdiv().getShift() +
+					  " and its centre is at " + getSubdiv().getCenter().toOSMURL());
+			log.error("  " + ae.getMessage());
+			if(roaddef != null)
+				log.error("  Way is " + roaddef);
+			return;
+		}
+
+		int minPointsRequired = (this instanceof Polygon)? 3 : 2;
+		bitStream = w.makeShortestBitStream(minPointsRequired);
+		if (bitStream == null) {
+			log.error("Level " + getSubdiv().getZoom().getLevel() + " " + ((this instanceof Polygon)? "polygon" : "polyline") + " has less than " + minPointsRequired + " points, discarding");
+			return;
+		}
+		extraBit = w.isExtraBit();
+	}
+
+	/**
+	 * Get the encoded points without releasing them, the line can still
+	 * be written afterwards.
+	 * @return the bit stream or null if the line cannot be written
+	 */
+	BitWriter getBitStream() {
+		if (!prepared)
+			prepare();
+		return bitStream;
+	}
+
+	boolean hasExtraBit() {
+		return extraBit;
+	}
+
+	/**
+	 * Get the encoded points and release them, they are only needed once.
+	 * @return the bit stream or null if the line cannot be written
+	 */
+	private BitWriter takeBitStream() {
+		if (!prepared)
+			prepare();
+		BitWriter bw = bitStream;
+		bitStream = null;
+		prepared = false;
+		return bw;
+	}
+
 	public void addCoord(Coord co) {
 		points.add(co);
 	}
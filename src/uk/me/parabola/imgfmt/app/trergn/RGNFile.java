@@ -54,6 +54,11 @@ public class RGNFile extends ImgFile {
 	private ByteArrayOutputStream extTypeLinesData;
 	private ByteArrayOutputStream extTypeAreasData;
 
+	// the features of the map for the overview map, if they are wanted
+	private OverviewFeatures overviewFeatures;
+	// set after the normal points of a subdivision are written
+	private boolean indexedPoints;
+
 	public RGNFile(ImgChannel chan) {
 		setHeader(header);
 
@@ -109,9 +114,18 @@ public class RGNFile extends ImgFile {
 		}
 
 		currentDivision = sd;
+		indexedPoints = false;
+		if (overviewFeatures != null)
+			overviewFeatures.startDivision(sd);
+	}
+
+	public void setOverviewFeatures(OverviewFeatures overviewFeatures) {
+		this.overviewFeatures = overviewFeatures;
 	}
 
 	public void addMapObject(MapObject item) {
+		if (overviewFeatures != null)
+			overviewFeatures.add(item, indexedPoints);
 		if(item.hasExtendedType()) {
 			try {
 				if(item instanceof Point) {
@@ -142,6 +156,7 @@ public class RGNFile extends ImgFile {
 	}
 
 	public void setIndPointPtr() {
+		indexedPoints = true;
 		if (currentDivision.needsIndPointPtr()) {
 			long currPos = position();
 			position(indPointPtrOff);
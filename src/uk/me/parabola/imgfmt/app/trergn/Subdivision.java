@@ -291,10 +291,20 @@ public class Subdivision {
 	}
 
 	public Polyline createLine(String[] labels) {
+		Polyline pl = new Polyline(this);
+		addLabels(pl, labels);
+		return pl;
+	}
+
+	/**
+	 * Add the name and the refs of a line that was created without them.
+	 * @param pl the line
+	 * @param labels the name and up to three refs
+	 */
+	public void addLabels(Polyline pl, String[] labels) {
 		// don't be tempted to "trim()" the name as it zaps the highway shields
 		Label label = lblFile.newLabel(labels[0]);
 		String nameSansGC = Label.stripGarminCodes(labels[0]);
-		Polyline pl = new Polyline(this);
 
 		pl.setLabel(label);
 
@@ -339,7 +349,6 @@ public class Subdivision {
 				}
 			}
 		}
-		return pl;
 	}
 
 	public void setPolylineNumber(Polyline pl) {
@@ -347,11 +356,19 @@ public class Subdivision {
 	}
 
 	public Polygon createPolygon(String name) {
-		Label label = lblFile.newLabel(name);
 		Polygon pg = new Polygon(this);
+		addLabel(pg, name);
+		return pg;
+	}
 
+	/**
+	 * Add the name of a polygon that was created without it.
+	 * @param pg the polygon
+	 * @param name the name
+	 */
+	public void addLabel(Polygon pg, String name) {
+		Label label = lblFile.newLabel(name);
 		pg.setLabel(label);
-		return pg;
 	}
 
 	public void setNumber(int n) {
@@ -96,6 +96,23 @@ public class TREFile extends ImgFile implements Configurable {
 		copyrights.add(cr);
 	}
 
+	List<Label> getCopyrights() {
+		return copyrights;
+	}
+
+	/**
+	 * @return The zoom levels in the order in which they are written, the
+	 * least detailed first.
+	 */
+	List<Zoom> getZooms() {
+		List<Zoom> zooms = new ArrayList<>();
+		for (int i = mapLevels.length - 1; i >= 0; i--) {
+			if (mapLevels[i] != null)
+				zooms.add(mapLevels[i]);
+		}
+		return zooms;
+	}
+
 	public void addPointOverview(PointOverview ov) {
 		pointOverviews.add(ov);
 	}
@@ -16,7 +16,10 @@
  */
 package uk.me.parabola.imgfmt.fs;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * An extension of ByteChannel that allows us to know the position.  It may
@@ -42,4 +45,39 @@ public interface ImgChannel extends  ByteChannel {
 	 * @param pos The position to set.
 	 */
 	public void position(long pos);
+
+	/**
+	 * Copy the rest of this file, starting at the current position, to the
+	 * given channel.
+	 *
+	 * @param target Where to copy the data.
+	 * @return The number of bytes copied.
+	 * @throws IOException If there is an error reading or writing.
+	 */
+	public default long transferTo(WritableByteChannel target) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+		long total = 0;
+		int n;
+		while ((n = read(buf)) > 0) {
+			buf.flip();
+			while (buf.hasRemaining())
+				target.write(buf);
+			buf.clear();
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Get the whole contents of the file as a buffer, if the channel can
+	 * provide it without reading through the channel, for example from a
+	 * memory mapped img file.
+	 *
+	 * @return A read only buffer positioned at the start of the file, or
+	 * null if the file must be read through the channel.
+	 * @throws IOException If there is an error reading the file.
+	 */
+	public default ByteBuffer mappedBuffer() throws IOException {
+		return null;
+	}
 }
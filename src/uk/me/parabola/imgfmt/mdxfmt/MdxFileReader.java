@@ -15,8 +15,8 @@ package uk.me.parabola.imgfmt.mdxfmt;
 import java.util.ArrayList;
 import java.util.List;
 
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.ImgFileReader;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
 
 
@@ -32,7 +32,7 @@ public class MdxFileReader {
 	private final List<MapInfo> maps = new ArrayList<>();
 
 	public MdxFileReader(ImgChannel chan) {
-		this.reader = new BufferedImgFileReader(chan);
+		this.reader = MappedImgFileReader.open(chan);
 
 		readHeader();
 		readMaps();
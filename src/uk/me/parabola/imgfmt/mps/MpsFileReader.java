@@ -21,8 +21,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.ImgFileReader;
+import uk.me.parabola.imgfmt.app.MappedImgFileReader;
 import uk.me.parabola.imgfmt.app.labelenc.CharacterDecoder;
 import uk.me.parabola.imgfmt.app.labelenc.CodeFunctions;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
@@ -48,7 +48,7 @@ public class MpsFileReader implements Closeable {
 
 	public MpsFileReader(ImgChannel chan, int codePage) {
 		this.chan = chan;
-		this.reader = new BufferedImgFileReader(chan);
+		this.reader = MappedImgFileReader.open(chan);
 
 		this.codePage = codePage;
 		CodeFunctions funcs = CodeFunctions.createEncoderForLBL(0, codePage);
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import uk.me.parabola.imgfmt.ReadFailedException;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
@@ -70,6 +71,19 @@ public class FileImgChannel implements ImgChannel {
 		return n;
 	}
 
+	/**
+	 * Copy the rest of the file with {@link FileChannel#transferTo}.
+	 */
+	@Override
+	public long transferTo(WritableByteChannel target) throws IOException {
+		long start = channel.position();
+		long count = channel.size() - start;
+		FileNode.transfer(channel, start, count, target);
+		channel.position(start + count);
+		position += count;
+		return count;
+	}
+
 	/**
 	 * Get the file position. Note that this is a logical position relative to the
 	 * beginning of the file (the file within the .img file, not the beginning of the
@@ -25,6 +25,7 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.NonReadableChannelException;
 import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.WritableByteChannel;
 
 import uk.me.parabola.imgfmt.Sized;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
@@ -53,6 +54,11 @@ public class FileNode implements ImgChannel, FileLink {
 	private byte xorByte;
 	private Closeable outerClose;
 
+	// When the file system is opened for reading, the whole img file is mapped
+	// and the blocks are read from the mapping instead of the channel.
+	private ByteBuffer mapping;
+	private ByteBuffer contents;
+
 	/**
 	 * Creates a new file in the file system.  You can treat this just like
 	 * a regular file and write or read from it.
@@ -168,9 +174,8 @@ public class FileNode implements ImgChannel, FileLink {
 				break;
 			}
 
-			// Position the underlying file
 			int off = (int) (position - lblock*blockSize);
-			file.position((long) pblock * blockSize + off);
+			long start = (long) pblock * blockSize + off;
 
 			int n = (int) size;
 			if (n > blockSize)
@@ -179,10 +184,16 @@ public class FileNode implements ImgChannel, FileLink {
 			if (off != 0)
 				n = Math.min(n, blockSize - off);
 
-			dst.limit(dst.position() + n);
-
 			int pos = dst.position();
-			int nr = file.read(dst);
+			dst.limit(pos + n);
+			int nr;
+			if (mapping != null) {
+				nr = readMapped(start, n, dst);
+			} else {
+				// Position the underlying file
+				file.position(start);
+				nr = file.read(dst);
+			}
 			if (nr == -1)
 				return -1;
 			if (nr == 0)
@@ -190,7 +201,7 @@ public class FileNode implements ImgChannel, FileLink {
 
 			if(xorByte != 0) {
 				byte[] bufBytes = dst.array();
-				for(int i = pos + n - 1; i >= pos; --i)
+				for(int i = pos + nr - 1; i >= pos; --i)
 					bufBytes[i] ^= xorByte;
 			}
 
@@ -204,6 +215,22 @@ public class FileNode implements ImgChannel, FileLink {
 		return totalRead;
 	}
 
+	/**
+	 * Copy a range of the mapped img file into the buffer.
+	 * @return The number of bytes copied, or -1 if the start is beyond the
+	 * end of the img file.
+	 */
+	private int readMapped(long start, int n, ByteBuffer dst) {
+		if (start >= mapping.limit())
+			return -1;
+		ByteBuffer src = mapping.duplicate();
+		src.position((int) start);
+		src.limit((int) Math.min(start + n, mapping.limit()));
+		int nr = src.remaining();
+		dst.put(src);
+		return nr;
+	}
+
 	/**
 	 * Writes a sequence of bytes to this channel from the given buffer.
 	 * <p/>
@@ -279,6 +306,121 @@ public class FileNode implements ImgChannel, FileLink {
 		return totalWritten;
 	}
 
+	/**
+	 * Copy the rest of this file to the given channel.  Runs of consecutive
+	 * blocks are passed to {@link FileChannel#transferTo} in one go, so that
+	 * the operating system can copy the data without going through a
+	 * buffer.
+	 */
+	@Override
+	public long transferTo(WritableByteChannel target) throws IOException {
+		if (!open)
+			throw new ClosedChannelException();
+		if (!readable)
+			throw new NonReadableChannelException();
+		if (xorByte != 0)
+			return ImgChannel.super.transferTo(target);
+
+		int blockSize = blockManager.getBlockSize();
+		long fileSize = dirent.getSize();
+		long total = 0;
+		while (position < fileSize) {
+			int lblock = (int) (position / blockSize);
+			int pblock = dirent.getPhysicalBlock(lblock);
+			if (pblock == 0xffff)
+				break;
+
+			// extend the run as long as the following blocks are consecutive
+			int nblocks = 1;
+			while ((long) (lblock + nblocks) * blockSize < fileSize
+					&& dirent.getPhysicalBlock(lblock + nblocks) == pblock + nblocks)
+				nblocks++;
+
+			long end = Math.min(fileSize, (long) (lblock + nblocks) * blockSize);
+			int off = (int) (position - (long) lblock * blockSize);
+			long count = end - position;
+			transfer(file, (long) pblock * blockSize + off, count, target);
+			position = end;
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Copy a range of a file channel to the target.  If the target is a file
+	 * in an img file system, the data is written to its blocks directly.
+	 */
+	static void transfer(FileChannel src, long srcPos, long count, WritableByteChannel target) throws IOException {
+		if (target instanceof FileNode) {
+			((FileNode) target).writeFrom(src, srcPos, count);
+			return;
+		}
+		long done = 0;
+		while (done < count) {
+			long n = src.transferTo(srcPos + done, count - done, target);
+			if (n <= 0)
+				throw new IOException("Wrote nothing");
+			done += n;
+		}
+	}
+
+	/**
+	 * Write a range of a file channel to the current position of this file.
+	 * The blocks are allocated as they are needed and each run of
+	 * consecutive blocks is written with a single transfer.
+	 *
+	 * @param src The channel to read from.
+	 * @param srcPos The position of the data in the channel.
+	 * @param count The number of bytes to copy.
+	 */
+	private void writeFrom(FileChannel src, long srcPos, long count) throws IOException {
+		if (!open)
+			throw new ClosedChannelException();
+		if (!writeable)
+			throw new NonWritableChannelException();
+
+		int blockSize = blockManager.getBlockSize();
+		while (count > 0) {
+			int lblock = (int) (position / blockSize);
+			int pblock = getOrAllocateBlock(lblock);
+			int off = (int) (position - (long) lblock * blockSize);
+
+			// extend the run as long as the following blocks are consecutive
+			long n = Math.min(count, blockSize - off);
+			for (int i = 1; n < count; i++) {
+				if (getOrAllocateBlock(lblock + i) != pblock + i)
+					break;
+				n = Math.min(count, n + blockSize);
+			}
+
+			long start = (long) pblock * blockSize + off;
+			file.position(start);
+			long done = 0;
+			while (done < n) {
+				long nw = src.transferTo(srcPos + done, n - done, file);
+				if (nw <= 0)
+					throw new IOException("Wrote nothing");
+				done += nw;
+			}
+			file.position(start + n);
+
+			srcPos += n;
+			count -= n;
+			position += n;
+			if (position > dirent.getSize())
+				dirent.setSize((int) position);
+		}
+	}
+
+	private int getOrAllocateBlock(int lblock) {
+		int pblock = dirent.getPhysicalBlock(lblock);
+		if (pblock == 0xffff) {
+			pblock = blockManager.allocate();
+			dirent.addBlock(pblock);
+		}
+		return pblock;
+	}
+
 	public long position() {
 		return position;
 	}
@@ -339,6 +481,56 @@ public class FileNode implements ImgChannel, FileLink {
 		this.xorByte = xorByte;
 	}
 
+	/**
+	 * Read the blocks from the given mapping of the whole img file instead of
+	 * the channel.
+	 *
+	 * @param mapping A read only buffer that starts at the beginning of the
+	 * img file.
+	 */
+	void setMapping(ByteBuffer mapping) {
+		this.mapping = mapping;
+	}
+
+	/**
+	 * If the img file is mapped, the contents of this file are returned
+	 * without any system calls. When the blocks are consecutive, which they
+	 * are in the files that mkgmap writes, this is a view of the mapping.
+	 * Otherwise the blocks are gathered into a buffer once.
+	 */
+	@Override
+	public ByteBuffer mappedBuffer() throws IOException {
+		if (mapping == null || !readable)
+			return null;
+
+		if (contents == null) {
+			int blockSize = blockManager.getBlockSize();
+			int size = dirent.getSize();
+			int pblock = dirent.getPhysicalBlock(0);
+			boolean consecutive = pblock != 0xffff && xorByte == 0;
+			for (int lblock = 1; consecutive && (long) lblock * blockSize < size; lblock++)
+				consecutive = dirent.getPhysicalBlock(lblock) == pblock + lblock;
+
+			long start = (long) pblock * blockSize;
+			if (consecutive && start + size <= mapping.limit()) {
+				ByteBuffer view = mapping.duplicate();
+				view.position((int) start);
+				view.limit((int) start + size);
+				contents = view.slice();
+			} else {
+				long savedPosition = position;
+				position = 0;
+				ByteBuffer buf = ByteBuffer.allocate(size);
+				while (buf.hasRemaining() && read(buf) > 0)
+					buf.limit(size);
+				buf.flip();
+				contents = buf;
+				position = savedPosition;
+			}
+		}
+		return contents.asReadOnlyBuffer();
+	}
+
 	public String toString() {
 		return String.format("%s %d", dirent.getFullName(), getSize());
 	}
@@ -77,6 +77,10 @@ public class ImgFS implements FileSystem {
 	// if non-zero, all bytes are XORed with this
 	private byte xorByte;
 
+	// The whole img file when it is opened for reading with a mapping, or
+	// null if it is read from the channel.
+	private ByteBuffer mapping;
+
 	/**
 	 * Private constructor, use the static {@link #createFs} and {@link #openFs}
 	 * routines to make a filesystem.
@@ -133,19 +137,35 @@ public class ImgFS implements FileSystem {
 	 * read.
 	 */
 	public static FileSystem openFs(String name) throws FileNotFoundException {
+		return openFs(name, false);
+	}
+
+	/**
+	 * Open an existing IMG file system for reading, optionally through a
+	 * memory mapping. A mapped file is mapped once, and the files in it are
+	 * read from the mapping. The mapping is only released by the garbage
+	 * collector, on some systems (Windows) the file cannot be deleted or
+	 * replaced until then. Files larger than 2GB are never mapped.
+	 * @param name The file name to open.
+	 * @param mapped True to read the file through a mapping.
+	 * @return A File system that can be used lookup the internal files.
+	 * @throws FileNotFoundException When the file doesn't exist or can't be
+	 * read.
+	 */
+	public static FileSystem openFs(String name, boolean mapped) throws FileNotFoundException {
 		try {
 			FileChannel chan = FileChannel.open(Paths.get(name), StandardOpenOption.READ);
-			return openFs(name, chan);
+			return openFs(name, chan, mapped);
 		} catch (IOException e) {
 			throw new FileNotFoundException("Failed to create or open file " + name);
 		}
 	}
 
-	private static FileSystem openFs(String name, FileChannel chan) throws FileNotFoundException {
+	private static FileSystem openFs(String name, FileChannel chan, boolean mapped) throws FileNotFoundException {
 		ImgFS fs = new ImgFS(chan);
 
 		try {
-			fs.readInitFS(chan);
+			fs.readInitFS(chan, mapped);
 		} catch (IOException e) {
 			throw new FileNotFoundException(name + ": " + e.getMessage());
 		}
@@ -187,6 +207,7 @@ public class ImgFS implements FileSystem {
 			FileNode fn = new FileNode(file, ent, "r");
 			if(xorByte != 0)
 				fn.setXorByte(xorByte);
+			fn.setMapping(mapping);
 			return fn;
 		} else if (mode.indexOf('w') >= 0) {
 			Dirent ent;
@@ -384,9 +405,14 @@ public class ImgFS implements FileSystem {
 	 * in the header including directory.
 	 *
 	 * @param chan The file channel to read from.
+	 * @param mapped True to read the files through a mapping.
 	 * @throws IOException If the file cannot be read.
 	 */
-	private void readInitFS(FileChannel chan) throws IOException {
+	private void readInitFS(FileChannel chan, boolean mapped) throws IOException {
+		long size = chan.size();
+		if (mapped && size <= Integer.MAX_VALUE)
+			mapping = chan.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
 		ByteBuffer headerBuf = ByteBuffer.allocate(512);
 		headerBuf.order(ByteOrder.LITTLE_ENDIAN);
 		chan.read(headerBuf);
@@ -412,6 +438,7 @@ public class ImgFS implements FileSystem {
 
 		Dirent ent = directory.create(DIRECTORY_FILE_NAME, headerBlockManager);
 		FileNode f = new FileNode(chan, ent, "r");
+		f.setMapping(mapping);
 
 		header.setFile(f);
 		directory.setFile(f);
@@ -11,6 +11,7 @@ import java.util.regex.Pattern;
 
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.trergn.OverviewFeatures;
 import uk.me.parabola.util.EnhancedProperties;
 
 public class CommandArgs {
@@ -19,6 +20,7 @@ public class CommandArgs {
 
 	private final EnhancedProperties currentOptions;
 	private Sort sort;
+	private OverviewFeatures overviewFeatures;
 
 	public CommandArgs(EnhancedProperties args) {
 		currentOptions = new EnhancedProperties(args);
@@ -120,6 +122,21 @@ public class CommandArgs {
 		this.sort = sort;
 	}
 
+	/**
+	 * Get the features of the overview file that was made from these
+	 * arguments. They are only used once, so they are released.
+	 * @return The features or null if they are not available.
+	 */
+	public synchronized OverviewFeatures takeOverviewFeatures() {
+		OverviewFeatures features = overviewFeatures;
+		overviewFeatures = null;
+		return features;
+	}
+
+	public synchronized void setOverviewFeatures(OverviewFeatures overviewFeatures) {
+		this.overviewFeatures = overviewFeatures;
+	}
+
 	public boolean isForceUpper() {
 		return currentOptions.getProperty("lower-case") == null;
 	}
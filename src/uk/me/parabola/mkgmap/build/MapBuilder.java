@@ -30,6 +30,8 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -54,7 +56,6 @@ import uk.me.parabola.imgfmt.app.map.Map;
 import uk.me.parabola.imgfmt.app.net.NETFile;
 import uk.me.parabola.imgfmt.app.net.NODFile;
 import uk.me.parabola.imgfmt.app.net.Numbers;
-import uk.me.parabola.imgfmt.app.net.RoadDef;
 import uk.me.parabola.imgfmt.app.net.RoadNetwork;
 import uk.me.parabola.imgfmt.app.net.RouteCenter;
 import uk.me.parabola.imgfmt.app.trergn.ExtTypeAttributes;
@@ -109,6 +110,7 @@ import uk.me.parabola.mkgmap.reader.overview.OverviewMapDataSource;
 import uk.me.parabola.util.Configurable;
 import uk.me.parabola.util.EnhancedProperties;
 import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.PhaseProfile;
 
 /**
  * This is the core of the code to translate from the general representation
@@ -173,6 +175,8 @@ public class MapBuilder implements Configurable {
 	private short demOutsidePolygonHeight;
 	private java.awt.geom.Area demPolygon;
 	private HGTConverter.InterpolationMethod demInterpolationMethod;
+	private int demThreads;
+	private int subdivisionThreads;
 	
 
 	public MapBuilder() {
@@ -224,6 +228,8 @@ public class MapBuilder implements Configurable {
 		if (demPolygonFile != null) {
 			demPolygon = Java2DConverter.readPolyFile(demPolygonFile);
 		}
+		demThreads = props.getProperty("dem-threads", 1);
+		subdivisionThreads = props.getProperty("subdivision-threads", 1);
 		String ipm = props.getProperty("dem-interpolation", "auto");
 		switch (ipm) {
 		case "auto": 
@@ -256,6 +262,7 @@ public class MapBuilder implements Configurable {
 	 * @param map The map.
 	 * @param src The map data.
 	 */
+	@SuppressWarnings("try")
 	public void makeMap(Map map, LoadableMapDataSource src) {
 
 		RGNFile rgnFile = map.getRgnFile();
@@ -276,16 +283,22 @@ public class MapBuilder implements Configurable {
 
 		if (map.getNodFile() != null) {
 			// make sure that island detection is done before we write any map data so that NOD flags are properly set 
-			src.getRoadNetwork().getCenters();
+			try (PhaseProfile.Phase p = PhaseProfile.phase("route-centers")) {
+				src.getRoadNetwork().getCenters();
+			}
+		}
+		try (PhaseProfile.Phase p = PhaseProfile.phase("prepare")) {
+			normalizeCountries(src);
+
+			processCities(map, src);
+			processRoads(map,src);
+			processPOIs(map, src);
+			processOverviews(map, src);
+			processInfo(map, src);
+		}
+		try (PhaseProfile.Phase p = PhaseProfile.phase("levels")) {
+			makeMapAreas(map, src);
 		}
-		normalizeCountries(src);
-		
-		processCities(map, src);
-		processRoads(map,src);
-		processPOIs(map, src);
-		processOverviews(map, src);
-		processInfo(map, src);
-		makeMapAreas(map, src);
 		 
 		if (driveOnLeft == null && src instanceof MapperBasedMapDataSource) {
 			// source can give info about driving side
@@ -297,29 +310,35 @@ public class MapBuilder implements Configurable {
 
 		treFile.setLastRgnPos(rgnFile.position() - RGNHeader.HEADER_LEN);
 
-		rgnFile.write();
-		treFile.write(rgnFile.haveExtendedTypes());
-		lblFile.write();
-		lblFile.writePost();
+		try (PhaseProfile.Phase p = PhaseProfile.phase("rgn-tre-lbl")) {
+			rgnFile.write();
+			treFile.write(rgnFile.haveExtendedTypes());
+			lblFile.write();
+			lblFile.writePost();
+		}
 
 		if (netFile != null) {
-			RoadNetwork network = src.getRoadNetwork();
-			netFile.setNetwork(network.getRoadDefs());
-			NODFile nodFile = map.getNodFile();
-			if (nodFile != null) {
-				nodFile.setNetwork(network.getCenters(), network.getRoadDefs(), network.getBoundary());
-				nodFile.setDriveOnLeft(driveOnLeft);
-				nodFile.write();
-			}
-			netFile.write(lblFile.numCities(), lblFile.numZips());
+			try (PhaseProfile.Phase p = PhaseProfile.phase("net-nod")) {
+				RoadNetwork network = src.getRoadNetwork();
+				netFile.setNetwork(network.getRoadDefs());
+				NODFile nodFile = map.getNodFile();
+				if (nodFile != null) {
+					nodFile.setNetwork(network.getCenters(), network.getRoadDefs(), network.getBoundary());
+					nodFile.setDriveOnLeft(driveOnLeft);
+					nodFile.write();
+				}
+				netFile.write(lblFile.numCities(), lblFile.numZips());
 
-			if (nodFile != null) {
-				nodFile.writePost();
+				if (nodFile != null) {
+					nodFile.writePost();
+				}
+				netFile.writePost(rgnFile.getWriter());
 			}
-			netFile.writePost(rgnFile.getWriter());
 		}
 		warnAbout3ByteImgRefs();
-		buildDem(map, src);
+		try (PhaseProfile.Phase p = PhaseProfile.phase("dem")) {
+			buildDem(map, src);
+		}
 		treFile.writePost();
 	}
 
@@ -345,7 +364,8 @@ public class MapBuilder implements Configurable {
 					demArea = new java.awt.geom.Area(demPoly);
 				}
 			}
-			Area treArea = demFile.calc(src.getBounds(), demArea, pathsToHGT, demDists, demOutsidePolygonHeight, demInterpolationMethod);
+			Area treArea = demFile.calc(src.getBounds(), demArea, pathsToHGT, demDists, demOutsidePolygonHeight, demInterpolationMethod,
+					demThreads);
 			map.setBounds(treArea);
 			long t2 = System.currentTimeMillis();
 			log.info("DEM file calculation for", map.getFilename(), "took", (t2 - t1), "ms");
@@ -728,6 +748,7 @@ public class MapBuilder implements Configurable {
 	 * @param map The map.
 	 * @param src The data for the map.
 	 */
+	@SuppressWarnings("try")
 	private void makeMapAreas(Map map, LoadableMapDataSource src) {
 		// The top level has to cover the whole map without subdividing, so
 		// do a special check to make sure.
@@ -773,32 +794,60 @@ public class MapBuilder implements Configurable {
 		// We start with one map data source.
 		List<SourceSubdiv> srcList = Collections.singletonList(new SourceSubdiv(src, topdiv));
 
-		// Now the levels filled with features.
-		for (LevelInfo linfo : levels) {
-			List<SourceSubdiv> nextList = new ArrayList<>();
+		// With more than one thread the elements of all subdivisions of a
+		// level are filtered and encoded in parallel.
+		ForkJoinPool pool = (subdivisionThreads > 1) ? new ForkJoinPool(subdivisionThreads) : null;
+		try {
+			// Now the levels filled with features.
+			for (LevelInfo linfo : levels) {
+				try (PhaseProfile.Phase p = PhaseProfile.phase("level-" + linfo.getLevel())) {
+					srcList = makeLevel(map, linfo, srcList, pool);
+				}
+			}
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+	}
+
+	/**
+	 * Split the subdivisions of the previous level and fill the new ones.
+	 * @param map The map.
+	 * @param linfo The level.
+	 * @param srcList The subdivisions of the previous level with their areas.
+	 * @param pool If not null, the pool that filters the new subdivisions in parallel.
+	 * @return The new subdivisions with their areas.
+	 */
+	private List<SourceSubdiv> makeLevel(Map map, LevelInfo linfo, List<SourceSubdiv> srcList, ForkJoinPool pool) {
+		List<SourceSubdiv> nextList = new ArrayList<>();
 
-			Zoom zoom = map.createZoom(linfo.getLevel(), linfo.getBits());
+		Zoom zoom = map.createZoom(linfo.getLevel(), linfo.getBits());
 
-			for (SourceSubdiv srcDivPair : srcList) {
+		for (SourceSubdiv srcDivPair : srcList) {
 
-				MapSplitter splitter = new MapSplitter(srcDivPair.getSource(), zoom);
-				MapArea[] areas = splitter.split(orderByDecreasingArea);
-				log.info("Map region", srcDivPair.getSource().getBounds(), "split into", areas.length, "areas at resolution", zoom.getResolution());
+			MapSplitter splitter = new MapSplitter(srcDivPair.getSource(), zoom);
+			MapArea[] areas = splitter.split(orderByDecreasingArea);
+			log.info("Map region", srcDivPair.getSource().getBounds(), "split into", areas.length, "areas at resolution", zoom.getResolution());
 
-				for (MapArea area : areas) {
-					Subdivision parent = srcDivPair.getSubdiv();
-					Subdivision div = makeSubdivision(map, parent, area, zoom);
-					if (log.isDebugEnabled())
-						log.debug("ADD parent-subdiv", parent, srcDivPair.getSource(), ", z=", zoom, " new=", div);
-					nextList.add(new SourceSubdiv(area, div));
-				}
-				if (!nextList.isEmpty()) {
-					Subdivision lastdiv = nextList.get(nextList.size() - 1).getSubdiv();
-					lastdiv.setLast(true);
-				}
+			for (MapArea area : areas) {
+				Subdivision parent = srcDivPair.getSubdiv();
+				Subdivision div;
+				if (pool == null)
+					div = makeSubdivision(map, parent, area, zoom);
+				else
+					div = createSubdivision(map, parent, area, zoom);
+				if (log.isDebugEnabled())
+					log.debug("ADD parent-subdiv", parent, srcDivPair.getSource(), ", z=", zoom, " new=", div);
+				nextList.add(new SourceSubdiv(area, div));
+			}
+			if (!nextList.isEmpty()) {
+				Subdivision lastdiv = nextList.get(nextList.size() - 1).getSubdiv();
+				lastdiv.setLast(true);
 			}
-			srcList = nextList;
 		}
+		if (pool != null)
+			processSubdivisions(map, pool, nextList);
+		return nextList;
 	}
 
 	/**
@@ -860,6 +909,29 @@ public class MapBuilder implements Configurable {
 		List<MapLine> lines = ma.getLines();
 		List<MapShape> shapes = ma.getShapes();
 
+		Subdivision div = createSubdivision(map, parent, ma, z);
+
+		div.startDivision();
+
+		processPoints(map, div, points);
+		processLines(map, div, lines);
+		processShapes(map, div, shapes);
+
+		div.endDivision();
+
+		return div;
+	}
+
+	/**
+	 * Create an empty subdivision for an area of the map.
+	 *
+	 * @param map	The map to add this subdivision into.
+	 * @param parent The parent division.
+	 * @param ma	 The area of the map that we are fitting into this division.
+	 * @param z	  The zoom level.
+	 * @return The new subdivsion.
+	 */
+	private static Subdivision createSubdivision(Map map, Subdivision parent, MapArea ma, Zoom z) {
 		Subdivision div = map.createSubdivision(parent, ma.getFullBounds(), z);
 
 		if (ma.hasPoints())
@@ -870,16 +942,49 @@ public class MapBuilder implements Configurable {
 			div.setHasPolylines(true);
 		if (ma.hasShapes())
 			div.setHasPolygons(true);
+		return div;
+	}
 
-		div.startDivision();
+	/**
+	 * Fill the subdivisions of a level. The lines and shapes are filtered
+	 * one subdivision after the other in the same order as without a pool,
+	 * because the filters and the preparation of the shapes read and mark
+	 * points that may be shared with other subdivisions. Only the encoding
+	 * of the filtered elements is done in parallel, then they are added to
+	 * the map in the order of the subdivisions.
+	 *
+	 * @param map The map to add the subdivisions into.
+	 * @param pool The pool that encodes the elements.
+	 * @param divs The new subdivisions with their areas.
+	 */
+	private void processSubdivisions(Map map, ForkJoinPool pool, List<SourceSubdiv> divs) {
+		SubdivisionElements[] elements = new SubdivisionElements[divs.size()];
+		for (int i = 0; i < elements.length; i++) {
+			Subdivision div = divs.get(i).getSubdiv();
+			MapArea area = (MapArea) divs.get(i).getSource();
+			int res = div.getResolution();
+			SubdivisionElements e = new SubdivisionElements(div, area, map);
+			e.lines.filter(prepareLines(res, area.getLines()), createLineFilters(div, e.lines));
+			e.shapes.filter(prepareShapes(res, area.getShapes()), createShapeFilters(div, e.shapes));
+			elements[i] = e;
+		}
 
-		processPoints(map, div, points);
-		processLines(map, div, lines);
-		processShapes(map, div, shapes);
+		pool.invoke(new SubdivisionEncoder(elements, 0, elements.length, log.threadTag()));
 
-		div.endDivision();
+		for (SubdivisionElements e : elements) {
+			Subdivision div = e.div;
+			div.startDivision();
 
-		return div;
+			processPoints(map, div, e.area.getPoints());
+			div.startLines();
+			for (int i = 0; i < e.lines.elements.size(); i++)
+				LineAddFilter.addLine(div, map, e.lines.elements.get(i), e.lines.encoded.get(i));
+			div.startShapes();
+			for (int i = 0; i < e.shapes.elements.size(); i++)
+				ShapeAddFilter.addShape(div, map, (MapShape) e.shapes.elements.get(i), (Polygon) e.shapes.encoded.get(i));
+
+			div.endDivision();
+		}
 	}
 
 	/**
@@ -1149,20 +1254,58 @@ public class MapBuilder implements Configurable {
 
 		int res = div.getResolution();
 
-		FilterConfig config = new FilterConfig();
-		config.setResolution(res);
-		config.setLevel(div.getZoom().getLevel());
-		config.setHasNet(doRoads);
+		lines = prepareLines(res, lines);
 
+		LayerFilterChain filters = createLineFilters(div, new LineAddFilter(div, map));
+		for (MapLine line : lines) {
+			if (line.getMinResolution() <= res) {
+				filters.startFilter(line);
+			}
+		}
+	}
+
+	/**
+	 * Merge the lines if this is wanted.
+	 * @param res the resolution of the subdivision
+	 * @param lines the lines of the subdivision
+	 * @return the lines that are filtered
+	 */
+	private List<MapLine> prepareLines(int res, List<MapLine> lines) {
 		//TODO: Maybe this is the wrong place to do merging.
 		// Maybe more efficient if merging before creating subdivisions.
 		if (mergeLines) {
 			LineMergeFilter merger = new LineMergeFilter();
 			lines = merger.merge(lines, res);
 		}
-		
+		return lines;
+	}
+
+	/**
+	 * Check if the coordinates of the elements are rounded, in that case
+	 * the filters don't change the original points.
+	 * @param res the resolution of the subdivision
+	 * @return true if the clean filters are used
+	 */
+	private boolean useLineCleanFilters(int res) {
+		return enableLineCleanFilters && res < 24;
+	}
+
+	/**
+	 * Create the filters for the lines of a subdivision.
+	 * @param div the subdivision
+	 * @param lastFilter the filter that receives the results
+	 * @return the filter chain
+	 */
+	private LayerFilterChain createLineFilters(Subdivision div, MapFilter lastFilter) {
+		int res = div.getResolution();
+
+		FilterConfig config = new FilterConfig();
+		config.setResolution(res);
+		config.setLevel(div.getZoom().getLevel());
+		config.setHasNet(doRoads);
+
 		LayerFilterChain filters = new LayerFilterChain(config);
-		if (enableLineCleanFilters && (res < 24)) {
+		if (useLineCleanFilters(res)) {
 			filters.addFilter(new RoundCoordsFilter());
 			filters.addFilter(new SizeFilter(MIN_SIZE_LINE));
 			if(reducePointError > 0)
@@ -1172,13 +1315,8 @@ public class MapBuilder implements Configurable {
 		filters.addFilter(new RemoveEmpty());
 		filters.addFilter(new RemoveObsoletePointsFilter());
 		filters.addFilter(new LinePreparerFilter(div));
-		filters.addFilter(new LineAddFilter(div, map));
-		
-		for (MapLine line : lines) {
-			if (line.getMinResolution() <= res) {
-				filters.startFilter(line);
-			}
-		}
+		filters.addFilter(lastFilter);
+		return filters;
 	}
 
 	/**
@@ -1197,11 +1335,24 @@ public class MapBuilder implements Configurable {
 
 		int res = div.getResolution();
 
-		FilterConfig config = new FilterConfig();
-		config.setResolution(res);
-		config.setLevel(div.getZoom().getLevel());
-		config.setHasNet(doRoads);
-		
+		shapes = prepareShapes(res, shapes);
+
+		LayerFilterChain filters = createShapeFilters(div, new ShapeAddFilter(div, map));
+		for (MapShape shape : shapes) {
+			if (shape.getMinResolution() <= res) {
+				filters.startFilter(shape);
+			}
+		}
+	}
+
+	/**
+	 * Merge and sort the shapes if this is wanted and mark the points
+	 * that must be preserved.
+	 * @param res the resolution of the subdivision
+	 * @param shapes the shapes of the subdivision
+	 * @return the shapes that are filtered
+	 */
+	private List<MapShape> prepareShapes(int res, List<MapShape> shapes) {
 		if (mergeShapes){
 			ShapeMergeFilter shapeMergeFilter = new ShapeMergeFilter(res, orderByDecreasingArea);
 			List<MapShape> mergedShapes = shapeMergeFilter.merge(shapes);
@@ -1214,10 +1365,26 @@ public class MapBuilder implements Configurable {
 		}
 
 		preserveHorizontalAndVerticalLines(res, shapes);
-		
+		return shapes;
+	}
+
+	/**
+	 * Create the filters for the shapes of a subdivision.
+	 * @param div the subdivision
+	 * @param lastFilter the filter that receives the results
+	 * @return the filter chain
+	 */
+	private LayerFilterChain createShapeFilters(Subdivision div, MapFilter lastFilter) {
+		int res = div.getResolution();
+
+		FilterConfig config = new FilterConfig();
+		config.setResolution(res);
+		config.setLevel(div.getZoom().getLevel());
+		config.setHasNet(doRoads);
+
 		LayerFilterChain filters = new LayerFilterChain(config);
 		filters.addFilter(new PolygonSplitterFilter());
-		if (enableLineCleanFilters && (res < 24)) {
+		if (useLineCleanFilters(res)) {
 			filters.addFilter(new RoundCoordsFilter());
 			int sizefilterVal =  getMinSizePolygonForResolution(res);
 			if (sizefilterVal > 0)
@@ -1230,13 +1397,8 @@ public class MapBuilder implements Configurable {
 		filters.addFilter(new RemoveObsoletePointsFilter());
 		filters.addFilter(new RemoveEmpty());
 		filters.addFilter(new LinePreparerFilter(div));
-		filters.addFilter(new ShapeAddFilter(div, map));
-
-		for (MapShape shape : shapes) {
-			if (shape.getMinResolution() <= res) {
-				filters.startFilter(shape);
-			}
-		}
+		filters.addFilter(lastFilter);
+		return filters;
 	}
 
 	/**
@@ -1374,11 +1536,35 @@ public class MapBuilder implements Configurable {
 
 		public void doFilter(MapElement element, MapFilterChain next) {
 			MapLine line = (MapLine) element;
+			addLine(div, map, line, createLine(div, map, line));
+		}
+
+		/**
+		 * Create the polyline without the labels, they are added
+		 * in {@link #addLine}.
+		 */
+		static Polyline createLine(Subdivision div, Map map, MapLine line) {
 			assert line.getPoints().size() < 255 : "too many points";
 
-			Polyline pl = div.createLine(line.getLabels());
-			if (element.hasExtendedType()) {
-				ExtTypeAttributes eta = element.getExtTypeAttributes();
+			Polyline pl = new Polyline(div);
+			pl.setDirection(line.isDirection());
+
+			pl.addCoords(line.getPoints());
+
+			pl.setType(line.getType());
+			if (map.getNetFile() != null && line instanceof MapRoad) {
+				MapRoad road = (MapRoad) line;
+				pl.setRoadDef(road.getRoadDef());
+				if (road.hasSegmentsFollowing())
+					pl.setLastSegment(false);
+			}
+			return pl;
+		}
+
+		static void addLine(Subdivision div, Map map, MapLine line, Polyline pl) {
+			div.addLabels(pl, line.getLabels());
+			if (line.hasExtendedType()) {
+				ExtTypeAttributes eta = line.getExtTypeAttributes();
 				if (eta != null) {
 					eta.processLabels(map.getLblFile());
 					pl.setExtTypeAttributes(eta);
@@ -1387,22 +1573,10 @@ public class MapBuilder implements Configurable {
 				div.setPolylineNumber(pl);
 			}
 
-			pl.setDirection(line.isDirection());
-
-			pl.addCoords(line.getPoints());
-
-			pl.setType(line.getType());
 			if (map.getNetFile() != null && line instanceof MapRoad) {
 				if (log.isDebugEnabled())
 					log.debug("adding road def: " + line.getName());
-				MapRoad road = (MapRoad) line;
-				RoadDef roaddef = road.getRoadDef();
-
-				pl.setRoadDef(roaddef);
-				if (road.hasSegmentsFollowing())
-					pl.setLastSegment(false);
-
-				roaddef.addPolylineRef(pl);
+				((MapRoad) line).getRoadDef().addPolylineRef(pl);
 			}
 			map.addMapObject(pl);
 		}
@@ -1419,15 +1593,28 @@ public class MapBuilder implements Configurable {
 
 		public void doFilter(MapElement element, MapFilterChain next) {
 			MapShape shape = (MapShape) element;
+			addShape(div, map, shape, createPolygon(div, shape));
+		}
+
+		/**
+		 * Create the polygon without the label, it is added
+		 * in {@link #addShape}.
+		 */
+		static Polygon createPolygon(Subdivision div, MapShape shape) {
 			assert shape.getPoints().size() < 255 : "too many points";
 
-			Polygon pg = div.createPolygon(shape.getName());
+			Polygon pg = new Polygon(div);
 
 			pg.addCoords(shape.getPoints());
 
 			pg.setType(shape.getType());
-			if (element.hasExtendedType()) {
-				ExtTypeAttributes eta = element.getExtTypeAttributes();
+			return pg;
+		}
+
+		static void addShape(Subdivision div, Map map, MapShape shape, Polygon pg) {
+			div.addLabel(pg, shape.getName());
+			if (shape.hasExtendedType()) {
+				ExtTypeAttributes eta = shape.getExtTypeAttributes();
 				if (eta != null) {
 					eta.processLabels(map.getLblFile());
 					pg.setExtTypeAttributes(eta);
@@ -1436,4 +1623,97 @@ public class MapBuilder implements Configurable {
 			map.addMapObject(pg);
 		}
 	}
+
+	/**
+	 * Collects the filtered lines or shapes of a subdivision together with
+	 * the objects that are written to the map for them.
+	 */
+	private static class ElementCollector extends BaseFilter implements MapFilter {
+		private final Subdivision div;
+		private final Map map;
+		private final List<MapLine> elements = new ArrayList<>();
+		private final List<Polyline> encoded = new ArrayList<>();
+
+		ElementCollector(Subdivision div, Map map) {
+			this.div = div;
+			this.map = map;
+		}
+
+		public void doFilter(MapElement element, MapFilterChain next) {
+			MapLine line = (MapLine) element;
+			elements.add(line);
+			if (line instanceof MapShape)
+				encoded.add(ShapeAddFilter.createPolygon(div, (MapShape) line));
+			else
+				encoded.add(LineAddFilter.createLine(div, map, line));
+		}
+
+		/**
+		 * Run the filters for the elements that are shown at the resolution
+		 * of the subdivision.
+		 */
+		void filter(List<? extends MapLine> input, LayerFilterChain filters) {
+			int res = div.getResolution();
+			for (MapLine line : input) {
+				if (line.getMinResolution() <= res) {
+					filters.startFilter(line);
+				}
+			}
+		}
+
+		void encode() {
+			encoded.forEach(Polyline::prepare);
+		}
+	}
+
+	private static class SubdivisionElements {
+		private final Subdivision div;
+		private final MapArea area;
+		private final ElementCollector lines;
+		private final ElementCollector shapes;
+
+		SubdivisionElements(Subdivision div, MapArea area, Map map) {
+			this.div = div;
+			this.area = area;
+			this.lines = new ElementCollector(div, map);
+			this.shapes = new ElementCollector(div, map);
+		}
+	}
+
+	/**
+	 * Encodes the filtered lines and shapes of a range of subdivisions.
+	 */
+	private static class SubdivisionEncoder extends RecursiveAction {
+		private final SubdivisionElements[] elements;
+		private final int from;
+		private final int to;
+		private final String threadTag;
+
+		SubdivisionEncoder(SubdivisionElements[] elements, int from, int to, String threadTag) {
+			this.elements = elements;
+			this.from = from;
+			this.to = to;
+			this.threadTag = threadTag;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				String oldTag = log.threadTag();
+				log.threadTag(threadTag);
+				try {
+					for (int i = from; i < to; i++) {
+						elements[i].lines.encode();
+						elements[i].shapes.encode();
+					}
+				} finally {
+					log.threadTag(oldTag);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SubdivisionEncoder(elements, from, mid, threadTag),
+					new SubdivisionEncoder(elements, mid, to, threadTag));
+		}
+	}
 }
@@ -31,6 +31,7 @@ import uk.me.parabola.imgfmt.app.Area;
 import uk.me.parabola.imgfmt.app.BufferedImgFileReader;
 import uk.me.parabola.imgfmt.app.lbl.LBLFileReader;
 import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.trergn.OverviewFeatures;
 import uk.me.parabola.imgfmt.app.trergn.TREFileReader;
 import uk.me.parabola.imgfmt.app.trergn.TREHeader;
 import uk.me.parabola.imgfmt.fs.DirectoryEntry;
@@ -395,6 +396,17 @@ public class FileInfo {
 		this.args = args;
 	}
 
+	/**
+	 * @return The features of the overview file that was just made, or
+	 * null if the file has to be read.
+	 * @see CommandArgs#takeOverviewFeatures()
+	 */
+	public OverviewFeatures takeOverviewFeatures() {
+		if (args == null)
+			return null;
+		return args.takeOverviewFeatures();
+	}
+
 	public String getFamilyName() {
 		return args.get("family-name", "OSM map");
 	}
@@ -15,8 +15,7 @@ package uk.me.parabola.mkgmap.combiners;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
-import java.nio.ByteBuffer;
-import java.nio.channels.ByteChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -174,13 +173,8 @@ public class GmapiBuilder implements Combiner {
 	}
 
 	private static void copyToFile(ImgChannel f, Path dest) {
-		ByteBuffer buf = ByteBuffer.allocate(8 * 1024);
-		try (ByteChannel outchan = Files.newByteChannel(dest, CREATE, WRITE, TRUNCATE_EXISTING)) {
-			while (f.read(buf) > 0) {
-				buf.flip();
-				outchan.write(buf);
-				buf.compact();
-			}
+		try (FileChannel outchan = FileChannel.open(dest, CREATE, WRITE, TRUNCATE_EXISTING)) {
+			f.transferTo(outchan);
 		} catch (IOException e) {
 			throw new ExitException("Cannot write file " + e);
 		}
@@ -19,7 +19,6 @@ package uk.me.parabola.mkgmap.combiners;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -459,11 +458,6 @@ class FileCopier {
 	}
 
 	private static void copyFile(ImgChannel fin, ImgChannel fout) throws IOException {
-		ByteBuffer buf = ByteBuffer.allocate(1024);
-		while (fin.read(buf) > 0) {
-			buf.flip();
-			fout.write(buf);
-			buf.compact();
-		}
+		fin.transferTo(fout);
 	}
 }
@@ -18,11 +18,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.FileExistsException;
@@ -68,6 +74,14 @@ public class MdrBuilder implements Combiner {
 	private File tmpName;
 	private String outputName;
 
+	// Maps are read in parallel by these threads, the results are added to
+	// the index in the original order of the maps.
+	private ExecutorService readers;
+	private int maxThreads;
+	// read the maps through a memory mapping
+	private boolean mappedInput;
+	private final Deque<PendingMap> pendingMaps = new ArrayDeque<>();
+
 	/**
 	 * Create the mdr file and initialise.
 	 * It has a name that is based on the overview-mapname option, as does
@@ -112,6 +126,8 @@ public class MdrBuilder implements Combiner {
 
 		// Wrap the MDR channel with the MDRFile object
 		mdrFile = new MDRFile(mdrChan, config);
+		maxThreads = config.getMaxThreads();
+		mappedInput = args.getProperties().getProperty("mapped-input", false);
 
 		try {
 			ImgChannel srtChan = imgfs.create(name.toUpperCase(Locale.ENGLISH) + ".SRT");
@@ -139,37 +155,88 @@ public class MdrBuilder implements Combiner {
 
 		// Wrap the MDR channel with the MDRFile object
 		mdrFile = new MDRFile(chan, config);
+		maxThreads = config.getMaxThreads();
 	}
 
 	/**
 	 * Adds a new map to the file.  We need to read in the img file and
 	 * extract all the information that can be indexed from it.
 	 *
+	 * The reading is done by a pool of threads so that several maps can be
+	 * read at the same time. The maps are added to the index in the order in
+	 * which they are given here.
+	 *
 	 * @param info An interface to read the map.
 	 */
 	public void onMapEnd(FileInfo info) {
 		if (!info.isImg())
 			return;
-		
-		// Add the map name
-		mdrFile.addMap(info.getHexname(), info.getCodePage());
 
-		String filename = info.getFilename();
-		MapReader mr = null;
-		try {
-			mr = new MapReader(filename);
+		if (maxThreads <= 1) {
+			addMap(info, readMap(info.getFilename(), mappedInput));
+			return;
+		}
+		if (readers == null)
+			readers = Executors.newFixedThreadPool(maxThreads);
 
-			AreaMaps maps = new AreaMaps();
+		pendingMaps.add(new PendingMap(info, readers.submit(() -> readMap(info.getFilename(), mappedInput))));
 
-			maps.countries = addCountries(mr);
-			maps.regions = addRegions(mr, maps);
-			List<Mdr5Record> mdrCityList = fetchCities(mr, maps);
-			maps.cityList = mdrCityList;
+		// Limit the number of maps that are held in memory
+		while (pendingMaps.size() > maxThreads)
+			addNextPendingMap();
+	}
+
+	private void addNextPendingMap() {
+		PendingMap pending = pendingMaps.removeFirst();
+		MapContents contents;
+		try {
+			contents = pending.contents.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExitException("Interrupted while creating mdr file");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new ExitException("Could not read " + pending.info.getFilename() + " when creating mdr file", cause);
+		}
+		addMap(pending.info, contents);
+	}
+
+	/**
+	 * Add all maps that are still being read and stop the reading threads.
+	 */
+	private void addPendingMaps() {
+		try {
+			while (!pendingMaps.isEmpty())
+				addNextPendingMap();
+		} finally {
+			if (readers != null) {
+				readers.shutdownNow();
+				readers = null;
+			}
+		}
+	}
 
-			addPoints(mr, maps);
-			addCities(mdrCityList);
-			addStreets(mr, mdrCityList);
-			addZips(mr);
+	/**
+	 * Read everything from the map that goes into the index.  This does not
+	 * change anything in the mdr file and so can be done in any thread.
+	 */
+	private static MapContents readMap(String filename, boolean mapped) {
+		MapReader mr = null;
+		try {
+			mr = new MapReader(filename, mapped);
+
+			MapContents contents = new MapContents();
+			contents.countries = mr.getCountries();
+			contents.regions = mr.getRegions();
+			contents.cities = mr.getCities();
+			contents.points = mr.pointsForLevel(0, MapReader.WITHOUT_EXT_TYPE_DATA);
+			contents.roads = mr.getRoads();
+			contents.zips = mr.getZips();
+			return contents;
 		} catch (FileNotFoundException e) {
 			throw new ExitException("Could not open " + filename + " when creating mdr file");
 		} finally {
@@ -177,9 +244,26 @@ public class MdrBuilder implements Combiner {
 		}
 	}
 
-	private Map<Integer, Mdr14Record> addCountries(MapReader mr) {
+	private void addMap(FileInfo info, MapContents contents) {
+		// Add the map name
+		mdrFile.addMap(info.getHexname(), info.getCodePage());
+
+		AreaMaps maps = new AreaMaps();
+
+		maps.countries = addCountries(contents);
+		maps.regions = addRegions(contents, maps);
+		List<Mdr5Record> mdrCityList = fetchCities(contents, maps);
+		maps.cityList = mdrCityList;
+
+		addPoints(contents, maps);
+		addCities(mdrCityList);
+		addStreets(contents, mdrCityList);
+		addZips(contents);
+	}
+
+	private Map<Integer, Mdr14Record> addCountries(MapContents contents) {
 		Map<Integer, Mdr14Record> countryMap = new HashMap<>();
-		List<Country> countries = mr.getCountries();
+		List<Country> countries = contents.countries;
 		for (Country c : countries) {
 			if (c != null) {
 				Mdr14Record record = mdrFile.addCountry(c);
@@ -189,10 +273,10 @@ public class MdrBuilder implements Combiner {
 		return countryMap;
 	}
 
-	private Map<Integer, Mdr13Record> addRegions(MapReader mr, AreaMaps maps) {
+	private Map<Integer, Mdr13Record> addRegions(MapContents contents, AreaMaps maps) {
 		Map<Integer, Mdr13Record> regionMap = new HashMap<>();
 
-		List<Region> regions = mr.getRegions();
+		List<Region> regions = contents.regions;
 		for (Region region : regions) {
 			if (region != null) {
 				Mdr14Record mdr14 = maps.countries.get(region.getCountry().getIndex());
@@ -208,11 +292,11 @@ public class MdrBuilder implements Combiner {
 	 * section, it has to be completed from the points section. So we fetch
 	 * and create the mdr5s first before points.
 	 */
-	private List<Mdr5Record> fetchCities(MapReader mr, AreaMaps maps) {
+	private List<Mdr5Record> fetchCities(MapContents contents, AreaMaps maps) {
 		Map<Integer, Mdr5Record> cityMap = maps.cities;
 
 		List<Mdr5Record> cityList = new ArrayList<>();
-		List<City> cities = mr.getCities();
+		List<City> cities = contents.cities;
 		for (City c : cities) {
 			int regionCountryNumber = c.getRegionCountryNumber();
 			Mdr13Record mdrRegion = null;
@@ -249,20 +333,19 @@ public class MdrBuilder implements Combiner {
 			mdrFile.addCity(c);
 		}
 	}
-	private void addZips(MapReader mr) {
-		List<Zip> zips = mr.getZips();
+	private void addZips(MapContents contents) {
+		List<Zip> zips = contents.zips;
 		for (Zip zip : zips)
 			mdrFile.addZip(zip);
 	}
 
 	/**
 	 * Read points from this map and add them to the index.
-	 * @param mr The currently open map.
+	 * @param contents The contents of the current map.
 	 * @param maps Maps of regions, cities countries etc.
 	 */
-	private void addPoints(MapReader mr, AreaMaps maps) {
-		List<Point> list = mr.pointsForLevel(0, MapReader.WITHOUT_EXT_TYPE_DATA);
-		for (Point p : list) {
+	private void addPoints(MapContents contents, AreaMaps maps) {
+		for (Point p : contents.points) {
 			Label label = p.getLabel();
 			if (p.getNumber() > 256) {
 				continue;
@@ -294,8 +377,8 @@ public class MdrBuilder implements Combiner {
 		}
 	}
 
-	private void addStreets(MapReader mr, List<Mdr5Record> cityList) {
-		List<RoadDef> roads = mr.getRoads();
+	private void addStreets(MapContents contents, List<Mdr5Record> cityList) {
+		List<RoadDef> roads = contents.roads;
 
 		for (RoadDef road : roads) {
 			List<City> cities = road.getCities();
@@ -330,6 +413,8 @@ public class MdrBuilder implements Combiner {
 	 * We are building a standalone mdr file, so that is
 	 */
 	public void onFinish() {
+		addPendingMaps();
+
 		// Write out the mdr file
 		mdrFile.write();
 
@@ -352,6 +437,8 @@ public class MdrBuilder implements Combiner {
 	 * the gmapsupp.img file.
 	 */
 	void onFinishForDevice() {
+		addPendingMaps();
+
 		// Write out the mdr file
 		mdrFile.write();
 	}
@@ -365,6 +452,28 @@ public class MdrBuilder implements Combiner {
 		return (int) tmpName.length();
 	}
 
+	/**
+	 * Everything that is read from a single map for the index.
+	 */
+	private static class MapContents {
+		private List<Country> countries;
+		private List<Region> regions;
+		private List<City> cities;
+		private List<Point> points;
+		private List<RoadDef> roads;
+		private List<Zip> zips;
+	}
+
+	private static class PendingMap {
+		private final FileInfo info;
+		private final Future<MapContents> contents;
+
+		PendingMap(FileInfo info, Future<MapContents> contents) {
+			this.info = info;
+			this.contents = contents;
+		}
+	}
+
 	/**
 	 * Holds lookup maps for cities, regions and countries.  Used to
 	 * link streets, pois to cities, regions and countries.
@@ -17,6 +17,7 @@ import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntFunction;
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.FileExistsException;
 import uk.me.parabola.imgfmt.FileNotWritableException;
@@ -28,6 +29,7 @@ import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.imgfmt.app.map.Map;
 import uk.me.parabola.imgfmt.app.map.MapReader;
 import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.trergn.OverviewFeatures;
 import uk.me.parabola.imgfmt.app.trergn.Point;
 import uk.me.parabola.imgfmt.app.trergn.Polygon;
 import uk.me.parabola.imgfmt.app.trergn.Polyline;
@@ -65,6 +67,8 @@ public class OverviewBuilder implements Combiner {
 	private LevelInfo[] wantedLevels;
 	private Area bounds;
 	private boolean hasBackground;
+	// read the maps through a memory mapping
+	private boolean mappedInput;
 	private EnhancedProperties demProps = new EnhancedProperties();
 	
 	public OverviewBuilder() {
@@ -77,6 +81,7 @@ public class OverviewBuilder implements Combiner {
 		overviewMapnumber = args.get("overview-mapnumber", "63240000");
 		
 		outputDir = args.getOutputDir();
+		mappedInput = args.getProperties().getProperty("mapped-input", false);
 		String demDist = args.getProperties().getProperty("overview-dem-dist");
 		String hgtPath = args.getProperties().getProperty("dem");
 		if (hgtPath != null && demDist != null && !"0".equals(demDist.trim())) {
@@ -206,7 +211,6 @@ public class OverviewBuilder implements Combiner {
 	private void readFileIntoOverview(FileInfo finfo) throws FileNotFoundException {
 		addMapCoverageArea(finfo);
 
-		MapReader mapReader = null;
 		String filename = finfo.getFilename();
 		if (codepage == null){
 			codepage = finfo.getCodePage();
@@ -215,57 +219,29 @@ public class OverviewBuilder implements Combiner {
 			System.err.println("WARNING: input file " + filename + " has different code page " + finfo.getCodePage());
 		}
 
-		try{
-			mapReader = new MapReader(filename);
+		// The features of an overview file that was made in this run are
+		// passed in memory, the same as they would be read from the file.
+		OverviewFeatures features = isOverviewImg(filename) ? finfo.takeOverviewFeatures() : null;
+		if (features != null) {
+			Zoom[] levels = features.getLevels();
+			addMapInfo(finfo, features.getEncodingType(), features.getCopyrights(), levels);
+			readPoints(levels, features);
+			readLines(levels, features);
+			readShapes(levels, features);
+			return;
+		}
 
-			if (encodingType == null){
-				encodingType = mapReader.getEncodingType();
-			} 
-			if (encodingType != mapReader.getEncodingType()){
-				System.err.println("WARNING: input file " + filename + " has different charset type " + encodingType);
-			}
+		MapReader mapReader = null;
+		try{
+			mapReader = new MapReader(filename, mappedInput);
+			final MapReader reader = mapReader;
 
-			String[] msgs = mapReader.getCopyrights();
-			boolean found = false;
-			for (String[] block : copyrightMsgs) {
-				if (Arrays.deepEquals(block, msgs)){
-					found = true;
-					break;
-				}
-			}
-			if (!found )
-				copyrightMsgs.add(msgs);
-			
-			msgs = finfo.getLicenseInfo();
-			found = false;
-			for (String[] block : licenseInfos) {
-				if (Arrays.deepEquals(block, msgs)){
-					found = true;
-					break;
-				}
-			}
-			if (!found )
-				licenseInfos.add(msgs);
-			
-			
 			Zoom[] levels = mapReader.getLevels();
-			if (wantedLevels == null){
-				LevelInfo[] mapLevels;
-				if (isOverviewImg(filename)){
-					mapLevels = new LevelInfo[levels.length-1]; 
-					for (int i = 1; i < levels.length; i++){
-						mapLevels[i-1] = new LevelInfo(levels[i].getLevel(), levels[i].getResolution());
-					}
-				} else {
-					mapLevels = new LevelInfo[1];
-					mapLevels[0] = new LevelInfo(levels[1].getLevel(), levels[1].getResolution());
-				}
-				wantedLevels = mapLevels;
-			}
+			addMapInfo(finfo, mapReader.getEncodingType(), mapReader.getCopyrights(), levels);
 			if (isOverviewImg(filename)){
-				readPoints(mapReader);
-				readLines(mapReader);
-				readShapes(mapReader);
+				readPoints(levels, level -> reader.pointsForLevel(level, MapReader.WITH_EXT_TYPE_DATA));
+				readLines(levels, reader::linesForLevel);
+				readShapes(levels, level -> reader.shapesForLevel(level, MapReader.WITH_EXT_TYPE_DATA));
 			}
 		} catch (FileNotFoundException e) {
 			throw new ExitException("Could not open " + filename + " when creating overview file");
@@ -275,18 +251,144 @@ public class OverviewBuilder implements Combiner {
 	}
 
 	/**
-	 * Read the points from the .img file and add them to the overview map.
+	 * Check the encoding and collect the copyright and license messages
+	 * and the levels of a map.
+	 *
+	 * @param finfo Information about an individual map.
+	 * @param mapEncodingType The encoding type of the labels of the map.
+	 * @param copyrights The copyright messages of the map.
+	 * @param levels The levels of the map, the least detailed first.
+	 */
+	private void addMapInfo(FileInfo finfo, int mapEncodingType, String[] copyrights, Zoom[] levels) {
+		String filename = finfo.getFilename();
+		if (encodingType == null){
+			encodingType = mapEncodingType;
+		} 
+		if (encodingType != mapEncodingType){
+			System.err.println("WARNING: input file " + filename + " has different charset type " + encodingType);
+		}
+
+		String[] msgs = copyrights;
+		boolean found = false;
+		for (String[] block : copyrightMsgs) {
+			if (Arrays.deepEquals(block, msgs)){
+				found = true;
+				break;
+			}
+		}
+		if (!found )
+			copyrightMsgs.add(msgs);
+		
+		msgs = finfo.getLicenseInfo();
+		found = false;
+		for (String[] block : licenseInfos) {
+			if (Arrays.deepEquals(block, msgs)){
+				found = true;
+				break;
+			}
+		}
+		if (!found )
+			licenseInfos.add(msgs);
+		
+		
+		if (wantedLevels == null){
+			LevelInfo[] mapLevels;
+			if (isOverviewImg(filename)){
+				mapLevels = new LevelInfo[levels.length-1]; 
+				for (int i = 1; i < levels.length; i++){
+					mapLevels[i-1] = new LevelInfo(levels[i].getLevel(), levels[i].getResolution());
+				}
+			} else {
+				mapLevels = new LevelInfo[1];
+				mapLevels[0] = new LevelInfo(levels[1].getLevel(), levels[1].getResolution());
+			}
+			wantedLevels = mapLevels;
+		}
+	}
+
+	/**
+	 * Add the points of an overview file that was made in this run to the
+	 * overview map, the same as {@link #readPoints(Zoom[], IntFunction)}.
+	 */
+	private void readPoints(Zoom[] levels, OverviewFeatures features) {
+		Area bounds = overviewSource.getBounds();
+		for (int l = 1; l < levels.length; l++){
+			int res = levels[l].getResolution();
+			OverviewFeatures.FeatureList list = features.pointsForLevel(levels[l].getLevel());
+			for (int i = 0; i < list.size(); i++) {
+				Coord location = list.getLocation(i);
+				if (!bounds.contains(location))
+					continue;
+
+				MapPoint mp = new MapPoint();
+				mp.setType(list.getType(i));
+				if (list.getLabel(i) != null)
+					mp.setName(list.getLabel(i));
+				mp.setMaxResolution(res);
+				mp.setMinResolution(res);
+				mp.setLocation(location);
+				overviewSource.addPoint(mp);
+			}
+		}
+	}
+
+	private void readLines(Zoom[] levels, OverviewFeatures features) {
+		for (int l = 1; l < levels.length; l++){
+			int res = levels[l].getResolution();
+			OverviewFeatures.FeatureList list = features.linesForLevel(levels[l].getLevel());
+			for (int i = 0; i < list.size(); i++) {
+				List<Coord> points = list.getPoints(i);
+				if (points.size() < 2)
+					continue;
+
+				MapLine ml = new MapLine();
+				ml.setType(list.getType(i));
+				if (list.getLabel(i) != null)
+					ml.setName(list.getLabel(i));
+				ml.setMaxResolution(res);
+				ml.setMinResolution(res);
+				ml.setPoints(points);
+				overviewSource.addLine(ml);
+			}
+		}
+	}
+
+	private void readShapes(Zoom[] levels, OverviewFeatures features) {
+		for (int l = 1; l < levels.length; l++){
+			int res = levels[l].getResolution();
+			OverviewFeatures.FeatureList list = features.shapesForLevel(levels[l].getLevel());
+			for (int i = 0; i < list.size(); i++) {
+				if (list.getType(i) == 0x4b)
+					hasBackground = true;
+				List<Coord> points = list.getPoints(i);
+				if (points.size() < 3)
+					continue;
+
+				MapShape ms = new MapShape();
+				ms.setType(list.getType(i));
+				if (list.getLabel(i) != null)
+					ms.setName(list.getLabel(i));
+				ms.setMaxResolution(res);
+				ms.setMinResolution(res);
+				ms.setPoints(points);
+				overviewSource.addShape(ms);
+			}
+		}
+	}
+
+	/**
+	 * Add the points of an overview file to the overview map.
 	 * We read from the least detailed level (apart from the empty one).
 	 *
-	 * @param mapReader Map reader on the detailed .img file.
+	 * @param levels The levels of the overview file.
+	 * @param pointsForLevel Gives the points of a level.
 	 */
-	private void readPoints(MapReader mapReader) {
+	private void readPoints(Zoom[] levels, IntFunction<List<Point>> pointsForLevel) {
 		Area bounds = overviewSource.getBounds();
-		Zoom[] levels = mapReader.getLevels();
 		for (int l = 1; l < levels.length; l++){
 			int min = levels[l].getLevel();
 			int res = levels[l].getResolution();
-			List<Point> pointList = mapReader.pointsForLevel(min, MapReader.WITH_EXT_TYPE_DATA);
+			List<Point> pointList = pointsForLevel.apply(min);
 			for (Point point: pointList) {
 				if (log.isDebugEnabled())
 					log.debug("got point", point);
@@ -310,17 +412,17 @@ public class OverviewBuilder implements Combiner {
 	}
 
 	/**
-	 * Read the lines from the .img file and add them to the overview map.
+	 * Add the lines of an overview file to the overview map.
 	 * We read from the least detailed level (apart from the empty one).
 	 *
-	 * @param mapReader Map reader on the detailed .img file.
+	 * @param levels The levels of the overview file.
+	 * @param linesForLevel Gives the lines of a level.
 	 */
-	private void readLines(MapReader mapReader) {
-		Zoom[] levels = mapReader.getLevels();
+	private void readLines(Zoom[] levels, IntFunction<List<Polyline>> linesForLevel) {
 		for (int l = 1; l < levels.length; l++){
 			int min = levels[l].getLevel();
 			int res = levels[l].getResolution();
-			List<Polyline> lineList = mapReader.linesForLevel(min);
+			List<Polyline> lineList = linesForLevel.apply(min);
 			//System.out.println(lineList.size() + " lines in lowest resolution " + levels[1].getResolution());
 			for (Polyline line : lineList) {
 				if (log.isDebugEnabled())
@@ -346,17 +448,17 @@ public class OverviewBuilder implements Combiner {
 	}
 
 	/**
-	 * Read the polygons from the .img file and add them to the overview map.
+	 * Add the polygons of an overview file to the overview map.
 	 * We read from the least detailed level (apart from the empty one).
 	 *
-	 * @param mapReader Map reader on the detailed .img file.
+	 * @param levels The levels of the overview file.
+	 * @param shapesForLevel Gives the polygons of a level.
 	 */
-	private void readShapes(MapReader mapReader) {
-		Zoom[] levels = mapReader.getLevels();
+	private void readShapes(Zoom[] levels, IntFunction<List<Polygon>> shapesForLevel) {
 		for (int l = 1; l < levels.length; l++){
 			int min = levels[l].getLevel();
 			int res = levels[l].getResolution();
-			List<Polygon> list = mapReader.shapesForLevel(min, MapReader.WITH_EXT_TYPE_DATA);
+			List<Polygon> list = shapesForLevel.apply(min);
 			for (Polygon shape : list) {
 				if (log.isDebugEnabled())
 					log.debug("got polygon", shape);
@@ -47,6 +47,8 @@ public class TdbBuilder implements Combiner {
 	private String overviewMapnumber;
 	private String outputDir;
 	private int tdbVersion;
+	// read the maps through a memory mapping
+	private boolean mappedInput;
 	private final List<String[]> copyrightMsgs = new ArrayList<>();
 
 	public TdbBuilder(OverviewBuilder ovb) {
@@ -65,6 +67,7 @@ public class TdbBuilder implements Combiner {
 	public void init(CommandArgs args) {
 		overviewMapname = args.get("overview-mapname", "osmmap");
 		overviewMapnumber = args.get("overview-mapnumber", "63240000");
+		mappedInput = args.getProperties().getProperty("mapped-input", false);
 		
 		try {
 			parent = Integer.parseInt(overviewMapnumber);
@@ -138,7 +141,7 @@ public class TdbBuilder implements Combiner {
 		MapReader mapReader = null;
 		String filename = finfo.getFilename();
 		try{
-			mapReader = new MapReader(filename);
+			mapReader = new MapReader(filename, mappedInput);
 
 			msgs = mapReader.getCopyrights();
 			boolean found = false;
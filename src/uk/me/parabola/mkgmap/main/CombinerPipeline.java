@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.log.Logger;
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.mkgmap.combiners.Combiner;
+import uk.me.parabola.mkgmap.combiners.FileInfo;
+
+/**
+ * Feeds finished maps to the combiners while other maps are still being
+ * built.
+ *
+ * Each combiner gets its own thread and sees the maps in exactly the order
+ * in which they are given to this class, so the result is the same as when
+ * the combiners are called one after the other once all maps are ready.
+ * The {@link Combiner#init} and {@link Combiner#onFinish} methods are called
+ * on the thread of the caller and in the order of the combiner list, as
+ * some combiners use the results of others when finishing.
+ *
+ * All combiners get the same arguments, so the {@link
+ * uk.me.parabola.imgfmt.app.srt.Sort} in them is used by several threads
+ * at the same time. It is not changed after it is read and each thread
+ * encodes the strings with its own encoder.
+ */
+class CombinerPipeline {
+	private static final Logger log = Logger.getLogger(CombinerPipeline.class);
+
+	private final List<Combiner> combiners;
+	private final CommandArgs args;
+	private final List<ExecutorService> executors = new ArrayList<>();
+	private final List<Future<?>> lastTasks = new ArrayList<>();
+	private volatile Throwable failure;
+	private boolean started;
+
+	CombinerPipeline(List<Combiner> combiners, CommandArgs args) {
+		this.combiners = combiners;
+		this.args = args;
+	}
+
+	/**
+	 * @return true if at least one map was passed to the combiners.
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * Queue a map for all combiners.
+	 * @param info the finished map
+	 * @param excluded a combiner that should not see this map, may be null
+	 */
+	public void onMapEnd(FileInfo info, Combiner excluded) {
+		start();
+		for (int i = 0; i < combiners.size(); i++) {
+			if (combiners.get(i) != excluded)
+				submit(i, info);
+		}
+	}
+
+	/**
+	 * Queue a map for a single combiner.
+	 * @param combiner the combiner
+	 * @param info the finished map
+	 */
+	public void onMapEndFor(Combiner combiner, FileInfo info) {
+		start();
+		submit(combiners.indexOf(combiner), info);
+	}
+
+	private void start() {
+		if (started)
+			return;
+		started = true;
+		for (Combiner c : combiners) {
+			c.init(args);
+			final String name = c.getClass().getSimpleName();
+			executors.add(Executors.newSingleThreadExecutor(r -> new Thread(r, "combiner-" + name)));
+			lastTasks.add(null);
+		}
+	}
+
+	private void submit(int pos, FileInfo info) {
+		checkFailed();
+		Combiner c = combiners.get(pos);
+		Future<?> f = executors.get(pos).submit(() -> {
+			if (failure != null)
+				return;
+			log.threadTag(info.getMapname());
+			try {
+				c.onMapEnd(info);
+			} catch (RuntimeException | Error e) {
+				failure = e;
+			} finally {
+				log.threadTag(null);
+			}
+		});
+		lastTasks.set(pos, f);
+	}
+
+	/**
+	 * Re-throw the first exception that one of the combiners threw.
+	 */
+	private void checkFailed() {
+		Throwable t = failure;
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+	}
+
+	/**
+	 * Wait until all queued maps are processed and then let the combiners
+	 * finish their work.
+	 */
+	public void finish() {
+		try {
+			for (Future<?> f : lastTasks) {
+				if (f != null)
+					waitFor(f);
+			}
+		} finally {
+			shutdown();
+		}
+		checkFailed();
+		for (Combiner c : combiners)
+			c.onFinish();
+	}
+
+	/**
+	 * Stop all combiner threads, queued maps are discarded.
+	 */
+	public void shutdown() {
+		for (ExecutorService es : executors)
+			es.shutdownNow();
+	}
+
+	private static void waitFor(Future<?> f) {
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExitException("Interrupted while waiting for combiners");
+		} catch (ExecutionException e) {
+			throw new ExitException("Combiner failed", e.getCause());
+		}
+	}
+}
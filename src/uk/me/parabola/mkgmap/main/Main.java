@@ -30,6 +30,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -39,11 +40,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -71,6 +75,7 @@ import uk.me.parabola.mkgmap.reader.osm.StyleInfo;
 import uk.me.parabola.mkgmap.scan.SyntaxException;
 import uk.me.parabola.mkgmap.srt.SrtTextReader;
 import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.PhaseProfile;
 
 /**
  * The new main program.  There can be many file names to process and there can
@@ -91,6 +96,8 @@ public class Main implements ArgumentProcessor {
 	private boolean verbose;
 
 	private final List<FilenameTask> futures = new LinkedList<>();
+	// the tasks in the order in which they finished
+	private final BlockingQueue<FilenameTask> finishedTasks = new LinkedBlockingQueue<>();
 	private ExecutorService threadPool;
 	// default number of threads
 	private int maxJobs = 0;
@@ -251,7 +258,15 @@ public class Main implements ArgumentProcessor {
 		/**
 		 * A null implementation that just returns the input name as the output.
 		 */
-		MapProcessor saver = (args, filename) -> filename;
+		MapProcessor saver = new MapProcessor() {
+			public String makeMap(CommandArgs args, String filename) {
+				return filename;
+			}
+
+			public String getOutputName(CommandArgs args, String filename) {
+				return filename;
+			}
+		};
 		processMap.put("img", saver);
 		processMap.put("mdx", saver);
 
@@ -283,7 +298,7 @@ public class Main implements ArgumentProcessor {
 		args.setSort(getSort(args));
 
 		log.info("Submitting job " + filename);
-		FilenameTask task = new FilenameTask(() -> {
+		FilenameTask task = new FilenameTask(futures.size(), finishedTasks, () -> {
 			log.threadTag(filename);
 			if (filename.startsWith("test-map:") || new File(filename).exists()){
 				String output = mp.makeMap(args, filename);
@@ -296,6 +311,8 @@ public class Main implements ArgumentProcessor {
 			}
 		});
 		task.setArgs(args);
+		task.setInputName(filename);
+		task.setExpectedName(mp.getOutputName(args, filename));
 		futures.add(task);
 	}
 
@@ -526,28 +543,36 @@ public class Main implements ArgumentProcessor {
 		for (FilenameTask task : futures) {
 			threadPool.execute(task);
 		}
-
+		threadPool.shutdown();
+
+		// With --stream-combiners the combiners see each map as soon as it and
+		// all maps that are sorted before it are finished.
+		List<FilenameTask> combinerOrder = null;
+		if (!combiners.isEmpty() && args.getProperties().getProperty("stream-combiners", false)) {
+			combinerOrder = getPredictedCombinerOrder();
+			if (combinerOrder == null)
+				log.warn("stream-combiners: cannot determine the names of all output files in advance, maps are combined after all are built");
+		}
+		CombinerStream stream = null;
+		if (combinerOrder != null) {
+			args.setSort(getSort(args));
+			stream = new CombinerStream(new CombinerPipeline(combiners, args), combinerOrder, args);
+		}
 
 		List<FilenameTask> filenames = new ArrayList<>();
 		
 		int numMapFailedExceptions = 0;
 		
-		if (threadPool != null) {
-			threadPool.shutdown();
-			while (!futures.isEmpty()) {
+		try {
+			for (int i = 0; i < taskCount; i++) {
+				FilenameTask future = takeFinishedTask();
 				try {
 					try {
-						// don't call get() until a job has finished
-						if (futures.get(0).isDone()) {
-							FilenameTask future = futures.remove(0);
-
-							// Provoke any exceptions by calling get and then
-							// save the result for later use
-							future.setFilename(future.get());
-							filenames.add(future);
-						} else {
-							Thread.sleep(100);
-						}
+						// Provoke any exceptions by calling get and then
+						// save the result for later use
+						future.setFilename(future.get());
+						future.setHasResult();
+						filenames.add(future);
 					} catch (ExecutionException e) {
 						// Re throw the underlying exception
 						Throwable cause = e.getCause();
@@ -570,16 +595,37 @@ public class Main implements ArgumentProcessor {
 					if (!args.getProperties().getProperty("keep-going", false)) {
 						throw new ExitException("Exiting - if you want to carry on regardless, use the --keep-going option");
 					}
+				} finally {
+					future.setCollected();
 				}
+				if (stream != null)
+					stream.dispatchFinished();
 			}
+		} catch (RuntimeException | Error e) {
+			if (stream != null)
+				stream.abort();
+			throw e;
 		}
 		System.out.println("Number of MapFailedExceptions: " + numMapFailedExceptions);
+		String profileFile = args.getProperties().getProperty("profile-phases", null);
+		if (profileFile != null) {
+			try {
+				PhaseProfile.write(profileFile);
+			} catch (IOException e) {
+				log.error("Could not write the phase profile to", profileFile, e.getMessage());
+			}
+		}
 		if ((taskCount > threadCount + 1) && (maxJobs == 0) && (threadCount < runtime.availableProcessors())) {
 			System.out.println("To reduce the run time, consider increasing the amnount of memory available for use by mkgmap by using the Java -Xmx flag to set the memory to more than " + 100* (1 + ((runtime.maxMemory() * runtime.availableProcessors()) / (threadCount * 1024 * 1024 * 100))) + " MB, providing this is less than the amount of physical memory installed.");
 		}
 
 		if (combiners.isEmpty())
 			return;
+		if (stream != null) {
+			if (stream.finish())
+				removeOvmWorkFiles(args, stream.getFoundOvmFiles());
+			return;
+		}
 		boolean hasFiles = false;
 		for (FilenameTask file : filenames) {
 			if (file == null || file.isCancelled() || file.getFilename() == null){
@@ -604,6 +650,9 @@ public class Main implements ArgumentProcessor {
 
 		filenames.removeIf(f -> f == null || f.isCancelled());
 
+		// restore the order of the input files, the tasks were collected as they finished
+		filenames.sort((o1, o2) -> Integer.compare(o1.getIndex(), o2.getIndex()));
+
 		final Map<String, Integer> nameToHex = new HashMap<>();
 		for (FilenameTask f : filenames) {
 			if (f.getFilename().endsWith(".img")) {
@@ -616,13 +665,7 @@ public class Main implements ArgumentProcessor {
 				nameToHex.put(f.getFilename(), hex);
 			}
 		}
-		filenames.sort((o1, o2) -> {
-			if (!o1.getFilename().endsWith(".img") || !o2.getFilename().endsWith(".img"))
-				return o1.getFilename().compareTo(o2.getFilename());
-
-			// Both end in .img
-			return Integer.compare(nameToHex.getOrDefault(o1.getFilename(), 0), nameToHex.getOrDefault(o2.getFilename(), 0)); 
-		});
+		filenames.sort(combinerComparator(FilenameTask::getFilename, nameToHex));
 		
 		// will contain img files for which an additional ovm file was found
 		HashSet<String> foundOvmFiles = new HashSet<>();
@@ -630,17 +673,9 @@ public class Main implements ArgumentProcessor {
 		if (tdbBuilderAdded){
 			for (FilenameTask file : filenames) {
 				try {
-					String fileName = file.getFilename();
-					if (!fileName.endsWith(".img"))
+					FileInfo fileInfo = getOverviewFileInfo(file);
+					if (fileInfo == null)
 						continue;
-					File f1 = new File(fileName);
-					fileName = new File(f1.getParent(), OverviewBuilder.getOverviewImgName(fileName)).getAbsolutePath();
-					
-					log.info("  " + fileName);
-					
-					FileInfo fileInfo = FileInfo.getFileInfo(fileName);
-					
-					fileInfo.setArgs(file.getArgs());
 					// add the real input file 
 					foundOvmFiles.add(file.getFilename());
 					
@@ -655,17 +690,11 @@ public class Main implements ArgumentProcessor {
 		
 		// Tell them about each filename (OverviewBuilder excluded) 
 		for (FilenameTask file : filenames) {
-			try {
-				log.info("  " + file);
-				FileInfo fileInfo = FileInfo.getFileInfo(file.getFilename());
-				fileInfo.setArgs(file.getArgs());
-				for (Combiner c : combiners){
-					if (c instanceof OverviewBuilder && foundOvmFiles.contains(file.getFilename()))
-						continue;
-					c.onMapEnd(fileInfo);
-				}
-			} catch (FileNotFoundException e) {
-				throw new MapFailedException("could not open file " + e.getMessage());
+			FileInfo fileInfo = getFileInfo(file);
+			for (Combiner c : combiners){
+				if (c instanceof OverviewBuilder && foundOvmFiles.contains(file.getFilename()))
+					continue;
+				c.onMapEnd(fileInfo);
 			}
 		} 
 		
@@ -674,6 +703,10 @@ public class Main implements ArgumentProcessor {
 		for (Combiner c : combiners)
 			c.onFinish();
 		
+		removeOvmWorkFiles(args, foundOvmFiles);
+	}
+
+	private void removeOvmWorkFiles(CommandArgs args, Set<String> foundOvmFiles) {
 		if (tdbBuilderAdded && args.getProperties().getProperty("remove-ovm-work-files", false)){
 			for (String fName : foundOvmFiles) {
 				String ovmFile = OverviewBuilder.getOverviewImgName(fName);
@@ -690,6 +723,184 @@ public class Main implements ArgumentProcessor {
 		}
 	}
 
+	private FilenameTask takeFinishedTask() {
+		try {
+			return finishedTasks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExitException("Interrupted while waiting for maps to finish");
+		}
+	}
+
+	/**
+	 * The order in which the combiners see the maps: .img files are sorted by their
+	 * hex name, everything else by the file name.
+	 * @param nameOf gives the name of the output file of a task
+	 * @param nameToHex maps the names of .img files to their hex name
+	 */
+	private static Comparator<FilenameTask> combinerComparator(Function<FilenameTask, String> nameOf,
+			Map<String, Integer> nameToHex) {
+		return (o1, o2) -> {
+			String name1 = nameOf.apply(o1);
+			String name2 = nameOf.apply(o2);
+			if (!name1.endsWith(".img") || !name2.endsWith(".img"))
+				return name1.compareTo(name2);
+
+			// Both end in .img
+			return Integer.compare(nameToHex.getOrDefault(name1, 0), nameToHex.getOrDefault(name2, 0)); 
+		};
+	}
+
+	/**
+	 * Sort the tasks in the order in which the combiners will see their results,
+	 * using the output names that are known before the maps are made.
+	 * @return the sorted tasks or null if the name of an output file is not known
+	 */
+	private List<FilenameTask> getPredictedCombinerOrder() {
+		final Map<String, Integer> nameToHex = new HashMap<>();
+		for (FilenameTask f : futures) {
+			String name = f.getExpectedName();
+			if (name == null)
+				return null;
+			if (name.endsWith(".img")) {
+				int hex;
+				if (name.equals(f.getInputName())) {
+					// an existing file
+					try {
+						hex = FileInfo.getFileInfo(name).getHexname();
+					} catch (FileNotFoundException ignored) {
+						hex = 0;
+					}
+				} else {
+					// the map number is used as map id, see Map.createMap()
+					try {
+						hex = Integer.parseInt(f.getArgs().getMapname());
+					} catch (NumberFormatException e) {
+						hex = 0;
+					}
+				}
+				nameToHex.put(name, hex);
+			}
+		}
+		List<FilenameTask> order = new ArrayList<>(futures);
+		order.sort(combinerComparator(FilenameTask::getExpectedName, nameToHex));
+		return order;
+	}
+
+	private static FileInfo getFileInfo(FilenameTask file) {
+		try {
+			log.info("  " + file);
+			FileInfo fileInfo = FileInfo.getFileInfo(file.getFilename());
+			fileInfo.setArgs(file.getArgs());
+			return fileInfo;
+		} catch (FileNotFoundException e) {
+			throw new MapFailedException("could not open file " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the information for the ovm file that was created together with the given file.
+	 * @return the information or null if the given file is not an .img file
+	 * @throws FileNotFoundException if there is no ovm file
+	 */
+	private static FileInfo getOverviewFileInfo(FilenameTask file) throws FileNotFoundException {
+		String fileName = file.getFilename();
+		if (!fileName.endsWith(".img"))
+			return null;
+		File f1 = new File(fileName);
+		fileName = new File(f1.getParent(), OverviewBuilder.getOverviewImgName(fileName)).getAbsolutePath();
+		
+		log.info("  " + fileName);
+		
+		FileInfo fileInfo = FileInfo.getFileInfo(fileName);
+		
+		fileInfo.setArgs(file.getArgs());
+		return fileInfo;
+	}
+
+	/**
+	 * Passes the finished maps to a {@link CombinerPipeline} in the same order
+	 * and in the same way as it is done when all maps are finished.
+	 */
+	private class CombinerStream {
+		private final CombinerPipeline pipeline;
+		private final List<FilenameTask> order;
+		private final CommandArgs args;
+		private final Combiner overviewBuilder;
+		// will contain img files for which an additional ovm file was found
+		private final Set<String> foundOvmFiles = new HashSet<>();
+		// maps without ovm file, the overview map gets them after all the ovm files
+		private final List<FileInfo> overviewLater = new ArrayList<>();
+		private int next;
+
+		CombinerStream(CombinerPipeline pipeline, List<FilenameTask> order, CommandArgs args) {
+			this.pipeline = pipeline;
+			this.order = order;
+			this.args = args;
+			this.overviewBuilder = tdbBuilderAdded ? combinerMap.get("img") : null;
+		}
+
+		/**
+		 * Pass on all finished maps that are not preceded by an unfinished one.
+		 */
+		void dispatchFinished() {
+			while (next < order.size() && order.get(next).isCollected()) {
+				FilenameTask file = order.get(next++);
+				if (!file.hasResult())
+					continue; // the failure was already reported
+				if (file.isCancelled() || file.getFilename() == null) {
+					if (args.getProperties().getProperty("keep-going", false))
+						continue;
+					throw new ExitException("Exiting - if you want to carry on regardless, use the --keep-going option");
+				}
+				if (!file.getFilename().equals(file.getExpectedName()))
+					log.warn("stream-combiners: expected output file " + file.getExpectedName() + " but got " + file.getFilename());
+
+				FileInfo fileInfo = getFileInfo(file);
+				if (overviewBuilder == null) {
+					pipeline.onMapEnd(fileInfo, null);
+					continue;
+				}
+				FileInfo ovmInfo = null;
+				try {
+					ovmInfo = getOverviewFileInfo(file);
+				} catch (FileNotFoundException ignored) {
+				}
+				if (ovmInfo != null) {
+					foundOvmFiles.add(file.getFilename());
+					pipeline.onMapEndFor(overviewBuilder, ovmInfo);
+				} else {
+					overviewLater.add(fileInfo);
+				}
+				pipeline.onMapEnd(fileInfo, overviewBuilder);
+			}
+		}
+
+		/**
+		 * Called when all maps are finished.
+		 * @return false if there was nothing to combine
+		 */
+		boolean finish() {
+			if (!pipeline.isStarted()) {
+				log.warn("nothing to do for combiners.");
+				return false;
+			}
+			log.info("Combining maps");
+			for (FileInfo fileInfo : overviewLater)
+				pipeline.onMapEndFor(overviewBuilder, fileInfo);
+			pipeline.finish();
+			return true;
+		}
+
+		void abort() {
+			pipeline.shutdown();
+		}
+
+		Set<String> getFoundOvmFiles() {
+			return foundOvmFiles;
+		}
+	}
+
 		
 	private void fileOptions(CommandArgs args) {
 		boolean indexOpt = args.exists("index");
@@ -759,11 +970,28 @@ public class Main implements ArgumentProcessor {
 	}
 
 	private static class FilenameTask extends FutureTask<String> {
+		private final int index;
+		private final BlockingQueue<FilenameTask> finishedTasks;
 		private CommandArgs args;
+		private String inputName;
+		private String expectedName;
 		private String filename;
+		private boolean hasResult;
+		private volatile boolean collected;
 
-		private FilenameTask(Callable<String> callable) {
+		private FilenameTask(int index, BlockingQueue<FilenameTask> finishedTasks, Callable<String> callable) {
 			super(callable);
+			this.index = index;
+			this.finishedTasks = finishedTasks;
+		}
+
+		@Override
+		protected void done() {
+			finishedTasks.add(this);
+		}
+
+		public int getIndex() {
+			return index;
 		}
 
 		public void setArgs(CommandArgs args) {
@@ -774,10 +1002,42 @@ public class Main implements ArgumentProcessor {
 			return args;
 		}
 
+		public void setInputName(String inputName) {
+			this.inputName = inputName;
+		}
+
+		public String getInputName() {
+			return inputName;
+		}
+
+		public void setExpectedName(String expectedName) {
+			this.expectedName = expectedName;
+		}
+
+		public String getExpectedName() {
+			return expectedName;
+		}
+
 		public void setFilename(String filename) {
 			this.filename = filename;
 		}
 
+		public void setHasResult() {
+			hasResult = true;
+		}
+
+		public boolean hasResult() {
+			return hasResult;
+		}
+
+		public void setCollected() {
+			collected = true;
+		}
+
+		public boolean isCollected() {
+			return collected;
+		}
+
 		public String getFilename() {
 			return filename;
 		}
@@ -26,14 +26,17 @@ import uk.me.parabola.imgfmt.FileNotWritableException;
 import uk.me.parabola.imgfmt.FileSystemParam;
 import uk.me.parabola.imgfmt.FormatException;
 import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.map.Map;
 import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.trergn.OverviewFeatures;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.CommandArgs;
 import uk.me.parabola.mkgmap.build.MapBuilder;
 import uk.me.parabola.mkgmap.combiners.OverviewBuilder;
 import uk.me.parabola.mkgmap.general.LoadableMapDataSource;
 import uk.me.parabola.mkgmap.reader.MapReader;
+import uk.me.parabola.util.PhaseProfile;
 
 /**
  * Main routine for the command line map-making utility.
@@ -44,18 +47,39 @@ public class MapMaker implements MapProcessor {
 	private static final Logger log = Logger.getLogger(MapMaker.class);
 	private Sort sort;
 	private final boolean createOverviewFiles;
+	private TileCache tileCache;
 
 	public MapMaker(boolean createOverviewFiles) {
 		this.createOverviewFiles = createOverviewFiles;
 	}
 
+	@SuppressWarnings("try")
 	public String makeMap(CommandArgs args, String filename) {
 		if (new File(filename).isDirectory()) {
 			System.err.println("Need a single file, not a directory: " + filename);
 			return filename;
 		}
+		boolean profile = args.getProperties().getProperty("profile-phases", null) != null;
+		if (profile)
+			PhaseProfile.start(args.getMapname());
 		try {
-			LoadableMapDataSource src = loadFromFile(args, filename);
+			String cacheDir = args.get("tile-cache", null);
+			TileCache cache = null;
+			String key = null;
+			if (cacheDir != null) {
+				cache = getTileCache(cacheDir);
+				try (PhaseProfile.Phase p = PhaseProfile.phase("cache")) {
+					key = getCacheKey(cache, args, filename);
+					String outName = getOutputName(args, filename);
+					if (key != null && fetchFromCache(cache, key, outName))
+						return outName;
+				}
+			}
+
+			LoadableMapDataSource src;
+			try (PhaseProfile.Phase p = PhaseProfile.phase("load")) {
+				src = loadFromFile(args, filename);
+			}
 			sort = args.getSort();
 			if (createOverviewFiles){
 				if (src.overviewMapLevels() != null){
@@ -67,7 +91,10 @@ public class MapMaker implements MapProcessor {
 					tryRemove(f);
 				}
 			}
-			return makeMap(args, src, "");
+			String outName = makeMap(args, src, "");
+			if (key != null && outName != null)
+				saveInCache(cache, key, outName);
+			return outName;
 		} catch (FormatException e) {
 			System.err.println("Bad file format: " + filename);
 			System.err.println(e.getMessage());
@@ -75,6 +102,51 @@ public class MapMaker implements MapProcessor {
 		} catch (FileNotFoundException e) {
 			System.err.println("Could not open file: " + filename);
 			return filename;
+		} finally {
+			if (profile)
+				PhaseProfile.finish();
+		}
+	}
+
+	public String getOutputName(CommandArgs args, String filename) {
+		return Utils.joinPath(args.getOutputDir(), args.getMapname(), "img");
+	}
+
+	/**
+	 * The tile cache is shared by all the tiles that use the same directory.
+	 */
+	private synchronized TileCache getTileCache(String cacheDir) {
+		if (tileCache == null || !tileCache.isDirectory(cacheDir))
+			tileCache = new TileCache(cacheDir);
+		return tileCache;
+	}
+
+	private String getCacheKey(TileCache cache, CommandArgs args, String filename) {
+		try {
+			return cache.getKey(args, filename, createOverviewFiles);
+		} catch (IOException e) {
+			log.warn("could not calculate the tile cache key for", filename, e.getMessage());
+			return null;
+		}
+	}
+
+	private static boolean fetchFromCache(TileCache cache, String key, String outName) {
+		try {
+			if (cache.fetch(key, outName)) {
+				log.info("Reused", outName, "from the tile cache");
+				return true;
+			}
+		} catch (IOException e) {
+			log.warn("could not copy", outName, "from the tile cache", e.getMessage());
+		}
+		return false;
+	}
+
+	private static void saveInCache(TileCache cache, String key, String outName) {
+		try {
+			cache.store(key, outName);
+		} catch (IOException e) {
+			log.warn("could not save", outName, "in the tile cache", e.getMessage());
 		}
 	}
 
@@ -97,6 +169,7 @@ public class MapMaker implements MapProcessor {
 	 * @param mapNameExt 
 	 * @return The output filename for the map.
 	 */
+	@SuppressWarnings("try")
 	private String makeMap(CommandArgs args, LoadableMapDataSource src, String mapNamePrefix) {
 
 		if (src.getBounds().isEmpty())
@@ -106,18 +179,28 @@ public class MapMaker implements MapProcessor {
 		params.setBlockSize(args.getBlockSize());
 		params.setMapDescription(args.getDescription());
 		log.info("Started making", args.getMapname(), "(" + args.getDescription() + ")");
-		try {
+		try (PhaseProfile.Phase p = PhaseProfile.phase(mapNamePrefix.isEmpty() ? "map" : "overview")) {
 			Map map = Map.createMap(mapNamePrefix + args.getMapname(), args.getOutputDir(), params, args.getMapname(), sort);
 			setOptions(map, args);
+			// the overview map takes the features of the overview file from memory
+			OverviewFeatures features = null;
+			if (!mapNamePrefix.isEmpty())
+				features = map.recordOverviewFeatures();
 
 			MapBuilder builder = new MapBuilder();
 			builder.config(args.getProperties());
-			builder.makeMap(map, src);
+			try (PhaseProfile.Phase build = PhaseProfile.phase("build")) {
+				builder.makeMap(map, src);
+			}
 
 			// Collect information on map complete.
 			String outName = map.getFilename();
 			log.info("finished making map", outName, "closing");
-			map.close();
+			try (PhaseProfile.Phase write = PhaseProfile.phase("write")) {
+				map.close();
+			}
+			if (features != null)
+				args.setOverviewFeatures(features);
 			return outName;
 		} catch (FileExistsException e) {
 			throw new MapFailedException("File exists already", e);
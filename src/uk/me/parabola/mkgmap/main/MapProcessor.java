@@ -34,4 +34,16 @@ public interface MapProcessor {
 	 * @return The output filename; the name of the file that was created.
 	 */
 	String makeMap(CommandArgs args, String filename);
+
+	/**
+	 * Work out the name of the file that {@link #makeMap} will create before
+	 * it is actually made.
+	 *
+	 * @param args The options that are in force.
+	 * @param filename The input filename.
+	 * @return The output filename or null if it cannot be known in advance.
+	 */
+	default String getOutputName(CommandArgs args, String filename) {
+		return null;
+	}
 }
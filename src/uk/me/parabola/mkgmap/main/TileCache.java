@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.log.Logger;
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.mkgmap.Version;
+import uk.me.parabola.mkgmap.combiners.OverviewBuilder;
+
+/**
+ * A directory with the img files of tiles that were built before, so that
+ * they can be reused when the tile is built again from the same input.
+ *
+ * The key of a tile is a hash of the input file, all options that can
+ * change the tile, the files that these options name and the mkgmap
+ * version. The input file, the style and the small configuration files
+ * are hashed by their contents. The bounds, sea, DEM and coastline files
+ * are shared by all tiles and can be very large, they are hashed by their
+ * names, sizes and modification times.
+ *
+ * Each entry is a directory named by the key that holds the img file of
+ * the tile and the overview file, if there is one.
+ *
+ * One instance is used for all the tiles of a run, the hash of the large
+ * shared files is only calculated once.
+ */
+class TileCache {
+	private static final Logger log = Logger.getLogger(TileCache.class);
+
+	// options that do not change the tiles
+	private static final Set<String> IGNORED_OPTIONS = new HashSet<>(Arrays.asList(
+			"tile-cache", "output-dir", "max-jobs", "number-of-files", "keep-going", "verbose",
+			"profile-phases", "stream-combiners", "index-sort-memory",
+			// used by the combiners only
+			"gmapsupp", "gmapi", "tdbfile", "nsis", "index", "split-name-index", "mdr7-excl",
+			"mdr7-del", "poi-excl-index", "hide-gmapsupp-on-pc", "overview-mapname",
+			"overview-mapnumber", "remove-ovm-work-files",
+			// only change the speed or the memory use
+			"read-threads", "subdivision-threads", "dem-threads", "mapped-input", "packed-coords",
+			"compile-style-rules", "housenumber-threads",
+			// command line only
+			"input-file", "read-config", "list-styles", "check-styles"));
+
+	// options naming files that are hashed by their contents
+	private static final List<String> CONTENT_OPTIONS = Arrays.asList(
+			"style-file", "map-features", "road-name-config", "copyright-file", "license-file",
+			"delete-tags-file", "nearby-poi-rules-config", "dem-poly");
+
+	// options naming large files or directories that are hashed by their size and time
+	private static final List<String> METADATA_OPTIONS = Arrays.asList(
+			"bounds", "precomp-sea", "dem", "coastlinefile");
+
+	private final Path dir;
+
+	// the hashes of the files of the METADATA_OPTIONS, by the option values
+	private final Map<String, byte[]> metadataHashes = new HashMap<>();
+
+	TileCache(String dir) {
+		this.dir = Paths.get(dir);
+		try {
+			Files.createDirectories(this.dir);
+		} catch (IOException e) {
+			throw new ExitException("Could not create the tile cache directory " + dir, e);
+		}
+	}
+
+	boolean isDirectory(String dir) {
+		return this.dir.equals(Paths.get(dir));
+	}
+
+	/**
+	 * Calculate the key of a tile.
+	 *
+	 * @param args The options of the tile.
+	 * @param filename The input file.
+	 * @param withOverview True if the overview file is created too.
+	 * @return The key, or null if the input is not a file.
+	 */
+	String getKey(CommandArgs args, String filename, boolean withOverview) throws IOException {
+		Path input = Paths.get(filename);
+		if (!Files.isRegularFile(input))
+			return null;
+
+		MessageDigest md = newDigest();
+		update(md, "version", Version.VERSION);
+		update(md, "overview", String.valueOf(withOverview));
+		hashContents(md, input);
+
+		for (String name : new TreeSet<>(args.getProperties().stringPropertyNames())) {
+			if (!IGNORED_OPTIONS.contains(name))
+				update(md, name, args.get(name, ""));
+		}
+		for (String name : CONTENT_OPTIONS) {
+			String val = args.get(name, null);
+			if (val != null)
+				hashFiles(md, val, true);
+		}
+		md.update(getMetadataHash(args));
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest())
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	/**
+	 * The hash of the files that the METADATA_OPTIONS name. They are the
+	 * same for all tiles and walking a large DEM or sea directory takes
+	 * time, so it is only done once for each set of option values.
+	 */
+	private synchronized byte[] getMetadataHash(CommandArgs args) throws IOException {
+		StringBuilder values = new StringBuilder();
+		for (String name : METADATA_OPTIONS)
+			values.append(name).append('=').append(args.get(name, "")).append('\n');
+
+		byte[] hash = metadataHashes.get(values.toString());
+		if (hash == null) {
+			MessageDigest md = newDigest();
+			for (String name : METADATA_OPTIONS) {
+				for (String path : CommandArgs.stringToList(args.get(name, null), name))
+					hashFiles(md, path, false);
+			}
+			hash = md.digest();
+			metadataHashes.put(values.toString(), hash);
+		}
+		return hash;
+	}
+
+	private static MessageDigest newDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Copy the files of a tile from the cache to the output directory.
+	 *
+	 * @param key The key of the tile.
+	 * @param outName The name of the img file of the tile.
+	 * @return True if the tile was in the cache.
+	 */
+	boolean fetch(String key, String outName) throws IOException {
+		Path entry = dir.resolve(key);
+		Path out = Paths.get(outName);
+		Path img = entry.resolve(out.getFileName());
+		if (!Files.isRegularFile(img))
+			return false;
+
+		copy(img, out);
+		Path ovm = overviewName(out);
+		Path cachedOvm = entry.resolve(ovm.getFileName());
+		if (Files.isRegularFile(cachedOvm))
+			copy(cachedOvm, ovm);
+		else
+			Files.deleteIfExists(ovm);
+		return true;
+	}
+
+	/**
+	 * Save the files of a tile that was just built. If another job saved
+	 * the same tile in the meantime, its entry is kept.
+	 *
+	 * @param key The key of the tile.
+	 * @param outName The name of the img file of the tile.
+	 */
+	void store(String key, String outName) throws IOException {
+		Path entry = dir.resolve(key);
+		if (Files.exists(entry))
+			return;
+
+		Path out = Paths.get(outName);
+		Path tmp = Files.createTempDirectory(dir, key + ".");
+		try {
+			Files.copy(out, tmp.resolve(out.getFileName()));
+			Path ovm = overviewName(out);
+			if (Files.isRegularFile(ovm))
+				Files.copy(ovm, tmp.resolve(ovm.getFileName()));
+			Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			if (!Files.exists(entry))
+				throw e;
+			log.info("tile", key, "was saved by another job");
+		} finally {
+			if (Files.exists(tmp)) {
+				try (Stream<Path> files = Files.list(tmp)) {
+					for (Path f : files.collect(Collectors.toList()))
+						Files.delete(f);
+				}
+				Files.delete(tmp);
+			}
+		}
+	}
+
+	private static Path overviewName(Path out) {
+		return out.resolveSibling(OverviewBuilder.getOverviewImgName(out.getFileName().toString()));
+	}
+
+	/**
+	 * Copy a file through a temporary file, so that a combiner never sees a
+	 * partly copied file.
+	 */
+	private static void copy(Path from, Path to) throws IOException {
+		Path tmp = to.resolveSibling(to.getFileName() + ".tmp");
+		Files.copy(from, tmp, StandardCopyOption.REPLACE_EXISTING);
+		Files.move(tmp, to, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static void update(MessageDigest md, String name, String val) {
+		md.update(name.getBytes(StandardCharsets.UTF_8));
+		md.update((byte) '=');
+		md.update(val.getBytes(StandardCharsets.UTF_8));
+		md.update((byte) '\n');
+	}
+
+	private static void hashContents(MessageDigest md, Path file) throws IOException {
+		byte[] buf = new byte[64 * 1024];
+		try (InputStream is = Files.newInputStream(file)) {
+			int n;
+			while ((n = is.read(buf)) > 0)
+				md.update(buf, 0, n);
+		}
+	}
+
+	/**
+	 * Hash a file or all the files below a directory. Options that do not
+	 * name a local file (e.g. a style on the classpath) are only hashed by
+	 * their value.
+	 */
+	private static void hashFiles(MessageDigest md, String name, boolean contents) throws IOException {
+		Path path;
+		try {
+			path = Paths.get(name);
+		} catch (InvalidPathException e) {
+			return;
+		}
+		if (!Files.exists(path))
+			return;
+
+		List<Path> files;
+		try (Stream<Path> s = Files.walk(path)) {
+			files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+		for (Path f : files) {
+			update(md, "file", path.relativize(f).toString().replace(File.separatorChar, '/'));
+			if (contents)
+				hashContents(md, f);
+			else
+				update(md, Long.toString(Files.size(f)), Long.toString(Files.getLastModifiedTime(f).toMillis()));
+		}
+	}
+}
@@ -86,15 +86,7 @@ public class TypCompiler implements MapProcessor {
 		if (cp != -1)
 			param.setCodePage(cp);
 
-		File outFile = new File(filename);
-		String outName = outFile.getName();
-
-		int last;
-		if (outName.length() > 4 && (last = outName.lastIndexOf('.')) > 0)
-			outName = outName.substring(0, last);
-
-		outName += ".typ";
-		outFile = new File(args.getOutputDir(), outName);
+		File outFile = new File(getOutputName(args, filename));
 
 		try {
 			writeTyp(data, outFile);
@@ -108,6 +100,17 @@ public class TypCompiler implements MapProcessor {
 		return outFile.getPath();
 	}
 
+	public String getOutputName(CommandArgs args, String filename) {
+		String outName = new File(filename).getName();
+
+		int last;
+		if (outName.length() > 4 && (last = outName.lastIndexOf('.')) > 0)
+			outName = outName.substring(0, last);
+
+		outName += ".typ";
+		return new File(args.getOutputDir(), outName).getPath();
+	}
+
 	/**
 	 * Read and compile a TYP file, returning the compiled form.
 	 *
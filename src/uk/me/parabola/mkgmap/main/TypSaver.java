@@ -65,6 +65,25 @@ class TypSaver implements MapProcessor {
 		return outfilename;
 	}
 
+	public String getOutputName(CommandArgs args, String filename) {
+		int familyId = args.get("family-id", CommandArgs.DEFAULT_FAMILYID);
+		int productId = args.get("product-id", CommandArgs.DEFAULT_PRODUCTID);
+
+		try (FileInputStream in = new FileInputStream(filename)) {
+			byte[] buf = new byte[0x33];
+			if (in.read(buf) < buf.length)
+				return null;
+
+			ByteBuffer buffer = ByteBuffer.wrap(buf);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (familyId != buffer.getChar(0x2f) || productId != buffer.getChar(0x31))
+				return makeOutName(filename);
+			return filename;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Write out the altered TYP file.
 	 *
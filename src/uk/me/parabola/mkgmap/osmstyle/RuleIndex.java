@@ -97,12 +97,10 @@ public class RuleIndex {
 			if (tagVals != null){
 				BitSet set = tagVals.get(tagVal);
 				if (set != null){
-					return (BitSet) set.clone();
+					return set;
 				}
 			} 
-			if (exists != null)
-				return (BitSet) exists.clone();
-			return new BitSet();
+			return exists;
 		}
 	}
 	
@@ -136,8 +134,8 @@ public class RuleIndex {
 	/**
 	 * Get a list of rules that might be matched by this tag.
 	 * @param tagval The tag and its value eg highway=primary.
-	 * @return A BitSet of rules numbers.
-	 * If there are no rules then null will be returned.
+	 * @return A BitSet of rules numbers. The set is shared and must not be
+	 * modified. If there are no rules then null will be returned.
 	 */
 	public BitSet getRulesForTag(short tagKey, String tagVal) {
 		TagHelper th;
@@ -153,7 +151,7 @@ public class RuleIndex {
 			th = tagKeyMap.get(tagKey);
 		}
 		if (th == null)
-			return new BitSet();
+			return null;
 		return th.getBitSet(tagVal);
 	}
 
@@ -21,6 +21,7 @@ import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -28,8 +29,10 @@ import java.util.Set;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.osmstyle.eval.AbstractBinaryOp;
 import uk.me.parabola.mkgmap.osmstyle.eval.AbstractOp;
+import uk.me.parabola.mkgmap.osmstyle.eval.CompiledOp;
 import uk.me.parabola.mkgmap.osmstyle.eval.LinkedBinaryOp;
 import uk.me.parabola.mkgmap.osmstyle.eval.LinkedOp;
+import uk.me.parabola.mkgmap.osmstyle.eval.NodeType;
 import uk.me.parabola.mkgmap.osmstyle.eval.Op;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.Rule;
@@ -52,11 +55,15 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	// identifies cached values 
 	int cacheId;
 	boolean compiled = false;
+	// translate the expressions to specialised matchers, see CompiledOp
+	private boolean compileRules;
 
 	private static final short TKM_EXECUTE_FINALIZE_RULES = TagDict.getInstance().xlate("mkgmap:execute_finalize_rules");
 
 	private RuleIndex index = new RuleIndex();
 	private final Set<String> usedTags = new HashSet<>();
+	// reused by resolveType() to collect the rules that could match
+	private final BitSet candidates = new BitSet();
 	
 	@Override
 	public void resolveType(Element el, TypeResult result) {
@@ -84,7 +91,8 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		cacheId++;
 		
 		// Get all the rules that could match from the index.  
-		BitSet candidates = new BitSet();
+		BitSet candidates = this.candidates;
+		candidates.clear();
 		for (Entry<Short, String> tagEntry : el.getFastTagEntryIterator()) {
 			BitSet bsRules = index.getRulesForTag(tagEntry.getKey(), tagEntry.getValue());
 			if (bsRules != null && !bsRules.isEmpty() )
@@ -176,6 +184,21 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		compile();
 	}
 
+	/**
+	 * Select if the expressions of the rules are compiled to specialised
+	 * matchers or evaluated by the interpreter. Also applies to the finalize
+	 * rules.
+	 * @param compileRules true to compile the expressions
+	 */
+	public void setCompileRules(boolean compileRules) {
+		if (this.compileRules != compileRules) {
+			this.compileRules = compileRules;
+			compiled = false;
+		}
+		if (finalizeRule instanceof RuleSet)
+			((RuleSet) finalizeRule).setCompileRules(compileRules);
+	}
+
 	public Set<String> getUsedTags() {
 		return usedTags;
 	}
@@ -187,10 +210,12 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	/**
 	 * Compile the rules and reset caches. Detect common sub-expressions and
 	 * make sure that all rules use the same instance of these common
-	 * sub-expressions.
+	 * sub-expressions. If selected, the expressions are then translated to
+	 * specialised matchers.
 	 */
 	private void compile() {
 		HashMap<String, Op> tests = new HashMap<>();
+		IdentityHashMap<Op, Op> compiledOps = new IdentityHashMap<>();
 
 		for (Rule rule : rules) {
 			Op op;
@@ -202,6 +227,7 @@ public class RuleSet implements Rule, Iterable<Rule> {
 				log.error("unexpected rule instance");
 				continue;
 			}
+			op = uncompiled(op);
 			if (op instanceof AbstractBinaryOp) {
 				AbstractBinaryOp binOp = (AbstractBinaryOp) op;
 				binOp.setFirst(compileOp(tests, binOp.getFirst()));
@@ -219,6 +245,19 @@ public class RuleSet implements Rule, Iterable<Rule> {
 				log.error("unexpected op instance");
 				continue;
 			}
+			if (compileRules) {
+				if (op instanceof LinkedOp) {
+					// the LinkedOp keeps state, only the operands of a
+					// wrapped AND or OR are compiled
+					if (op.isType(NodeType.AND) || op.isType(NodeType.OR)) {
+						LinkedBinaryOp linkedOp = (LinkedBinaryOp) op;
+						linkedOp.setFirst(CompiledOp.compile(linkedOp.getFirst(), compiledOps));
+						linkedOp.setSecond(CompiledOp.compile(linkedOp.getSecond(), compiledOps));
+					}
+				} else {
+					op = CompiledOp.compile(op, compiledOps);
+				}
+			}
 			if (rule instanceof ExpressionRule)
 				((ExpressionRule) rule).setOp(op);
 			else if (rule instanceof ActionRule)
@@ -231,6 +270,22 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		compiled = true;
 	}
 	
+	/**
+	 * Return the original form of an expression that was compiled before.
+	 */
+	private static Op uncompiled(Op op) {
+		if (op instanceof CompiledOp)
+			return ((CompiledOp) op).getOriginal();
+		if (op instanceof LinkedBinaryOp) {
+			LinkedBinaryOp linkedOp = (LinkedBinaryOp) op;
+			if (linkedOp.getFirst() instanceof CompiledOp)
+				linkedOp.setFirst(((CompiledOp) linkedOp.getFirst()).getOriginal());
+			if (linkedOp.getSecond() instanceof CompiledOp)
+				linkedOp.setSecond(((CompiledOp) linkedOp.getSecond()).getOriginal());
+		}
+		return op;
+	}
+
 	private Op compileOp(HashMap<String, Op> tests, Op op){
 		if (op instanceof AbstractBinaryOp){
 			AbstractBinaryOp binOp = (AbstractBinaryOp) op;
@@ -253,6 +308,24 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		return commonOp;
 	}
 	
+	/**
+	 * Reset the cached results of all rules so that the rule set can be
+	 * used again for other elements, e.g. those of the next tile.
+	 */
+	public void resetCaches() {
+		if (rules != null) {
+			for (Rule rule : rules) {
+				if (rule instanceof ExpressionRule)
+					((ExpressionRule) rule).getOp().resetCaches();
+				else if (rule instanceof ActionRule)
+					((ActionRule) rule).getOp().resetCaches();
+			}
+		}
+		if (finalizeRule instanceof RuleSet)
+			((RuleSet) finalizeRule).resetCaches();
+		cacheId = 0;
+	}
+
 	public void setFinalizeRule(Rule finalizeRule) {
 		if (rules == null) {
 			// this method must be called after prepare() is called so
@@ -262,6 +335,8 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		for (Rule rule : rules) 
 			rule.setFinalizeRule(finalizeRule);
 		
+		if (finalizeRule instanceof RuleSet)
+			((RuleSet) finalizeRule).setCompileRules(compileRules);
 		compiled = false;
 		this.finalizeRule = finalizeRule;  
 	}
@@ -17,14 +17,19 @@
 package uk.me.parabola.mkgmap.osmstyle;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,6 +41,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.log.Logger;
@@ -100,8 +106,15 @@ public class StyleImpl implements Style {
 
 	private OverlayReader overlays;
 	private final boolean performChecks;
+	private final boolean compileRules;
 	
 	private Collection<String> deadEndTags = new ArrayList<>();
+	private RuleSet wayRules;
+
+	// The style that was last read by this thread together with its key.
+	// The rules keep state while they are evaluated, so a style is not
+	// shared between threads, but it is reused for the following tiles.
+	private static final ThreadLocal<Map.Entry<String, StyleImpl>> cachedStyle = new ThreadLocal<>();
 	
 	/**
 	 * Create a style from the given location and name.
@@ -138,6 +151,7 @@ public class StyleImpl implements Style {
 		location = loc;
 		fileLoader = StyleFileLoader.createStyleLoader(loc, name);
 		this.performChecks = performChecks;
+		compileRules = props.getProperty("compile-style-rules", false);
 		
 		// There must be a version file, if not then we don't create the style.
 		checkVersion();
@@ -174,33 +188,40 @@ public class StyleImpl implements Style {
 
 	@Override
 	public Rule getNodeRules() {
+		nodes.setCompileRules(compileRules);
 		nodes.prepare();
 		return nodes;
 	}
 
 	@Override
 	public Rule getWayRules() {
-		RuleSet r = new RuleSet();
-		r.addAll(lines);
-		r.addAll(polygons);
-		r.prepare();
-		return r;
+		if (wayRules == null) {
+			wayRules = new RuleSet();
+			wayRules.addAll(lines);
+			wayRules.addAll(polygons);
+		}
+		wayRules.setCompileRules(compileRules);
+		wayRules.prepare();
+		return wayRules;
 	}
 
 	@Override
 	public Rule getLineRules() {
+		lines.setCompileRules(compileRules);
 		lines.prepare();
 		return lines;
 	}
 
 	@Override
 	public Rule getPolygonRules() {
+		polygons.setCompileRules(compileRules);
 		polygons.prepare();
 		return polygons;
 	}
 	
 	@Override
 	public Rule getRelationRules() {
+		relations.setCompileRules(compileRules);
 		relations.prepare();
 		return relations;
 	}
@@ -520,6 +541,9 @@ public class StyleImpl implements Style {
 	 * If there is no name given, but there is a file then the file should
 	 * just contain one style.
 	 *
+	 * A style that was already read by the calling thread with the same
+	 * options is reused, so that it is not read again for each tile.
+	 *
 	 * @param props the program properties
 	 * @return A style instance or null in case of error. 
 	 */
@@ -542,7 +566,15 @@ public class StyleImpl implements Style {
 			}
 		}
 
-		Style style;
+		String key = getStyleKey(loc, name, props);
+		Map.Entry<String, StyleImpl> cached = cachedStyle.get();
+		if (key != null && cached != null && key.equals(cached.getKey())) {
+			log.debug("reusing style", key);
+			cached.getValue().resetCaches();
+			return cached.getValue();
+		}
+
+		StyleImpl style;
 		try {
 			style = new StyleImpl(loc, name, props, WITHOUT_CHECKS);
 		} catch (SyntaxException e) {
@@ -559,9 +591,55 @@ public class StyleImpl implements Style {
 				msg += loc + " . Make sure that it points to a style or add the --style option.";
 			throw new ExitException(msg);
 		}
+		if (key != null)
+			cachedStyle.set(new AbstractMap.SimpleImmutableEntry<>(key, style));
 		return style;
 	}
 
+	/**
+	 * Reset the state that the rules keep while they are evaluated.
+	 */
+	private void resetCaches() {
+		for (RuleSet rs : Arrays.asList(relations, nodes, lines, polygons, wayRules)) {
+			if (rs != null)
+				rs.resetCaches();
+		}
+	}
+
+	/**
+	 * Calculate a key that identifies a style together with the options
+	 * that are used when it is read. The key contains the size and the
+	 * modification time of all files below the style location, so a style
+	 * that is changed on disk is read again.
+	 * @param loc the style location, may be null
+	 * @param name the style name, may be null
+	 * @param props the program properties
+	 * @return the key or null if the style files can't be examined
+	 */
+	private static String getStyleKey(String loc, String name, EnhancedProperties props) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(loc).append('|').append(name);
+		sb.append('|').append(props.getProperty("levels"));
+		sb.append('|').append(props.containsKey("route"));
+		sb.append('|').append(props.getProperty("dead-ends"));
+		sb.append('|').append(props.getProperty("compile-style-rules", false));
+		if (loc == null)
+			return sb.toString();
+		File file = new File(loc);
+		if (!file.exists())
+			return sb.toString();
+		try (Stream<Path> paths = Files.walk(file.toPath())) {
+			paths.filter(Files::isRegularFile).sorted().forEach(p -> {
+				File f = p.toFile();
+				sb.append('|').append(p).append(':').append(f.length()).append(':').append(f.lastModified());
+			});
+		} catch (IOException | UncheckedIOException e) {
+			log.debug("cannot examine style files", loc, e);
+			return null;
+		}
+		return sb.toString();
+	}
+
 	@Override
 	public void reportStats() {
 		relations.printStats("relations");
@@ -78,6 +78,7 @@ import uk.me.parabola.mkgmap.reader.osm.Way;
 import uk.me.parabola.util.ElementQuadTree;
 import uk.me.parabola.util.EnhancedProperties;
 import uk.me.parabola.util.MultiHashMap;
+import uk.me.parabola.util.PhaseProfile;
 
 /**
  * Convert from OSM to the mkgmap intermediate format using a style.
@@ -850,6 +851,7 @@ public class StyledConverter implements OsmConverter {
 		}
 	}
 	
+	@SuppressWarnings("try")
 	public void end() {
 		style.reportStats();
 		driveOnLeft = calcDrivingSide();
@@ -899,7 +901,9 @@ public class StyledConverter implements OsmConverter {
 		}
 		deletedRoads.clear();
 		modifiedRoads.clear(); 
-		mergeRoads();
+		try (PhaseProfile.Phase p = PhaseProfile.phase("RoadMerger")) {
+			mergeRoads();
+		}
 		
 		resetHighwayCounts();
 		setHighwayCounts();
@@ -918,7 +922,9 @@ public class StyledConverter implements OsmConverter {
 			if (cw.isValid())
 				addRoad(cw);
 		}
-		housenumberGenerator.generate(lineAdder);
+		try (PhaseProfile.Phase p = PhaseProfile.phase("housenumbers")) {
+			housenumberGenerator.generate(lineAdder);
+		}
 		housenumberGenerator = null;
 		
 		if (routable)
@@ -933,6 +939,8 @@ public class StyledConverter implements OsmConverter {
 		roads = null;
 		nodeIdMap = null;
 		restrictions.clear();
+		// the rules are reused for the next tile, release the data of this one
+		augmentWith(null);
 	}
 
 	/**
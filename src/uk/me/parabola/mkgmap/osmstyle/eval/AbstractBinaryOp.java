@@ -73,4 +73,10 @@ public abstract class AbstractBinaryOp extends AbstractOp implements BinaryOp {
 		second.augmentWith(elementSaver);
 	}
 
+	@Override
+	public void resetCaches() {
+		super.resetCaches();
+		second.resetCaches();
+	}
+
 }
@@ -221,4 +221,11 @@ public abstract class AbstractOp implements Op {
 			first.augmentWith(elementSaver);
 	}
 
+	@Override
+	public void resetCaches() {
+		resetCache();
+		if (first != null)
+			first.resetCaches();
+	}
+
 }
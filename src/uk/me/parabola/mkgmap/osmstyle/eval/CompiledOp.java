@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.eval;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.mkgmap.osmstyle.function.GetTagFunction;
+import uk.me.parabola.mkgmap.reader.osm.Element;
+
+/**
+ * An expression that was translated into a tree of specialised matchers.
+ *
+ * The interpreter walks the {@link Op} tree and asks each node for the values
+ * of its operands, so a test like {@code highway=primary} needs several
+ * virtual calls and a comparison with a value that is fetched again for each
+ * element. The compiled form of the common tests on tag values uses the tag
+ * key and the constant value directly. Parts of an expression that can't be
+ * compiled, e.g. numeric comparisons or style functions, are evaluated by the
+ * original nodes with their caches.
+ *
+ * All other methods are delegated to the original expression, so that it
+ * looks the same to the code that prints or inspects the rules.
+ */
+public class CompiledOp implements Op {
+	// used as cache id when the result must not be cached
+	private static final int NO_CACHE = -1;
+
+	private final Op original;
+	private final Matcher matcher;
+	private boolean lastRes;
+	private int lastCachedId = -1;
+
+	@FunctionalInterface
+	private interface Matcher {
+		boolean matches(int cacheId, Element el);
+	}
+
+	private CompiledOp(Op original, Matcher matcher) {
+		this.original = original;
+		this.matcher = matcher;
+	}
+
+	/**
+	 * Compile an expression.
+	 * @param op the expression
+	 * @param done the expressions that were already compiled. Common
+	 * sub-expressions are shared by the rules, this makes sure that they also
+	 * share the compiled form and its cached result.
+	 * @return the compiled expression
+	 */
+	public static Op compile(Op op, Map<Op, Op> done) {
+		if (op == null || op instanceof CompiledOp || op instanceof LinkedOp)
+			return op;
+		return done.computeIfAbsent(op, o -> new CompiledOp(o, createMatcher(o)));
+	}
+
+	/**
+	 * @return the expression that was compiled
+	 */
+	public Op getOriginal() {
+		return original;
+	}
+
+	private static Matcher createMatcher(Op op) {
+		if (op instanceof LinkedOp || op instanceof CompiledOp)
+			return interpreted(op);
+		switch (op.getType()) {
+		case AND: {
+			Matcher first = createMatcher(op.getFirst());
+			Matcher second = createMatcher(op.getSecond());
+			return (cacheId, el) -> first.matches(cacheId, el) && second.matches(cacheId, el);
+		}
+		case OR: {
+			Matcher first = createMatcher(op.getFirst());
+			Matcher second = createMatcher(op.getSecond());
+			return (cacheId, el) -> first.matches(cacheId, el) || second.matches(cacheId, el);
+		}
+		case NOT: {
+			Matcher first = createMatcher(op.getFirst());
+			return (cacheId, el) -> !first.matches(cacheId, el);
+		}
+		case EXISTS:
+			if (op.getFirst() instanceof GetTagFunction) {
+				short key = ((GetTagFunction) op.getFirst()).getTagKey();
+				return (cacheId, el) -> el.getTag(key) != null;
+			}
+			break;
+		case NOT_EXISTS:
+			if (op.getFirst() instanceof GetTagFunction) {
+				short key = ((GetTagFunction) op.getFirst()).getTagKey();
+				return (cacheId, el) -> el.getTag(key) == null;
+			}
+			break;
+		case EQUALS:
+			if (isTagAndConstant(op)) {
+				short key = ((GetTagFunction) op.getFirst()).getTagKey();
+				String value = op.getSecond().getKeyValue();
+				return (cacheId, el) -> value.equals(el.getTag(key));
+			}
+			break;
+		case NOT_EQUALS:
+			if (isTagAndConstant(op)) {
+				short key = ((GetTagFunction) op.getFirst()).getTagKey();
+				String value = op.getSecond().getKeyValue();
+				return (cacheId, el) -> !value.equals(el.getTag(key));
+			}
+			break;
+		case REGEX:
+			if (isTagAndConstant(op)) {
+				short key = ((GetTagFunction) op.getFirst()).getTagKey();
+				Pattern pattern = Pattern.compile(op.getSecond().getKeyValue());
+				return (cacheId, el) -> {
+					String val = el.getTag(key);
+					return val != null && pattern.matcher(val).matches();
+				};
+			}
+			break;
+		case NOT_REGEX:
+			if (isTagAndConstant(op)) {
+				short key = ((GetTagFunction) op.getFirst()).getTagKey();
+				Pattern pattern = Pattern.compile(op.getSecond().getKeyValue());
+				return (cacheId, el) -> {
+					String val = el.getTag(key);
+					return val == null || !pattern.matcher(val).matches();
+				};
+			}
+			break;
+		default:
+			break;
+		}
+		return interpreted(op);
+	}
+
+	private static Matcher interpreted(Op op) {
+		return (cacheId, el) -> cacheId == NO_CACHE ? op.eval(el) : op.eval(cacheId, el);
+	}
+
+	/**
+	 * @return true if the first operand is a plain tag and the second one a
+	 * constant value
+	 */
+	private static boolean isTagAndConstant(Op op) {
+		return op.getFirst() instanceof GetTagFunction && op.getSecond() != null
+				&& op.getSecond().getClass() == ValueOp.class;
+	}
+
+	public boolean eval(Element el) {
+		return matcher.matches(NO_CACHE, el);
+	}
+
+	public boolean eval(int cacheId, Element el) {
+		if (lastCachedId != cacheId) {
+			if (lastCachedId > cacheId) {
+				throw new ExitException("fatal error: cache id invalid");
+			}
+			lastRes = matcher.matches(cacheId, el);
+			lastCachedId = cacheId;
+		}
+		return lastRes;
+	}
+
+	public boolean hasHigherPriority(Op other) {
+		return original.hasHigherPriority(other);
+	}
+
+	public Op getFirst() {
+		return original.getFirst();
+	}
+
+	/**
+	 * Not supported, a compiled expression can't be changed.
+	 */
+	public <T extends Op> T setFirst(Op first) {
+		throw new UnsupportedOperationException();
+	}
+
+	public Op getSecond() {
+		return original.getSecond();
+	}
+
+	/**
+	 * Not supported, a compiled expression can't be changed.
+	 */
+	public <T extends Op> T set(Op first, Op second) {
+		throw new UnsupportedOperationException();
+	}
+
+	public NodeType getType() {
+		return original.getType();
+	}
+
+	public String value(Element el) {
+		return original.value(el);
+	}
+
+	public String getKeyValue() {
+		return original.getKeyValue();
+	}
+
+	public boolean isType(NodeType value) {
+		return original.isType(value);
+	}
+
+	public int priority() {
+		return original.priority();
+	}
+
+	public Set<String> getEvaluatedTagKeys() {
+		return original.getEvaluatedTagKeys();
+	}
+
+	@Override
+	public Op copy() {
+		return original.copy();
+	}
+
+	@Override
+	public void augmentWith(uk.me.parabola.mkgmap.reader.osm.ElementSaver elementSaver) {
+		original.augmentWith(elementSaver);
+	}
+
+	@Override
+	public void resetCaches() {
+		lastCachedId = -1;
+		original.resetCaches();
+	}
+
+	public String toString() {
+		return original.toString();
+	}
+}
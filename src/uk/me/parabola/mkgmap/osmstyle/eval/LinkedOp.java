@@ -178,4 +178,11 @@ public class LinkedOp implements Op {
 			link.augmentWith(elementSaver);
 	}
 
+	@Override
+	public void resetCaches() {
+		wrapped.resetCaches();
+		if (link != null)
+			link.resetCaches();
+	}
+
 }
@@ -138,4 +138,9 @@ public interface Op {
 
 	default void augmentWith(uk.me.parabola.mkgmap.reader.osm.ElementSaver elementSaver) {}
 
+	/**
+	 * Reset the cached results of this node and of all nodes below it.
+	 */
+	default void resetCaches() {}
+
 }
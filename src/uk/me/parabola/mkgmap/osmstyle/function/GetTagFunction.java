@@ -34,6 +34,13 @@ public class GetTagFunction extends StyleFunction {
 		return el.getTag(tagKey);
 	}
 
+	/**
+	 * @return the key of the tag as used by {@link TagDict}
+	 */
+	public short getTagKey() {
+		return tagKey;
+	}
+
 	/**
 	 * Since this contains a tag value it can potentially be used to index the whole rule,
 	 * so return true here.
@@ -137,6 +137,7 @@ actually, would be safe not to call hasOn() even for POLYLINE, because none of t
 	private boolean hasOn;
 	private boolean hasOut;
 	private ElementQuadTree qt = null;
+	private ElementSaver augmentedWith;
 
 	public IsInFunction() {
 		super(null);
@@ -442,9 +443,11 @@ actually, would be safe not to call hasOn() even for POLYLINE, because none of t
 		log.debug("augmentWith", System.identityHashCode(this), kind, params);
 		// the cached function mechanism creates an instance for each occurance in the rule file
 		// but then just uses one of them for augmentWith() and calcImpl().
-		if (qt != null)
+		if (elementSaver == augmentedWith)
 			return;
-		qt = buildTree(elementSaver, params.get(0), params.get(1));
+		// a style is reused for the following tiles, null releases the data of the last tile
+		augmentedWith = elementSaver;
+		qt = elementSaver == null ? null : buildTree(elementSaver, params.get(0), params.get(1));
 	}
 
 	public static ElementQuadTree buildTree(ElementSaver elementSaver, String tagKey, String tagVal) {
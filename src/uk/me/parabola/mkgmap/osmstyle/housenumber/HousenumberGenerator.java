@@ -33,6 +33,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,8 +72,11 @@ public class HousenumberGenerator {
 	public static final double MAX_DISTANCE_TO_ROAD = 150d;
 	/** Gives the maximum distance for different elements with the same address */
 	public static final double MAX_DISTANCE_SAME_NUM = 100d;
+	/** The number of houses that one thread matches to roads in one go */
+	private static final int HOUSES_PER_TASK = 512;
 	
 	private boolean numbersEnabled;
+	private final int matchThreads;
 
 	// options for handling of unnamed (service?) roads	
 	private int nameSearchDepth = 3;
@@ -109,6 +114,7 @@ public class HousenumberGenerator {
 				System.err.println("name-service-roads=" + n + " was changed to name-service-roads=" + nameSearchDepth);
 			}
 		}
+		matchThreads = props.getProperty("housenumber-threads", 1);
 	}
 
 	/**
@@ -740,6 +746,14 @@ public class HousenumberGenerator {
 		}
 	}
 	
+	/**
+	 * @return the house number elements, after {@link #generate} these are
+	 * the matches with their closest roads
+	 */
+	List<HousenumberElem> getHouseElems() {
+		return houseElems;
+	}
+
 	private List<HousenumberRoad> createHousenumberRoads(
 			MultiHashMap<MapRoad, HousenumberMatch> initialHousesForRoads) {
 		List<HousenumberRoad> hnrList = new ArrayList<>();
@@ -767,10 +781,22 @@ public class HousenumberGenerator {
 		log.debug("creation of road index took",t2-t1,"ms");
 		
 		long t3 = System.currentTimeMillis();
+		// the index is not modified by the search, so the houses can be matched
+		// by several threads. The results are used in the original order.
+		HousenumberMatch[] bestMatches = new HousenumberMatch[houseElems.size()];
+		if (matchThreads > 1 && bestMatches.length > HOUSES_PER_TASK) {
+			ForkJoinPool pool = new ForkJoinPool(matchThreads);
+			try {
+				pool.invoke(new MatchFinder(roadSegmentIndex, bestMatches, 0, bestMatches.length, log.threadTag()));
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			findMatches(roadSegmentIndex, bestMatches, 0, bestMatches.length);
+		}
 		MultiHashMap<MapRoad,HousenumberMatch> initialHousesForRoads = new MultiHashMap<>();
-		for (int i = 0; i < houseElems.size(); i++) {
-			HousenumberElem house = houseElems.get(i);
-			HousenumberMatch bestMatch = roadSegmentIndex.createHousenumberMatch(house);
+		for (int i = 0; i < bestMatches.length; i++) {
+			HousenumberMatch bestMatch = bestMatches[i];
 			houseElems.set(i, bestMatch);
 			if (bestMatch.getRoad() == null) {
 				bestMatch.setIgnored(true); // XXX maybe create a pseudo road with zero length?
@@ -785,6 +811,49 @@ public class HousenumberGenerator {
 		return initialHousesForRoads;
 	}
 
+	private void findMatches(RoadSegmentIndex roadSegmentIndex, HousenumberMatch[] bestMatches, int from, int to) {
+		for (int i = from; i < to; i++) {
+			bestMatches[i] = roadSegmentIndex.createHousenumberMatch(houseElems.get(i));
+		}
+	}
+
+	/**
+	 * Finds the closest roads for a range of houses, large ranges are split.
+	 */
+	private class MatchFinder extends RecursiveAction {
+		private final RoadSegmentIndex roadSegmentIndex;
+		private final HousenumberMatch[] bestMatches;
+		private final int from;
+		private final int to;
+		private final String threadTag;
+
+		MatchFinder(RoadSegmentIndex roadSegmentIndex, HousenumberMatch[] bestMatches, int from, int to,
+				String threadTag) {
+			this.roadSegmentIndex = roadSegmentIndex;
+			this.bestMatches = bestMatches;
+			this.from = from;
+			this.to = to;
+			this.threadTag = threadTag;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= HOUSES_PER_TASK) {
+				String oldTag = log.threadTag();
+				log.threadTag(threadTag);
+				try {
+					findMatches(roadSegmentIndex, bestMatches, from, to);
+				} finally {
+					log.threadTag(oldTag);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new MatchFinder(roadSegmentIndex, bestMatches, from, mid, threadTag),
+					new MatchFinder(roadSegmentIndex, bestMatches, mid, to, threadTag));
+		}
+	}
+
 	private void useAddrPlaceTag() {
 		HashMap<CityInfo,MultiHashMap<String,HousenumberMatch>> cityPlaceHouseMap = new LinkedHashMap<>();
 		for (int i = 0; i < houseElems.size(); i++) {
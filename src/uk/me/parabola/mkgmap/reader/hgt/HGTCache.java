@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.hgt;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import uk.me.parabola.log.Logger;
+import uk.me.parabola.util.SizeLimitedCache;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * Holds the data of the hgt files for all tiles that are built in parallel,
+ * so that each file is only read once when neighbouring tiles or the
+ * different DEM resolutions need it.
+ *
+ * Plain hgt files are mapped into memory. Files in a zip container are
+ * extracted once into a temporary directory and then mapped, the extracted
+ * files are kept until the program ends.
+ *
+ * When the size of all buffers exceeds {@link #MAX_SIZE}, the least
+ * recently used ones are dropped from the cache (see
+ * {@link SizeLimitedCache}). A tile that still uses a dropped buffer keeps
+ * it until it frees it.
+ */
+final class HGTCache {
+	private static final Logger log = Logger.getLogger(HGTCache.class);
+
+	/** The number of bytes in buffers that are kept for other tiles. */
+	private static final long MAX_SIZE = Runtime.getRuntime().maxMemory() / 8;
+
+	private static final SizeLimitedCache<String, ByteBuffer> buffers = new SizeLimitedCache<>(
+			"hgt file", MAX_SIZE, ByteBuffer::capacity);
+	// the files that were extracted from zip containers, by key
+	private static final Map<String, File> extracted = new ConcurrentHashMap<>();
+	private static File spillDir;
+
+	private HGTCache() {
+	}
+
+	/**
+	 * Get the content of a hgt file.
+	 * @param path the hgt file or the zip file which contains it
+	 * @param fileName the name of the hgt file
+	 * @return a buffer with the content of the file, it must not be modified
+	 * @throws IOException if the file can't be read
+	 */
+	static ByteBuffer acquire(String path, String fileName) throws IOException {
+		String key = path + File.pathSeparator + fileName;
+		try {
+			return buffers.get(key, () -> load(key, path, fileName));
+		} catch (IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static ByteBuffer load(String key, String path, String fileName) throws IOException {
+		if (!path.endsWith(".zip"))
+			return map(new File(path));
+
+		File f = extracted.get(key);
+		if (f == null) {
+			try (ZipFile zipFile = new ZipFile(path)) {
+				ZipEntry entry = HGTReader.findZipEntry(zipFile, fileName);
+				if (entry == null)
+					throw new FileNotFoundException(fileName);
+				log.info("extracting data for " + entry.getName() + " from " + zipFile.getName());
+				try (InputStream is = zipFile.getInputStream(entry)) {
+					File dir = getSpillDir();
+					if (dir == null)
+						return readToHeap(is, entry.getSize());
+					f = File.createTempFile(fileName, null, dir);
+					f.deleteOnExit();
+					Files.copy(is, f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					extracted.put(key, f);
+				}
+			}
+		}
+		return map(f);
+	}
+
+	private static ByteBuffer map(File f) throws IOException {
+		try (FileChannel chan = FileChannel.open(f.toPath())) {
+			return chan.map(READ_ONLY, 0, chan.size());
+		}
+	}
+
+	private static ByteBuffer readToHeap(InputStream is, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		byte[] ioBuffer = new byte[64 * 1024];
+		int len;
+		while ((len = is.read(ioBuffer)) != -1)
+			buffer.put(ioBuffer, 0, len);
+		return buffer;
+	}
+
+	/**
+	 * @return the directory for extracted files or null if it can't be created
+	 */
+	private static synchronized File getSpillDir() {
+		if (spillDir == null) {
+			try {
+				spillDir = Files.createTempDirectory("mkgmap-hgt").toFile();
+				spillDir.deleteOnExit();
+			} catch (IOException e) {
+				log.warn("cannot create directory for extracted hgt files, keeping them in memory", e);
+				return null;
+			}
+		}
+		return spillDir;
+	}
+}
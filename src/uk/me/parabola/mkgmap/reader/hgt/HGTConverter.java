@@ -28,8 +28,8 @@ import uk.me.parabola.log.Logger;
 public class HGTConverter {
 	private static final Logger log = Logger.getLogger(HGTConverter.class);
 	protected static final double FACTOR = 45.0d / (1<<29);
-	private short[] noHeights = { HGTReader.UNDEF };
-	private HGTReader[][] readers;
+	private final short[] noHeights;
+	private final HGTReader[][] readers;
 	private final int minLat32;
 	private final int minLon32;
 	private final int res;
@@ -84,6 +84,7 @@ public class HGTConverter {
 		int dimLat = maxLat - minLat;
 		int dimLon = maxLon - minLon;
 		readers = new HGTReader[dimLat][dimLon];
+		noHeights = new short[] { HGTReader.UNDEF };
 		demArea = demPolygonMapUnits;
 		int maxRes = -1;
 		for (int row = 0; row < dimLat; row++) {
@@ -102,6 +103,52 @@ public class HGTConverter {
 		res = maxRes; // we use the highest available res
 	}
 
+	/**
+	 * Create a converter that shares the readers with the given one but has
+	 * its own interpolation buffer and statistics, so that heights can be
+	 * calculated by different threads at the same time.
+	 * @param base the converter to copy
+	 */
+	private HGTConverter(HGTConverter base) {
+		readers = base.readers;
+		minLat32 = base.minLat32;
+		minLon32 = base.minLon32;
+		res = base.res;
+		demArea = base.demArea;
+		noHeights = base.noHeights;
+		outsidePolygonHeight = base.outsidePolygonHeight;
+		pointsDistanceLat = base.pointsDistanceLat;
+		pointsDistanceLon = base.pointsDistanceLon;
+		interpolationMethod = base.interpolationMethod;
+		useComplexInterpolation = base.useComplexInterpolation;
+	}
+
+	/**
+	 * Create a copy for a worker thread, see {@link #addStat(HGTConverter)}.
+	 * The readers must not be freed while a copy is in use.
+	 * @return the new converter
+	 */
+	public HGTConverter copyForWorker() {
+		if (demArea != null) {
+			// java.awt.geom.Area calculates its bounds lazily
+			demArea.getBounds2D();
+		}
+		return new HGTConverter(this);
+	}
+
+	/**
+	 * Add the statistics of a copy after the worker thread has finished.
+	 * @param worker the copy returned by {@link #copyForWorker()}
+	 */
+	public void addStat(HGTConverter worker) {
+		statPoints += worker.statPoints;
+		statBicubic += worker.statBicubic;
+		statBilinear += worker.statBilinear;
+		statVoid += worker.statVoid;
+		statRdrNull += worker.statRdrNull;
+		statRdrRes += worker.statRdrRes;
+	}
+
 	/**
 	 * Allows to change the interpolation method for complex interpolations.
 	 * @param interpolationMethod
@@ -447,6 +494,19 @@ public class HGTConverter {
 		}
 	}
 
+	/**
+	 * Release the buffers of all readers, they are shared with other tiles.
+	 */
+	public void freeAllMem() {
+		for (HGTReader[] row : readers) {
+			for (HGTReader r : row) {
+				if (r != null) {
+					r.freeBuf();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Interpolate the height of point p from the 4 closest values in the hgt matrix.
 	 * Bilinear interpolation with single node restore
@@ -16,7 +16,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -30,8 +29,6 @@ import uk.me.parabola.imgfmt.MapFailedException;
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.log.Logger;
 
-import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
-
 /**
  * Rather simple code to read a single HGT file with SRTM data. Based on old code in class HGTDEM 
  * in package uk.me.parabola.mkgmap.reader.dem which was removed in 2017.
@@ -46,7 +43,7 @@ public class HGTReader {
 	private int res;
 	private final String fileName;
 	private String path;
-	private boolean read;
+	private volatile boolean read;
 	private long count;
 
 	
@@ -143,7 +140,7 @@ public class HGTReader {
 	 * @param name
 	 * @return
 	 */
-	private ZipEntry findZipEntry (ZipFile zipFile, String name) {
+	static ZipEntry findZipEntry (ZipFile zipFile, String name) {
 		ZipEntry entry = zipFile.getEntry(name);
 		if (entry == null) {
 			// no direct hit, try to recurse through all files
@@ -178,32 +175,6 @@ public class HGTReader {
 		}
 	}
 
-	/**
-	 * Try to unzip the file contained in a zip file.
-	 * @param zipFile
-	 * @param entry
-	 * @throws IOException
-	 */
-	private void extractFromZip(String fName, String name) throws IOException {
-		try (ZipFile zipFile = new ZipFile(fName)) {
-			ZipEntry entry = findZipEntry(zipFile, name);
-			if (entry != null) {
-				InputStream is = zipFile.getInputStream(entry);
-				log.info("extracting data for " + entry.getName() + " from " + zipFile.getName());
-				buffer = ByteBuffer.allocate((int) entry.getSize());
-				byte[] ioBuffer = new byte[1024];
-				int len = is.read(ioBuffer);
-				while (len != -1) {
-					buffer.put(ioBuffer, 0, len);
-					len = is.read(ioBuffer);
-				}
-			} else {
-				throw new FileNotFoundException(name);
-			}
-			read = true;
-		} 
-	}
-
 	/**
 	 * calculate the resolution of the hgt file. size should be exactly 2 * (res+1) * (res+1) 
 	 * @param size number of bytes
@@ -250,10 +221,10 @@ public class HGTReader {
 	}
 
 	/**
-	 * Return memory to GC. 
-	 * @return true if heap memory was freed.
+	 * Release the buffer, it is shared with other tiles that need the same file.
+	 * @return true if a buffer was released.
 	 */
-	public boolean freeBuf() {
+	public synchronized boolean freeBuf() {
 		if (buffer == null)
 			return false;
 		buffer = null;
@@ -261,21 +232,25 @@ public class HGTReader {
 		return true;
 	}
 
+	/**
+	 * Make sure that the buffer is available. This may be called by
+	 * different threads that share the reader.
+	 */
 	public void prepRead() {
 		if (!read && path != null) {
+			loadBuffer();
+		}
+	}
+
+	private synchronized void loadBuffer() {
+		if (!read) {
 			try {
 				if (count == 0)
 					log.info("allocating buffer for", fileName);
 				else 
 					log.warn("re-allocating buffer for", fileName);
-				if (path.endsWith(".zip"))
-					extractFromZip(path, fileName);
-				else {
-					try (FileInputStream is = new FileInputStream(path)) {
-						buffer = is.getChannel().map(READ_ONLY, 0, is.getChannel().size());
-						read = true;
-					}
-				}
+				buffer = HGTCache.acquire(path, fileName);
+				read = true;
 			} catch (FileNotFoundException e) {
 				throw new MapFailedException("previously existing file is missing: " + path);
 			} catch (IOException e) {
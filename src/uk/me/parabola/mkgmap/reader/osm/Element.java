@@ -58,6 +58,19 @@ public abstract class Element {
 	public void addTagFromRawOSM(String key, String val) {
 		if (val == null)
 			return;
+		addTag(key, cleanRawValue(key, val));
+	}
+
+	/**
+	 * Remove obsolete spaces and DEL characters from a tag value read from
+	 * an OSM file. This is what {@link #addTagFromRawOSM(String, String)}
+	 * does before the tag is added.
+	 *
+	 * @param key The tag name, only used for log messages.
+	 * @param val The raw value, not null.
+	 * @return the interned value
+	 */
+	public String cleanRawValue(String key, String val) {
 		val = val.trim();
 		if (!val.isEmpty()){
 			// remove duplicated spaces within value
@@ -74,7 +87,7 @@ public abstract class Element {
 				val = squashed;
 			}
 		}
-		addTag(key, val.intern());
+		return val.intern();
 	}
 
 	/**
@@ -18,6 +18,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.LongFunction;
 
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Area;
@@ -47,7 +48,10 @@ import uk.me.parabola.util.MultiHashMap;
 public class ElementSaver {
 	private static final Logger log = Logger.getLogger(ElementSaver.class);
 
-	protected OSMId2ObjectMap<Coord> coordMap = new OSMId2ObjectMap<>();
+	protected OSMId2ObjectMap<Coord> coordMap;
+	/** used instead of coordMap with option --packed-coords */
+	private PackedCoordMap packedCoordMap;
+	private LongFunction<Node> tagged;
 
 	protected Map<Long, Node> nodeMap;
 	protected Map<Long, Way> wayMap;
@@ -82,6 +86,13 @@ public class ElementSaver {
 			relationMap = new HashMap<>();
 		}
 
+		if (args.getProperty("packed-coords", false)) {
+			packedCoordMap = new PackedCoordMap();
+			tagged = nodeMap::get;
+		} else {
+			coordMap = new OSMId2ObjectMap<>();
+		}
+
 		ignoreTurnRestrictions = args.getProperty("ignore-turn-restrictions", false) || !args.containsKey("route");
 		deadEndArgs = args.getProperty("dead-ends", "fixme,FIXME").split(",");
 	}
@@ -96,7 +107,10 @@ public class ElementSaver {
 	 * @param co The point.
 	 */
 	public void addPoint(long id, Coord co) {
-		coordMap.put(id, co);
+		if (packedCoordMap != null)
+			packedCoordMap.put(id, co);
+		else
+			coordMap.put(id, co);
 		if (co.getLatitude() < minLat)
 			minLat = co.getLatitude();
 		if (co.getLatitude() > maxLat)
@@ -190,6 +204,10 @@ public class ElementSaver {
 	}
 
 	public Coord getCoord(long id) {
+		if (packedCoordMap != null) {
+			// a tagged node already refers to a Coord instance, use that one
+			return packedCoordMap.get(id, tagged);
+		}
 		return coordMap.get(id);
 	}
 
@@ -207,6 +225,7 @@ public class ElementSaver {
 	
 	public void finishLoading() {
 		coordMap = null;
+		packedCoordMap = null;
 	}
 
 	/**
@@ -37,9 +37,12 @@ import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
+import uk.me.parabola.util.IndexedPolygon;
 import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.PackedRTree;
 
 /**
  * Representation of an OSM Multipolygon Relation.<br/>
@@ -1338,12 +1341,15 @@ public class MultiPolygonRelation extends Relation {
 		ArrayList<BitSet> finishedMatrix = new ArrayList<>(polygonList
 				.size());
 
+		List<Rectangle> boundsList = new ArrayList<>(polygonList.size());
 		for (int i = 0; i < polygonList.size(); i++) {
 			BitSet matrixRow = new BitSet();
 			// a polygon does not contain itself
 			matrixRow.set(i);
 			finishedMatrix.add(matrixRow);
+			boundsList.add(polygonList.get(i).getBounds());
 		}
+		PackedRTree boundsIndex = new PackedRTree(boundsList);
 
 		for (int rowIndex = 0; rowIndex < polygonList.size(); rowIndex++) {
 			JoinedWay potentialOuterPolygon = polygonList.get(rowIndex);
@@ -1354,37 +1360,31 @@ public class MultiPolygonRelation extends Relation {
 			// so use a lazy creation to improve performance
 			WayAndLazyPolygon lazyPotOuterPolygon = new WayAndLazyPolygon(potentialOuterPolygon);
 
-			// get all non calculated columns of the matrix
-			for (int colIndex = finishedCol.nextClearBit(0); colIndex >= 0
-					&& colIndex < polygonList.size(); colIndex = finishedCol
-					.nextClearBit(colIndex + 1)) {
+			// only polygons with bounds inside the bounds of the outer polygon
+			// can be contained, so get all non calculated columns of these
+			IntArrayList candidates = boundsIndex.findContained(potentialOuterPolygon.getBounds());
+			for (int i = 0; i < candidates.size(); i++) {
+				int colIndex = candidates.getInt(i);
+				if (finishedCol.get(colIndex))
+					continue;
 
 				JoinedWay innerPolygon = polygonList.get(colIndex);
 
-				if (potentialOuterPolygon.getBounds().intersects(
-						innerPolygon.getBounds()))
-				{
-					boolean contains = contains(lazyPotOuterPolygon, innerPolygon);
-					
-					if (contains) {
-						containsColumns.set(colIndex);
-
-						// we also know that the inner polygon does not contain the
-						// outer polygon
-						// so we can set the finished bit for this matrix
-						// element
-						finishedMatrix.get(colIndex).set(rowIndex);
-
-						// additionally we know that the outer polygon contains all
-						// polygons that are contained by the inner polygon
-						containsColumns.or(containsMatrix.get(colIndex));
-						finishedCol.or(containsColumns);
-					}
-				} else {
-					// both polygons do not intersect
-					// we can flag both matrix elements as finished
+				boolean contains = contains(lazyPotOuterPolygon, innerPolygon);
+
+				if (contains) {
+					containsColumns.set(colIndex);
+
+					// we also know that the inner polygon does not contain the
+					// outer polygon
+					// so we can set the finished bit for this matrix
+					// element
 					finishedMatrix.get(colIndex).set(rowIndex);
-					finishedMatrix.get(rowIndex).set(colIndex);
+
+					// additionally we know that the outer polygon contains all
+					// polygons that are contained by the inner polygon
+					containsColumns.or(containsMatrix.get(colIndex));
+					finishedCol.or(containsColumns);
 				}
 				// this matrix element is calculated now
 				finishedCol.set(colIndex);
@@ -1415,11 +1415,16 @@ public class MultiPolygonRelation extends Relation {
 	
 	/**
 	 * This is a helper class that creates a high precision polygon for a way 
-	 * on request only.
+	 * on request only. Ways with many points get an {@link IndexedPolygon}
+	 * because they are usually tested against many other polygons.
 	 */
 	private static class WayAndLazyPolygon {
+		private static final int MIN_INDEXED_POINTS = 64;
+		// the latitude range of a JoinedWay is a little larger than its bounds
+		private static final int BOUNDS_TOLERANCE_HP = 1 << 8;
 		private final JoinedWay way;
 		private Polygon polygon;
+		private IndexedPolygon indexedPolygon;
 		
 		public WayAndLazyPolygon(JoinedWay way) {
 			this.way = way;
@@ -1429,11 +1434,57 @@ public class MultiPolygonRelation extends Relation {
 			return this.way;
 		}
 
-		public final Polygon getPolygon() {
+		private boolean isIndexed() {
+			return way.getPoints().size() >= MIN_INDEXED_POINTS;
+		}
+
+		private IndexedPolygon getIndexedPolygon() {
+			if (indexedPolygon == null)
+				indexedPolygon = new IndexedPolygon(way.getPoints());
+			return indexedPolygon;
+		}
+
+		public final boolean contains(Coord co) {
+			if (isIndexed())
+				return getIndexedPolygon().contains(co.getHighPrecLon(), co.getHighPrecLat());
 			if (this.polygon == null) {
 				this.polygon = Java2DConverter.createHighPrecPolygon(this.way.getPoints());
 			}
-			return this.polygon;
+			return this.polygon.contains(co.getHighPrecLon(), co.getHighPrecLat());
+		}
+
+		/**
+		 * Get the segments of the way that may intersect the bounds of
+		 * another way. Segment i goes from point i-1 to point i.
+		 */
+		public final BitSet getSegmentsNear(JoinedWay other) {
+			if (isIndexed()) {
+				Rectangle r = other.getBounds();
+				BitSet segments = getIndexedPolygon().findEdges((r.y << Coord.DELTA_SHIFT) - BOUNDS_TOLERANCE_HP,
+						((r.y + r.height) << Coord.DELTA_SHIFT) + BOUNDS_TOLERANCE_HP);
+				// edge 0 closes the polygon, it is no segment of the way
+				segments.clear(0);
+				return segments;
+			}
+			BitSet segments = new BitSet();
+			segments.set(1, way.getPoints().size());
+			return segments;
+		}
+
+		/**
+		 * Same as {@link MultiPolygonRelation#locatedOnLine(Coord, List)} with the points of the way.
+		 */
+		public final boolean isOnLine(Coord co) {
+			if (!isIndexed())
+				return locatedOnLine(co, way.getPoints());
+			List<Coord> points = way.getPoints();
+			BitSet segments = getIndexedPolygon().findEdges(co.getHighPrecLat(), co.getHighPrecLat());
+			segments.clear(0);
+			for (int i = segments.nextSetBit(0); i >= 0; i = segments.nextSetBit(i + 1)) {
+				if (locatedOnLine(co, points.subList(i - 1, i + 1)))
+					return true;
+			}
+			return false;
 		}
 	}
 	
@@ -1473,15 +1524,15 @@ public class MultiPolygonRelation extends Relation {
 		boolean onePointContained = false;
 		boolean allOnLine = true;
 		for (Coord px : polygon2.getPoints()) {
-			if (polygon1.getPolygon().contains(px.getHighPrecLon(), px.getHighPrecLat())){
+			if (polygon1.contains(px)){
 				// there's one point that is in polygon1 and in the bounding
 				// box => polygon1 may contain polygon2
 				onePointContained = true;
-				if (!locatedOnLine(px, polygon1.getWay().getPoints())) {
+				if (!polygon1.isOnLine(px)) {
 					allOnLine = false;
 					break;
 				}
-			} else if (tileBounds.contains(px) && !locatedOnLine(px, polygon1.getWay().getPoints())) {
+			} else if (tileBounds.contains(px) && !polygon1.isOnLine(px)) {
 				// there's one point that is not in polygon1 but inside the
 				// bounding box => polygon1 does not contain polygon2
 				return false;
@@ -1503,12 +1554,12 @@ public class MultiPolygonRelation extends Relation {
 			}
 			
 			for (Coord px : middlePoints2) {
-				if (polygon1.getPolygon().contains(px.getHighPrecLon(), px.getHighPrecLat())){
+				if (polygon1.contains(px)){
 					// there's one point that is in polygon1 and in the bounding
 					// box => polygon1 may contain polygon2
 					onePointContained = true;
 					break;
-				} else if (tileBounds.contains(px) && !locatedOnLine(px, polygon1.getWay().getPoints())) {
+				} else if (tileBounds.contains(px) && !polygon1.isOnLine(px)) {
 					// there's one point that is not in polygon1 but inside the
 					// bounding box => polygon1 does not contain polygon2
 					return false;
@@ -1521,12 +1572,13 @@ public class MultiPolygonRelation extends Relation {
 			return false;
 		}
 		
-		Iterator<Coord> it1 = polygon1.getWay().getPoints().iterator();
-		Coord p11 = it1.next();
-
-		while (it1.hasNext()) {
-			Coord p12 = p11;
-			p11 = it1.next();
+		// only the segments that are close to polygon2 can intersect it
+		List<Coord> points1 = polygon1.getWay().getPoints();
+		BitSet segments1 = polygon1.getSegmentsNear(polygon2);
+		for (int i1 = segments1.nextSetBit(0); i1 >= 0; i1 = segments1.nextSetBit(i1 + 1)) {
+			Coord p12 = points1.get(i1 - 1);
+			Coord p11 = points1.get(i1);
+			boolean lastSegment1 = i1 + 1 == points1.size();
 
 			if (!polygon2.linePossiblyIntersectsWay(p11, p12)) {
 				// don't check it - this segment of the outer polygon
@@ -1581,7 +1633,7 @@ public class MultiPolygonRelation extends Relation {
 				boolean intersects = intersectionPossible && linesCutEachOther(p11, p12, p21, p22);
 				
 				if (intersects) {
-					if ((polygon1.getWay().isClosedArtificially() && !it1.hasNext())
+					if ((polygon1.getWay().isClosedArtificially() && lastSegment1)
 							|| (polygon2.isClosedArtificially() && !it2.hasNext())) {
 						// don't care about this intersection
 						// one of the polygons is closed by this mp code and the
@@ -43,6 +43,8 @@ public abstract class OsmHandler {
 
 	// Options
 	private boolean ignoreBounds;
+	protected int readThreads = 1;
+	protected boolean mapInput;
 	
 	// Node references within a way
 	private long firstNodeRef;
@@ -138,6 +140,24 @@ public abstract class OsmHandler {
 		saver.setBoundingBox(bbox);
 	}
 
+	/**
+	 * Set the number of threads that a handler may use to decode the input.
+	 * Handlers that can't decode in parallel ignore it.
+	 * @param readThreads the number of threads, 1 means no extra threads
+	 */
+	public void setReadThreads(int readThreads) {
+		this.readThreads = readThreads;
+	}
+
+	/**
+	 * Allow the handler to read an uncompressed input file through a memory
+	 * mapping. Handlers that don't support it ignore it.
+	 * @param mapInput true to enable
+	 */
+	public void setMapInput(boolean mapInput) {
+		this.mapInput = mapInput;
+	}
+
 	public void setElementSaver(ElementSaver elementSaver) {
 		this.saver = elementSaver;
 	}
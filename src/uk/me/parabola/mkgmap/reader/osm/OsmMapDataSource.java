@@ -42,6 +42,7 @@ import uk.me.parabola.mkgmap.reader.osm.bin.OsmBinHandler;
 import uk.me.parabola.mkgmap.reader.osm.o5m.O5mBinHandler;
 import uk.me.parabola.mkgmap.reader.osm.xml.OsmXmlHandler;
 import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.PhaseProfile;
 
 /**
  * Base class for OSM map sources.  It exists so that more than
@@ -136,22 +137,29 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 	}
 	
 	@Override
+	@SuppressWarnings("try")
 	public void load(String name, boolean addBackground) throws FileNotFoundException {
-		try (InputStream is = Utils.openFile(name)) {
-			parse(is, name);
-		} catch (FileNotFoundException e) {
-			throw e;
-		} catch (IOException e) {
-			// exception thrown from implicit call to close() on resource variable 'is'
+		try (PhaseProfile.Phase p = PhaseProfile.phase("parse")) {
+			try (InputStream is = Utils.openFile(name)) {
+				parse(is, name);
+			} catch (FileNotFoundException e) {
+				throw e;
+			} catch (IOException e) {
+				// exception thrown from implicit call to close() on resource variable 'is'
+			}
+
+			elementSaver.finishLoading();
 		}
-		
-		elementSaver.finishLoading();
 
-		osmReadingHooks.end();
+		try (PhaseProfile.Phase p = PhaseProfile.phase("hooks")) {
+			osmReadingHooks.end();
+		}
 		osmReadingHooks = null;
 		
 		// now convert the saved elements
-		elementSaver.convert(getConverter());
+		try (PhaseProfile.Phase p = PhaseProfile.phase("convert")) {
+			elementSaver.convert(getConverter());
+		}
 		
 		if (addBackground)
 			addBackground();
@@ -204,6 +212,8 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 		createConverter();
 		
 		handler.setIgnoreBounds(getConfig().getProperty("ignore-osm-bounds", false));
+		handler.setReadThreads(getConfig().getProperty("read-threads", 1));
+		handler.setMapInput(getConfig().getProperty("mapped-input", false));
 		
 		osmReadingHooks = pluginChain(elementSaver, getConfig());
 
@@ -17,6 +17,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.PhaseProfile;
 
 /**
  * A single class that holds several {@link OsmReadingHooks} and calls them in
@@ -73,8 +74,12 @@ public class OsmReadingHooksChain implements OsmReadingHooks {
 	}
 
 	@Override
+	@SuppressWarnings("try")
 	public void end() {
-		for (int i = 0; i < readingHooks.length; i++)
-			readingHooks[i].end();
+		for (int i = 0; i < readingHooks.length; i++) {
+			try (PhaseProfile.Phase p = PhaseProfile.phase(readingHooks[i].getClass().getSimpleName())) {
+				readingHooks[i].end();
+			}
+		}
 	}
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * A memory saving store for the positions of OSM nodes.
+ *
+ * OSM files are normally sorted by id, so the ids and the packed positions
+ * (see {@link Coord#packPosition()}) are appended to primitive arrays and found
+ * again with a binary search. A node needs 16 bytes instead of a {@link Coord}
+ * object and a map entry.
+ *
+ * The {@link Coord} instances are created when a position is requested the
+ * first time and kept in an {@link OSMId2ObjectMap}, so that all ways which
+ * use the node share the same instance. Positions which are not in ascending
+ * id order or which cannot be packed are also kept in that map.
+ */
+public class PackedCoordMap {
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private long[][] ids = new long[16][];
+	private long[][] positions = new long[16][];
+	private int numPacked;
+	private long lastId = Long.MIN_VALUE;
+
+	private final OSMId2ObjectMap<Coord> coords = new OSMId2ObjectMap<>();
+
+	/**
+	 * Store the position of a node.
+	 * @param id the OSM id
+	 * @param co the position. The instance is kept only if it can't be packed.
+	 */
+	public void put(long id, Coord co) {
+		if (id > lastId && co.getClass() == Coord.class && co.isPackable()) {
+			int chunk = numPacked >>> CHUNK_SHIFT;
+			int pos = numPacked & CHUNK_MASK;
+			if (pos == 0) {
+				if (chunk == ids.length) {
+					ids = Arrays.copyOf(ids, chunk * 2);
+					positions = Arrays.copyOf(positions, chunk * 2);
+				}
+				ids[chunk] = new long[CHUNK_SIZE];
+				positions[chunk] = new long[CHUNK_SIZE];
+			}
+			ids[chunk][pos] = id;
+			positions[chunk][pos] = co.packPosition();
+			numPacked++;
+			lastId = id;
+		} else {
+			coords.put(id, co);
+		}
+	}
+
+	/**
+	 * Get the position of a node.
+	 * @param id the OSM id
+	 * @param nodes returns the tagged node with a given id or null. The
+	 * location of a tagged node is used instead of a new {@link Coord} instance.
+	 * @return the position or null if the id is unknown
+	 */
+	public Coord get(long id, LongFunction<Node> nodes) {
+		Coord co = coords.get(id);
+		if (co != null)
+			return co;
+		int index = indexOf(id);
+		if (index < 0)
+			return null;
+		Node node = nodes.apply(id);
+		if (node != null && node.getLocation() != null)
+			co = node.getLocation();
+		else
+			co = Coord.unpack(positions[index >>> CHUNK_SHIFT][index & CHUNK_MASK]);
+		coords.put(id, co);
+		return co;
+	}
+
+	/**
+	 * @return the number of stored positions
+	 */
+	public int size() {
+		return numPacked + coords.size();
+	}
+
+	private int indexOf(long id) {
+		if (numPacked == 0 || id > lastId)
+			return -1;
+		int low = 0;
+		int high = numPacked - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midId = ids[mid >>> CHUNK_SHIFT][mid & CHUNK_MASK];
+			if (midId < id)
+				low = mid + 1;
+			else if (midId > id)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.util.SizeLimitedCache;
+
+/**
+ * Holds the decoded precompiled sea tiles for all map tiles that are built,
+ * so that each precompiled tile is only parsed once although it is used by
+ * several neighbouring map tiles.
+ *
+ * The ways of a tile are saved as packed positions (see
+ * {@link Coord#packPosition()}) and the indices of the points, each call of
+ * {@link #getWays(String, Callable)} creates new {@link Way} and {@link Coord}
+ * instances from them because the sea generator modifies them. Points shared
+ * by several ways or used twice by a closed way are shared again in the new
+ * ways.
+ *
+ * When the estimated size of all tiles exceeds {@link #MAX_SIZE}, the
+ * least recently used tiles are dropped (see {@link SizeLimitedCache}).
+ */
+final class PrecompSeaCache {
+	/** The estimated number of bytes that the decoded tiles may use. */
+	private static final long MAX_SIZE = Runtime.getRuntime().maxMemory() / 16;
+
+	private static final SizeLimitedCache<String, DecodedTile> tiles = new SizeLimitedCache<>(
+			"precompiled sea tile", MAX_SIZE, DecodedTile::estimatedSize);
+
+	private static class DecodedTile {
+		private final long[] positions;
+		private final long[] wayIds;
+		private final int[][] wayPoints;
+		private final String[][] wayTags;
+		private final boolean[] closedInOSM;
+		private final boolean[] complete;
+
+		DecodedTile(Collection<Way> ways) {
+			Map<Coord, Integer> indices = new IdentityHashMap<>();
+			List<Coord> coords = new ArrayList<>();
+			int n = ways.size();
+			wayIds = new long[n];
+			wayPoints = new int[n][];
+			wayTags = new String[n][];
+			closedInOSM = new boolean[n];
+			complete = new boolean[n];
+			int i = 0;
+			for (Way w : ways) {
+				wayIds[i] = w.getId();
+				List<Coord> points = w.getPoints();
+				int[] pointIndices = new int[points.size()];
+				for (int j = 0; j < pointIndices.length; j++) {
+					Coord co = points.get(j);
+					Integer index = indices.get(co);
+					if (index == null) {
+						index = coords.size();
+						indices.put(co, index);
+						coords.add(co);
+					}
+					pointIndices[j] = index;
+				}
+				wayPoints[i] = pointIndices;
+				List<String> tags = new ArrayList<>();
+				for (Map.Entry<String, String> tag : w.getTagEntryIterator()) {
+					tags.add(tag.getKey());
+					tags.add(tag.getValue());
+				}
+				wayTags[i] = tags.toArray(new String[0]);
+				closedInOSM[i] = w.isClosedInOSM();
+				complete[i] = w.isComplete();
+				i++;
+			}
+			positions = new long[coords.size()];
+			for (int j = 0; j < positions.length; j++) {
+				Coord co = coords.get(j);
+				if (!co.isPackable())
+					throw new ExitException("Invalid position in precompiled sea tile: " + co);
+				positions[j] = co.packPosition();
+			}
+		}
+
+		List<Way> createWays() {
+			Coord[] coords = new Coord[positions.length];
+			List<Way> ways = new ArrayList<>(wayIds.length);
+			for (int i = 0; i < wayIds.length; i++) {
+				int[] pointIndices = wayPoints[i];
+				List<Coord> points = new ArrayList<>(pointIndices.length);
+				for (int index : pointIndices) {
+					Coord co = coords[index];
+					if (co == null) {
+						co = Coord.unpack(positions[index]);
+						coords[index] = co;
+					}
+					points.add(co);
+				}
+				Way w = new Way(wayIds[i], points);
+				String[] tags = wayTags[i];
+				for (int j = 0; j < tags.length; j += 2)
+					w.addTag(tags[j], tags[j + 1]);
+				w.setClosedInOSM(closedInOSM[i]);
+				w.setComplete(complete[i]);
+				ways.add(w);
+			}
+			return ways;
+		}
+
+		long estimatedSize() {
+			long bytes = 64L + 8L * positions.length;
+			for (int i = 0; i < wayIds.length; i++)
+				bytes += 64L + 4L * wayPoints[i].length + 48L * wayTags[i].length;
+			return bytes;
+		}
+	}
+
+	private PrecompSeaCache() {
+	}
+
+	/**
+	 * Get the ways of a precompiled sea tile. The tile is decoded with the
+	 * given loader if it is not in the cache. When several threads ask for
+	 * the same tile at the same time, only one of them runs the loader.
+	 * @param key identifies the tile
+	 * @param loader reads the ways of the tile
+	 * @return new ways with the content of the tile
+	 * @throws Exception the exception thrown by the loader
+	 */
+	static List<Way> getWays(String key, Callable<Collection<Way>> loader) throws Exception {
+		return tiles.get(key, () -> new DecodedTile(loader.call())).createWays();
+	}
+}
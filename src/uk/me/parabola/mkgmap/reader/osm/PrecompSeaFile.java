@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * A single file that contains all precompiled sea tiles.
+ *
+ * The file starts with a fixed header, followed by a directory with one
+ * entry per tile and the rings of the mixed tiles:
+ * <pre>
+ * header:    magic "MKGMSEA1", int raster, int number of tiles
+ * directory: per tile sorted by lat and lon: int lat, int lon, byte type
+ *            ('s' sea, 'l' land, 'm' mixed), int number of rings,
+ *            long offset and int length of the ring data
+ * rings:     per ring: byte type ('s' or 'l'), byte closed, int number of
+ *            points, int minLat, minLon, maxLat, maxLon in map units,
+ *            int length of the point data, then the points
+ * </pre>
+ * The offsets are relative to the end of the directory. A point is stored
+ * as the two halves of {@link Coord#packPosition()}, so the positions are
+ * exactly those of the generator. The first point of a ring is stored
+ * with absolute values, the others as zig-zag encoded variable length
+ * differences to the previous point. All numbers are big endian.
+ *
+ * The directory is mapped into memory when the file is opened, the ring
+ * data of a tile when the tile is read. Rings outside of the requested
+ * area are skipped without decoding their points.
+ */
+public class PrecompSeaFile implements Closeable {
+	private static final byte[] MAGIC = "MKGMSEA1".getBytes(StandardCharsets.US_ASCII);
+	private static final int HEADER_SIZE = MAGIC.length + 8;
+	private static final int DIR_ENTRY_SIZE = 4 + 4 + 1 + 4 + 8 + 4;
+	private static final int RING_HEADER_SIZE = 1 + 1 + 4 + 16 + 4;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final ByteBuffer directory;
+	private final int numTiles;
+	private final long dataStart;
+
+	/**
+	 * Open a precompiled sea file.
+	 * @param file the file
+	 * @throws IOException if the file can't be read or has a wrong format
+	 */
+	public PrecompSeaFile(File file) throws IOException {
+		raf = new RandomAccessFile(file, "r");
+		channel = raf.getChannel();
+		try {
+			ByteBuffer header = channel.map(READ_ONLY, 0, HEADER_SIZE);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC))
+				throw new IOException("Not a precompiled sea file: " + file);
+			int raster = header.getInt();
+			if (raster != SeaGenerator.PRECOMP_RASTER)
+				throw new IOException("Unsupported raster " + raster + " in precompiled sea file " + file);
+			numTiles = header.getInt();
+			directory = channel.map(READ_ONLY, HEADER_SIZE, (long) numTiles * DIR_ENTRY_SIZE);
+			dataStart = HEADER_SIZE + (long) numTiles * DIR_ENTRY_SIZE;
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Check if a file starts like a precompiled sea file.
+	 * @param file the file
+	 * @return true if the file can be opened with {@link #PrecompSeaFile(File)}
+	 */
+	public static boolean isPrecompSeaFile(File file) {
+		if (!file.isFile())
+			return false;
+		try (InputStream is = new FileInputStream(file)) {
+			byte[] magic = new byte[MAGIC.length];
+			return is.read(magic) == magic.length && Arrays.equals(magic, MAGIC);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Fill the index grid that is used by the {@link SeaGenerator}.
+	 * @param indexGrid the grid [lon][lat]
+	 * @param maxLat the latitude of index 0
+	 * @param maxLon the longitude of index 0
+	 */
+	void fillIndex(byte[][] indexGrid, int maxLat, int maxLon) {
+		for (int i = 0; i < numTiles; i++) {
+			int pos = i * DIR_ENTRY_SIZE;
+			int lat = directory.getInt(pos);
+			int lon = directory.getInt(pos + 4);
+			indexGrid[(maxLon - lon) / SeaGenerator.PRECOMP_RASTER][(maxLat - lat) / SeaGenerator.PRECOMP_RASTER] =
+					directory.get(pos + 8);
+		}
+	}
+
+	/**
+	 * A ring of a mixed tile.
+	 */
+	public static class Ring {
+		private final boolean land;
+		private final boolean closed;
+		private final List<Coord> points;
+
+		Ring(boolean land, boolean closed, List<Coord> points) {
+			this.land = land;
+			this.closed = closed;
+			this.points = points;
+		}
+
+		/**
+		 * @return true for land, false for sea
+		 */
+		public boolean isLand() {
+			return land;
+		}
+
+		/**
+		 * @return true if the ring was closed in the data of the generator
+		 */
+		public boolean isClosed() {
+			return closed;
+		}
+
+		public List<Coord> getPoints() {
+			return points;
+		}
+	}
+
+	/**
+	 * Read the rings of a tile that intersect the given area.
+	 * @param lat the latitude of the tile in map units
+	 * @param lon the longitude of the tile in map units
+	 * @param bbox only rings that intersect this area are read
+	 * @return the rings, an empty list if the tile is not mixed
+	 * @throws IOException in case of read errors
+	 */
+	public List<Ring> readTile(int lat, int lon, Area bbox) throws IOException {
+		int entry = findTile(lat, lon);
+		List<Ring> rings = new ArrayList<>();
+		if (entry < 0)
+			return rings;
+		int numRings = directory.getInt(entry + 9);
+		long offset = directory.getLong(entry + 13);
+		int length = directory.getInt(entry + 21);
+		if (numRings == 0)
+			return rings;
+		ByteBuffer data = channel.map(READ_ONLY, dataStart + offset, length);
+		// points at the same position are shared like nodes of an OSM file
+		Map<Long, Coord> coords = new HashMap<>();
+		for (int i = 0; i < numRings; i++) {
+			byte type = data.get();
+			boolean closed = data.get() != 0;
+			int numPoints = data.getInt();
+			int minLat = data.getInt();
+			int minLon = data.getInt();
+			int maxLat = data.getInt();
+			int maxLon = data.getInt();
+			int pointsLength = data.getInt();
+			if (maxLat < bbox.getMinLat() || minLat > bbox.getMaxLat() || maxLon < bbox.getMinLong()
+					|| minLon > bbox.getMaxLong()) {
+				data.position(data.position() + pointsLength);
+				continue;
+			}
+			List<Coord> points = new ArrayList<>(numPoints);
+			long first = data.getLong();
+			int packedLat = (int) (first >> 32);
+			int packedLon = (int) first;
+			for (int j = 0; j < numPoints; j++) {
+				if (j > 0) {
+					packedLat += readSignedVarInt(data);
+					packedLon += readSignedVarInt(data);
+				}
+				long packed = ((long) packedLat << 32) | (packedLon & 0xffffffffL);
+				points.add(coords.computeIfAbsent(packed, Coord::unpack));
+			}
+			rings.add(new Ring(type == 'l', closed, points));
+		}
+		return rings;
+	}
+
+	private int findTile(int lat, int lon) {
+		int low = 0;
+		int high = numTiles - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int pos = mid * DIR_ENTRY_SIZE;
+			int cmp = Integer.compare(directory.getInt(pos), lat);
+			if (cmp == 0)
+				cmp = Integer.compare(directory.getInt(pos + 4), lon);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return pos;
+		}
+		return -1;
+	}
+
+	private static int readSignedVarInt(ByteBuffer buf) {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = buf.get();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	/**
+	 * Writes a precompiled sea file. The rings are collected in a temporary
+	 * file because the directory is written first.
+	 */
+	public static class Writer implements Closeable {
+		private final File file;
+		private final File dataFile;
+		private final DataOutputStream data;
+		private final Map<Long, long[]> tiles = new TreeMap<>();
+		private long dataSize;
+
+		/**
+		 * @param file the file that is written when the writer is closed
+		 * @throws IOException if the temporary file can't be created
+		 */
+		public Writer(File file) throws IOException {
+			this.file = file;
+			dataFile = new File(file.getPath() + ".tmp");
+			data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+		}
+
+		/**
+		 * Add a tile that is completely covered by sea or land.
+		 * @param lat the latitude of the tile in map units
+		 * @param lon the longitude of the tile in map units
+		 * @param land true for land, false for sea
+		 */
+		public void addTile(int lat, int lon, boolean land) {
+			tiles.put(tileKey(lat, lon), new long[] { land ? 'l' : 's', 0, 0, 0 });
+		}
+
+		/**
+		 * Add a tile with sea and land.
+		 * @param lat the latitude of the tile in map units
+		 * @param lon the longitude of the tile in map units
+		 * @param ways the rings, those with tag natural=land are land, the
+		 * others sea
+		 * @throws IOException in case of write errors
+		 */
+		public void addTile(int lat, int lon, List<Way> ways) throws IOException {
+			long offset = dataSize;
+			for (Way w : ways) {
+				List<Coord> points = w.getPoints();
+				int minLat = Integer.MAX_VALUE, minLon = Integer.MAX_VALUE;
+				int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+				for (Coord co : points) {
+					minLat = Math.min(minLat, co.getLatitude());
+					minLon = Math.min(minLon, co.getLongitude());
+					maxLat = Math.max(maxLat, co.getLatitude());
+					maxLon = Math.max(maxLon, co.getLongitude());
+				}
+				ByteArrayOutputStream pointData = new ByteArrayOutputStream();
+				DataOutputStream pointOut = new DataOutputStream(pointData);
+				long first = 0;
+				long last = 0;
+				for (int i = 0; i < points.size(); i++) {
+					Coord co = points.get(i);
+					if (!co.isPackable())
+						throw new ExitException("Invalid position in precompiled sea: " + co);
+					long packed = co.packPosition();
+					if (i == 0) {
+						pointOut.writeLong(packed);
+						first = packed;
+					} else {
+						writeSignedVarInt(pointOut, (int) (packed >> 32) - (int) (last >> 32));
+						writeSignedVarInt(pointOut, (int) packed - (int) last);
+					}
+					last = packed;
+				}
+				data.writeByte("land".equals(w.getTag("natural")) ? 'l' : 's');
+				data.writeByte(points.size() > 1 && first == last ? 1 : 0);
+				data.writeInt(points.size());
+				data.writeInt(minLat);
+				data.writeInt(minLon);
+				data.writeInt(maxLat);
+				data.writeInt(maxLon);
+				data.writeInt(pointData.size());
+				pointData.writeTo(data);
+				dataSize += RING_HEADER_SIZE + pointData.size();
+			}
+			if (dataSize - offset > Integer.MAX_VALUE)
+				throw new IOException("Precompiled sea tile " + lat + "_" + lon + " is too large");
+			tiles.put(tileKey(lat, lon), new long[] { 'm', ways.size(), offset, dataSize - offset });
+		}
+
+		private static void writeSignedVarInt(DataOutputStream out, int v) throws IOException {
+			int zigzag = (v << 1) ^ (v >> 31);
+			while ((zigzag & ~0x7f) != 0) {
+				out.writeByte((zigzag & 0x7f) | 0x80);
+				zigzag >>>= 7;
+			}
+			out.writeByte(zigzag);
+		}
+
+		/**
+		 * @return a key that sorts like lat and lon
+		 */
+		private static long tileKey(int lat, int lon) {
+			return ((long) lat << 32) | ((lon ^ Integer.MIN_VALUE) & 0xffffffffL);
+		}
+
+		/**
+		 * Write the file and remove the temporary file.
+		 */
+		public void close() throws IOException {
+			data.close();
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+				out.write(MAGIC);
+				out.writeInt(SeaGenerator.PRECOMP_RASTER);
+				out.writeInt(tiles.size());
+				for (Map.Entry<Long, long[]> e : tiles.entrySet()) {
+					long key = e.getKey();
+					long[] tile = e.getValue();
+					out.writeInt((int) (key >> 32));
+					out.writeInt((int) key ^ Integer.MIN_VALUE);
+					out.writeByte((int) tile[0]);
+					out.writeInt((int) tile[1]);
+					out.writeLong(tile[2]);
+					out.writeInt((int) tile[3]);
+				}
+				try (InputStream in = new FileInputStream(dataFile)) {
+					copy(in, out);
+				}
+			} finally {
+				if (!dataFile.delete())
+					dataFile.deleteOnExit();
+			}
+		}
+
+		private static void copy(InputStream in, OutputStream out) throws IOException {
+			byte[] buf = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buf)) > 0)
+				out.write(buf, 0, n);
+		}
+	}
+}
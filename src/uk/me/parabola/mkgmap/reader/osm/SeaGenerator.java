@@ -12,7 +12,6 @@
  */
 package uk.me.parabola.mkgmap.reader.osm;
 
-import java.awt.Rectangle;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -22,6 +21,7 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -32,6 +32,7 @@ import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
@@ -47,7 +48,7 @@ import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.general.LineClipper;
 import uk.me.parabola.mkgmap.osmstyle.StyleImpl;
 import uk.me.parabola.util.EnhancedProperties;
-import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.RasterArea;
 
 /**
  * Code to generate sea polygons from the coastline ways.
@@ -60,6 +61,7 @@ public class SeaGenerator implements OsmReadingHooks {
 	private static final Logger log = Logger.getLogger(SeaGenerator.class);
 
 	private String precompSea; 
+	private PrecompData precompData;
 	private boolean generateSeaUsingMP = true;
 	private int maxCoastlineGap;
 	private boolean allowSeaSectors = true;
@@ -90,7 +92,8 @@ public class SeaGenerator implements OsmReadingHooks {
 	private static final byte LAND_TILE = 'l';
 	private static final byte MIXED_TILE = 'm';
 	
-	private static ThreadLocal<PrecompData> precompIndex = new ThreadLocal<>();
+	// the index of the precompiled sea tiles for each value of the precomp-sea option
+	private static final Map<String, PrecompData> precompIndexes = new ConcurrentHashMap<>();
 	
 	// useful constants defining the min/max map units of the precompiled sea tiles
 	private static final int MIN_LAT = Utils.toMapUnit(-90.0);
@@ -123,7 +126,7 @@ public class SeaGenerator implements OsmReadingHooks {
 		
 		precompSea = props.getProperty("precomp-sea", null);
 		if (precompSea != null) {
-			initPrecompSeaIndex(precompSea);
+			precompData = precompIndexes.computeIfAbsent(precompSea, SeaGenerator::readPrecompSeaIndex);
 		}
 		String gs = props.getProperty("generate-sea", null);
 		if (gs != null) {
@@ -198,10 +201,7 @@ public class SeaGenerator implements OsmReadingHooks {
 		}
 	}
 
-	private static void initPrecompSeaIndex(String precompSea) {
-		if (precompIndex.get() != null) {
-			return;
-		}
+	private static PrecompData readPrecompSeaIndex(String precompSea) {
 		/**
 		 * The directory of the precompiled sea tiles or <code>null</code> if
 		 * precompiled sea should not be used.
@@ -209,7 +209,7 @@ public class SeaGenerator implements OsmReadingHooks {
 		File precompSeaDir = new File(precompSea);  
 		if (!precompSeaDir.exists()) {
 			log.error("Directory or zip file with precompiled sea does not exist: " + precompSea);
-			return;
+			return null;
 		}
 
 		String internalPath = null;    	
@@ -217,7 +217,16 @@ public class SeaGenerator implements OsmReadingHooks {
 		ZipFile zipFile = null;
 		PrecompData precompData = null;
 		try {
-			if (precompSeaDir.isDirectory()) {
+			if (PrecompSeaFile.isPrecompSeaFile(precompSeaDir)) {
+				// all tiles in one file, the directory contains the index
+				PrecompSeaFile seaFile = new PrecompSeaFile(precompSeaDir);
+				precompData = new PrecompData();
+				precompData.precompIndex = createIndexGrid();
+				seaFile.fillIndex(precompData.precompIndex, MAX_LAT, MAX_LON);
+				precompData.precompSeaPrefix = "";
+				precompData.precompSeaExt = "";
+				precompData.seaFile = seaFile;
+			} else if (precompSeaDir.isDirectory()) {
 				File indexFile = new File(precompSeaDir, indexFileName);
 				if (!indexFile.exists()) {
 					// check if the unzipped index file exists
@@ -254,8 +263,8 @@ public class SeaGenerator implements OsmReadingHooks {
 					precompData.precompZipFileInternalPath = internalPath;
 					precompData.zipFile = zipFile;
 				}
-				precompIndex.set(precompData);
 			}
+			return precompData;
 		} catch (IOException exp) {
 			log.error("Cannot read index file", indexFileName, "in", precompSea, exp);
 			throw new ExitException("Failed to read required index file in " + precompSeaDir);
@@ -300,13 +309,11 @@ public class SeaGenerator implements OsmReadingHooks {
      * @param fileStream already opened stream
      */
     private static PrecompData loadIndex(InputStream fileStream) throws IOException{
-		int indexWidth = (getPrecompTileStart(MAX_LON) - getPrecompTileStart(MIN_LON)) / PRECOMP_RASTER;
-		int indexHeight = (getPrecompTileStart(MAX_LAT) - getPrecompTileStart(MIN_LAT)) / PRECOMP_RASTER;
 		PrecompData pi = null;
 		LineNumberReader indexReader = new LineNumberReader(new InputStreamReader(fileStream));
 		String indexLine = null;
 
-		byte[][] indexGrid = new byte[indexWidth + 1][indexHeight + 1];
+		byte[][] indexGrid = createIndexGrid();
 		boolean detectExt = true; 
 		String prefix = null;
 		String ext = null;
@@ -353,6 +360,15 @@ public class SeaGenerator implements OsmReadingHooks {
 		return pi;
     }
 
+	/**
+	 * @return an empty index grid [lon][lat] for all precompiled sea tiles
+	 */
+	private static byte[][] createIndexGrid() {
+		int indexWidth = (getPrecompTileStart(MAX_LON) - getPrecompTileStart(MIN_LON)) / PRECOMP_RASTER;
+		int indexHeight = (getPrecompTileStart(MAX_LAT) - getPrecompTileStart(MIN_LAT)) / PRECOMP_RASTER;
+		return new byte[indexWidth + 1][indexHeight + 1];
+	}
+
 	/**
      * Retrieves the start value of the precompiled tile.
      * @param value the value for which the start value is calculated
@@ -503,6 +519,33 @@ public class SeaGenerator implements OsmReadingHooks {
 		return src.getElementSaver().getWays().values();
 	}
 	
+	/**
+	 * Opens and loads the precomp sea tile with the given filename.
+	 * @param pd the index of the precompiled sea
+	 * @param tileName the filename of the precomp sea tile
+	 * @return all ways of the tile
+	 * @throws IOException if the tile could not be opened
+	 */
+	private static Collection<Way> loadPrecompTile(PrecompData pd, String tileName) throws IOException {
+		InputStream is = null;
+		if (pd.zipFile != null) {
+			ZipEntry entry = pd.zipFile.getEntry(pd.precompZipFileInternalPath + tileName);
+			if (entry != null) {
+				is = pd.zipFile.getInputStream(entry);
+			} else {
+				log.error("Preompiled sea tile " + tileName + " not found.");
+			}
+		} else {
+			File precompTile = new File(pd.dirFile, tileName);
+			is = new FileInputStream(precompTile);
+		}
+		if (is == null)
+			return Collections.emptyList();
+		try (InputStream in = is) {
+			return loadPrecompTile(in, tileName);
+		}
+	}
+
 	/**
 	 * Calculates the key names of the precompiled sea tiles for the bounding box.
 	 * The key names are compiled of {@code lat+"_"+lon}.
@@ -523,11 +566,11 @@ public class SeaGenerator implements OsmReadingHooks {
 	
 	/**
 	 * Get the tile name from the index. 
+	 * @param pi the index
 	 * @param precompKey The key name is compiled of {@code lat+"_"+lon}. 
 	 * @return either "land" or "sea" or a file name or null
 	 */
-	private static String getTileName(String precompKey){
-		PrecompData pi = precompIndex.get();
+	private static String getTileName(PrecompData pi, String precompKey){
 		String[] tileCoords = KEY_SPLITTER.split(precompKey);
 		int lat = Integer.parseInt(tileCoords[0]); 
 		int lon = Integer.parseInt(tileCoords[1]); 
@@ -615,13 +658,11 @@ public class SeaGenerator implements OsmReadingHooks {
 	 
 	private boolean loadLandAndSee(List<Way> landWays, List<Way> seaWays) {
 		boolean distinctTilesOnly = true;
-		List<java.awt.geom.Area> seaOnlyAreas = new ArrayList<>();
-		List<java.awt.geom.Area> landOnlyAreas = new ArrayList<>();
+		List<RasterArea> seaOnlyAreas = new ArrayList<>();
+		List<RasterArea> landOnlyAreas = new ArrayList<>();
 		
-		PrecompData pd = precompIndex.get();
-
 		for (String precompKey : getPrecompKeyNames()) {
-			String tileName = getTileName(precompKey);
+			String tileName = getTileName(precompData, precompKey);
 
 			if (tileName == null) {
 				log.error("Precompile sea tile " + precompKey + " is missing in the index. Skipping.");
@@ -634,16 +675,17 @@ public class SeaGenerator implements OsmReadingHooks {
 				String[] tileCoords = KEY_SPLITTER.split(precompKey);
 				int minLat = Integer.parseInt(tileCoords[0]);
 				int minLon = Integer.parseInt(tileCoords[1]);
-				Rectangle r = new Rectangle(minLon, minLat, PRECOMP_RASTER, PRECOMP_RASTER);
+				RasterArea r = new RasterArea(PRECOMP_RASTER);
+				r.addCell(minLat, minLon);
 
 				if ("sea".equals(tileName)) {
-					seaOnlyAreas = addWithoutCreatingHoles(seaOnlyAreas, new java.awt.geom.Area(r));
+					seaOnlyAreas = addWithoutCreatingHoles(seaOnlyAreas, r);
 				} else {
-					landOnlyAreas = addWithoutCreatingHoles(landOnlyAreas, new java.awt.geom.Area(r));
+					landOnlyAreas = addWithoutCreatingHoles(landOnlyAreas, r);
 				}
 			} else {
 				distinctTilesOnly = false;
-				loadMixedTile(pd, tileName, landWays, seaWays);
+				loadMixedTile(precompData, tileName, tileBounds, landWays, seaWays);
 			}
 		}
  		landWays.addAll(areaToWays(landOnlyAreas,"land"));
@@ -651,35 +693,31 @@ public class SeaGenerator implements OsmReadingHooks {
  		return distinctTilesOnly;
 	}
 
-	private static void loadMixedTile(PrecompData pd, String tileName, List<Way> landWays, List<Way> seaWays) {
+	private static void loadMixedTile(PrecompData pd, String tileName, Area bbox, List<Way> landWays, List<Way> seaWays) {
 		try {
-			InputStream is = null;
-			if (pd.zipFile != null) {
-				ZipEntry entry = pd.zipFile.getEntry(pd.precompZipFileInternalPath + tileName);
-				if (entry != null) {
-					is = pd.zipFile.getInputStream(entry);
-				} else {
-					log.error("Preompiled sea tile " + tileName + " not found.");
-				}
+			Collection<Way> seaPrecompWays;
+			if (pd.seaFile != null) {
+				// the tile name is the key
+				String[] tileCoords = KEY_SPLITTER.split(tileName);
+				seaPrecompWays = ringsToWays(pd.seaFile.readTile(Integer.parseInt(tileCoords[0]),
+						Integer.parseInt(tileCoords[1]), bbox));
 			} else {
-				File precompTile = new File(pd.dirFile, tileName);
-				is = new FileInputStream(precompTile);
+				// the decoded tiles are shared by all map tiles
+				String key = pd.dirFile.getPath() + File.separator + tileName;
+				seaPrecompWays = PrecompSeaCache.getWays(key, () -> loadPrecompTile(pd, tileName));
 			}
-			if (is != null) {
-				Collection<Way> seaPrecompWays = loadPrecompTile(is, tileName);
-				if (log.isDebugEnabled())
-					log.debug(seaPrecompWays.size(), "precomp sea ways from", tileName, "loaded.");
-
-				for (Way w : seaPrecompWays) {
-					// set a new id to be sure that the precompiled ids do not
-					// interfere with the ids of this run
-					w.markAsGeneratedFrom(w);
-
-					if ("land".equals(w.getTag("natural"))) {
-						landWays.add(w);
-					} else {
-						seaWays.add(w);
-					}
+			if (log.isDebugEnabled())
+				log.debug(seaPrecompWays.size(), "precomp sea ways from", tileName, "loaded.");
+
+			for (Way w : seaPrecompWays) {
+				// set a new id to be sure that the precompiled ids do not
+				// interfere with the ids of this run
+				w.markAsGeneratedFrom(w);
+
+				if ("land".equals(w.getTag("natural"))) {
+					landWays.add(w);
+				} else {
+					seaWays.add(w);
 				}
 			}
 		} catch (FileNotFoundException exp) {
@@ -690,22 +728,38 @@ public class SeaGenerator implements OsmReadingHooks {
 		}
 	}
 
+	/**
+	 * Create the ways for the rings of a precompiled sea file, they are
+	 * joined and split like the ways of the coastline.
+	 * @param rings the rings of a tile
+	 * @return closed ways tagged with natural=land or natural=sea
+	 */
+	private static List<Way> ringsToWays(List<PrecompSeaFile.Ring> rings) {
+		List<Way> ways = new ArrayList<>(rings.size());
+		for (PrecompSeaFile.Ring ring : rings) {
+			Way w = new Way(0, ring.getPoints());
+			w.addTag("natural", ring.isLand() ? "land" : "sea");
+			w.setClosedInOSM(ring.isClosed());
+			ways.add(w);
+		}
+		return ways;
+	}
+
 	/**
 	 * Try to merge an area with one or more other areas without creating holes.
 	 * If it cannot be merged, it is added to the list.
-	 * @param areas known areas 
+	 * @param areas known areas, the ones that are merged are changed
 	 * @param toAdd area to add
 	 * @return new list of areas
 	 */
-	private static List<java.awt.geom.Area> addWithoutCreatingHoles(List<java.awt.geom.Area> areas,
-			final java.awt.geom.Area toAdd) {
-		List<java.awt.geom.Area> result = new LinkedList<>();
-		java.awt.geom.Area toMerge = new java.awt.geom.Area(toAdd);
+	static List<RasterArea> addWithoutCreatingHoles(List<RasterArea> areas, final RasterArea toAdd) {
+		List<RasterArea> result = new LinkedList<>();
+		RasterArea toMerge = new RasterArea(toAdd);
 		
-		for (java.awt.geom.Area area : areas) {
-			java.awt.geom.Area mergedArea = new java.awt.geom.Area(area);
-			mergedArea.add(toMerge);
-			if (!mergedArea.isSingular()) {
+		for (RasterArea area : areas) {
+			// the merged areas are not used on their own again
+			RasterArea mergedArea = area.mergeSingular(toMerge);
+			if (mergedArea == null) {
 				result.add(area);
 				continue;
 			}
@@ -715,7 +769,7 @@ public class SeaGenerator implements OsmReadingHooks {
 		int dimNew = Math.max(toMerge.getBounds().width, toMerge.getBounds().height);
 		boolean added = false;
 		for (int i = 0; i < result.size(); i++) {
-			java.awt.geom.Area area = result.get(i);
+			RasterArea area = result.get(i);
 			if (dimNew < Math.max(area.getBounds().width, area.getBounds().height)) {
 				result.add(i, toMerge);
 				added = true;
@@ -732,10 +786,10 @@ public class SeaGenerator implements OsmReadingHooks {
 	 * @param type
 	 * @return
 	 */
-	private static List<Way> areaToWays(List<java.awt.geom.Area> areas, String type) {
+	private static List<Way> areaToWays(List<RasterArea> areas, String type) {
 		List<Way> ways = new ArrayList<>();
-		for (java.awt.geom.Area area : areas) {
-			List<List<Coord>> shapes = Java2DConverter.areaToShapes(area);
+		for (RasterArea area : areas) {
+			List<List<Coord>> shapes = area.toShapes();
 			for (List<Coord> points : shapes) {
 				Way w = new Way(FakeIdGenerator.makeFakeId(), points);
 				w.addTag("natural", type);
@@ -811,7 +865,7 @@ public class SeaGenerator implements OsmReadingHooks {
 		tileBounds = saver.getBoundingBox();
 		// precompiled sea has highest priority
 		// if it is set do not perform any other algorithm
-		if (precompSea != null && precompIndex.get() != null) {
+		if (precompSea != null && precompData != null) {
 			addPrecompSea();
 			return;
 		}
@@ -1467,7 +1521,7 @@ public class SeaGenerator implements OsmReadingHooks {
 	}
 
 	/**
-	 * Helper class for threadlocal vars
+	 * The index of the precompiled sea tiles, shared by all threads
 	 */
 	private static class PrecompData {
 		/**
@@ -1480,6 +1534,8 @@ public class SeaGenerator implements OsmReadingHooks {
 		private String precompZipFileInternalPath;
 		private ZipFile zipFile;
 		private File dirFile;
+		// set if all tiles are in one file
+		private PrecompSeaFile seaFile;
 	}
 	
 }
@@ -12,12 +12,22 @@
  */
 package uk.me.parabola.mkgmap.reader.osm.bin;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import uk.me.parabola.imgfmt.FormatException;
 import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.GeneralRelation;
@@ -26,6 +36,7 @@ import uk.me.parabola.mkgmap.reader.osm.OsmHandler;
 import uk.me.parabola.mkgmap.reader.osm.Way;
 
 import crosby.binary.BinaryParser;
+import crosby.binary.Fileformat;
 import crosby.binary.Osmformat;
 import crosby.binary.file.BlockInputStream;
 
@@ -36,6 +47,9 @@ import crosby.binary.file.BlockInputStream;
  * @author Steve Ratcliffe
  */
 public class OsmBinHandler extends OsmHandler {
+	// the limits of the file format, the same as in osmbinary
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
 
 	@Override
 	public boolean isFileSupported(String name) {
@@ -50,8 +64,12 @@ public class OsmBinHandler extends OsmHandler {
 	public void parse(InputStream is) {
 		try {
 			BinParser reader = new BinParser();
-			BlockInputStream stream = new BlockInputStream(is, reader);
-			stream.process();
+			if (readThreads > 1) {
+				parseParallel(is, reader);
+			} else {
+				BlockInputStream stream = new BlockInputStream(is, reader);
+				stream.process();
+			}
 		} catch (NoClassDefFoundError e) {
 			throw new FormatException("Failed to read binary file, probably missing protobuf.jar");
 		} catch (IOException e) {
@@ -60,6 +78,121 @@ public class OsmBinHandler extends OsmHandler {
 	}
 	
 	
+	/**
+	 * Read the file with a pool of threads. The blobs are split off the
+	 * input here, a pool of threads inflates them and parses the protobuf
+	 * messages. The decoded blocks are passed to the parser in file order,
+	 * so that the elements are saved as if the file was read sequentially.
+	 * @param is the input stream
+	 * @param reader the parser that saves the elements
+	 * @throws IOException if the input can't be read
+	 */
+	private void parseParallel(InputStream is, BinParser reader) throws IOException {
+		ExecutorService decoders = Executors.newFixedThreadPool(readThreads, r -> {
+			Thread t = new Thread(r, "pbf-decoder");
+			t.setDaemon(true);
+			return t;
+		});
+		ArrayDeque<Future<DecodedBlock>> pending = new ArrayDeque<>();
+		try {
+			DataInputStream input = new DataInputStream(is);
+			while (true) {
+				int headerSize;
+				try {
+					headerSize = input.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				// check the sizes before the buffers are allocated
+				if (headerSize < 0 || headerSize > MAX_HEADER_SIZE)
+					throw new FormatException("Unexpected blob header size " + headerSize + " in binary file");
+				byte[] buf = new byte[headerSize];
+				input.readFully(buf);
+				Fileformat.BlobHeader header = Fileformat.BlobHeader.parseFrom(buf);
+				if (header.getDatasize() < 0 || header.getDatasize() > MAX_BLOB_SIZE)
+					throw new FormatException("Unexpected blob size " + header.getDatasize() + " in binary file");
+				byte[] blob = new byte[header.getDatasize()];
+				input.readFully(blob);
+
+				String type = header.getType();
+				if (!"OSMHeader".equals(type) && !"OSMData".equals(type))
+					continue; // same as BinaryParser.skipBlock()
+				pending.add(decoders.submit(() -> decode(type, blob)));
+
+				// Limit the number of blocks that are held in memory
+				while (pending.size() > 2 * readThreads)
+					handleNextBlock(pending, reader);
+			}
+			while (!pending.isEmpty())
+				handleNextBlock(pending, reader);
+			reader.complete();
+		} finally {
+			decoders.shutdownNow();
+		}
+	}
+
+	private static void handleNextBlock(ArrayDeque<Future<DecodedBlock>> pending, BinParser reader) throws IOException {
+		DecodedBlock decoded;
+		try {
+			decoded = pending.removeFirst().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExitException("Interrupted while reading binary file");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw new FormatException("Failed to decode block of binary file", cause);
+		}
+		if (decoded.header != null)
+			reader.parse(decoded.header);
+		else
+			reader.parse(decoded.block);
+	}
+
+	/**
+	 * Inflate a blob and parse the message that it contains. This is the
+	 * part of the work that doesn't depend on the elements read before.
+	 */
+	private static DecodedBlock decode(String type, byte[] data) throws IOException, DataFormatException {
+		Fileformat.Blob blob = Fileformat.Blob.parseFrom(data);
+		byte[] raw;
+		if (blob.hasRaw()) {
+			raw = blob.getRaw().toByteArray();
+		} else if (blob.hasZlibData()) {
+			if (blob.getRawSize() < 0 || blob.getRawSize() > MAX_BLOB_SIZE)
+				throw new FormatException("Unexpected raw size " + blob.getRawSize() + " in binary file");
+			raw = new byte[blob.getRawSize()];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(blob.getZlibData().toByteArray());
+				inflater.inflate(raw);
+				if (!inflater.finished())
+					throw new FormatException("Failed to inflate block of binary file");
+			} finally {
+				inflater.end();
+			}
+		} else {
+			throw new FormatException("Unsupported compression in binary file");
+		}
+
+		DecodedBlock decoded = new DecodedBlock();
+		if ("OSMHeader".equals(type))
+			decoded.header = Osmformat.HeaderBlock.parseFrom(raw);
+		else
+			decoded.block = Osmformat.PrimitiveBlock.parseFrom(raw);
+		return decoded;
+	}
+
+	private static class DecodedBlock {
+		private Osmformat.HeaderBlock header;
+		private Osmformat.PrimitiveBlock block;
+	}
+
 	public class BinParser extends BinaryParser {
 
 		protected void parse(Osmformat.HeaderBlock header) {
@@ -13,8 +13,6 @@
 package uk.me.parabola.mkgmap.reader.osm.boundary;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
@@ -87,25 +85,27 @@ public class BoundaryGrid {
 			return null;
 		}
 		else
-			return grid[gridLat][gridLon].get(co);
+			return grid[gridLat][gridLon].get(co, searchBbox);
 	}
 
 	/**
 	 * Fill the grid. Calculate the names of the *.bnd files that 
-	 * may be needed. For each file, try to create a BoundaryQuadTree.
-	 * Save each tree to its place in the grid. 
+	 * may be needed. For each file, get the BoundaryQuadTree from the
+	 * cache that is shared by all tiles. Save each tree to its place in the grid.
 	 * 
 	 * @param boundaryDir
 	 *            Directory or a *.zip file with bnd files
 	 */
 	private void init(String boundaryDirName){
 		List<String> requiredFileNames = BoundaryUtil.getRequiredBoundaryFileNames(searchBbox);
-		Map<String,BoundaryQuadTree> trees = BoundaryUtil.loadQuadTrees(boundaryDirName, requiredFileNames, searchBbox, props);
-		for (Entry<String,BoundaryQuadTree> entry: trees.entrySet()) {
-			uk.me.parabola.imgfmt.app.Area fileBbox = BoundaryUtil.getBbox(entry.getKey());
+		for (String fileName : requiredFileNames) {
+			BoundaryQuadTree bqt = BoundaryQuadTreeCache.get(boundaryDirName, fileName, props);
+			if (bqt == null)
+				continue;
+			uk.me.parabola.imgfmt.app.Area fileBbox = BoundaryUtil.getBbox(fileName);
 			int gridLat = (fileBbox.getMinLat() - minLat) / BoundaryUtil.RASTER;
 			int gridLon = (fileBbox.getMinLong() - minLon) / BoundaryUtil.RASTER;
-			grid[gridLat][gridLon] = entry.getValue();
+			grid[gridLat][gridLon] = bqt;
 		}
 	}
 }
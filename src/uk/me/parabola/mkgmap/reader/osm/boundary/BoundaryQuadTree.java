@@ -24,6 +24,7 @@ import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,6 +34,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.ToIntFunction;
 import java.util.regex.Pattern;
 
 import uk.me.parabola.imgfmt.app.Coord;
@@ -117,6 +119,30 @@ public class BoundaryQuadTree {
 		
 		readStreamQuadTreeFormat(inpStream,searchBbox);
 	}
+
+	/**
+	 * Create a quadtree with the data in a buffer. The rings of the areas
+	 * are not copied, they are read from the buffer when needed.
+	 * @param buf the buffer with version 2 of the QUADTREE_DATA_FORMAT, 
+	 * positioned behind the header
+	 * @param fileBbox	The bounding box for the quadTree 
+	 * @param searchBbox	The bounding box for the quadTree, only data within this box is used 
+	 * @param props if not null, use it to set location names
+	 */
+	public BoundaryQuadTree(ByteBuffer buf,
+			uk.me.parabola.imgfmt.app.Area fileBbox,
+			uk.me.parabola.imgfmt.app.Area searchBbox, EnhancedProperties props) {
+		preparedLocationInfo = new LinkedHashMap<> ();
+		preparer = new BoundaryLocationPreparer(props);
+		assert fileBbox != null: "parameter fileBbox must not be null";
+		this.bbox = new Rectangle(fileBbox.getMinLong(), fileBbox.getMinLat(),
+				fileBbox.getMaxLong() - fileBbox.getMinLong(), fileBbox.getMaxLat()
+				- fileBbox.getMinLat());
+		this.bboxKey = BoundaryUtil.getKey(this.bbox.y, this.bbox.x);
+		root = new Node(this.bbox);
+
+		readBufferQuadTreeFormat(buf, searchBbox);
+	}
 	
 	
 	/**
@@ -174,7 +200,25 @@ public class BoundaryQuadTree {
 	 * The returned Tags must not be modified by the caller.   
 	 */
 	public Tags get(Coord co, boolean tryAlsoNearby) {
-		Tags res = root.get(co);
+		return get(co, tryAlsoNearby, null);
+	}
+
+	/**
+	 * Return location relevant Tags for the point defined by Coord. Like
+	 * {@link #get(Coord)}, but only the boundaries which were read from a
+	 * file and which intersect the search bounding box are used. This gives
+	 * the same result as a tree that was read with this search bounding box.
+	 * @param co the point
+	 * @param searchBbox null or a bounding box
+	 * @return a reference to the internal Tags or null if the point was not found. 
+	 * The returned Tags must not be modified by the caller.   
+	 */
+	public Tags get(Coord co, uk.me.parabola.imgfmt.app.Area searchBbox) {
+		return get(co, true, searchBbox);
+	}
+
+	private Tags get(Coord co, boolean tryAlsoNearby, uk.me.parabola.imgfmt.app.Area searchBbox) {
+		Tags res = root.get(co, searchBbox);
 		if (res == null && tryAlsoNearby) {
 			int lonHp = co.getHighPrecLon();
 			int latHp = co.getHighPrecLat();
@@ -183,18 +227,27 @@ public class BoundaryQuadTree {
 			int radius = 1 << Coord.DELTA_SHIFT;
 			if ( bbox.contains(x, y)) {
 				// try again a few other nearby points
-				res = root.get(Coord.makeHighPrecCoord(latHp + radius, lonHp));
+				res = root.get(Coord.makeHighPrecCoord(latHp + radius, lonHp), searchBbox);
 				if (res == null)
-					res = root.get(Coord.makeHighPrecCoord(latHp, lonHp + radius));
+					res = root.get(Coord.makeHighPrecCoord(latHp, lonHp + radius), searchBbox);
 				if (res == null)
-					res = root.get(Coord.makeHighPrecCoord(latHp - radius, lonHp));
+					res = root.get(Coord.makeHighPrecCoord(latHp - radius, lonHp), searchBbox);
 				if (res == null)
-					res = root.get(Coord.makeHighPrecCoord(latHp, lonHp - radius));
+					res = root.get(Coord.makeHighPrecCoord(latHp, lonHp - radius), searchBbox);
 			}
 		}
 		return res;
 	}
 
+	/**
+	 * Make sure that queries don't change anything in the tree, so that it
+	 * can be used by several threads, and estimate its size.
+	 * @return the estimated number of bytes used by the tree
+	 */
+	long prepareSharedUse() {
+		return 256L * boundaryTags.size() + root.prepareSharedUse();
+	}
+
 	/**
 	 * Return a map with boundary IDs and the related tags.    
 	 * @return the map. It is a LinkedHashMap, the order is created with 
@@ -252,17 +305,69 @@ public class BoundaryQuadTree {
 	}
 	
 	/**
-	 * Save the BoundaryQuadTree to an open stream. The format is QUADTREE_DATA_FORMAT.
+	 * Save the BoundaryQuadTree to an open stream. The format is version 2 of 
+	 * the QUADTREE_DATA_FORMAT:
+	 * <ul>
+	 * <li>a dictionary with all strings, the other parts refer to the strings by their index</li>
+	 * <li>the boundary ids and their tags</li>
+	 * <li>the areas in columns: tree path, boundary id, refs (-1 if not set) 
+	 * and the four values of the bounding box</li>
+	 * <li>the rings of the areas, see {@link BoundaryRings}</li>
+	 * </ul>
+	 * All numbers are written as int values, so that the file can be used
+	 * without decoding it.
 	 * @param stream
 	 * @throws IOException
 	 */
 	public void save(OutputStream stream)throws IOException{
-		// save the tag infos of all boundaries first
+		List<NodeElem> elems = new ArrayList<>();
+		List<String> treePaths = new ArrayList<>();
+		root.collectValidElems(elems, treePaths, "_");
+
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		ToIntFunction<String> index = str -> strings.computeIfAbsent(str, k -> strings.size());
+		ByteArrayOutputStream tagStream = new ByteArrayOutputStream();
+		DataOutputStream tagData = new DataOutputStream(tagStream);
+		tagData.writeInt(boundaryTags.size());
 		for (Entry<String,Tags> entry : boundaryTags.entrySet()){
-			writeBoundaryTags(stream, entry.getValue(), entry.getKey());
+			tagData.writeInt(index.applyAsInt(entry.getKey()));
+			Tags tags = entry.getValue();
+			tagData.writeInt(tags.size());
+			Iterator<Entry<String, String>> tagIter = tags.entryIterator();
+			while (tagIter.hasNext()) {
+				Entry<String, String> tag = tagIter.next();
+				tagData.writeInt(index.applyAsInt(tag.getKey()));
+				tagData.writeInt(index.applyAsInt(tag.getValue()));
+			}
+		}
+		int[][] columns = new int[7][elems.size()];
+		List<Area> areas = new ArrayList<>(elems.size());
+		for (int i = 0; i < elems.size(); i++) {
+			NodeElem nodeElem = elems.get(i);
+			columns[0][i] = index.applyAsInt(treePaths.get(i).substring(1));
+			columns[1][i] = index.applyAsInt(nodeElem.boundaryId);
+			columns[2][i] = (nodeElem.locationDataSrc == null) ? -1 : index.applyAsInt(nodeElem.locationDataSrc);
+			uk.me.parabola.imgfmt.app.Area outBBox = Java2DConverter.createBbox(nodeElem.getArea());
+			columns[3][i] = outBBox.getMinLat();
+			columns[4][i] = outBBox.getMinLong();
+			columns[5][i] = outBBox.getMaxLat();
+			columns[6][i] = outBBox.getMaxLong();
+			areas.add(nodeElem.getArea());
+		}
+
+		DataOutputStream dos = new DataOutputStream(stream);
+		dos.writeInt(strings.size());
+		for (String str : strings.keySet())
+			dos.writeUTF(str);
+		tagData.flush();
+		tagStream.writeTo(dos);
+		dos.writeInt(elems.size());
+		for (int[] column : columns) {
+			for (int val : column)
+				dos.writeInt(val);
 		}
-		// now write the area info for those boundaries that have positions in the quadtree
-		root.save(stream, "_");
+		BoundaryRings.write(dos, areas);
+		dos.flush();
 	}
 
 	/**
@@ -282,40 +387,7 @@ public class BoundaryQuadTree {
 
 
 	/**
-	 * Write the TAGS sections of the QUADTREE_DATA_FORMAT. Each
-	 * section starts with the "TAGS" eye catcher followed by the
-	 * boundary id, the number of tags and the tags as 
-	 * key/value pairs.
-	 * @param stream an already opened OutputStream
-	 * @param tags the boundary tags
-	 * @param id the boundaryId
-	 * @throws IOException
-	 */
-	private static void writeBoundaryTags(OutputStream stream, Tags tags, String id) throws IOException{
-		DataOutputStream dOutStream = new DataOutputStream(stream);
-		dOutStream.writeUTF("TAGS");
-		dOutStream.writeUTF(id);
-		// write the tags
-		int noOfTags = tags.size();
-	
-		dOutStream.writeInt(noOfTags);
-	
-		Iterator<Entry<String, String>> tagIter = tags.entryIterator();
-		while (tagIter.hasNext()) {
-			Entry<String, String> tag = tagIter.next();
-			dOutStream.writeUTF(tag.getKey());
-			dOutStream.writeUTF(tag.getValue());
-			noOfTags--;
-		}
-	
-		assert noOfTags == 0 : "Remaining tags: " + noOfTags + " size: "
-				+ tags.size() + " " + tags.toString();
-	
-		dOutStream.flush();
-	}
-
-	/**
-	 * Read a stream in QUADTREE_DATA_FORMAT 
+	 * Read a stream in version 1 of the QUADTREE_DATA_FORMAT 
 	 * @param inpStream the already opened DataInputStream
 	 * @param searchBBox a bounding box. Areas not intersecting the bbox are 
 	 * ignored. 
@@ -355,7 +427,7 @@ public class BoundaryQuadTree {
 					int bSize = inpStream.readInt();
 					log.debug("Size:",bSize);
 
-					if ( searchBBox == null || searchBBox.intersects(rBbox)) {
+					if (searchBBox == null || searchBBox.intersects(rBbox)) {
 						log.debug("Bbox intersects. Load the boundary");
 						String treePath = inpStream.readUTF();
 						String id = inpStream.readUTF();
@@ -364,8 +436,11 @@ public class BoundaryQuadTree {
 							refs = null;
 						Area area = BoundaryUtil.readAreaAsPath(inpStream);
 						
-						if (area != null && !area.isEmpty())
-							root.add(area, refs, id, treePath);
+						if (area != null && !area.isEmpty()) {
+							NodeElem nodeElem = new NodeElem(id, area, refs);
+							nodeElem.fileBbox = rBbox;
+							root.add(nodeElem, treePath);
+						}
 						else {
 							log.warn(refs,id,treePath,"invalid or empty or too small area");
 						}
@@ -383,6 +458,48 @@ public class BoundaryQuadTree {
 		}
 	}
 
+	/**
+	 * Read version 2 of the QUADTREE_DATA_FORMAT, see {@link #save(OutputStream)}. 
+	 * @param buf the buffer, positioned at the start of the data
+	 * @param searchBBox a bounding box. Areas not intersecting the bbox are 
+	 * ignored. 
+	 */
+	private void readBufferQuadTreeFormat(ByteBuffer buf, uk.me.parabola.imgfmt.app.Area searchBBox) {
+		String[] strings = new String[buf.getInt()];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = BoundaryUtil.readUTF(buf);
+		int numBoundaries = buf.getInt();
+		for (int i = 0; i < numBoundaries; i++) {
+			String id = strings[buf.getInt()];
+			Tags tags = new Tags();
+			int noOfTags = buf.getInt();
+			for (int j = 0; j < noOfTags; j++) {
+				String name = strings[buf.getInt()];
+				String value = strings[buf.getInt()];
+				tags.put(name, value.intern());
+			}
+			boundaryTags.put(id, tags);
+		}
+		prepareLocationInfo();
+
+		int numElems = buf.getInt();
+		int columnPos = buf.position();
+		buf.position(columnPos + 7 * 4 * numElems);
+		BoundaryRings rings = new BoundaryRings(buf);
+		for (int i = 0; i < numElems; i++) {
+			int[] vals = new int[7];
+			for (int j = 0; j < 7; j++)
+				vals[j] = buf.getInt(columnPos + 4 * (j * numElems + i));
+			uk.me.parabola.imgfmt.app.Area rBbox = new uk.me.parabola.imgfmt.app.Area(vals[3], vals[4], vals[5], vals[6]);
+			if (searchBBox == null || searchBBox.intersects(rBbox)) {
+				String refs = (vals[2] < 0) ? null : strings[vals[2]];
+				NodeElem nodeElem = new NodeElem(strings[vals[1]], rings, i, refs);
+				nodeElem.fileBbox = rBbox;
+				root.add(nodeElem, strings[vals[0]]);
+			}
+		}
+	}
+
 	/**
 	 * Fill the map preparedLocationInfo with data from the boundary tags.
 	 */
@@ -437,23 +554,25 @@ public class BoundaryQuadTree {
 		}
 
 		/**
-		 * Travel through the tree, save all usable areas of all leaves 
-		 * @param stream the open OutputStream
+		 * Travel through the tree, collect all usable areas of all leaves 
+		 * @param elems the list that receives the usable elements
+		 * @param treePaths the list that receives the tree path of each element
 		 * @param treePath the path to this tree node
-		 * @throws IOException 
 		 */
-		private void save(OutputStream stream, String treePath )throws IOException{
+		private void collectValidElems(List<NodeElem> elems, List<String> treePaths, String treePath){
 			if (isLeaf){
 				if (nodes != null){
 					for (NodeElem nodeElem :nodes){
-						if (nodeElem.isValid())
-							nodeElem.save(stream, treePath);
+						if (nodeElem.isValid()) {
+							elems.add(nodeElem);
+							treePaths.add(treePath);
+						}
 					}
 				}
 			}
 			else {
 				for (int i = 0; i < 4; i++){
-					childs[i].save(stream, treePath + i);
+					childs[i].collectValidElems(elems, treePaths, treePath + i);
 				}
 			}
 		}
@@ -464,7 +583,7 @@ public class BoundaryQuadTree {
 		 * @return a reference to the internal Tags or null if the point was not found. 
 		 * The returned Tags must not be modified by the caller.   
 		 */
-		private Tags get(Coord co/*, String treePath*/){
+		private Tags get(Coord co, uk.me.parabola.imgfmt.app.Area searchBbox/*, String treePath*/){
 			if (!this.bounds.contains(co))
 				return null;
 			if (isLeaf) {
@@ -473,13 +592,15 @@ public class BoundaryQuadTree {
 				double lon = (double) co.getHighPrecLon() / (1 << Coord.DELTA_SHIFT);
 				double lat = (double) co.getHighPrecLat() / (1 << Coord.DELTA_SHIFT);
 				for (NodeElem nodeElem : nodes) {
-					if (nodeElem.tagMask > 0 && nodeElem.getArea().contains(lon, lat)) {
+					if (nodeElem.tagMask > 0
+							&& (searchBbox == null || nodeElem.fileBbox == null || searchBbox.intersects(nodeElem.fileBbox))
+							&& nodeElem.contains(lon, lat)) {
 						return nodeElem.locTags;
 					}
 				}
 			} else {
 				for (int i = 0; i < 4; i++) {
-					Tags res = childs[i].get(co/* , treePath+i */);
+					Tags res = childs[i].get(co, searchBbox/* , treePath+i */);
 					if (res != null)
 						return res;
 				}
@@ -487,6 +608,34 @@ public class BoundaryQuadTree {
 			return null;
 		}
 
+		/**
+		 * Create the areas of all elements and calculate their bounds so that 
+		 * {@link #get(Coord, uk.me.parabola.imgfmt.app.Area)} doesn't change them.
+		 * @return the estimated number of bytes used by this node
+		 */
+		private long prepareSharedUse() {
+			long bytes = 64;
+			if (isLeaf) {
+				if (nodes != null) {
+					for (NodeElem nodeElem : nodes) {
+						bytes += 128;
+						if (nodeElem.rings != null)
+							continue;
+						Area area = nodeElem.getArea();
+						if (area != null) {
+							area.getBounds2D();
+							for (PathIterator iter = area.getPathIterator(null); !iter.isDone(); iter.next())
+								bytes += 40;
+						}
+					}
+				}
+			} else {
+				for (int i = 0; i < 4; i++)
+					bytes += childs[i].prepareSharedUse();
+			}
+			return bytes;
+		}
+
 		/**
 		 * Debugging helper: Print node Tags and maybe create gpx
 		 * @param prefix identifies the calling routine
@@ -553,15 +702,12 @@ public class BoundaryQuadTree {
 			return ok;
 		}
 		/**
-		 * Add an area and the related tags to the tree. The position in the tree is known
+		 * Add an element to the tree. The position in the tree is known
 		 * and passed via the treePath.
-		 * @param area the part of the boundary area that should be added to the tree.    
-		 * @param refs a string that contains information about other boundaries that share the
-		 * same area
-		 * @param boundaryId id of the originating boundary
+		 * @param nodeElem the element with the part of the boundary area that should be added to the tree.    
 		 * @param treePath empty string: calculate position, else the first character is used as index of the child
 		 */
-		private void add(Area area, String refs, String boundaryId, String treePath){
+		private void add(NodeElem nodeElem, String treePath){
 			Node node = this;
 			String path = treePath;
 			while (!path.isEmpty()) {
@@ -575,8 +721,7 @@ public class BoundaryQuadTree {
 			if (node.nodes == null){
 				node.nodes = new ArrayList<>();
 			}
-			NodeElem nodeElem = new NodeElem(boundaryId, area, refs);
-			assert (area.getBounds2D().getWidth() == 0 || area.getBounds2D().getHeight() == 0 || this.bbox.intersects(area.getBounds2D())) : "boundary bbox doesn't fit into quadtree "+ bbox + " " + area.getBounds2D(); 
+			assert nodeElem.area == null || (nodeElem.area.getBounds2D().getWidth() == 0 || nodeElem.area.getBounds2D().getHeight() == 0 || this.bbox.intersects(nodeElem.area.getBounds2D())) : "boundary bbox doesn't fit into quadtree "+ bbox + " " + nodeElem.area.getBounds2D(); 
 			node.nodes.add(nodeElem);
 		}
 
@@ -975,6 +1120,11 @@ public class BoundaryQuadTree {
 		private Area area;
 		
 		private Shape shape; // for temp. use when splitting
+		// the rings of the area in a buffer, used until the area is needed
+		private BoundaryRings rings;
+		private int ringsIndex;
+		// the bounding box saved in the boundary file or null
+		private uk.me.parabola.imgfmt.app.Area fileBbox;
 		// location relevant tags of boundaries that intersect with the bounding box of this node
 		private Tags locTags;
 
@@ -1001,6 +1151,23 @@ public class BoundaryQuadTree {
 			calcLocTags();
 		}
 
+		/**
+		 * Create a node element with an area that is saved in a buffer. 
+		 * @param boundaryId The boundary Id
+		 * @param rings the rings of the areas in the buffer
+		 * @param ringsIndex the index of the area in rings
+		 * @param refs A string containing boundaryIds and admin level info
+		 * of all boundaries with lower admin levels that share the same area. 
+		 */
+		NodeElem (String boundaryId, BoundaryRings rings, int ringsIndex, String refs){
+			srcPos = -1;
+			this.boundaryId = boundaryId;
+			this.rings = rings;
+			this.ringsIndex = ringsIndex;
+			this.locationDataSrc = refs;
+			calcLocTags();
+		}
+
 		/**
 		 * Create a node element. 
 		 * @param boundaryId The boundary Id
@@ -1134,52 +1301,13 @@ public class BoundaryQuadTree {
 				this.locationDataSrc += ";" + toAdd.locationDataSrc;
 			}
 		}
-		/**
-		 * Write a nodeElem an AREA segment of the QUADTREE_DATA_FORMAT. 
-		 * @param stream the already opened OutputStream
-		 * @param treePath identifies the position within the tree
-		 * @throws IOException
-		 */
-		private void save(OutputStream stream, String treePath) throws IOException{
-			ByteArrayOutputStream oneItemStream = new ByteArrayOutputStream();
-			try(DataOutputStream dos = new DataOutputStream(oneItemStream)){
-				String id = this.boundaryId;
-				dos.writeUTF(treePath.substring(1));
-				dos.writeUTF(id);
-				if (this.locationDataSrc == null)
-					dos.writeUTF("");
-				else 
-					dos.writeUTF(this.locationDataSrc);
-				BoundarySaver.writeArea(dos, this.getArea());
-			}
-			// now start to write into the real stream
-
-			// first write the bounding box so that is possible to skip the
-			// complete entry
-			uk.me.parabola.imgfmt.app.Area outBBox = Java2DConverter.createBbox(this.getArea());
-			DataOutputStream dOutStream = new DataOutputStream(stream);
-			dOutStream.writeUTF("AREA");
-			dOutStream.writeInt(outBBox.getMinLat());
-			dOutStream.writeInt(outBBox.getMinLong());
-			dOutStream.writeInt(outBBox.getMaxLat());
-			dOutStream.writeInt(outBBox.getMaxLong());
-
-			// write the size of the boundary block so that it is possible to
-			// skip it
-			byte[] data = oneItemStream.toByteArray();
-			assert data.length > 0 : "bSize is not > 0 : " + data.length;
-			dOutStream.writeInt(data.length);
-
-			// write the boundary block
-			dOutStream.write(data);
-			dOutStream.flush();
-		}
-
-
 		private Area getArea(){
 			if (shape != null){
 				area = new Area(shape);
 				shape = null;
+			} else if (rings != null) {
+				area = rings.createArea(ringsIndex);
+				rings = null;
 			}
 			return area;
 		}
@@ -1187,6 +1315,17 @@ public class BoundaryQuadTree {
 		private void setArea(Area area) {
 			this.area = area;
 			this.shape = null;
+			this.rings = null;
+		}
+
+		/**
+		 * Check if the area contains a point. Doesn't create the area 
+		 * if it is still saved in a buffer.
+		 */
+		private boolean contains(double lon, double lat) {
+			if (rings != null)
+				return rings.contains(ringsIndex, lon, lat);
+			return getArea().contains(lon, lat);
 		}
 
 
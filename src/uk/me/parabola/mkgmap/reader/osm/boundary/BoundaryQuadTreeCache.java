@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.boundary;
+
+import java.util.Collections;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.mkgmap.build.LocatorUtil;
+import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.SizeLimitedCache;
+
+/**
+ * Holds the BoundaryQuadTrees of the *.bnd files for all tiles that are
+ * built, so that each file is only read once although neighbouring tiles
+ * need the same files.
+ *
+ * The trees are loaded completely, the tiles only ask for points within
+ * their own bounding box (see {@link BoundaryQuadTree#get(uk.me.parabola.imgfmt.app.Coord,
+ * uk.me.parabola.imgfmt.app.Area)}). A loaded tree is not modified any more,
+ * so it can be queried by several threads. When the estimated size of all
+ * trees exceeds {@link #MAX_SIZE}, the least recently used trees are dropped
+ * (see {@link SizeLimitedCache}).
+ */
+final class BoundaryQuadTreeCache {
+	/** The estimated number of bytes that the loaded trees may use. */
+	private static final long MAX_SIZE = Runtime.getRuntime().maxMemory() / 8;
+
+	// the size of a missing file is small, but not 0
+	private static final SizeLimitedCache<String, BoundaryQuadTree> trees = new SizeLimitedCache<>(
+			"boundary file", MAX_SIZE, bqt -> bqt == null ? 64 : bqt.prepareSharedUse());
+
+	private BoundaryQuadTreeCache() {
+	}
+
+	/**
+	 * Get the BoundaryQuadTree for a *.bnd file. The file is read if the tree
+	 * is not in the cache. When several threads ask for the same file at the
+	 * same time, only one of them reads it.
+	 * @param boundaryDirName a directory name or zip file containing the *.bnd file
+	 * @param boundaryFileName the *.bnd file name
+	 * @param props the properties to be used for the locator
+	 * @return the complete quadtree or null if the file doesn't exist or cannot be read.
+	 * The tree must not be modified by the caller.
+	 */
+	static BoundaryQuadTree get(String boundaryDirName, String boundaryFileName, EnhancedProperties props) {
+		// the location info in the tree depends on these options
+		String key = boundaryDirName + '|' + boundaryFileName + '|' + CommandArgs.getNameTags(props) + '|'
+				+ LocatorUtil.parseAutofillOption(props);
+		try {
+			return trees.get(key, () -> BoundaryUtil.loadQuadTrees(boundaryDirName,
+					Collections.singletonList(boundaryFileName), null, props).get(boundaryFileName));
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			// the loader doesn't throw checked exceptions
+			throw new ExitException("Failed to load boundary file " + boundaryFileName, e);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.boundary;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * The rings of the areas in a boundary file with the QUADTREE format
+ * version 2. The rings are kept in the (usually memory mapped) buffer
+ * of the file in three columns:
+ * <ul>
+ * <li>for each area the index of its first ring, followed by the total number of rings</li>
+ * <li>for each ring the index of its first point, followed by the total number of points</li>
+ * <li>the x and y values of all points as doubles</li>
+ * </ul>
+ * Each ring is implicitly closed.
+ *
+ * {@link #contains(int, double, double)} gives the same result as
+ * {@link Area#contains(double, double)} of the area that is created from
+ * the rings, so the areas are only created when they are really needed.
+ * Queries don't change anything, they can be done by several threads.
+ */
+class BoundaryRings {
+	private final ByteBuffer buf;
+	private final int ringStartPos;
+	private final int pointStartPos;
+	private final int coordPos;
+
+	/**
+	 * Read the column positions of the rings. The position of the buffer is
+	 * moved behind the rings.
+	 * @param buf the buffer, positioned at the start of the rings
+	 */
+	BoundaryRings(ByteBuffer buf) {
+		this.buf = buf;
+		int numAreas = buf.getInt();
+		ringStartPos = buf.position();
+		buf.position(ringStartPos + 4 * (numAreas + 1));
+		int numRings = buf.getInt();
+		pointStartPos = buf.position();
+		buf.position(pointStartPos + 4 * (numRings + 1));
+		int numPoints = buf.getInt();
+		coordPos = buf.position();
+		buf.position(coordPos + 16 * numPoints);
+	}
+
+	private int ringStart(int area) {
+		return buf.getInt(ringStartPos + 4 * area);
+	}
+
+	private int pointStart(int ring) {
+		return buf.getInt(pointStartPos + 4 * ring);
+	}
+
+	private double getX(int point) {
+		return buf.getDouble(coordPos + 16 * point);
+	}
+
+	private double getY(int point) {
+		return buf.getDouble(coordPos + 16 * point + 8);
+	}
+
+	/**
+	 * Check if an area contains a point. The edges are tested like
+	 * java.awt.geom.Area does it: a horizontal ray from the point to the
+	 * right crosses an edge if the point is within the half-open y range
+	 * of the edge and left of it.
+	 * @param area the index of the area
+	 * @param x the x value (longitude) of the point
+	 * @param y the y value (latitude) of the point
+	 * @return true if the point is inside
+	 */
+	boolean contains(int area, double x, double y) {
+		int crossings = 0;
+		int endRing = ringStart(area + 1);
+		for (int ring = ringStart(area); ring < endRing; ring++) {
+			int first = pointStart(ring);
+			int end = pointStart(ring + 1);
+			double prevX = getX(end - 1);
+			double prevY = getY(end - 1);
+			for (int i = first; i < end; i++) {
+				double currX = getX(i);
+				double currY = getY(i);
+				if (crosses(prevX, prevY, currX, currY, x, y))
+					crossings++;
+				prevX = currX;
+				prevY = currY;
+			}
+		}
+		return (crossings & 1) == 1;
+	}
+
+	private static boolean crosses(double ax, double ay, double bx, double by, double x, double y) {
+		double x0, y0, x1, y1;
+		if (ay < by) {
+			x0 = ax; y0 = ay; x1 = bx; y1 = by;
+		} else {
+			x0 = bx; y0 = by; x1 = ax; y1 = ay;
+		}
+		if (y < y0 || y >= y1)
+			return false;
+		if (x >= Math.max(x0, x1))
+			return false;
+		if (x < Math.min(x0, x1))
+			return true;
+		return x < xForY(x0, y0, x1, y1, y);
+	}
+
+	private static double xForY(double x0, double y0, double x1, double y1, double y) {
+		if (x0 == x1 || y <= y0)
+			return x0;
+		if (y >= y1)
+			return x1;
+		return x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+	}
+
+	/**
+	 * Create the area from its rings.
+	 * @param area the index of the area
+	 * @return a new Area instance
+	 */
+	Area createArea(int area) {
+		Path2D.Double path = new Path2D.Double(PathIterator.WIND_NON_ZERO, 1024);
+		int endRing = ringStart(area + 1);
+		for (int ring = ringStart(area); ring < endRing; ring++) {
+			int first = pointStart(ring);
+			int end = pointStart(ring + 1);
+			path.moveTo(getX(first), getY(first));
+			for (int i = first + 1; i < end; i++)
+				path.lineTo(getX(i), getY(i));
+			path.closePath();
+		}
+		return new Area(path);
+	}
+
+	/**
+	 * Write the rings of the given areas in the format that is read by
+	 * {@link #BoundaryRings(ByteBuffer)}.
+	 * @param dos the stream
+	 * @param areas the areas
+	 * @throws IOException
+	 */
+	static void write(DataOutputStream dos, List<Area> areas) throws IOException {
+		IntArrayList ringStarts = new IntArrayList();
+		IntArrayList pointStarts = new IntArrayList();
+		ByteArrayOutputStream coordStream = new ByteArrayOutputStream();
+		DataOutputStream coords = new DataOutputStream(coordStream);
+		int numPoints = 0;
+		double[] res = new double[6];
+		for (Area area : areas) {
+			ringStarts.add(pointStarts.size());
+			for (PathIterator pit = area.getPathIterator(null); !pit.isDone(); pit.next()) {
+				int type = pit.currentSegment(res);
+				if (type == PathIterator.SEG_MOVETO)
+					pointStarts.add(numPoints);
+				if (type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_LINETO) {
+					coords.writeDouble(res[0]);
+					coords.writeDouble(res[1]);
+					numPoints++;
+				}
+			}
+		}
+		ringStarts.add(pointStarts.size());
+		pointStarts.add(numPoints);
+
+		dos.writeInt(areas.size());
+		for (int i = 0; i < ringStarts.size(); i++)
+			dos.writeInt(ringStarts.getInt(i));
+		dos.writeInt(pointStarts.size() - 1);
+		for (int i = 0; i < pointStarts.size(); i++)
+			dos.writeInt(pointStarts.getInt(i));
+		dos.writeInt(numPoints);
+		coords.flush();
+		coordStream.writeTo(dos);
+	}
+}
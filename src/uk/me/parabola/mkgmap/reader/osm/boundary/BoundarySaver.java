@@ -43,6 +43,8 @@ public class BoundarySaver {
 	public static final String RAW_DATA_FORMAT = "RAW";
 	public static final String QUADTREE_DATA_FORMAT = "QUADTREE";
 	public static final int CURRENT_RECORD_ID = 1;
+	/** the QUADTREE_DATA_FORMAT is written in the flat version, see BoundaryQuadTree.save() */
+	public static final int QUADTREE_RECORD_ID = 2;
 	
 	public static final double RESET_DELTA = Double.POSITIVE_INFINITY; 
 
@@ -270,7 +272,7 @@ public class BoundarySaver {
 		ByteArrayOutputStream headerStream = new ByteArrayOutputStream();
 		try(DataOutputStream headerDataStream = new DataOutputStream(headerStream)){
 			headerDataStream.writeUTF(dataFormat);
-			headerDataStream.writeInt(CURRENT_RECORD_ID);
+			headerDataStream.writeInt(QUADTREE_DATA_FORMAT.equals(dataFormat) ? QUADTREE_RECORD_ID : CURRENT_RECORD_ID);
 			headerDataStream.writeUTF(Version.VERSION);
 		}
 		
@@ -20,12 +20,18 @@ import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -57,6 +63,7 @@ public class BoundaryUtil {
 	private static final int UNKNOWN_DATA_FORMAT = 0;
 	private static final int RAW_DATA_FORMAT_V1 = 2;
 	private static final int QUADTREE_DATA_FORMAT_V1 = 3;
+	private static final int QUADTREE_DATA_FORMAT_V2 = 4;
 	public static final double MIN_DIMENSION = 0.0000001;
 	/**
 	 * Calculate the polygons that describe the area.
@@ -155,8 +162,8 @@ public class BoundaryUtil {
 				// no support for nested directories
 				File boundaryFile = new File(boundaryDir, boundaryFileName);
 				if (boundaryFile.exists()){
-					try(InputStream stream = new FileInputStream(boundaryFile)){
-						bqt = BoundaryUtil.loadQuadTreeFromStream(stream, boundaryFileName, searchBbox, props);
+					try(FileInputStream stream = new FileInputStream(boundaryFile)){
+						bqt = BoundaryUtil.loadQuadTreeFromStream(stream, stream.getChannel(), boundaryFileName, searchBbox, props);
 						if (bqt != null)
 							trees.put(boundaryFileName,bqt);
 					} catch (IOException exp) {
@@ -174,7 +181,7 @@ public class BoundaryUtil {
 					ZipEntry entry = zipFile.getEntry(boundaryFileName);
 					if (entry != null){ 
 						try(InputStream stream = zipFile.getInputStream(entry)){
-							bqt = BoundaryUtil.loadQuadTreeFromStream(stream, boundaryFileName, searchBbox, props);
+							bqt = BoundaryUtil.loadQuadTreeFromStream(stream, null, boundaryFileName, searchBbox, props);
 							if (bqt != null)
 								trees.put(boundaryFileName,bqt);
 						}
@@ -441,6 +448,8 @@ public class BoundaryUtil {
 	 * Create and fill a BoundaryQuadTree. Read the header of the stream to detect
 	 * the proper reading routine for the different supported formats.
 	 * @param stream an already opened InputStream
+	 * @param channel null or the channel of a file stream. If not null, 
+	 * version 2 of the QUADTREE_DATA_FORMAT is read through a memory mapping.
 	 * @param fname the file name of the corresponding *.bnd file
 	 * @param searchBbox a bounding box or null. If not null, area info outside of this
 	 * bounding box is ignored. 
@@ -449,12 +458,13 @@ public class BoundaryUtil {
 	 * @throws IOException
 	 */
 	private static BoundaryQuadTree loadQuadTreeFromStream(InputStream stream, 
-			String fname,
+			FileChannel channel, String fname,
 			uk.me.parabola.imgfmt.app.Area searchBbox, 
 			EnhancedProperties props)throws IOException{
 		BoundaryQuadTree bqt = null;
 		uk.me.parabola.imgfmt.app.Area qtBbox = getBbox(fname);
-		try (DataInputStream inpStream = new DataInputStream(new BufferedInputStream(stream, 1024 * 1024))){
+		// the header is read without buffer so that the position of the stream is known
+		try (DataInputStream inpStream = new DataInputStream(stream)){
 			try {
 				// 1st read the mkgmap release the boundary file is created by
 				String mkgmapRel = "?";
@@ -486,17 +496,28 @@ public class BoundaryUtil {
 					format = RAW_DATA_FORMAT_V1;
 				else if ("QUADTREE".equals(dataFormat) && recordVersion == 1)
 					format = QUADTREE_DATA_FORMAT_V1;
+				else if ("QUADTREE".equals(dataFormat) && recordVersion == 2)
+					format = QUADTREE_DATA_FORMAT_V2;
 
 				if (log.isDebugEnabled()) {
 					log.debug("File created by mkgmap release",mkgmapRel,"at",new Date(createTime));
 				}
 				
 				switch (format) {
+				case QUADTREE_DATA_FORMAT_V2:
+					ByteBuffer buf;
+					if (channel != null)
+						buf = channel.map(MapMode.READ_ONLY, channel.position(), channel.size() - channel.position());
+					else 
+						buf = ByteBuffer.wrap(readFully(inpStream));
+					if (buf.hasRemaining())
+						bqt = new BoundaryQuadTree(buf, qtBbox, searchBbox, props);
+					break;
 				case QUADTREE_DATA_FORMAT_V1:
-					bqt = new BoundaryQuadTree(inpStream, qtBbox, searchBbox, props);
+					bqt = new BoundaryQuadTree(new DataInputStream(new BufferedInputStream(stream, 1024 * 1024)), qtBbox, searchBbox, props);
 					break;
 				case RAW_DATA_FORMAT_V1:
-					List<Boundary> boundaryList = readStreamRawFormat(inpStream, fname,searchBbox);
+					List<Boundary> boundaryList = readStreamRawFormat(new DataInputStream(new BufferedInputStream(stream, 1024 * 1024)), fname,searchBbox);
 					if (boundaryList == null || boundaryList.isEmpty())
 						return null;
 					boundaryList = mergePostalCodes(boundaryList);
@@ -509,13 +530,45 @@ public class BoundaryUtil {
 				// it's always thrown at the end of the file
 				//				log.error("Got EOF at the end of the file");
 			} 
-			catch (FormatException exp) {
-				log.error("Failed to read boundary file " + fname + " " + exp.getMessage());
+			catch (FormatException | BufferUnderflowException | IndexOutOfBoundsException exp) {
+				log.error("Failed to read boundary file " + fname + " " + exp);
 			} 
 		} 
 		return bqt;
 	}
 	
+	/**
+	 * Read the rest of a stream.
+	 * @param stream the stream
+	 * @return the bytes
+	 * @throws IOException
+	 */
+	private static byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buf = new byte[64 * 1024];
+		int n;
+		while ((n = stream.read(buf)) > 0)
+			bytes.write(buf, 0, n);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Read a string that was written with {@link DataOutputStream#writeUTF(String)}. 
+	 * @param buf the buffer, the position is moved behind the string
+	 * @return the string
+	 */
+	static String readUTF(ByteBuffer buf) {
+		int len = buf.getShort() & 0xffff;
+		byte[] bytes = new byte[len + 2];
+		buf.position(buf.position() - 2);
+		buf.get(bytes);
+		try {
+			return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+		} catch (IOException e) {
+			throw new FormatException("Invalid string in boundary file: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * Merges boundaries with the same postal code.
 	 * @param boundaries a list of boundaries
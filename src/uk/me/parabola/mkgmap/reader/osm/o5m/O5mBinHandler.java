@@ -14,9 +14,13 @@ package uk.me.parabola.mkgmap.reader.osm.o5m;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.mkgmap.reader.osm.Element;
@@ -24,12 +28,23 @@ import uk.me.parabola.mkgmap.reader.osm.GeneralRelation;
 import uk.me.parabola.mkgmap.reader.osm.Node;
 import uk.me.parabola.mkgmap.reader.osm.OsmHandler;
 import uk.me.parabola.mkgmap.reader.osm.Relation;
+import uk.me.parabola.mkgmap.reader.osm.TagDict;
 import uk.me.parabola.mkgmap.reader.osm.Way;
 
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
 /**
  * Parser for the o5m format described here: http://wiki.openstreetmap.org/wiki/O5m
  * The routines to are based on the osmconvert.c source from Markus Weber who allows 
  * to copy them for any o5m IO, thanks a lot for that. 
+ *
+ * An uncompressed file can be read through a memory mapping (option
+ * --mapped-input), the data sets are then decoded directly from the mapped
+ * buffer instead of being copied into a heap buffer first.
+ *
+ * The entries of the string table remember the {@link TagDict} key and the
+ * cleaned value of a tag, so that tags which are referenced again are added
+ * without further string operations.
  * @author GerdP  
  *
  */
@@ -51,6 +66,14 @@ public class O5mBinHandler extends OsmHandler{
 	private static final int MAX_STRING_PAIR_SIZE = 250 + 2;
 	private static final String[] REL_REF_TYPES = {"node", "way", "relation", "?"};
 	private static final double FACTOR = 1d/1_000_000_000; // used with 100*<Val>*FACTOR 
+
+	// values in keyTable
+	private static final short KEY_UNKNOWN = -1;
+	private static final short KEY_DROPPED = 0;
+
+	// size of the mapped part of the file
+	private static final int MAP_WINDOW_SIZE = 1 << 30;
+	private static final int KEY_CACHE_SIZE = 1 << 12;
 	
 	private BufferedInputStream fis;
 	private InputStream is;
@@ -58,12 +81,22 @@ public class O5mBinHandler extends OsmHandler{
 	// buffer for byte -> String conversions
 	private byte[] cnvBuffer; 
 	
-	private byte[] ioBuf;
+	private byte[] ioArray;
+	private ByteBuffer ioBuf;
 	private int ioBufPos;
 	// the o5m string table
 	private String[][] stringTable;
 	private String[] stringPair;
 	private int currStringTablePos;
+	// the position of stringPair in the string table or -1
+	private int stringPairPos;
+	// for tags in the string table: the TagDict key or KEY_UNKNOWN, KEY_DROPPED
+	private short[] keyTable;
+	// for tags in the string table: the cleaned value
+	private String[] valTable;
+	// recently decoded tag keys
+	private final byte[][] keyCacheBytes = new byte[KEY_CACHE_SIZE][];
+	private final String[] keyCacheStrings = new String[KEY_CACHE_SIZE];
 	// a counter that must be maintained by all routines that read data from the stream
 	private int bytesToRead;
 	// total number of bytes read from stream
@@ -96,15 +129,20 @@ public class O5mBinHandler extends OsmHandler{
 	 */
 	@Override
 	public void parse(InputStream stream) {
-		this.fis = new BufferedInputStream(stream);
-		is = fis;
 		this.cnvBuffer = new byte[4000]; // OSM data should not contain string pairs with length > 512
-		this.ioBuf = new byte[8192];
 		this.ioBufPos = 0;
 		this.stringPair = new String[2];
 		this.lastRef = new long[3];
 		reset();
 		try {
+			if (mapInput && stream instanceof FileInputStream) {
+				readMappedFile(((FileInputStream) stream).getChannel());
+				return;
+			}
+			this.fis = new BufferedInputStream(stream);
+			is = fis;
+			this.ioArray = new byte[8192];
+			this.ioBuf = ByteBuffer.wrap(ioArray);
 			int start = is.read();
 			++countBytes;
 			if (start != RESET_FLAG)
@@ -136,35 +174,98 @@ public class O5mBinHandler extends OsmHandler{
 				case BBOX_DATASET:
 				case TIMESTAMP_DATASET:
 				case HEADER_DATASET:
-					if (bytesToRead > ioBuf.length) {
-						ioBuf = new byte[bytesToRead + 100];
+					if (bytesToRead > ioArray.length) {
+						ioArray = new byte[bytesToRead + 100];
+						ioBuf = ByteBuffer.wrap(ioArray);
 					}
 					int bytesRead = 0;
 					int neededBytes = bytesToRead;
 					while (neededBytes > 0) {
-						bytesRead += is.read(ioBuf, bytesRead, neededBytes);
+						bytesRead += is.read(ioArray, bytesRead, neededBytes);
 						neededBytes -= bytesRead;
 					}
 					ioBufPos = 0;
-					is = new ByteArrayInputStream(ioBuf, 0, bytesToRead);
+					is = new ByteArrayInputStream(ioArray, 0, bytesToRead);
 					break;
 				default:	
 				}
 			}
 			if (fileType == EOF_FLAG) done = true; 
-			else if (fileType == NODE_DATASET) readNode();
-			else if (fileType == WAY_DATASET) readWay();
-			else if (fileType == REL_DATASET) readRel();
-			else if (fileType == BBOX_DATASET) readBBox();
-			else if (fileType == TIMESTAMP_DATASET) readFileTimestamp();
-			else if (fileType == HEADER_DATASET) readHeader();
 			else if (fileType == EOD_FLAG) done = true;
 			else if (fileType == RESET_FLAG) reset();
-			else {
+			else if (!readDataSet(fileType)) {
 				if (fileType < 0xf0 ) skip(size); // skip unknown data set 
 			}
 		}
 	}
+
+	/**
+	 * Decode a data set that starts at ioBufPos in ioBuf.
+	 * @param fileType the type of the data set
+	 * @return false if the type is unknown
+	 * @throws IOException in case of error
+	 */
+	private boolean readDataSet(int fileType) throws IOException {
+		switch (fileType) {
+		case NODE_DATASET: readNode(); break;
+		case WAY_DATASET: readWay(); break;
+		case REL_DATASET: readRel(); break;
+		case BBOX_DATASET: readBBox(); break;
+		case TIMESTAMP_DATASET: readFileTimestamp(); break;
+		case HEADER_DATASET: readHeader(); break;
+		default: return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Read the file through a memory mapping. Large files are mapped in
+	 * parts of MAP_WINDOW_SIZE bytes, a data set is never split.
+	 * @param chan the channel of the input file
+	 * @throws IOException in case of error
+	 */
+	private void readMappedFile(FileChannel chan) throws IOException {
+		long fileSize = chan.size();
+		long winStart = 0;
+		long winEnd = 0;
+		long filePos = 0;
+		while (filePos < fileSize) {
+			// the type and length of a data set need less than 16 bytes
+			if (filePos + 16 > winEnd && winEnd < fileSize) {
+				winStart = filePos;
+				winEnd = Math.min(fileSize, winStart + MAP_WINDOW_SIZE);
+				ioBuf = chan.map(READ_ONLY, winStart, winEnd - winStart);
+			}
+			countBytes = filePos;
+			ioBufPos = (int) (filePos - winStart);
+			int fileType = ioBuf.get(ioBufPos++) & 0xff;
+			if (filePos == 0 && fileType != RESET_FLAG)
+				throw new IOException("wrong header byte " + fileType);
+			if (fileType >= 0xf0) {
+				if (fileType == EOD_FLAG)
+					break;
+				if (fileType == RESET_FLAG)
+					reset();
+				filePos++;
+				continue;
+			}
+			long size = readUnsignedNum64();
+			long dataStart = winStart + ioBufPos;
+			if (dataStart + size > winEnd) {
+				if (size > MAP_WINDOW_SIZE)
+					throw new IOException("data set too large: " + size + " bytes");
+				winStart = dataStart;
+				winEnd = Math.min(fileSize, winStart + MAP_WINDOW_SIZE);
+				if (dataStart + size > winEnd)
+					throw new IOException("unexpected end of file");
+				ioBuf = chan.map(READ_ONLY, winStart, winEnd - winStart);
+				ioBufPos = 0;
+			}
+			bytesToRead = (int) size;
+			readDataSet(fileType);
+			filePos = dataStart + size;
+		}
+	}
 	
 	/**
 	 * Read (and ignore) the file timestamp data set.
@@ -296,20 +397,39 @@ public class O5mBinHandler extends OsmHandler{
 	
 	private boolean readTags(Element elem) {
 		boolean tagsIncomplete = false;
+		boolean isRel = elem instanceof Relation;
 		while (bytesToRead > 0) {
 			readStringPair();
 			String key = stringPair[0];
 			String val = stringPair[1];
 			// the type tag is required for relations - all other tags are filtered
-			if (elem instanceof Relation && "type".equals(key))
+			if (isRel && "type".equals(key)) {
 				// intern the string
-				key = "type";
-			else
+				elem.addTagFromRawOSM("type", val);
+			} else if (stringPairPos >= 0) {
+				// the pair is in the string table, remember what we did with it
+				short tagKey = keyTable[stringPairPos];
+				if (tagKey == KEY_UNKNOWN) {
+					key = keepTag(key, val);
+					if (key == null) {
+						tagKey = KEY_DROPPED;
+					} else {
+						tagKey = TagDict.getInstance().xlate(key);
+						valTable[stringPairPos] = elem.cleanRawValue(key, val);
+					}
+					keyTable[stringPairPos] = tagKey;
+				}
+				if (tagKey == KEY_DROPPED)
+					tagsIncomplete = true;
+				else
+					elem.addTag(tagKey, valTable[stringPairPos]);
+			} else {
 				key = keepTag(key, val);
-			if (key != null)
-				elem.addTagFromRawOSM(key, val);
-			else
-				tagsIncomplete = true;
+				if (key != null)
+					elem.addTagFromRawOSM(key, val);
+				else
+					tagsIncomplete = true;
+			}
 		}
 		assert bytesToRead == 0;
 		return tagsIncomplete;
@@ -321,6 +441,9 @@ public class O5mBinHandler extends OsmHandler{
 	private void storeStringPair() {
 		stringTable[0][currStringTablePos] = stringPair[0];
 		stringTable[1][currStringTablePos] = stringPair[1];
+		keyTable[currStringTablePos] = KEY_UNKNOWN;
+		valTable[currStringTablePos] = null;
+		stringPairPos = currStringTablePos;
 		++currStringTablePos;
 		if (currStringTablePos >= STRING_TABLE_SIZE)
 			currStringTablePos = 0;
@@ -338,6 +461,7 @@ public class O5mBinHandler extends OsmHandler{
 			pos += STRING_TABLE_SIZE;
 		stringPair[0] = stringTable[0][pos];
 		stringPair[1] = stringTable[1][pos];
+		stringPairPos = pos;
 	}
 
 	/**
@@ -391,7 +515,7 @@ public class O5mBinHandler extends OsmHandler{
 		long toReadStart = bytesToRead;
 		int stringRef = readUnsignedNum32();
 		if (stringRef == 0) {
-			refType = ioBuf[ioBufPos++] - 0x30;
+			refType = ioBuf.get(ioBufPos++) - 0x30;
 			--bytesToRead;
 
 			if (refType < 0 || refType > 2)
@@ -422,11 +546,10 @@ public class O5mBinHandler extends OsmHandler{
 		int stringRef = readUnsignedNum32();
 		if (stringRef == 0) {
 			long toReadStart = bytesToRead;
-			int cnt = 0;
-			while (cnt < 2) {
-				stringPair[cnt++] = readString();
-			}
+			stringPair[0] = readKeyString();
+			stringPair[1] = readString();
 			long bytes = toReadStart - bytesToRead;
+			stringPairPos = -1;
 			if (bytes <= MAX_STRING_PAIR_SIZE)
 				storeStringPair();
 		} else {
@@ -439,13 +562,54 @@ public class O5mBinHandler extends OsmHandler{
 	 * @throws IOException
 	 */
 	private String readString() {
+		int length = readStringBytes();
+		return new String(cnvBuffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a zero-terminated string that is a tag key. There are only a few
+	 * different keys, so the String is taken from a cache when possible.
+	 */
+	private String readKeyString() {
+		int length = readStringBytes();
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = 31 * hash + cnvBuffer[i];
+		int slot = (hash ^ (hash >>> 12)) & (KEY_CACHE_SIZE - 1);
+		byte[] cached = keyCacheBytes[slot];
+		if (cached != null && sameBytes(cached, length))
+			return keyCacheStrings[slot];
+		String key = new String(cnvBuffer, 0, length, StandardCharsets.UTF_8);
+		keyCacheBytes[slot] = Arrays.copyOf(cnvBuffer, length);
+		keyCacheStrings[slot] = key;
+		return key;
+	}
+
+	/**
+	 * @return true if the first length bytes of cnvBuffer are the given bytes
+	 */
+	private boolean sameBytes(byte[] bytes, int length) {
+		if (bytes.length != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != cnvBuffer[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Copy the bytes of a zero-terminated string into cnvBuffer.
+	 * @return the length of the string
+	 */
+	private int readStringBytes() {
 		int length = 0;
 		while (true) {
-			final int b = ioBuf[ioBufPos++];
+			final byte b = ioBuf.get(ioBufPos++);
 			--bytesToRead;
 			if (b == 0)
-				return new String(cnvBuffer, 0, length, StandardCharsets.UTF_8);
-			cnvBuffer[length++] = (byte) b;
+				return length;
+			cnvBuffer[length++] = b;
 		}
 	}
 	
@@ -456,6 +620,8 @@ public class O5mBinHandler extends OsmHandler{
 		lastTs = 0; lastChangeSet = 0;
 		lastLon = 0; lastLat = 0;
 		stringTable = new String[2][STRING_TABLE_SIZE];
+		keyTable = new short[STRING_TABLE_SIZE];
+		valTable = new String[STRING_TABLE_SIZE];
 		currStringTablePos = 0;
 	}
 
@@ -464,7 +630,8 @@ public class O5mBinHandler extends OsmHandler{
 	 * @throws IOException in case of error
 	 */
 	private void readHeader() throws IOException {
-		if (ioBuf[0] != 'o' || ioBuf[1] != '5' || (ioBuf[2] != 'c' && ioBuf[2] != 'm') || ioBuf[3] != '2') {
+		if (ioBuf.get(ioBufPos) != 'o' || ioBuf.get(ioBufPos + 1) != '5'
+				|| (ioBuf.get(ioBufPos + 2) != 'c' && ioBuf.get(ioBufPos + 2) != 'm') || ioBuf.get(ioBufPos + 3) != '2') {
 			throw new IOException("unsupported header");
 		}
 	}
@@ -483,7 +650,7 @@ public class O5mBinHandler extends OsmHandler{
 	 */
 	private long readSignedNum64() {
 		long result;
-		int b = ioBuf[ioBufPos++];
+		int b = ioBuf.get(ioBufPos++);
 		--bytesToRead;
 		result = b;
 		if ((b & 0x80) == 0) { // just one byte
@@ -495,7 +662,7 @@ public class O5mBinHandler extends OsmHandler{
 		int sign = b & 0x01;
 		result = (result & 0x7e) >> 1;
 		int shift = 6;
-		while (((b = ioBuf[ioBufPos++]) & 0x80) != 0) { // more bytes will follow
+		while (((b = ioBuf.get(ioBufPos++)) & 0x80) != 0) { // more bytes will follow
 			--bytesToRead;
 			result += ((long) (b & 0x7f)) << shift;
 			shift += 7;
@@ -538,7 +705,7 @@ public class O5mBinHandler extends OsmHandler{
 	 * @return the number as long
 	 */
 	private long readUnsignedNum64() {
-		int b = ioBuf[ioBufPos++];
+		int b = ioBuf.get(ioBufPos++);
 		--bytesToRead;
 		long result = b;
 		if ((b & 0x80) == 0) { // just one byte
@@ -546,7 +713,7 @@ public class O5mBinHandler extends OsmHandler{
 		}
 		result &= 0x7f;
 		int shift = 7;
-		while (((b = ioBuf[ioBufPos++]) & 0x80) != 0) { // more bytes will follow
+		while (((b = ioBuf.get(ioBufPos++)) & 0x80) != 0) { // more bytes will follow
 			--bytesToRead;
 			result += ((long) (b & 0x7f)) << shift;
 			shift += 7;
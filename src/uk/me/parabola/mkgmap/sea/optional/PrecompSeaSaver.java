@@ -36,6 +36,7 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.PrecompSeaFile;
 import uk.me.parabola.mkgmap.reader.osm.SeaGenerator;
 import uk.me.parabola.mkgmap.reader.osm.Way;
 import uk.me.parabola.splitter.BinaryMapWriter;
@@ -44,6 +45,9 @@ import uk.me.parabola.splitter.OSMWriter;
 import uk.me.parabola.splitter.OSMXMLWriter;
 
 class PrecompSeaSaver implements Runnable {
+	/** The name of the file that contains all tiles, see {@link PrecompSeaFile} */
+	public static final String SEA_FILE_NAME = "sea.bin";
+
 	private final AtomicBoolean finished = new AtomicBoolean(false);
 	private final CountDownLatch finishWait;
 
@@ -70,10 +74,19 @@ class PrecompSeaSaver implements Runnable {
 		return saveQueue;
 	}
 
-	private OSMWriter createWriter(int id, String key) {
+	/**
+	 * @param key the key of a tile {@code lat+"_"+lon}
+	 * @return lat and lon
+	 */
+	private static int[] parseKey(String key) {
 		String[] parts = key.split(Pattern.quote("_"));
-		int lat = Integer.parseInt(parts[0]);
-		int lon = Integer.parseInt(parts[1]);
+		return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+	}
+
+	private OSMWriter createWriter(int id, String key) {
+		int[] tileCoords = parseKey(key);
+		int lat = tileCoords[0];
+		int lon = tileCoords[1];
 		uk.me.parabola.splitter.Area bounds = new uk.me.parabola.splitter.Area(lat, lon,
 				lat + SeaGenerator.PRECOMP_RASTER, lon + SeaGenerator.PRECOMP_RASTER);
 		OSMWriter writer = (usePbf ? new BinaryMapWriter(bounds, outputDir, nextId, 0)
@@ -89,6 +102,13 @@ class PrecompSeaSaver implements Runnable {
 	}
 
 	public void run() {
+		// all tiles are also written to one file in the compact format
+		PrecompSeaFile.Writer seaFileWriter;
+		try {
+			seaFileWriter = new PrecompSeaFile.Writer(new File(outputDir, SEA_FILE_NAME));
+		} catch (IOException e) {
+			throw new ExitException(e.getLocalizedMessage());
+		}
 		while (!saveQueue.isEmpty() || !finished.get()) {
 			Entry<String, List<Way>> tileData = null;
 			try {
@@ -106,9 +126,13 @@ class PrecompSeaSaver implements Runnable {
 					Way singleWay = tileData.getValue().get(0);
 					String naturalTag = singleWay.getTag("natural");
 					index.put(tileData.getKey(), naturalTag);
+					int[] tileCoords = parseKey(tileData.getKey());
+					seaFileWriter.addTile(tileCoords[0], tileCoords[1], "land".equals(naturalTag));
 				} else {
 					try {
 						writeTile(tileData, fakeMapid);
+						int[] tileCoords = parseKey(tileData.getKey());
+						seaFileWriter.addTile(tileCoords[0], tileCoords[1], tileData.getValue());
 					} catch (IOException e) {
 						throw new ExitException(e.getLocalizedMessage());
 					}
@@ -118,6 +142,7 @@ class PrecompSeaSaver implements Runnable {
 		
 		try {
 			writeIndex();
+			seaFileWriter.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
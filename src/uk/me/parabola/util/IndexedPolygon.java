@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.util.BitSet;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * A polygon in high precision map units with its edges sorted into
+ * horizontal slabs. A point test only looks at the edges of the slab that
+ * contains the point, so it is much faster than the test of
+ * {@link java.awt.Polygon} for polygons with many points, but the result is
+ * exactly the same as that of the polygon created by
+ * {@link Java2DConverter#createHighPrecPolygon(List)}.
+ *
+ * Edge i goes from point i-1 to point i, edge 0 closes the polygon.
+ */
+public class IndexedPolygon {
+	private static final int EDGES_PER_SLAB = 4;
+	private static final int MAX_SLABS = 1 << 14;
+
+	private final int[] xpoints;
+	private final int[] ypoints;
+	private final int minX;
+	private final int minY;
+	private final int maxX;
+	private final int maxY;
+	private final int slabHeight;
+	// the edges of slab s are in slabEdges[slabStart[s] .. slabStart[s+1]-1]
+	private final int[] slabStart;
+	private final int[] slabEdges;
+
+	public IndexedPolygon(List<Coord> points) {
+		int n = points.size();
+		xpoints = new int[n];
+		ypoints = new int[n];
+		int x0 = Integer.MAX_VALUE;
+		int y0 = Integer.MAX_VALUE;
+		int x1 = Integer.MIN_VALUE;
+		int y1 = Integer.MIN_VALUE;
+		for (int i = 0; i < n; i++) {
+			Coord co = points.get(i);
+			xpoints[i] = co.getHighPrecLon();
+			ypoints[i] = co.getHighPrecLat();
+			x0 = Math.min(x0, xpoints[i]);
+			y0 = Math.min(y0, ypoints[i]);
+			x1 = Math.max(x1, xpoints[i]);
+			y1 = Math.max(y1, ypoints[i]);
+		}
+		minX = x0;
+		minY = y0;
+		maxX = x1;
+		maxY = y1;
+
+		int numSlabs = Math.max(1, Math.min(MAX_SLABS, n / EDGES_PER_SLAB));
+		slabHeight = (int) (((long) maxY - minY) / numSlabs + 1);
+		slabStart = new int[numSlabs + 1];
+		for (int i = 0; i < n; i++) {
+			int last = (i == 0 ? n : i) - 1;
+			int lo = slab(Math.min(ypoints[last], ypoints[i]));
+			int hi = slab(Math.max(ypoints[last], ypoints[i]));
+			for (int s = lo; s <= hi; s++)
+				slabStart[s + 1]++;
+		}
+		for (int s = 0; s < numSlabs; s++)
+			slabStart[s + 1] += slabStart[s];
+		slabEdges = new int[n > 0 ? slabStart[numSlabs] : 0];
+		int[] fill = slabStart.clone();
+		for (int i = 0; i < n; i++) {
+			int last = (i == 0 ? n : i) - 1;
+			int lo = slab(Math.min(ypoints[last], ypoints[i]));
+			int hi = slab(Math.max(ypoints[last], ypoints[i]));
+			for (int s = lo; s <= hi; s++)
+				slabEdges[fill[s]++] = i;
+		}
+	}
+
+	private int slab(int y) {
+		return (int) (((long) y - minY) / slabHeight);
+	}
+
+	/**
+	 * Check if a point is inside the polygon. Same as
+	 * {@link java.awt.Polygon#contains(int, int)}.
+	 * @param x the high precision longitude
+	 * @param y the high precision latitude
+	 * @return true if the point is inside
+	 */
+	public boolean contains(int x, int y) {
+		// the bounding box test of java.awt.Polygon excludes the maximum values
+		if (xpoints.length <= 2 || x < minX || y < minY || x >= maxX || y >= maxY)
+			return false;
+		int hits = 0;
+		int s = slab(y);
+		for (int k = slabStart[s]; k < slabStart[s + 1]; k++) {
+			int i = slabEdges[k];
+			int last = (i == 0 ? xpoints.length : i) - 1;
+			int lastx = xpoints[last];
+			int lasty = ypoints[last];
+			int curx = xpoints[i];
+			int cury = ypoints[i];
+
+			if (cury == lasty)
+				continue;
+
+			int leftx;
+			if (curx < lastx) {
+				if (x >= lastx)
+					continue;
+				leftx = curx;
+			} else {
+				if (x >= curx)
+					continue;
+				leftx = lastx;
+			}
+
+			double test1, test2;
+			if (cury < lasty) {
+				if (y < cury || y >= lasty)
+					continue;
+				if (x < leftx) {
+					hits++;
+					continue;
+				}
+				test1 = (double) x - curx;
+				test2 = (double) y - cury;
+			} else {
+				if (y < lasty || y >= cury)
+					continue;
+				if (x < leftx) {
+					hits++;
+					continue;
+				}
+				test1 = (double) x - lastx;
+				test2 = (double) y - lasty;
+			}
+
+			if (test1 < (test2 / (lasty - cury) * (lastx - curx)))
+				hits++;
+		}
+		return (hits & 1) != 0;
+	}
+
+	/**
+	 * Find the edges that may have a point in a range of latitudes.
+	 * @param fromY the lowest high precision latitude
+	 * @param toY the highest high precision latitude
+	 * @return the indexes of the edges, some of them may be outside of the range
+	 */
+	public BitSet findEdges(int fromY, int toY) {
+		BitSet edges = new BitSet();
+		if (xpoints.length == 0 || toY < minY || fromY > maxY)
+			return edges;
+		int lo = slab(Math.max(fromY, minY));
+		int hi = slab(Math.min(toY, maxY));
+		for (int k = slabStart[lo]; k < slabStart[hi + 1]; k++)
+			edges.set(slabEdges[k]);
+		return edges;
+	}
+}
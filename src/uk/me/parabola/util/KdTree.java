@@ -22,6 +22,7 @@ import uk.me.parabola.imgfmt.app.Coord;
 /**
  * A kd-tree (2D) implementation to solve the nearest neighbor problem.
  * The tree is not explicitly balanced.
+ * When all points are added, the tree can be searched by several threads.
  * 
  * @author Gerd Petermann
  *
@@ -43,11 +44,13 @@ public class KdTree <T extends Locatable> {
     // number of saved objects  
     private int size;
 
-    // helpers 
-    private T nextPoint ;
-    private double minDist;
-    private double maxDist;
-    private Set<T> set;
+	/** The state of one search. */
+	private class Search {
+		T nextPoint;
+		double minDist = Double.MAX_VALUE;
+		double maxDist = -1;
+		Set<T> set;
+	}
 
     /**
      *  create an empty tree
@@ -114,14 +117,9 @@ public class KdTree <T extends Locatable> {
 	 * @return the point with shortest distance to <var>p</var>
 	 */
 	public T findNextPoint(Locatable p) {
-		// reset 
-		minDist = Double.MAX_VALUE;
-		maxDist = -1; 
-		set = null;
-		nextPoint = null;
-		
-		findNextPoint(p.getLocation(), root, ROOT_NODE_USES_LONGITUDE);
-		return nextPoint;
+		Search search = new Search();
+		findNextPoint(search, p.getLocation(), root, ROOT_NODE_USES_LONGITUDE);
+		return search.nextPoint;
 	}
 
 	/**
@@ -131,54 +129,53 @@ public class KdTree <T extends Locatable> {
 	 * @return the points within distance <var>maxDist</var> to <var>p</var>
 	 */
 	public Set<T> findClosePoints(Locatable p, double maxDist) {
-		// reset 
-		minDist = Double.MAX_VALUE;
-		this.maxDist = Math.pow(maxDist * 360 / Coord.U, 2); // convert maxDist in meter to distanceInDegreesSquared
-		nextPoint = null;
-		set = new LinkedHashSet<>();
-		findNextPoint(p.getLocation(), root, ROOT_NODE_USES_LONGITUDE);
-		return set;
+		Search search = new Search();
+		search.maxDist = Math.pow(maxDist * 360 / Coord.U, 2); // convert maxDist in meter to distanceInDegreesSquared
+		search.set = new LinkedHashSet<>();
+		findNextPoint(search, p.getLocation(), root, ROOT_NODE_USES_LONGITUDE);
+		return search.set;
 	}
 
 	/**
 	 * Recursive routine to find the closest point. If set is not null, all
 	 * elements within the range given by maxDist are collected. 
-	 * Closest point is in field nextPoint.
+	 * Closest point is in field nextPoint of the search.
 	 * 
+	 * @param search the state of the search
 	 * @param p the location of the given point
 	 * @param tree the sub tree
 	 * @param useLongitude gives the dimension to search in
 	 */
-	private void findNextPoint(Coord p, KdNode tree, boolean useLongitude) {
+	private void findNextPoint(Search search, Coord p, KdNode tree, boolean useLongitude) {
 		if (tree == null)
 			return;
 		
 		if (tree.left == null && tree.right == null) {
-			processNode(tree, p);
+			processNode(search, tree, p);
 			return;
 		}
 		boolean smaller = isSmaller(useLongitude, p, tree.point.getLocation());
-		findNextPoint(p, smaller ? tree.left : tree.right, !useLongitude);
+		findNextPoint(search, p, smaller ? tree.left : tree.right, !useLongitude);
 
-		processNode(tree, p);
+		processNode(search, tree, p);
 		// do we have to search the other part of the tree?
 		int testLat = useLongitude ? p.getHighPrecLat() : tree.point.getLocation().getHighPrecLat();
 		int testLon =  useLongitude ? tree.point.getLocation().getHighPrecLon() : p.getHighPrecLon();
 		Coord test = Coord.makeHighPrecCoord(testLat, testLon);
-		if (test.distanceInDegreesSquared(p) < minDist) {
-			findNextPoint(p, smaller ? tree.right : tree.left, !useLongitude);
+		if (test.distanceInDegreesSquared(p) < search.minDist) {
+			findNextPoint(search, p, smaller ? tree.right : tree.left, !useLongitude);
 		}
 	}
 	
-	private void processNode(KdNode node, Coord p) {
+	private void processNode(Search search, KdNode node, Coord p) {
 		double dist = node.point.getLocation().distanceInDegreesSquared(p);
-		if (dist <= maxDist && set != null) {
+		if (dist <= search.maxDist && search.set != null) {
 			// node is within wanted range
-			set.add(node.point);
+			search.set.add(node.point);
 		}
-		if (dist < minDist) {
-			nextPoint = node.point;
-			minDist = dist < maxDist ? maxDist : dist;
+		if (dist < search.minDist) {
+			search.nextPoint = node.point;
+			search.minDist = dist < search.maxDist ? search.maxDist : dist;
 		}
 	}
 } 
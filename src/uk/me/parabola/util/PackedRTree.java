@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * A static R-tree for rectangles. The tree is packed with the
+ * Sort-Tile-Recursive method: the rectangles are sorted into vertical
+ * slices by the x value of their centre, within a slice by the y value,
+ * and groups of {@link #NODE_SIZE} neighbours form the leaves. The upper
+ * levels group consecutive nodes of the level below.
+ *
+ * The rectangles are referred to by their index in the list that was
+ * given to the constructor. The tree cannot be changed, it can be searched
+ * by several threads.
+ */
+public class PackedRTree {
+	private static final int NODE_SIZE = 16;
+
+	private final int[] minX;
+	private final int[] minY;
+	private final int[] maxX;
+	private final int[] maxY;
+	// the rectangle indexes in leaf order
+	private final int[] order;
+	// for each level the bounding boxes of the nodes, level 0 are the leaves
+	private final List<int[]> levels = new ArrayList<>();
+
+	/**
+	 * Build the tree.
+	 * @param rectangles the rectangles, a rectangle covers the range from
+	 * x to x + width and y to y + height
+	 */
+	public PackedRTree(List<Rectangle> rectangles) {
+		int n = rectangles.size();
+		minX = new int[n];
+		minY = new int[n];
+		maxX = new int[n];
+		maxY = new int[n];
+		for (int i = 0; i < n; i++) {
+			Rectangle r = rectangles.get(i);
+			minX[i] = r.x;
+			minY[i] = r.y;
+			maxX[i] = r.x + r.width;
+			maxY[i] = r.y + r.height;
+		}
+		order = sortTileRecursive(n);
+
+		// the bounding box of each node is kept as minX, minY, maxX, maxY
+		int[] boxes = new int[4 * n];
+		for (int i = 0; i < n; i++) {
+			int r = order[i];
+			boxes[4 * i] = minX[r];
+			boxes[4 * i + 1] = minY[r];
+			boxes[4 * i + 2] = maxX[r];
+			boxes[4 * i + 3] = maxY[r];
+		}
+		int numNodes = n;
+		while (numNodes > 1 || levels.isEmpty()) {
+			int numParents = (numNodes + NODE_SIZE - 1) / NODE_SIZE;
+			int[] parents = new int[4 * numParents];
+			for (int p = 0; p < numParents; p++) {
+				int from = p * NODE_SIZE;
+				int to = Math.min(from + NODE_SIZE, numNodes);
+				parents[4 * p] = Integer.MAX_VALUE;
+				parents[4 * p + 1] = Integer.MAX_VALUE;
+				parents[4 * p + 2] = Integer.MIN_VALUE;
+				parents[4 * p + 3] = Integer.MIN_VALUE;
+				for (int c = from; c < to; c++) {
+					parents[4 * p] = Math.min(parents[4 * p], boxes[4 * c]);
+					parents[4 * p + 1] = Math.min(parents[4 * p + 1], boxes[4 * c + 1]);
+					parents[4 * p + 2] = Math.max(parents[4 * p + 2], boxes[4 * c + 2]);
+					parents[4 * p + 3] = Math.max(parents[4 * p + 3], boxes[4 * c + 3]);
+				}
+			}
+			levels.add(parents);
+			boxes = parents;
+			numNodes = numParents;
+		}
+	}
+
+	private int[] sortTileRecursive(int n) {
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = i;
+		// use the doubled centre to avoid rounding
+		Arrays.sort(sorted, (a, b) -> Long.compare((long) minX[a] + maxX[a], (long) minX[b] + maxX[b]));
+		int numLeaves = (n + NODE_SIZE - 1) / NODE_SIZE;
+		int numSlices = (int) Math.ceil(Math.sqrt(numLeaves));
+		int sliceSize = numSlices * NODE_SIZE;
+		for (int from = 0; from < n; from += sliceSize) {
+			int to = Math.min(from + sliceSize, n);
+			Arrays.sort(sorted, from, to, (a, b) -> Long.compare((long) minY[a] + maxY[a], (long) minY[b] + maxY[b]));
+		}
+		int[] result = new int[n];
+		for (int i = 0; i < n; i++)
+			result[i] = sorted[i];
+		return result;
+	}
+
+	/**
+	 * Find the rectangles that lie completely inside of a given rectangle.
+	 * They may touch its border.
+	 * @param r the rectangle
+	 * @return the indexes of the found rectangles in ascending order
+	 */
+	public IntArrayList findContained(Rectangle r) {
+		int qMinX = r.x;
+		int qMinY = r.y;
+		int qMaxX = r.x + r.width;
+		int qMaxY = r.y + r.height;
+		IntArrayList result = new IntArrayList();
+		if (order.length == 0)
+			return result;
+		// the stack holds pairs of level and node
+		IntArrayList stack = new IntArrayList();
+		stack.add(levels.size() - 1);
+		stack.add(0);
+		while (!stack.isEmpty()) {
+			int node = stack.popInt();
+			int level = stack.popInt();
+			int[] boxes = levels.get(level);
+			if (boxes[4 * node] > qMaxX || boxes[4 * node + 1] > qMaxY || boxes[4 * node + 2] < qMinX
+					|| boxes[4 * node + 3] < qMinY)
+				continue;
+			int from = node * NODE_SIZE;
+			if (level == 0) {
+				int to = Math.min(from + NODE_SIZE, order.length);
+				for (int i = from; i < to; i++) {
+					int idx = order[i];
+					if (minX[idx] >= qMinX && minY[idx] >= qMinY && maxX[idx] <= qMaxX && maxY[idx] <= qMaxY)
+						result.add(idx);
+				}
+			} else {
+				int to = Math.min(from + NODE_SIZE, levels.get(level - 1).length / 4);
+				for (int c = from; c < to; c++) {
+					stack.add(level - 1);
+					stack.add(c);
+				}
+			}
+		}
+		int[] found = result.toIntArray();
+		Arrays.sort(found);
+		return IntArrayList.wrap(found);
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures the wall time, the CPU time and the allocated bytes of the
+ * phases of a tile build. The values come from the {@link ThreadMXBean}
+ * of the thread that builds the tile, so work that is done by helper
+ * threads only counts in the wall time.
+ *
+ * The measurement for a tile is started with {@link #start(String)},
+ * a phase is measured with
+ * <pre>
+ * try (PhaseProfile.Phase p = PhaseProfile.phase("parse")) {
+ *     ...
+ * }
+ * </pre>
+ * Phases can be nested, the name of a nested phase starts with the names
+ * of the enclosing phases, separated by a '/'. A phase that is entered
+ * several times is counted once with the sum of the values. If no
+ * measurement was started in the current thread a phase does nothing.
+ */
+public class PhaseProfile {
+	private static final ThreadLocal<PhaseProfile> current = new ThreadLocal<>();
+	private static final Phase NO_PHASE = new Phase(null, null, null);
+	private static final List<PhaseProfile> finished = new ArrayList<>();
+
+	private final String tile;
+	// the phases in the order in which they were entered
+	private final Map<String, Values> phases = new LinkedHashMap<>();
+	private String path = "";
+
+	private PhaseProfile(String tile) {
+		this.tile = tile;
+	}
+
+	/**
+	 * Start the measurement of a tile in the current thread.
+	 * @param tile the name of the tile
+	 */
+	public static void start(String tile) {
+		current.set(new PhaseProfile(tile));
+	}
+
+	/**
+	 * Finish the measurement of the current thread and keep the results
+	 * until they are written.
+	 */
+	public static void finish() {
+		PhaseProfile profile = current.get();
+		if (profile == null)
+			return;
+		current.remove();
+		synchronized (finished) {
+			finished.add(profile);
+		}
+	}
+
+	/**
+	 * Enter a phase. It ends when the returned object is closed.
+	 * @param name the name of the phase, it should not contain a '/'
+	 * @return the phase
+	 */
+	public static Phase phase(String name) {
+		PhaseProfile profile = current.get();
+		if (profile == null)
+			return NO_PHASE;
+		String parent = profile.path;
+		profile.path = parent.isEmpty() ? name : parent + "/" + name;
+		profile.phases.computeIfAbsent(profile.path, k -> new Values());
+		return new Phase(profile, parent, Values.now());
+	}
+
+	/**
+	 * A phase that is being measured.
+	 */
+	public static class Phase implements AutoCloseable {
+		private final PhaseProfile profile;
+		private final String parent;
+		private final Values start;
+
+		private Phase(PhaseProfile profile, String parent, Values start) {
+			this.profile = profile;
+			this.parent = parent;
+			this.start = start;
+		}
+
+		@Override
+		public void close() {
+			if (profile == null)
+				return;
+			Values end = Values.now();
+			profile.phases.get(profile.path).add(end, start);
+			profile.path = parent;
+		}
+	}
+
+	private static class Values {
+		private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		private int count;
+		private long wallNanos;
+		private long cpuNanos;
+		private long allocatedBytes;
+
+		static Values now() {
+			Values v = new Values();
+			v.wallNanos = System.nanoTime();
+			v.cpuNanos = threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+			v.allocatedBytes = -1;
+			if (threadBean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+				if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+					v.allocatedBytes = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+			return v;
+		}
+
+		void add(Values end, Values start) {
+			count++;
+			wallNanos += end.wallNanos - start.wallNanos;
+			cpuNanos = (start.cpuNanos < 0 || cpuNanos < 0) ? -1 : cpuNanos + end.cpuNanos - start.cpuNanos;
+			allocatedBytes = (start.allocatedBytes < 0 || allocatedBytes < 0) ? -1
+					: allocatedBytes + end.allocatedBytes - start.allocatedBytes;
+		}
+
+		void add(Values other) {
+			count += other.count;
+			wallNanos += other.wallNanos;
+			cpuNanos = (other.cpuNanos < 0 || cpuNanos < 0) ? -1 : cpuNanos + other.cpuNanos;
+			allocatedBytes = (other.allocatedBytes < 0 || allocatedBytes < 0) ? -1
+					: allocatedBytes + other.allocatedBytes;
+		}
+	}
+
+	/**
+	 * Write the results of all finished tiles and the totals of each phase
+	 * over all tiles, then forget them. The format is JSON if the file
+	 * name ends with .json, otherwise CSV.
+	 * @param fileName the name of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(String fileName) throws IOException {
+		try (Writer w = Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			write(w, fileName.toLowerCase(Locale.ROOT).endsWith(".json"));
+		}
+	}
+
+	static void write(Writer w, boolean json) {
+		List<PhaseProfile> profiles;
+		synchronized (finished) {
+			profiles = new ArrayList<>(finished);
+			finished.clear();
+		}
+		profiles.sort(Comparator.comparing(p -> p.tile));
+		Map<String, Values> totals = new LinkedHashMap<>();
+		for (PhaseProfile profile : profiles) {
+			profile.phases.forEach((name, v) -> totals.computeIfAbsent(name, k -> new Values()).add(v));
+		}
+
+		PrintWriter pw = new PrintWriter(w);
+		if (json) {
+			pw.println("{");
+			pw.println("  \"tiles\": [");
+			for (int i = 0; i < profiles.size(); i++) {
+				PhaseProfile profile = profiles.get(i);
+				pw.println("    {\"tile\": " + quote(profile.tile) + ", \"phases\": [");
+				writeJson(pw, profile.phases, "      ");
+				pw.println("    ]}" + (i + 1 < profiles.size() ? "," : ""));
+			}
+			pw.println("  ],");
+			pw.println("  \"total\": [");
+			writeJson(pw, totals, "    ");
+			pw.println("  ]");
+			pw.println("}");
+		} else {
+			pw.println("tile,phase,count,wall_ms,cpu_ms,allocated_bytes");
+			for (PhaseProfile profile : profiles)
+				writeCsv(pw, profile.tile, profile.phases);
+			writeCsv(pw, "total", totals);
+		}
+		pw.flush();
+	}
+
+	private static void writeJson(PrintWriter pw, Map<String, Values> phases, String indent) {
+		int n = 0;
+		for (Map.Entry<String, Values> e : phases.entrySet()) {
+			Values v = e.getValue();
+			pw.println(indent + "{\"phase\": " + quote(e.getKey()) + ", \"count\": " + v.count
+					+ ", \"wallMs\": " + millis(v.wallNanos) + ", \"cpuMs\": " + millis(v.cpuNanos)
+					+ ", \"allocatedBytes\": " + v.allocatedBytes + "}" + (++n < phases.size() ? "," : ""));
+		}
+	}
+
+	private static void writeCsv(PrintWriter pw, String tile, Map<String, Values> phases) {
+		phases.forEach((name, v) -> pw.println(csv(tile) + "," + csv(name) + "," + v.count + ","
+				+ millis(v.wallNanos) + "," + millis(v.cpuNanos) + "," + v.allocatedBytes));
+	}
+
+	private static String millis(long nanos) {
+		if (nanos < 0)
+			return "-1";
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	private static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : s.toCharArray()) {
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+
+	private static String csv(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0)
+			return s;
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * An area that is the union of square cells of a raster, e.g. the
+ * precompiled sea tiles. The cells are kept as integer raster positions,
+ * so the union is a set operation and the outline is found by walking
+ * along the cell edges.
+ *
+ * The results are the same as those of a {@link java.awt.geom.Area} that
+ * is the union of the cell rectangles: the outline starts at the lowest
+ * latitude and longitude and has a point at each cell border of the
+ * vertical (latitude) edges. Where two cells touch only at a corner the
+ * outline stays with the cell it came from, like the one of the Area.
+ * Only the shapes of an area that is not singular are calculated with
+ * {@link java.awt.geom.Area}.
+ *
+ * Two singular areas are merged by looking only at the cells of the
+ * smaller one, see {@link #mergeSingular}.
+ */
+public class RasterArea {
+	// try to turn right, to go straight on and to turn left
+	private static final int[] TURNS = { 1, 0, 3 };
+
+	private final int raster;
+	// the cells, row (latitude) in the upper and column (longitude) in the lower half
+	private final LongOpenHashSet cells;
+	private int minRow = Integer.MAX_VALUE;
+	private int minCol = Integer.MAX_VALUE;
+	private int maxRow = Integer.MIN_VALUE;
+	private int maxCol = Integer.MIN_VALUE;
+	// the area is known to be singular
+	private boolean singular;
+
+	/**
+	 * Create an empty area.
+	 * @param raster the size of a cell in map units
+	 */
+	public RasterArea(int raster) {
+		this.raster = raster;
+		this.cells = new LongOpenHashSet();
+	}
+
+	/**
+	 * Create a copy of an area.
+	 * @param other the area to copy
+	 */
+	public RasterArea(RasterArea other) {
+		this.raster = other.raster;
+		this.cells = new LongOpenHashSet(other.cells);
+		this.minRow = other.minRow;
+		this.minCol = other.minCol;
+		this.maxRow = other.maxRow;
+		this.maxCol = other.maxCol;
+		this.singular = other.singular;
+	}
+
+	private static long key(int row, int col) {
+		return (long) row << 32 | (col & 0xffffffffL);
+	}
+
+	private boolean has(int row, int col) {
+		return cells.contains(key(row, col));
+	}
+
+	/**
+	 * Add a cell.
+	 * @param minLat the latitude of the lower edge, a multiple of the raster
+	 * @param minLon the longitude of the left edge, a multiple of the raster
+	 */
+	public void addCell(int minLat, int minLon) {
+		if (minLat % raster != 0 || minLon % raster != 0)
+			throw new IllegalArgumentException("cell " + minLat + "," + minLon + " is not aligned to raster " + raster);
+		addCellAt(minLat / raster, minLon / raster);
+	}
+
+	private void addCellAt(int row, int col) {
+		// a single cell is singular, otherwise it is not known
+		singular = cells.isEmpty();
+		cells.add(key(row, col));
+		minRow = Math.min(minRow, row);
+		minCol = Math.min(minCol, col);
+		maxRow = Math.max(maxRow, row);
+		maxCol = Math.max(maxCol, col);
+	}
+
+	/**
+	 * Add all cells of another area with the same raster.
+	 * @param other the other area
+	 */
+	public void add(RasterArea other) {
+		checkRaster(other);
+		for (LongIterator iter = other.cells.iterator(); iter.hasNext();) {
+			long key = iter.nextLong();
+			addCellAt((int) (key >> 32), (int) key);
+		}
+	}
+
+	private void checkRaster(RasterArea other) {
+		if (other.raster != raster)
+			throw new IllegalArgumentException("different raster sizes " + raster + " and " + other.raster);
+	}
+
+	/**
+	 * Merge another area with the same raster if the union is singular.
+	 * The cells of the smaller area are added to the larger one, so after
+	 * a merge neither area must be used on its own. Nothing is changed if
+	 * the areas are not merged.
+	 * @param other the other area
+	 * @return the union or null if it is not singular
+	 */
+	public RasterArea mergeSingular(RasterArea other) {
+		checkRaster(other);
+		RasterArea large = size() >= other.size() ? this : other;
+		RasterArea small = (large == this) ? other : this;
+		if (small.isEmpty())
+			return large.isSingular() ? large : null;
+		// the union of areas that don't touch is not singular
+		if (small.minRow > large.maxRow + 1 || small.maxRow < large.minRow - 1
+				|| small.minCol > large.maxCol + 1 || small.maxCol < large.minCol - 1)
+			return null;
+
+		boolean merge;
+		if (large.isSingular() && small.isSingular() && !large.overlaps(small)) {
+			merge = large.isSingularWith(small);
+		} else {
+			RasterArea union = new RasterArea(large);
+			union.add(small);
+			merge = union.isSingular();
+		}
+		if (!merge)
+			return null;
+		large.add(small);
+		large.singular = true;
+		return large;
+	}
+
+	private boolean overlaps(RasterArea small) {
+		for (LongIterator iter = small.cells.iterator(); iter.hasNext();) {
+			if (cells.contains(iter.nextLong()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Check if the union with a smaller area is singular, both areas must
+	 * be singular and must not have common cells.
+	 *
+	 * An area is singular when its cells are connected by their edges and
+	 * it has no holes, where cells that touch only at a corner don't close
+	 * a hole. Its Euler characteristic (cells - edges + corners, with a
+	 * corner counted twice where only two diagonal cells meet) is then 1.
+	 * The characteristic of the union is that of both areas minus the edges
+	 * they share and with the corrected count of the common corners.
+	 * @param small the smaller area
+	 * @return true if the union is singular
+	 */
+	private boolean isSingularWith(RasterArea small) {
+		int sharedEdges = 0;
+		int sharedCorners = 0;
+		for (LongIterator iter = small.cells.iterator(); iter.hasNext();) {
+			long key = iter.nextLong();
+			int row = (int) (key >> 32);
+			int col = (int) key;
+			if (has(row - 1, col))
+				sharedEdges++;
+			if (has(row + 1, col))
+				sharedEdges++;
+			if (has(row, col - 1))
+				sharedEdges++;
+			if (has(row, col + 1))
+				sharedEdges++;
+			// the corners of the cell, bit i is the cell (y - 1 + i / 2, x - 1 + i % 2)
+			// around the corner (y,x), this cell has the bit 3 - 2 * dy - dx
+			for (int dy = 0; dy <= 1; dy++) {
+				for (int dx = 0; dx <= 1; dx++) {
+					int y = row + dy;
+					int x = col + dx;
+					int inSmall = 0;
+					int inLarge = 0;
+					for (int i = 0; i < 4; i++) {
+						int r = y - 1 + (i >> 1);
+						int c = x - 1 + (i & 1);
+						if (small.has(r, c))
+							inSmall |= 1 << i;
+						if (has(r, c))
+							inLarge |= 1 << i;
+					}
+					// count the corner only once, with the first cell of the small area
+					if (inLarge == 0 || Integer.numberOfTrailingZeros(inSmall) != 3 - 2 * dy - dx)
+						continue;
+					sharedCorners += cornerCount(inSmall) + cornerCount(inLarge) - cornerCount(inSmall | inLarge);
+				}
+			}
+		}
+		// the areas must share an edge to be connected
+		return sharedEdges > 0 && sharedCorners - sharedEdges == 1;
+	}
+
+	/**
+	 * @param cells the bits of the cells around a corner
+	 * @return how often the corner is counted
+	 */
+	private static int cornerCount(int cells) {
+		if (cells == 0)
+			return 0;
+		// only the lower left and upper right or the other two cells
+		return (cells == 0b1001 || cells == 0b0110) ? 2 : 1;
+	}
+
+	public int size() {
+		return cells.size();
+	}
+
+	public boolean isEmpty() {
+		return cells.isEmpty();
+	}
+
+	/**
+	 * @return the bounding rectangle in map units, x is the longitude
+	 */
+	public Rectangle getBounds() {
+		if (cells.isEmpty())
+			return new Rectangle();
+		return new Rectangle(minCol * raster, minRow * raster, (maxCol - minCol + 1) * raster,
+				(maxRow - minRow + 1) * raster);
+	}
+
+	/**
+	 * Check if the area is a single polygon without holes.
+	 * @return true if the area can be described by a single outline
+	 */
+	public boolean isSingular() {
+		if (!singular)
+			singular = cells.isEmpty() || traceOutline(null) == countBorderEdges();
+		return singular;
+	}
+
+	/**
+	 * Convert the area to a list of closed shapes like
+	 * {@link Java2DConverter#areaToShapes(java.awt.geom.Area)} does.
+	 * @return the shapes
+	 */
+	public List<List<Coord>> toShapes() {
+		if (cells.isEmpty())
+			return new ArrayList<>();
+		List<Coord> outline = new ArrayList<>();
+		if (traceOutline(outline) == countBorderEdges()) {
+			outline.add(outline.get(0));
+			List<List<Coord>> shapes = new ArrayList<>(4);
+			shapes.add(outline);
+			return shapes;
+		}
+		return Java2DConverter.areaToShapes(toArea());
+	}
+
+	/**
+	 * @return the area as union of the cell rectangles
+	 */
+	public java.awt.geom.Area toArea() {
+		List<Long> sorted = new ArrayList<>(cells);
+		Collections.sort(sorted);
+		Path2D.Double path = new Path2D.Double();
+		for (long key : sorted) {
+			int x = (int) key * raster;
+			int y = (int) (key >> 32) * raster;
+			path.moveTo(x, y);
+			path.lineTo(x, y + raster);
+			path.lineTo(x + raster, y + raster);
+			path.lineTo(x + raster, y);
+			path.closePath();
+		}
+		return new java.awt.geom.Area(path);
+	}
+
+	/**
+	 * @return the number of cell edges that are not shared with another cell
+	 */
+	private int countBorderEdges() {
+		int count = 0;
+		for (LongIterator iter = cells.iterator(); iter.hasNext();) {
+			long key = iter.nextLong();
+			int row = (int) (key >> 32);
+			int col = (int) key;
+			if (!has(row - 1, col))
+				count++;
+			if (!has(row + 1, col))
+				count++;
+			if (!has(row, col - 1))
+				count++;
+			if (!has(row, col + 1))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Walk along the outline that starts at the lower left corner of the
+	 * lowest cell, the area is on the right side.
+	 * @param outline if not null, receives the points of the outline
+	 * without the closing point
+	 * @return the number of walked cell edges
+	 */
+	private int traceOutline(List<Coord> outline) {
+		int startRow = maxRow;
+		int startCol = maxCol;
+		for (LongIterator iter = cells.iterator(); iter.hasNext();) {
+			long key = iter.nextLong();
+			int row = (int) (key >> 32);
+			int col = (int) key;
+			if (row < startRow || row == startRow && col < startCol) {
+				startRow = row;
+				startCol = col;
+			}
+		}
+		// the position is a cell corner, the direction is one of
+		// 0: north, 1: east, 2: south, 3: west
+		int x = startCol;
+		int y = startRow;
+		int dir = 0;
+		int edges = 0;
+		if (outline != null)
+			outline.add(makeCoord(y, x));
+		do {
+			switch (dir) {
+			case 0: y++; break;
+			case 1: x++; break;
+			case 2: y--; break;
+			default: x--; break;
+			}
+			edges++;
+			int next = nextDirection(x, y, dir);
+			// the vertical edges have a point at each cell border
+			if (outline != null && (dir == 0 || dir == 2 || next != dir) && (x != startCol || y != startRow))
+				outline.add(makeCoord(y, x));
+			dir = next;
+		} while (x != startCol || y != startRow);
+		return edges;
+	}
+
+	/**
+	 * Find the next edge with the area on its right side.
+	 */
+	private int nextDirection(int x, int y, int dir) {
+		for (int turn : TURNS) {
+			int d = (dir + turn) & 3;
+			if (isOutlineEdge(x, y, d))
+				return d;
+		}
+		// a single cell corner, turn back
+		return (dir + 2) & 3;
+	}
+
+	private boolean isOutlineEdge(int x, int y, int dir) {
+		switch (dir) {
+		case 0: return has(y, x) && !has(y, x - 1);
+		case 1: return has(y - 1, x) && !has(y, x);
+		case 2: return has(y - 1, x - 1) && !has(y - 1, x);
+		default: return has(y, x - 1) && !has(y - 1, x - 1);
+		}
+	}
+
+	private Coord makeCoord(int row, int col) {
+		return Coord.makeHighPrecCoord((row * raster) << Coord.DELTA_SHIFT, (col * raster) << Coord.DELTA_SHIFT);
+	}
+}
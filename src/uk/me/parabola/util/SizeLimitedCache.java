@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.log.Logger;
+
+/**
+ * A cache for data that is shared by the tiles that are built in parallel,
+ * e.g. the content of files that neighbouring tiles need.
+ *
+ * Each value is loaded once, when several threads ask for the same key at
+ * the same time only one of them runs the loader and the others wait for
+ * it. Readers don't lock. The values must not be modified after they are
+ * loaded. When the estimated size of all values exceeds the limit, the
+ * least recently used values are dropped.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class SizeLimitedCache<K, V> {
+	private static final Logger log = Logger.getLogger(SizeLimitedCache.class);
+
+	private final String name;
+	private final long maxSize;
+	private final ToLongFunction<V> sizer;
+
+	private final Map<K, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong size = new AtomicLong();
+	private final AtomicLong useCounter = new AtomicLong();
+
+	private class Entry {
+		private final FutureTask<V> task;
+		private volatile long lastUse;
+		// the estimated size of the value, 0 while it is loaded
+		private volatile long size;
+		private long loadedSize;
+
+		Entry(Callable<V> loader) {
+			task = new FutureTask<>(() -> {
+				V value = loader.call();
+				// the sizer runs before other threads can see the value
+				loadedSize = sizer.applyAsLong(value);
+				return value;
+			});
+		}
+	}
+
+	/**
+	 * @param name describes the values in messages
+	 * @param maxSize the estimated number of bytes that the values may use
+	 * @param sizer estimates the number of bytes of a value, it is called
+	 * once for each value by the thread that loaded it
+	 */
+	public SizeLimitedCache(String name, long maxSize, ToLongFunction<V> sizer) {
+		this.name = name;
+		this.maxSize = maxSize;
+		this.sizer = sizer;
+	}
+
+	/**
+	 * Get a value, it is loaded with the given loader if it is not in the
+	 * cache. A failure is not kept, the next caller tries again.
+	 * @param key identifies the value
+	 * @param loader loads the value
+	 * @return the value
+	 * @throws Exception the exception thrown by the loader
+	 */
+	public V get(K key, Callable<V> loader) throws Exception {
+		Entry e = entries.get(key);
+		if (e == null) {
+			Entry created = new Entry(loader);
+			e = entries.putIfAbsent(key, created);
+			if (e == null) {
+				e = created;
+				e.task.run();
+				added(key, e);
+			}
+		}
+		e.lastUse = useCounter.incrementAndGet();
+		try {
+			return e.task.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ExitException("Interrupted while loading " + name + " " + key);
+		} catch (ExecutionException ex) {
+			entries.remove(key, e);
+			if (ex.getCause() instanceof Error)
+				throw (Error) ex.getCause();
+			throw (Exception) ex.getCause();
+		}
+	}
+
+	/**
+	 * @return true if the value of the key is in the cache
+	 */
+	public boolean contains(K key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Count the size of a value that was loaded and drop other values if the
+	 * cache is too big.
+	 */
+	private void added(K key, Entry e) {
+		try {
+			e.task.get();
+		} catch (InterruptedException | ExecutionException ex) {
+			// handled by the caller
+			return;
+		}
+		e.size = Math.max(1, e.loadedSize);
+		if (size.addAndGet(e.size) > maxSize)
+			evict(key);
+	}
+
+	/**
+	 * Drop the least recently used values until the cache is small enough.
+	 * @param keep the key of the value that was just added
+	 */
+	private synchronized void evict(K keep) {
+		while (size.get() > maxSize) {
+			K oldestKey = null;
+			Entry oldest = null;
+			for (Map.Entry<K, Entry> me : entries.entrySet()) {
+				Entry e = me.getValue();
+				if (e.size > 0 && !me.getKey().equals(keep) && (oldest == null || e.lastUse < oldest.lastUse)) {
+					oldestKey = me.getKey();
+					oldest = e;
+				}
+			}
+			if (oldest == null)
+				break;
+			if (entries.remove(oldestKey, oldest)) {
+				size.addAndGet(-oldest.size);
+				log.debug("dropped", name, oldestKey, "from cache");
+			}
+		}
+	}
+}
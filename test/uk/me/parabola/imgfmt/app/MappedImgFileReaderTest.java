@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappedImgFileReaderTest {
+	private static final byte[] DATA = {
+			1, 2, 3, 4, (byte) 0xff, (byte) 0xfe, (byte) 0x80, 0x7f,
+			'a', 'b', 'c', 0, (byte) 0x85, 0, 'x', (byte) 0x90,
+	};
+
+	private static ImgFileReader reader() {
+		return new MappedImgFileReader(null, ByteBuffer.wrap(DATA));
+	}
+
+	@Test
+	public void testNumbers() {
+		ImgFileReader r = reader();
+		assertEquals(0x0201, r.get2u());
+		assertEquals(0x0403, r.get2s());
+		assertEquals(0xff, r.get1u());
+		r.position(4);
+		assertEquals(0x80feff - 0x1000000, r.get3s());
+		r.position(4);
+		assertEquals(0x80feff, r.get3u());
+		r.position(4);
+		assertEquals(0x7f80feff, r.get4());
+		assertEquals(8, r.position());
+		r.position(5);
+		assertEquals(0xfe, r.getNu(1));
+		assertEquals(0x7f80, r.getNu(2));
+	}
+
+	@Test
+	public void testStrings() {
+		ImgFileReader r = reader();
+		r.position(8);
+		assertArrayEquals(new byte[] {'a', 'b', 'c'}, r.getZString());
+		assertEquals(12, r.position());
+		assertArrayEquals(new byte[] {(byte) 0x85, 0}, r.get(2));
+	}
+
+	/**
+	 * Reading beyond the end gives zero bytes and the position stays at the
+	 * end, as with the buffered reader.
+	 */
+	@Test
+	public void testEnd() {
+		ImgFileReader r = reader();
+		r.position(14);
+		assertEquals(0x9078, r.get4());
+		assertEquals(16, r.position());
+		assertEquals(0, r.get());
+		assertEquals(16, r.position());
+
+		r.position(14);
+		assertArrayEquals(new byte[] {'x', (byte) 0x90}, r.getZString());
+		assertEquals(16, r.position());
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.dem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.mkgmap.reader.hgt.HGTConverter;
+import uk.me.parabola.mkgmap.reader.hgt.HGTConverter.InterpolationMethod;
+
+import func.lib.ArrayImgWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DEMSectionTest {
+	private static final int RES = 120;
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("demtest");
+		ByteBuffer buf = ByteBuffer.allocate(2 * (RES + 1) * (RES + 1));
+		for (int y = RES; y >= 0; y--) {
+			for (int x = 0; x <= RES; x++)
+				buf.putShort((short) (500 + 300 * Math.sin(x / 7.0) * Math.cos(y / 11.0)));
+		}
+		Files.write(dir.resolve("N10E020.hgt"), buf.array());
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : dir.toFile().listFiles())
+			f.delete();
+		dir.toFile().delete();
+	}
+
+	/**
+	 * The tiles calculated in parallel are the same as the ones calculated
+	 * in a single thread.
+	 */
+	@Test
+	public void testParallelSameAsSequential() {
+		byte[] expected = calcSection(null);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertArrayEquals(expected, calcSection(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private byte[] calcSection(ForkJoinPool pool) {
+		Area bbox = new Area(10.3, 20.3, 10.5, 20.5);
+		HGTConverter hgtConverter = new HGTConverter(dir.toString(), bbox, null, DEMFile.EXTRA);
+		hgtConverter.setInterpolationMethod(InterpolationMethod.BICUBIC);
+		int top = bbox.getMaxLat() * 256;
+		int left = bbox.getMinLong() * 256;
+		DEMSection section = new DEMSection(0, top, left, top - bbox.getMinLat() * 256,
+				bbox.getMaxLong() * 256 - left, hgtConverter, 3312, true, pool);
+		hgtConverter.freeAllMem();
+
+		ArrayImgWriter writer = new ArrayImgWriter();
+		section.writeRest(writer);
+		section.writeHeader(writer);
+		assertTrue(writer.getSize() > 1000);
+		return writer.getBytes();
+	}
+}
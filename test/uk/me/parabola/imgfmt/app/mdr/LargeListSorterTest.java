@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.mdr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.imgfmt.app.srt.SortKeyArena;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LargeListSorterTest {
+	private final Sort sort = SrtTextReader.sortForCodepage(1252);
+
+	/**
+	 * Sorting with several threads gives exactly the same order as with one,
+	 * including the order of records that compare equal.
+	 */
+	@Test
+	public void testParallelSameAsSerial() {
+		List<Mdr11Record> serial = makeRecords(50_000);
+		List<Mdr11Record> parallel = new ArrayList<>(serial);
+
+		makeSorter(1).sort(serial);
+		makeSorter(4).sort(parallel);
+
+		assertEquals(serial.size(), parallel.size());
+		for (int i = 0; i < serial.size(); i++)
+			assertSame("position " + i, serial.get(i), parallel.get(i));
+
+		for (int i = 1; i < serial.size(); i++) {
+			SortKey<Mdr11Record> k1 = makeKey(serial.get(i - 1));
+			SortKey<Mdr11Record> k2 = makeKey(serial.get(i));
+			assertTrue(k1.compareTo(k2) <= 0);
+		}
+	}
+
+	/**
+	 * The external sort with temporary files gives the same order as the
+	 * sort in memory, with many runs and with a single one.
+	 */
+	@Test
+	public void testExternalSameAsInMemory() {
+		List<Mdr11Record> expected = makeRecords(50_000);
+		List<Mdr11Record> manyRuns = new ArrayList<>(expected);
+		List<Mdr11Record> oneRun = new ArrayList<>(expected);
+
+		makeSorter(1).sort(expected);
+		makeExternalSorter(200 * 1024).sort(manyRuns);
+		makeExternalSorter(1024 * 1024 * 1024).sort(oneRun);
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame("position " + i, expected.get(i), manyRuns.get(i));
+			assertSame("position " + i, expected.get(i), oneRun.get(i));
+		}
+	}
+
+	private List<Mdr11Record> makeRecords(int count) {
+		Random random = new Random(42);
+		String[] words = {"Café", "cafe", "Bäckerei", "Bank", "bar", "Apotheke", "école", "Zoo", "Øl", "ABC"};
+		List<Mdr11Record> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Mdr11Record r = new Mdr11Record();
+			r.setName(words[random.nextInt(words.length)] + ' ' + random.nextInt(200));
+			r.setMapIndex(1 + random.nextInt(3));
+			list.add(r);
+		}
+		return list;
+	}
+
+	private SortKey<Mdr11Record> makeKey(Mdr11Record r) {
+		return sort.createSortKey(r, r.getName(), r.getMapIndex());
+	}
+
+	private LargeListSorter<Mdr11Record> makeSorter(int maxThreads) {
+		return new LargeListSorter<Mdr11Record>(sort, maxThreads) {
+			@Override
+			protected SortKey<Mdr11Record> makeKey(Mdr11Record r, SortKeyArena arena) {
+				return arena.createSortKey(r, r.getName(), r.getMapIndex());
+			}
+		};
+	}
+
+	private LargeListSorter<Mdr11Record> makeExternalSorter(long memory) {
+		MdrConfig config = new MdrConfig();
+		config.setSortMemory(memory);
+		return new LargeListSorter<Mdr11Record>(sort, config) {
+			@Override
+			protected SortKey<Mdr11Record> makeKey(Mdr11Record r, SortKeyArena arena) {
+				return arena.createSortKey(r, r.getName(), r.getMapIndex());
+			}
+		};
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.srt;
+
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SortKeyArenaTest {
+	private static final String[] NAMES = {
+			"", "a", "A", "aa", "aab", "aabbbb", "AAA", "AÂA", "ÂAAA", "AAAB",
+			"Æsop", "Straße", "Strasse", "St. Helier", "1st Street", "-", "œuvre",
+			"a very long name with many words in it, more than eight bytes",
+	};
+
+	private Sort sort;
+
+	@Before
+	public void setUp() {
+		sort = SrtTextReader.sortForCodepage(1252);
+	}
+
+	/**
+	 * The keys of an arena must compare in the same way as the keys that
+	 * are created by the sort.
+	 */
+	@Test
+	public void testSameAsSortKeys() {
+		SortKeyArena arena = sort.createKeyArena();
+		checkSameOrder(arena);
+	}
+
+	@Test
+	public void testSameKeyBytes() {
+		SortKeyArena arena = sort.createKeyArena();
+		for (String name : NAMES) {
+			SortKey<Object> k1 = sort.createSortKey(null, name, 3);
+			SortKey<Object> k2 = arena.createSortKey(null, name, 3);
+			assertArrayEquals(name, Sort.getKeyBytes(k1), Sort.getKeyBytes(k2));
+			assertEquals(name, Sort.getSecond(k1), Sort.getSecond(k2));
+		}
+	}
+
+	/**
+	 * Keys that are made after a clear must not see the bytes of the old keys.
+	 */
+	@Test
+	public void testAfterClear() {
+		SortKeyArena arena = sort.createKeyArena();
+		for (int i = NAMES.length - 1; i >= 0; i--)
+			arena.createSortKey(null, NAMES[i]);
+		arena.clear();
+		assertEquals(0, arena.getSize());
+		checkSameOrder(arena);
+	}
+
+	@Test
+	public void testDifferentArenas() {
+		SortKeyArena a1 = sort.createKeyArena();
+		SortKeyArena a2 = sort.createKeyArena();
+		a2.createSortKey(null, "padding");
+		for (String s1 : NAMES) {
+			for (String s2 : NAMES) {
+				int expected = sort.createSortKey(null, s1).compareTo(sort.createSortKey(null, s2));
+				assertEquals(s1 + "/" + s2, expected, a1.createSortKey(null, s1).compareTo(a2.createSortKey(null, s2)));
+			}
+		}
+	}
+
+	@Test
+	public void testSecond() {
+		SortKeyArena arena = sort.createKeyArena();
+		SortKey<Object> k1 = arena.createSortKey(null, "Main Street", 1);
+		SortKey<Object> k2 = arena.createSortKey(null, "Main Street", 2);
+		assertEquals(-1, k1.compareTo(k2));
+		assertEquals(1, k2.compareTo(k1));
+		assertEquals(0, k1.compareTo(arena.createSortKey(null, "Main Street", 1)));
+	}
+
+	private void checkSameOrder(SortKeyArena arena) {
+		for (String s1 : NAMES) {
+			for (String s2 : NAMES) {
+				int expected = sort.createSortKey(null, s1).compareTo(sort.createSortKey(null, s2));
+				int actual = arena.createSortKey(null, s1).compareTo(arena.createSortKey(null, s2));
+				assertEquals(s1 + "/" + s2, expected, actual);
+			}
+		}
+	}
+}
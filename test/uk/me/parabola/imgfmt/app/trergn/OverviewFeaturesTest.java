@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.trergn;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uk.me.parabola.imgfmt.FileSystemParam;
+import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.imgfmt.app.map.Map;
+import uk.me.parabola.imgfmt.app.map.MapReader;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OverviewFeaturesTest {
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("ovmfeatures");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> s = Files.walk(dir)) {
+			for (Path p : s.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(p);
+		}
+	}
+
+	/**
+	 * The recorded features must be the same as the ones that are read back
+	 * from the file.
+	 */
+	@Test
+	public void testSameAsRead() throws Exception {
+		testSameAsRead(null);
+	}
+
+	@Test
+	public void testSameAsReadUnicode() throws Exception {
+		testSameAsRead("unicode");
+	}
+
+	private void testSameAsRead(String charset) throws Exception {
+		OverviewFeatures features = makeMap(charset);
+
+		try (MapReader reader = new MapReader(dir.resolve("ovm_63240001.img").toString())) {
+			Zoom[] levels = reader.getLevels();
+			assertEquals(levels.length, features.getLevels().length);
+			for (int i = 0; i < levels.length; i++) {
+				assertEquals(levels[i].getLevel(), features.getLevels()[i].getLevel());
+				assertEquals(levels[i].getResolution(), features.getLevels()[i].getResolution());
+			}
+			assertArrayEquals(reader.getCopyrights(), features.getCopyrights());
+			assertEquals(reader.getEncodingType(), features.getEncodingType());
+
+			List<Point> points = reader.pointsForLevel(0, MapReader.WITH_EXT_TYPE_DATA);
+			assertEquals(3, points.size());
+			assertEquals(describe(points), describe(features.pointsForLevel(0), true));
+
+			List<Polyline> lines = reader.linesForLevel(0);
+			assertEquals(2, lines.size());
+			assertEquals(describe(lines), describe(features.linesForLevel(0), false));
+
+			List<Polygon> shapes = reader.shapesForLevel(0, MapReader.WITH_EXT_TYPE_DATA);
+			assertEquals(2, shapes.size());
+			assertEquals(describe(shapes), describe(features.shapesForLevel(0), false));
+			// the reader closes the shapes with the first point
+			List<Coord> coords = features.shapesForLevel(0).getPoints(0);
+			assertSame(coords.get(0), coords.get(coords.size() - 1));
+
+			assertEquals(0, features.pointsForLevel(1).size());
+		}
+	}
+
+	private OverviewFeatures makeMap(String charset) throws Exception {
+		Map map = Map.createMap("ovm_63240001", dir.toString(), new FileSystemParam(), "63240001",
+				SrtTextReader.sortForCodepage(charset == null ? 0 : 65001));
+		if (charset != null)
+			map.setLabelCharset(charset, false);
+		OverviewFeatures features = map.recordOverviewFeatures();
+
+		map.addCopyright("program licenced under GPL v2");
+		// this one ends in the middle of a byte in the six bit format
+		map.addCopyright("R7");
+
+		Area area = new Area(51.0, 0.0, 51.1, 0.1);
+		map.setBounds(area);
+		Subdivision top = map.topLevelSubdivision(area, map.createZoom(1, 18));
+		top.startDivision();
+		top.endDivision();
+		Subdivision div = map.createSubdivision(top, area, map.createZoom(0, 20));
+		div.setHasPoints(true);
+		div.setHasIndPoints(true);
+		div.setHasPolylines(true);
+		div.setHasPolygons(true);
+
+		div.startDivision();
+		div.startPoints();
+		map.addMapObject(point(div, "Café", 0x2f00, 51.05, 0.05));
+		// not found by the reader
+		map.addMapObject(point(div, "", 0x11503, 51.06, 0.04));
+		div.startIndPoints();
+		map.addMapObject(point(div, "Town", 0x0800, 51.02, 0.07));
+		map.addMapObject(point(div, "", 0x0900, 51.03, 0.01));
+
+		div.startLines();
+		Polyline line = div.createLine(new String[] {"Main Street", null, null, null});
+		line.setType(6);
+		addCoords(line, 51.01, 0.01, 51.02, 0.03, 51.021, 0.08);
+		map.addMapObject(line);
+		line = div.createLine(new String[] {null, null, null, null});
+		line.setType(0x10e00);
+		addCoords(line, 51.09, 0.01, 51.05, 0.05);
+		map.addMapObject(line);
+
+		div.startShapes();
+		Polygon shape = div.createPolygon("Wood");
+		shape.setType(0x50);
+		addCoords(shape, 51.01, 0.01, 51.01, 0.02, 51.02, 0.02, 51.01, 0.01);
+		map.addMapObject(shape);
+		shape = div.createPolygon("");
+		shape.setType(0x10f00);
+		addCoords(shape, 51.03, 0.03, 51.03, 0.05, 51.05, 0.05, 51.05, 0.03);
+		map.addMapObject(shape);
+		div.endDivision();
+
+		// as done by the MapBuilder
+		RGNFile rgnFile = map.getRgnFile();
+		TREFile treFile = map.getTreFile();
+		treFile.setLastRgnPos(rgnFile.position() - RGNHeader.HEADER_LEN);
+		rgnFile.write();
+		treFile.write(rgnFile.haveExtendedTypes());
+		map.getLblFile().write();
+		map.getLblFile().writePost();
+		treFile.writePost();
+		map.close();
+		return features;
+	}
+
+	private static Point point(Subdivision div, String name, int type, double lat, double lon) {
+		Point p = div.createPoint(name);
+		p.setType(type);
+		p.setLatitude(Utils.toMapUnit(lat));
+		p.setLongitude(Utils.toMapUnit(lon));
+		return p;
+	}
+
+	private static void addCoords(Polyline line, double... latLon) {
+		for (int i = 0; i < latLon.length; i += 2)
+			line.addCoord(new Coord(latLon[i], latLon[i + 1]));
+	}
+
+	private static List<String> describe(OverviewFeatures.FeatureList list, boolean points) {
+		List<String> result = new ArrayList<>();
+		for (int i = 0; i < list.size(); i++) {
+			String s = Integer.toHexString(list.getType(i)) + ' ' + list.getLabel(i);
+			if (points)
+				s += " " + list.getLocation(i).toDegreeString();
+			else
+				s += " " + list.getPoints(i).stream().map(Coord::toDegreeString).collect(Collectors.toList());
+			result.add(s);
+		}
+		return result;
+	}
+
+	private static List<String> describe(List<? extends MapObject> list) {
+		List<String> result = new ArrayList<>();
+		for (MapObject o : list) {
+			String s = Integer.toHexString(o.getType()) + ' ' + (o.getLabel() == null ? null : o.getLabel().getText());
+			if (o instanceof Point)
+				s += " " + ((Point) o).getLocation().toDegreeString();
+			else
+				s += " " + ((Polyline) o).getPoints().stream().map(Coord::toDegreeString).collect(Collectors.toList());
+			result.add(s);
+		}
+		return result;
+	}
+}
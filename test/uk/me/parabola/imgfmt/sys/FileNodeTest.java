@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.sys;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import uk.me.parabola.imgfmt.FileSystemParam;
+import uk.me.parabola.imgfmt.fs.FileSystem;
+import uk.me.parabola.imgfmt.fs.ImgChannel;
+
+import org.junit.Test;
+
+import func.lib.TestUtils;
+
+import static org.junit.Assert.*;
+
+public class FileNodeTest {
+	private static final int SIZE = 5000;
+
+	/**
+	 * Copy a file between two img file systems.  The file is written when
+	 * the file system is closed, as it is done for the gmapsupp.
+	 */
+	@Test
+	public void testTransferTo() throws IOException {
+		TestUtils.registerFile("test-src.img", "test-dst.img");
+		try (FileSystem fs = ImgFS.createFs("test-src.img", new FileSystemParam())) {
+			ImgChannel chan = fs.create("00000001.BIN");
+			((FileLink) chan).link(() -> SIZE, () -> {
+				ByteBuffer buf = ByteBuffer.allocate(SIZE);
+				for (int i = 0; i < SIZE; i++)
+					buf.put(content(i));
+				buf.flip();
+				chan.write(buf);
+			});
+		}
+
+		try (FileSystem src = ImgFS.openFs("test-src.img");
+				FileSystem dst = ImgFS.createFs("test-dst.img", new FileSystemParam())) {
+			ImgChannel fin = src.open("00000001.BIN", "r");
+			ImgChannel fout = dst.create("00000002.BIN");
+			((FileLink) fout).link(() -> SIZE - 100, () -> {
+				fin.position(100);
+				assertEquals(SIZE - 100, fin.transferTo(fout));
+				assertEquals(SIZE, fin.position());
+				assertEquals(SIZE - 100, fout.position());
+			});
+		}
+
+		try (FileSystem fs = ImgFS.openFs("test-dst.img")) {
+			ImgChannel chan = fs.open("00000002.BIN", "r");
+			ByteBuffer buf = ByteBuffer.allocate(SIZE);
+			while (chan.read(buf) > 0)
+				buf.limit(buf.capacity());
+			assertEquals(SIZE - 100, buf.position());
+			for (int i = 0; i < SIZE - 100; i++)
+				assertEquals(content(i + 100), buf.get(i));
+		}
+	}
+
+	/**
+	 * A file system that is opened for reading with a mapping gives the
+	 * contents of the files as a buffer, which is the same as what is read
+	 * from the channel.
+	 */
+	@Test
+	public void testMappedBuffer() throws IOException {
+		TestUtils.registerFile("test-map.img");
+		try (FileSystem fs = ImgFS.createFs("test-map.img", new FileSystemParam())) {
+			for (int n = 1; n <= 2; n++) {
+				ImgChannel chan = fs.create("0000000" + n + ".BIN");
+				int size = SIZE * n;
+				((FileLink) chan).link(() -> size, () -> {
+					ByteBuffer buf = ByteBuffer.allocate(size);
+					for (int i = 0; i < size; i++)
+						buf.put(content(i + size));
+					buf.flip();
+					chan.write(buf);
+				});
+			}
+		}
+
+		// without the mapping the files are read from the channel
+		try (FileSystem fs = ImgFS.openFs("test-map.img")) {
+			assertNull(fs.open("00000001.BIN", "r").mappedBuffer());
+		}
+
+		try (FileSystem fs = ImgFS.openFs("test-map.img", true)) {
+			for (int n = 1; n <= 2; n++) {
+				int size = SIZE * n;
+				ImgChannel chan = fs.open("0000000" + n + ".BIN", "r");
+				ByteBuffer mapped = chan.mappedBuffer();
+				assertNotNull(mapped);
+				assertEquals(size, mapped.remaining());
+
+				ByteBuffer buf = ByteBuffer.allocate(size);
+				while (chan.read(buf) > 0)
+					buf.limit(buf.capacity());
+				buf.flip();
+				assertEquals(buf, mapped);
+				for (int i = 0; i < size; i++)
+					assertEquals(content(i + size), mapped.get(i));
+			}
+		}
+	}
+
+	private static byte content(int i) {
+		return (byte) (i * 31 + (i >> 8));
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uk.me.parabola.imgfmt.FileSystemParam;
+import uk.me.parabola.imgfmt.app.map.Map;
+import uk.me.parabola.imgfmt.fs.FileSystem;
+import uk.me.parabola.imgfmt.fs.ImgChannel;
+import uk.me.parabola.imgfmt.sys.ImgFS;
+import uk.me.parabola.mkgmap.general.LoadableMapDataSource;
+import uk.me.parabola.mkgmap.reader.MapReader;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MapBuilderTest {
+	private static final int GRID = 81;
+	// the offset and the length of the creation date in the common header
+	private static final int DATE_POS = 14;
+	private static final int DATE_LEN = 7;
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("mapbuilder");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> s = Files.walk(dir)) {
+			for (Path p : s.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(p);
+		}
+	}
+
+	/**
+	 * The subdivisions of a level are encoded by several threads, the map
+	 * must be the same as with a single thread. The shapes share their
+	 * boundary nodes, so the points that are preserved for one subdivision
+	 * are also seen by the filters of the others.
+	 */
+	@Test
+	public void testSubdivisionThreadsSameAsSingle() throws IOException {
+		Path osm = dir.resolve("test.osm");
+		writeOsm(osm);
+
+		byte[] single = makeMap(osm, 1, "RGN");
+		assertTrue(single.length > 10000);
+		assertArrayEquals(single, makeMap(osm, 2, "RGN"));
+		assertArrayEquals(makeMap(osm, 1, "TRE"), makeMap(osm, 2, "TRE"));
+	}
+
+	/**
+	 * Make the map from the file and read one of its sub files.
+	 * @return the contents of the sub file without the creation date
+	 */
+	private byte[] makeMap(Path osm, int threads, String ext) throws IOException {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("subdivision-threads", Integer.toString(threads));
+		props.setProperty("reduce-point-density-polygon", "8");
+
+		LoadableMapDataSource src = MapReader.createMapReader(osm.toString());
+		src.config(props);
+		src.load(osm.toString(), true);
+
+		Path out = dir.resolve("map" + threads);
+		Files.createDirectories(out);
+		Map map = Map.createMap("63240001", out.toString(), new FileSystemParam(), "63240001",
+				SrtTextReader.sortForCodepage(0));
+		map.config(props);
+		MapBuilder builder = new MapBuilder();
+		builder.config(props);
+		builder.makeMap(map, src);
+		map.close();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (FileSystem fs = ImgFS.openFs(out.resolve("63240001.img").toString())) {
+			ImgChannel chan = fs.open("63240001." + ext, "r");
+			ByteBuffer buf = ByteBuffer.allocate(4096);
+			while (chan.read(buf) > 0) {
+				bytes.write(buf.array(), 0, buf.position());
+				buf.clear();
+			}
+		}
+		byte[] result = bytes.toByteArray();
+		for (int i = DATE_POS; i < DATE_POS + DATE_LEN; i++)
+			result[i] = 0;
+		return result;
+	}
+
+	/**
+	 * Write a grid of forests and lakes that share their boundaries with
+	 * the neighbours, and streets along the grid lines.
+	 */
+	private static void writeOsm(Path osm) throws IOException {
+		Random random = new Random(42);
+		try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(osm, StandardCharsets.UTF_8))) {
+			pw.println("<?xml version='1.0' encoding='UTF-8'?>");
+			pw.println("<osm version='0.6'>");
+			for (int y = 0; y < GRID; y++) {
+				for (int x = 0; x < GRID; x++) {
+					double lat = 51 + y * 0.0015 + random.nextInt(100) * 0.000004;
+					double lon = x * 0.0015 + random.nextInt(100) * 0.000004;
+					pw.printf("<node id='%d' lat='%.7f' lon='%.7f'/>%n", node(x, y), lat, lon);
+				}
+			}
+
+			long id = 1;
+			// each cell is bounded by the nodes of a 2x2 block of the grid
+			for (int y = 0; y + 2 < GRID; y += 2) {
+				for (int x = 0; x + 2 < GRID; x += 2) {
+					pw.printf("<way id='%d'>%n", id++);
+					int[][] ring = {{0, 0}, {1, 0}, {2, 0}, {2, 1}, {2, 2}, {1, 2}, {0, 2}, {0, 1}, {0, 0}};
+					for (int[] p : ring)
+						pw.printf("<nd ref='%d'/>%n", node(x + p[0], y + p[1]));
+					if ((x + y) % 6 == 0)
+						pw.println("<tag k='natural' v='water'/>");
+					else
+						pw.println("<tag k='landuse' v='forest'/>");
+					pw.println("</way>");
+				}
+			}
+			for (int y = 0; y < GRID; y += 8) {
+				pw.printf("<way id='%d'>%n", id++);
+				for (int x = 0; x < GRID; x++)
+					pw.printf("<nd ref='%d'/>%n", node(x, y));
+				pw.println("<tag k='highway' v='secondary'/>");
+				pw.printf("<tag k='name' v='Street %d'/>%n", y);
+				pw.println("</way>");
+			}
+			pw.println("</osm>");
+		}
+	}
+
+	private static long node(int x, int y) {
+		return 1 + y * GRID + x;
+	}
+}
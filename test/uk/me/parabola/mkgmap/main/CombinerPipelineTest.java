@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.main;
+
+import java.io.FileNotFoundException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.mkgmap.combiners.Combiner;
+import uk.me.parabola.mkgmap.combiners.FileInfo;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CombinerPipelineTest {
+
+	/**
+	 * Each combiner sees the maps in the order they were given, init and
+	 * onFinish are called on the calling thread.
+	 */
+	@Test
+	public void testOrder() throws FileNotFoundException {
+		RecordingCombiner c1 = new RecordingCombiner();
+		RecordingCombiner c2 = new RecordingCombiner();
+		CombinerPipeline pipeline = new CombinerPipeline(Arrays.asList(c1, c2), new CommandArgs(new EnhancedProperties()));
+		assertFalse(pipeline.isStarted());
+
+		for (int i = 0; i < 100; i++)
+			pipeline.onMapEnd(FileInfo.getFileInfo("map" + i + ".xyz"), null);
+		pipeline.onMapEndFor(c2, FileInfo.getFileInfo("extra.xyz"));
+		pipeline.onMapEnd(FileInfo.getFileInfo("last.xyz"), c2);
+		assertTrue(pipeline.isStarted());
+		pipeline.finish();
+
+		assertEquals(102, c1.names.size());
+		assertEquals(102, c2.names.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals("map" + i + ".xyz", c1.names.get(i));
+			assertEquals("map" + i + ".xyz", c2.names.get(i));
+		}
+		assertEquals("extra.xyz", c2.names.get(100));
+		assertEquals("last.xyz", c1.names.get(100));
+		assertEquals("finished", c1.names.get(101));
+		assertEquals("finished", c2.names.get(101));
+		assertSame(Thread.currentThread(), c1.initThread);
+	}
+
+	/**
+	 * An exception in a combiner is passed on to the caller.
+	 */
+	@Test(expected = MapFailedException.class)
+	public void testFailure() throws FileNotFoundException {
+		Combiner failing = new RecordingCombiner() {
+			public void onMapEnd(FileInfo info) {
+				throw new MapFailedException("failed");
+			}
+		};
+		CombinerPipeline pipeline = new CombinerPipeline(Arrays.asList(new RecordingCombiner(), failing),
+				new CommandArgs(new EnhancedProperties()));
+		pipeline.onMapEnd(FileInfo.getFileInfo("map.xyz"), null);
+		pipeline.finish();
+	}
+
+	/**
+	 * The combiners share the sort description of the arguments, the keys
+	 * they create at the same time must be the same as the ones that are
+	 * created one after the other.
+	 */
+	@Test
+	public void testSharedSort() throws FileNotFoundException {
+		List<String> labels = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+			labels.add("Straße " + i + " Ærø Café Œuvre " + (char) ('a' + i % 26));
+		Sort expected = SrtTextReader.sortForCodepage(1252);
+		Collator collator = expected.getCollator();
+		List<SortKey<String>> expectedKeys = new ArrayList<>();
+		List<Integer> expectedOrder = new ArrayList<>();
+		String last = labels.get(labels.size() - 1);
+		for (String s : labels) {
+			expectedKeys.add(expected.createSortKey(s, s));
+			expectedOrder.add(Integer.signum(collator.compare(last, s)));
+			last = s;
+		}
+
+		CommandArgs args = new CommandArgs(new EnhancedProperties());
+		args.setSort(SrtTextReader.sortForCodepage(1252));
+		List<SortingCombiner> combiners = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			combiners.add(new SortingCombiner(labels));
+		CombinerPipeline pipeline = new CombinerPipeline(new ArrayList<>(combiners), args);
+		for (int i = 0; i < 200; i++)
+			pipeline.onMapEnd(FileInfo.getFileInfo("map" + i + ".xyz"), null);
+		pipeline.finish();
+
+		for (SortingCombiner c : combiners) {
+			assertEquals(200 * labels.size(), c.keys.size());
+			for (int i = 0; i < c.keys.size(); i++) {
+				assertEquals(0, expectedKeys.get(i % labels.size()).compareTo(c.keys.get(i)));
+				assertEquals(expectedOrder.get(i % labels.size()), c.order.get(i));
+			}
+		}
+	}
+
+	private static class SortingCombiner extends RecordingCombiner {
+		private final List<String> labels;
+		private final List<SortKey<String>> keys = new ArrayList<>();
+		private final List<Integer> order = new ArrayList<>();
+		private Sort sort;
+
+		SortingCombiner(List<String> labels) {
+			this.labels = labels;
+		}
+
+		public void init(CommandArgs args) {
+			sort = args.getSort();
+		}
+
+		public void onMapEnd(FileInfo info) {
+			Collator collator = sort.getCollator();
+			String last = labels.get(labels.size() - 1);
+			for (String s : labels) {
+				keys.add(sort.createSortKey(s, s));
+				order.add(Integer.signum(collator.compare(last, s)));
+				last = s;
+			}
+		}
+	}
+
+	private static class RecordingCombiner implements Combiner {
+		private final List<String> names = new ArrayList<>();
+		private Thread initThread;
+
+		public void init(CommandArgs args) {
+			initThread = Thread.currentThread();
+		}
+
+		public void onMapEnd(FileInfo info) {
+			names.add(info.getFilename());
+		}
+
+		public void onFinish() {
+			names.add("finished");
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileCacheTest {
+	private Path dir;
+	private Path input;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("tilecache");
+		input = dir.resolve("63240001.osm");
+		write(input, "<osm/>");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> s = Files.walk(dir)) {
+			for (Path p : s.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(p);
+		}
+	}
+
+	@Test
+	public void testKeyIsStable() throws IOException {
+		String key = key(args("63240001"), true);
+		assertEquals(64, key.length());
+		assertEquals(key, key(args("63240001"), true));
+	}
+
+	@Test
+	public void testKeyChanges() throws IOException {
+		String key = key(args("63240001"), true);
+		assertFalse(key.equals(key(args("63240001"), false)));
+		assertFalse(key.equals(key(args("63240002"), true)));
+
+		CommandArgs args = args("63240001");
+		args.getProperties().setProperty("route", "");
+		assertFalse(key.equals(key(args, true)));
+
+		write(input, "<osm></osm>");
+		assertFalse(key.equals(key(args("63240001"), true)));
+	}
+
+	@Test
+	public void testIgnoredOptions() throws IOException {
+		String key = key(args("63240001"), true);
+		CommandArgs args = args("63240001");
+		args.getProperties().setProperty("max-jobs", "4");
+		args.getProperties().setProperty("output-dir", "elsewhere");
+		args.getProperties().setProperty("gmapsupp", "");
+		args.getProperties().setProperty("tdbfile", "");
+		args.getProperties().setProperty("read-threads", "2");
+		args.getProperties().setProperty("mapped-input", "");
+		assertEquals(key, key(args, true));
+	}
+
+	/**
+	 * The files of the large shared options are hashed once for each set
+	 * of values.
+	 */
+	@Test
+	public void testMetadataHashedOnce() throws IOException {
+		Path dem = Files.createDirectories(dir.resolve("dem"));
+		write(dem.resolve("N51E000.hgt"), "a");
+		CommandArgs args = args("63240001");
+		args.getProperties().setProperty("dem", dem.toString());
+		TileCache cache = new TileCache(dir.resolve("cache").toString());
+		String key = cache.getKey(args, input.toString(), true);
+
+		write(dem.resolve("N52E000.hgt"), "b");
+		assertEquals(key, cache.getKey(args, input.toString(), true));
+		// a new run sees the new file
+		assertFalse(key.equals(key(args, true)));
+	}
+
+	/**
+	 * A change in a file of the style directory changes the key.
+	 */
+	@Test
+	public void testStyleContents() throws IOException {
+		Path style = Files.createDirectories(dir.resolve("style"));
+		write(style.resolve("points"), "amenity=pub [0x2a00]");
+		CommandArgs args = args("63240001");
+		args.getProperties().setProperty("style-file", style.toString());
+		String key = key(args, true);
+
+		write(style.resolve("points"), "amenity=bar [0x2a00]");
+		assertFalse(key.equals(key(args, true)));
+	}
+
+	@Test
+	public void testNotAFile() throws IOException {
+		TileCache cache = new TileCache(dir.resolve("cache").toString());
+		assertNull(cache.getKey(args("63240001"), "test-map:all-elements", true));
+	}
+
+	@Test
+	public void testStoreAndFetch() throws IOException {
+		TileCache cache = new TileCache(dir.resolve("cache").toString());
+		Path out = Files.createDirectories(dir.resolve("out"));
+		Path img = out.resolve("63240001.img");
+		Path ovm = out.resolve("ovm_63240001.img");
+		write(img, "map");
+		write(ovm, "overview");
+
+		assertFalse(cache.fetch("abc", img.toString()));
+		cache.store("abc", img.toString());
+		// a second job with the same tile keeps the first entry
+		cache.store("abc", img.toString());
+
+		Files.delete(img);
+		write(ovm, "old overview");
+		assertTrue(cache.fetch("abc", img.toString()));
+		assertEquals("map", read(img));
+		assertEquals("overview", read(ovm));
+	}
+
+	/**
+	 * An old overview file is removed if the cached tile does not have one.
+	 */
+	@Test
+	public void testFetchWithoutOverview() throws IOException {
+		TileCache cache = new TileCache(dir.resolve("cache").toString());
+		Path out = Files.createDirectories(dir.resolve("out"));
+		Path img = out.resolve("63240001.img");
+		Path ovm = out.resolve("ovm_63240001.img");
+		write(img, "map");
+		cache.store("abc", img.toString());
+
+		write(ovm, "old overview");
+		assertTrue(cache.fetch("abc", img.toString()));
+		assertFalse(Files.exists(ovm));
+	}
+
+	private String key(CommandArgs args, boolean withOverview) throws IOException {
+		return new TileCache(dir.resolve("cache").toString()).getKey(args, input.toString(), withOverview);
+	}
+
+	private static CommandArgs args(String mapname) {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("mapname", mapname);
+		return new CommandArgs(props);
+	}
+
+	private static void write(Path p, String s) throws IOException {
+		Files.write(p, s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path p) throws IOException {
+		return new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+	}
+}
@@ -21,6 +21,7 @@ import java.io.OutputStreamWriter;
 
 import uk.me.parabola.mkgmap.reader.osm.Style;
 import uk.me.parabola.mkgmap.reader.osm.StyleInfo;
+import uk.me.parabola.util.EnhancedProperties;
 
 import org.junit.Test;
 
@@ -94,6 +95,29 @@ public class StyleImplTest {
 		if (style != null) style= null; // pseudo use the value to calm down FindBugs
 	}
 
+	/**
+	 * A style is read once per thread and reused as long as the options
+	 * that are used to read it are the same.
+	 */
+	@Test
+	public void testReadStyleReused() throws InterruptedException {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style-file", STYLE_LOC);
+		props.setProperty("style", "simple");
+		Style style = StyleImpl.readStyle(props);
+		assertSame(style, StyleImpl.readStyle(props));
+
+		Style[] other = new Style[1];
+		Thread t = new Thread(() -> other[0] = StyleImpl.readStyle(props));
+		t.start();
+		t.join();
+		assertNotNull(other[0]);
+		assertNotSame(style, other[0]);
+
+		props.setProperty("levels", "0:24,1:22");
+		assertNotSame(style, StyleImpl.readStyle(props));
+	}
+
 	private void printStyle(StyleImpl in) {
 		in.dumpToFile(new OutputStreamWriter(System.out));
 	}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.eval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.osmstyle.ActionRule;
+import uk.me.parabola.mkgmap.osmstyle.ExpressionRule;
+import uk.me.parabola.mkgmap.osmstyle.RuleSet;
+import uk.me.parabola.mkgmap.reader.osm.Rule;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+
+import org.junit.Test;
+
+import static func.lib.TestUtils.makeRuleSet;
+import static org.junit.Assert.*;
+
+/**
+ * The compiled expressions must give exactly the same results as the
+ * interpreter.
+ */
+public class CompiledOpTest {
+	private static final String RULES = "highway=primary & bridge!=yes [0x1]"
+			+ "highway=secondary | highway=tertiary {set road=minor} [0x2 continue]"
+			+ "road=minor & name~'A.*' [0x3]"
+			+ "highway=* & !(name~'B.*') & !(bridge=yes) [0x4]"
+			+ "highway=track & tracktype!=* [0x5]"
+			+ "waterway=* & (name=* | ref=*) & width>4 [0x6]"
+			+ "waterway=river & length()>100 [0x7]"
+			+ "natural=water {add name='lake'} [0x8 continue with_actions]"
+			+ "natural=* & name=lake [0x9]";
+
+	private static final String[][] TAGS = {
+			{"highway", "primary", "secondary", "tertiary", "track"},
+			{"bridge", "yes", "no"},
+			{"name", "A1", "B2", "lake"},
+			{"tracktype", "grade1"},
+			{"waterway", "river", "stream"},
+			{"ref", "x"},
+			{"width", "3", "5"},
+			{"natural", "water", "wood"},
+	};
+
+	@Test
+	public void testSameResults() {
+		RuleSet interpreted = makeRuleSet(RULES);
+		RuleSet compiled = makeRuleSet(RULES);
+		compiled.setCompileRules(true);
+
+		// all combinations of the tags, each tag absent or with one of the values
+		int combinations = 1;
+		for (String[] tag : TAGS)
+			combinations *= tag.length;
+		for (int i = 0; i < combinations; i++) {
+			Way w = new Way(i);
+			w.addPoint(new Coord(0, 0));
+			w.addPoint(new Coord(1000, 1000));
+			int n = i;
+			for (String[] tag : TAGS) {
+				int v = n % tag.length;
+				n /= tag.length;
+				if (v > 0)
+					w.addTag(tag[0], tag[v]);
+			}
+			List<String> expected = resolve(interpreted, w.copy());
+			List<String> actual = resolve(compiled, w.copy());
+			assertEquals(w.toTagString(), expected, actual);
+		}
+	}
+
+	@Test
+	public void testRulesAreCompiled() {
+		RuleSet interpreted = makeRuleSet(RULES);
+		RuleSet compiled = makeRuleSet(RULES);
+		compiled.setCompileRules(true);
+		compiled.prepare();
+
+		assertEquals(interpreted.toString(), compiled.toString());
+		int numCompiled = 0;
+		for (Rule rule : compiled) {
+			Op op = rule instanceof ExpressionRule ? ((ExpressionRule) rule).getOp() : ((ActionRule) rule).getOp();
+			if (op instanceof CompiledOp)
+				numCompiled++;
+		}
+		assertTrue("compiled rules", numCompiled > 0);
+
+		// switching back restores the original expressions
+		compiled.setCompileRules(false);
+		compiled.resolveType(new Way(1), (el, type) -> {});
+		for (Rule rule : compiled) {
+			Op op = rule instanceof ExpressionRule ? ((ExpressionRule) rule).getOp() : ((ActionRule) rule).getOp();
+			assertFalse(op instanceof CompiledOp);
+		}
+	}
+
+	private static List<String> resolve(RuleSet rs, Way w) {
+		List<String> types = new ArrayList<>();
+		rs.resolveType(w, (el, type) -> types.add(type.getType() + " " + el.toTagString()));
+		return types;
+	}
+}
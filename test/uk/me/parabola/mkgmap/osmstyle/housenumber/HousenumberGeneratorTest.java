@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.housenumber;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.imgfmt.app.net.Numbers;
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.general.MapRoad;
+import uk.me.parabola.mkgmap.reader.osm.Node;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HousenumberGeneratorTest {
+	private static final int STREETS = 12;
+	private static final int POINTS = 40;
+	private static final double STEP = 0.0005;
+
+	/**
+	 * The closest roads are found by several threads, the matches and the
+	 * numbers of the roads must be the same as with a single thread.
+	 */
+	@Test
+	public void testThreadsSameAsSingle() {
+		List<String> single = generate(1);
+		// more houses than one task handles
+		assertTrue(single.size() > 1024);
+		assertEquals(single, generate(4));
+	}
+
+	private static List<String> generate(int threads) {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("housenumbers", "true");
+		props.setProperty("housenumber-threads", Integer.toString(threads));
+		HousenumberGenerator gen = new HousenumberGenerator(props);
+
+		long id = 1;
+		for (int s = 0; s < STREETS; s++) {
+			for (boolean vertical : new boolean[] {false, true}) {
+				String name = (vertical ? "Avenue " : "Street ") + s;
+				double fixed = 50 + s * POINTS * STEP / STREETS;
+				List<Coord> points = new ArrayList<>();
+				for (int i = 0; i < POINTS; i++) {
+					double moving = 50 + i * STEP;
+					points.add(vertical ? new Coord(moving, fixed + 0.0001) : new Coord(fixed, moving));
+				}
+				Way way = new Way(id++, points);
+				way.addTag("highway", "residential");
+				way.addTag("name", name);
+				MapLine line = new MapLine();
+				line.setPoints(points);
+				line.setName(name);
+				line.setStreet(name);
+				MapRoad road = new MapRoad((int) way.getId(), way.getId(), line);
+				gen.addRoad(way, road);
+
+				// houses on both sides, some of them close to a crossing street
+				for (int i = 0; i < POINTS * 3; i++) {
+					double moving = 50 + i * STEP / 3;
+					double offset = (i % 2 == 0 ? 1 : -1) * 0.00015;
+					Coord co = vertical ? new Coord(moving, fixed + 0.0001 + offset)
+							: new Coord(fixed + offset, moving);
+					Node house = new Node(1000000 + id * 1000 + i, co);
+					house.addTag("addr:street", name);
+					house.addTag("addr:housenumber", Integer.toString(i + 1));
+					gen.addNode(house);
+				}
+			}
+		}
+
+		List<MapLine> roads = new ArrayList<>();
+		gen.generate(roads::add);
+
+		List<String> result = new ArrayList<>();
+		for (HousenumberElem house : gen.getHouseElems()) {
+			HousenumberMatch m = (HousenumberMatch) house;
+			result.add(m.getElement().getId() + " " + (m.getRoad() == null ? null : m.getRoad().getRoadDef().getId())
+					+ " " + m.getSegment() + " " + m.isLeft() + " " + m.getDistance() + " " + m.getSegmentFrac()
+					+ " " + m.isIgnored());
+		}
+		for (MapLine line : roads) {
+			MapRoad road = (MapRoad) line;
+			List<Numbers> numbers = road.getRoadDef().getNumbersList();
+			result.add(road.getRoadDef().getId() + " " + numbers);
+		}
+		return result;
+	}
+}
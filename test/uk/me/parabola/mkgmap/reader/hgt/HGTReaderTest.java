@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.hgt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for HGTReader with small generated hgt files.
+ */
+public class HGTReaderTest {
+	private static final int RES = 10;
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("hgttest");
+		byte[] data = makeHgt();
+		Files.write(dir.resolve("N10E020.hgt"), data);
+		try (OutputStream os = Files.newOutputStream(dir.resolve("N11E020.hgt.zip"));
+				ZipOutputStream zos = new ZipOutputStream(os)) {
+			zos.putNextEntry(new ZipEntry("N11E020.hgt"));
+			zos.write(data);
+			zos.closeEntry();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : dir.toFile().listFiles())
+			f.delete();
+		dir.toFile().delete();
+	}
+
+	@Test
+	public void testPlainFile() {
+		checkReader(10, 20);
+	}
+
+	@Test
+	public void testZipFile() {
+		checkReader(11, 20);
+	}
+
+	/**
+	 * Two readers for the same file see the same values, also after the
+	 * buffer of one of them was released.
+	 */
+	private void checkReader(int lat, int lon) {
+		HGTReader r1 = new HGTReader(lat, lon, dir.toString());
+		HGTReader r2 = new HGTReader(lat, lon, dir.toString());
+		assertEquals(RES, r1.getRes());
+		assertEquals(height(3, 7), r1.ele(3, 7));
+		assertEquals(height(RES, 0), r2.ele(RES, 0));
+		assertTrue(r1.freeBuf());
+		assertFalse(r1.freeBuf());
+		assertEquals(height(0, RES), r2.ele(0, RES));
+		assertEquals(height(5, 5), r1.ele(5, 5));
+		r1.freeBuf();
+		r2.freeBuf();
+	}
+
+	private static byte[] makeHgt() {
+		ByteBuffer buf = ByteBuffer.allocate(2 * (RES + 1) * (RES + 1));
+		// rows are stored from north to south
+		for (int y = RES; y >= 0; y--) {
+			for (int x = 0; x <= RES; x++)
+				buf.putShort(height(x, y));
+		}
+		return buf.array();
+	}
+
+	private static short height(int x, int y) {
+		return (short) (100 * y + x);
+	}
+}
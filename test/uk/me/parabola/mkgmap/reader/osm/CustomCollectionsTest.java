@@ -16,6 +16,8 @@
 package uk.me.parabola.mkgmap.reader.osm;
 
 
+import uk.me.parabola.imgfmt.app.Coord;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -120,4 +122,36 @@ public class CustomCollectionsTest {
 		assertEquals(true, map.get(idOffset + 5) == null);
 	}
 	
+	@Test
+	public void testPackedCoordMap() {
+		PackedCoordMap map = new PackedCoordMap();
+		Coord[] coords = new Coord[200000];
+		for (int i = 0; i < coords.length; i++) {
+			coords[i] = new Coord(-89.9 + i * 0.0009, 179.9 - i * 0.0017);
+			map.put(2L * i + 1, coords[i]);
+		}
+		assertEquals(coords.length, map.size());
+		for (int i = 0; i < coords.length; i++) {
+			Coord co = map.get(2L * i + 1, id -> null);
+			assertEquals(coords[i].getHighPrecLat(), co.getHighPrecLat());
+			assertEquals(coords[i].getHighPrecLon(), co.getHighPrecLon());
+			assertEquals(coords[i].getLatitude(), co.getLatitude());
+			assertEquals(coords[i].getLongitude(), co.getLongitude());
+			// the same instance is returned for the following requests
+			assertSame(co, map.get(2L * i + 1, id -> null));
+			assertNull(map.get(2L * i + 2, id -> null));
+		}
+		assertNull(map.get(0, id -> null));
+
+		// positions that are not in ascending order are also found
+		Coord co = new Coord(10.0, 20.0);
+		map.put(4, co);
+		assertSame(co, map.get(4, id -> null));
+
+		// the location of a tagged node is used
+		Node node = new Node(1000001, new Coord(50.0, 8.0));
+		map.put(1000001, node.getLocation());
+		assertSame(node.getLocation(), map.get(1000001, id -> node));
+	}
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrecompSeaCacheTest {
+
+	@Test
+	public void testTileIsDecodedOnce() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		Callable<Collection<Way>> loader = () -> {
+			calls.incrementAndGet();
+			Coord a = new Coord(50.0, 8.0);
+			Coord b = new Coord(50.0, 8.1);
+			Coord c = new Coord(50.1000001, 8.1);
+			Way sea = new Way(1, Arrays.asList(a, b, c, a));
+			sea.addTag("natural", "sea");
+			sea.setClosedInOSM(true);
+			Way land = new Way(2, Arrays.asList(c, b));
+			land.addTag("natural", "land");
+			land.setComplete(false);
+			return Arrays.asList(sea, land);
+		};
+
+		List<Way> first = PrecompSeaCache.getWays("test/tile1", loader);
+		List<Way> second = PrecompSeaCache.getWays("test/tile1", loader);
+		assertEquals("loader calls", 1, calls.get());
+		assertEquals(2, second.size());
+
+		Way sea = second.get(0);
+		Way land = second.get(1);
+		assertNotSame("new instances", first.get(0), sea);
+		assertNotSame("new points", first.get(0).getFirstPoint(), sea.getFirstPoint());
+		assertEquals(1, sea.getId());
+		assertEquals("sea", sea.getTag("natural"));
+		assertTrue(sea.isClosedInOSM());
+		assertTrue(sea.hasIdenticalEndPoints());
+		assertSame("shared point", sea.getPoints().get(2), land.getFirstPoint());
+		assertFalse(land.isComplete());
+
+		Coord c = new Coord(50.1000001, 8.1);
+		Coord decoded = land.getFirstPoint();
+		assertEquals(c.getHighPrecLat(), decoded.getHighPrecLat());
+		assertEquals(c.getHighPrecLon(), decoded.getHighPrecLon());
+	}
+
+	@Test
+	public void testFailureIsNotCached() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		Callable<Collection<Way>> loader = () -> {
+			if (calls.incrementAndGet() == 1)
+				throw new FileNotFoundException("tile2");
+			return Arrays.asList(new Way(3));
+		};
+		try {
+			PrecompSeaCache.getWays("test/tile2", loader);
+			fail("exception expected");
+		} catch (FileNotFoundException e) {
+			// expected
+		}
+		assertEquals(1, PrecompSeaCache.getWays("test/tile2", loader).size());
+		assertEquals(2, calls.get());
+	}
+}
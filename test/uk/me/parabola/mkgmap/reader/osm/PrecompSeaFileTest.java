@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrecompSeaFileTest {
+	private static final int RASTER = SeaGenerator.PRECOMP_RASTER;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("precomp", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		int lat = 71 * RASTER;
+		int lon = -RASTER;
+		Coord a = new Coord(50.0000001, -0.5);
+		Coord b = new Coord(50.0, -0.4999999);
+		Coord c = new Coord(50.1, -0.5);
+		Way sea = new Way(1, Arrays.asList(a, b, c, a));
+		sea.addTag("natural", "sea");
+		// a small island far away from the other ring
+		Coord d = new Coord(50.5, -0.1);
+		Coord e = new Coord(50.5, -0.09);
+		Coord f = new Coord(50.51, -0.09);
+		Way land = new Way(2, Arrays.asList(d, e, f, d));
+		land.addTag("natural", "land");
+
+		try (PrecompSeaFile.Writer writer = new PrecompSeaFile.Writer(file)) {
+			writer.addTile(lat, lon, Arrays.asList(sea, land));
+			writer.addTile(lat, lon - RASTER, true);
+			writer.addTile(lat, lon + RASTER, false);
+		}
+		assertTrue(PrecompSeaFile.isPrecompSeaFile(file));
+
+		try (PrecompSeaFile seaFile = new PrecompSeaFile(file)) {
+			int maxLat = 1 << 22;
+			int maxLon = 1 << 23;
+			byte[][] index = new byte[600][300];
+			seaFile.fillIndex(index, maxLat, maxLon);
+			assertEquals('m', index[(maxLon - lon) / RASTER][(maxLat - lat) / RASTER]);
+			assertEquals('l', index[(maxLon - lon + RASTER) / RASTER][(maxLat - lat) / RASTER]);
+			assertEquals('s', index[(maxLon - lon - RASTER) / RASTER][(maxLat - lat) / RASTER]);
+
+			Area all = new Area(lat, lon, lat + RASTER, lon + RASTER);
+			List<PrecompSeaFile.Ring> rings = seaFile.readTile(lat, lon, all);
+			assertEquals(2, rings.size());
+			PrecompSeaFile.Ring r = rings.get(0);
+			assertFalse(r.isLand());
+			assertTrue(r.isClosed());
+			assertSame(r.getPoints().get(0), r.getPoints().get(3));
+			assertEquals(4, r.getPoints().size());
+			for (int i = 0; i < 4; i++) {
+				Coord expected = sea.getPoints().get(i);
+				Coord actual = r.getPoints().get(i);
+				assertEquals(expected.getHighPrecLat(), actual.getHighPrecLat());
+				assertEquals(expected.getHighPrecLon(), actual.getHighPrecLon());
+				assertEquals(expected.getLatitude(), actual.getLatitude());
+				assertEquals(expected.getLongitude(), actual.getLongitude());
+			}
+			assertTrue(rings.get(1).isLand());
+
+			// only the ring that intersects the area is read
+			Area part = new Area(c.getLatitude() - 10, a.getLongitude() - 10, c.getLatitude() + 10,
+					a.getLongitude() + 10);
+			rings = seaFile.readTile(lat, lon, part);
+			assertEquals(1, rings.size());
+			assertFalse(rings.get(0).isLand());
+
+			assertTrue(seaFile.readTile(lat, lon - RASTER, all).isEmpty());
+			assertTrue(seaFile.readTile(lat + RASTER, lon, all).isEmpty());
+		}
+	}
+}
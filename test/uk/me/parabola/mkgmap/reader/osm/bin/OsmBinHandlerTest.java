@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.bin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+import uk.me.parabola.imgfmt.FormatException;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.Element;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.FakeIdGenerator;
+import uk.me.parabola.mkgmap.reader.osm.OsmReadingHooksChain;
+import uk.me.parabola.mkgmap.reader.osm.Relation;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.util.EnhancedProperties;
+
+import com.google.protobuf.ByteString;
+import crosby.binary.Fileformat;
+import crosby.binary.Osmformat;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OsmBinHandlerTest {
+	private static final String[] STRINGS = {"", "highway", "residential", "name", "Main Street", "amenity", "pub",
+			"type", "multipolygon", "outer", "inner", "natural", "water", "member"};
+	private static final int BLOCKS = 12;
+	private static final int NODES_PER_BLOCK = 50;
+
+	/**
+	 * The blocks are decoded by several threads, the elements must be the
+	 * same as when the file is read sequentially.
+	 */
+	@Test
+	public void testParallelSameAsSequential() throws IOException {
+		byte[] file = createFile();
+		List<String> sequential = parse(file, 1);
+		// at least the tagged nodes and the ways
+		assertTrue(sequential.size() > 100);
+		assertEquals(sequential, parse(file, 2));
+		assertEquals(sequential, parse(file, 4));
+	}
+
+	/**
+	 * A corrupt header size is rejected before the buffer is allocated.
+	 */
+	@Test
+	public void testHeaderTooLarge() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(Integer.MAX_VALUE);
+		out.write(new byte[16]);
+		for (int threads : new int[] {1, 2}) {
+			try {
+				parse(bytes.toByteArray(), threads);
+				fail("exception expected");
+			} catch (FormatException e) {
+				// expected
+			}
+		}
+	}
+
+	private static List<String> parse(byte[] file, int threads) {
+		ElementSaver saver = new ElementSaver(new EnhancedProperties());
+		OsmBinHandler handler = new OsmBinHandler();
+		handler.setElementSaver(saver);
+		handler.setHooks(new OsmReadingHooksChain());
+		handler.setReadThreads(threads);
+		handler.parse(new ByteArrayInputStream(file));
+
+		List<String> result = new ArrayList<>();
+		for (Element el : new TreeMap<>(saver.getNodes()).values())
+			result.add(describe(el));
+		for (Way w : new TreeMap<>(saver.getWays()).values()) {
+			// the ways made from multipolygons get ids that differ in each run
+			if (FakeIdGenerator.isFakeId(w.getId()))
+				continue;
+			StringBuilder sb = new StringBuilder(describe(w));
+			for (Coord co : w.getPoints())
+				sb.append(' ').append(co.getHighPrecLat()).append(',').append(co.getHighPrecLon());
+			result.add(sb.toString());
+		}
+		for (Relation r : new TreeMap<>(saver.getRelations()).values()) {
+			StringBuilder sb = new StringBuilder(describe(r));
+			for (Map.Entry<String, Element> member : r.getElements())
+				sb.append(' ').append(member.getKey()).append('=').append(member.getValue().getId());
+			result.add(sb.toString());
+		}
+		return result;
+	}
+
+	private static String describe(Element el) {
+		return el.getClass().getSimpleName() + ' ' + el.getId() + ' ' + el.toTagString();
+	}
+
+	/**
+	 * @return a file with a header block and blocks of nodes, ways and
+	 * relations. Ways and relations refer to elements of earlier blocks,
+	 * the blobs are alternately compressed and raw.
+	 */
+	private static byte[] createFile() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		Osmformat.HeaderBlock header = Osmformat.HeaderBlock.newBuilder()
+				.addRequiredFeatures("OsmSchema-V0.6").addRequiredFeatures("DenseNodes").build();
+		writeBlob(out, "OSMHeader", header.toByteArray(), true);
+
+		long nodeId = 1;
+		for (int b = 0; b < BLOCKS; b++) {
+			Osmformat.PrimitiveGroup.Builder group = Osmformat.PrimitiveGroup.newBuilder();
+			if (b % 3 != 2) {
+				Osmformat.DenseNodes.Builder dense = Osmformat.DenseNodes.newBuilder();
+				long lastId = 0, lastLat = 0, lastLon = 0;
+				for (int i = 0; i < NODES_PER_BLOCK; i++) {
+					long lat = 500000000L + nodeId * 1234;
+					long lon = 80000000L + (nodeId * 7919) % 1000000;
+					dense.addId(nodeId - lastId).addLat(lat - lastLat).addLon(lon - lastLon);
+					lastId = nodeId;
+					lastLat = lat;
+					lastLon = lon;
+					if (nodeId % 5 == 0)
+						dense.addKeysVals(5).addKeysVals(6).addKeysVals(3).addKeysVals(4);
+					dense.addKeysVals(0);
+					nodeId++;
+				}
+				group.setDense(dense);
+			} else {
+				// ways of the nodes read so far and a relation of them
+				Osmformat.Relation.Builder rel = Osmformat.Relation.newBuilder().setId(b).addKeys(7).addVals(8)
+						.addKeys(11).addVals(12);
+				long lastMember = 0;
+				for (int w = 0; w < 10; w++) {
+					long wayId = b * 100L + w;
+					Osmformat.Way.Builder way = Osmformat.Way.newBuilder().setId(wayId).addKeys(1).addVals(2);
+					if (w % 2 == 0)
+						way.addKeys(3).addVals(4);
+					long last = 0;
+					for (int i = 0; i < 5; i++) {
+						long ref = 1 + (wayId * 31 + i * 17) % (nodeId - 1);
+						way.addRefs(ref - last);
+						last = ref;
+					}
+					group.addWays(way);
+					rel.addMemids(wayId - lastMember).addRolesSid(w == 0 ? 9 : 10)
+							.addTypes(Osmformat.Relation.MemberType.WAY);
+					lastMember = wayId;
+				}
+				// a node and a relation that is only read later
+				rel.addMemids(1 - lastMember).addRolesSid(13).addTypes(Osmformat.Relation.MemberType.NODE);
+				rel.addMemids(b + 3 - 1).addRolesSid(13).addTypes(Osmformat.Relation.MemberType.RELATION);
+				group.addRelations(rel);
+			}
+			Osmformat.StringTable.Builder strings = Osmformat.StringTable.newBuilder();
+			for (String s : STRINGS)
+				strings.addS(ByteString.copyFrom(s, StandardCharsets.UTF_8.name()));
+			Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.newBuilder().setStringtable(strings)
+					.addPrimitivegroup(group).build();
+			writeBlob(out, "OSMData", block.toByteArray(), b % 2 == 0);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeBlob(DataOutputStream out, String type, byte[] data, boolean compress)
+			throws IOException {
+		Fileformat.Blob.Builder blob = Fileformat.Blob.newBuilder();
+		if (compress) {
+			Deflater deflater = new Deflater();
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buf = new byte[data.length + 64];
+			int len = deflater.deflate(buf);
+			deflater.end();
+			blob.setZlibData(ByteString.copyFrom(buf, 0, len)).setRawSize(data.length);
+		} else {
+			blob.setRaw(ByteString.copyFrom(data));
+		}
+		byte[] blobBytes = blob.build().toByteArray();
+		byte[] header = Fileformat.BlobHeader.newBuilder().setType(type).setDatasize(blobBytes.length).build()
+				.toByteArray();
+		out.writeInt(header.length);
+		out.write(header);
+		out.write(blobBytes);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.boundary;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.Tags;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundaryQuadTreeTest {
+	private static final int RASTER = BoundaryUtil.RASTER;
+
+	private static Area polygon(double... xy) {
+		Path2D.Double path = new Path2D.Double();
+		path.moveTo(xy[0], xy[1]);
+		for (int i = 2; i < xy.length; i += 2)
+			path.lineTo(xy[i], xy[i + 1]);
+		path.closePath();
+		return new Area(path);
+	}
+
+	private static Boundary boundary(String id, Area area, String... tags) {
+		Tags t = new Tags();
+		for (int i = 0; i < tags.length; i += 2)
+			t.put(tags[i], tags[i + 1]);
+		return new Boundary(area, t, id);
+	}
+
+	@Test
+	public void testRingsContainLikeArea() throws IOException {
+		Area area = polygon(10, 10, 90.5, 12.25, 70, 80, 40.125, 95, 5, 60);
+		area.subtract(polygon(30, 30, 50, 35, 45, 55));
+		area.add(polygon(95, 95, 99, 95, 99, 99));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream dos = new DataOutputStream(bytes)) {
+			BoundaryRings.write(dos, Arrays.asList(new Area(), area));
+		}
+		ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+		BoundaryRings rings = new BoundaryRings(buf);
+		assertFalse(buf.hasRemaining());
+
+		for (double x = 0; x <= 100; x += 0.125) {
+			for (double y = 0; y <= 100; y += 0.125) {
+				assertFalse(rings.contains(0, x, y));
+				assertEquals(x + " " + y, area.contains(x, y), rings.contains(1, x, y));
+			}
+		}
+		assertTrue(area.equals(rings.createArea(1)));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		int lat = 40 * RASTER;
+		int lon = -2 * RASTER;
+		uk.me.parabola.imgfmt.app.Area bbox = new uk.me.parabola.imgfmt.app.Area(lat, lon, lat + RASTER, lon + RASTER);
+		int mid = lon + RASTER / 2;
+		List<Boundary> boundaries = new ArrayList<>();
+		boundaries.add(boundary("r1", polygon(lon - 100, lat - 100, lon + RASTER + 100, lat - 100,
+				lon + RASTER + 100, lat + RASTER + 100, lon - 100, lat + RASTER + 100),
+				"boundary", "administrative", "admin_level", "2", "name", "Country"));
+		boundaries.add(boundary("r2", polygon(lon + 10, lat + 10, mid + 700, lat + 10, mid - 300, lat + RASTER - 10,
+				lon + 10, lat + RASTER - 10), "boundary", "administrative", "admin_level", "4", "name", "West"));
+		boundaries.add(boundary("r3", polygon(mid + 700, lat + 10, lon + RASTER - 10, lat + 10,
+				lon + RASTER - 10, lat + RASTER - 10, mid - 300, lat + RASTER - 10),
+				"boundary", "administrative", "admin_level", "4", "name", "East"));
+		boundaries.add(boundary("r4", polygon(mid - 5000, lat + 5000, mid + 6000, lat + 7000, mid, lat + 20000),
+				"boundary", "postal_code", "postal_code", "12345"));
+		BoundaryQuadTree bqt = new BoundaryQuadTree(bbox, boundaries, null);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bqt.save(bytes);
+		BoundaryQuadTree loaded = new BoundaryQuadTree(ByteBuffer.wrap(bytes.toByteArray()), bbox, null, null);
+		assertEquals(bqt.getTagsMap().keySet(), loaded.getTagsMap().keySet());
+
+		int found = 0;
+		for (int y = lat; y < lat + RASTER; y += 997) {
+			for (int x = lon; x < lon + RASTER; x += 991) {
+				Coord co = new Coord(y, x);
+				Tags expected = bqt.get(co);
+				Tags actual = loaded.get(co);
+				if (expected == null) {
+					assertNull(actual);
+					continue;
+				}
+				found++;
+				assertNotNull(actual);
+				for (String key : BoundaryQuadTree.mkgmapTagsArray)
+					assertEquals(key, expected.get(key), actual.get(key));
+			}
+		}
+		assertTrue(found > 0);
+		Coord postalCode = new Coord(lat + 7000, mid);
+		assertEquals("12345", loaded.get(postalCode).get("mkgmap:postcode"));
+		assertEquals("West", loaded.get(postalCode).get("mkgmap:admin_level4"));
+
+		// the loaded areas are created when they are needed
+		assertEquals(bqt.getCoveredArea(4).getBounds2D(), loaded.getCoveredArea(4).getBounds2D());
+
+		// areas outside of the search bounding box are ignored
+		uk.me.parabola.imgfmt.app.Area searchBbox = new uk.me.parabola.imgfmt.app.Area(lat + 100, lon + RASTER - 100,
+				lat + 200, lon + RASTER - 20);
+		BoundaryQuadTree part = new BoundaryQuadTree(ByteBuffer.wrap(bytes.toByteArray()), bbox, searchBbox, null);
+		Coord west = new Coord(lat + 150, lon + 100);
+		assertEquals("West", loaded.get(west).get("mkgmap:admin_level4"));
+		assertNull(part.get(west));
+		assertNull(loaded.get(west, searchBbox));
+		Coord east = new Coord(lat + 150, lon + RASTER - 50);
+		assertEquals("East", part.get(east).get("mkgmap:admin_level4"));
+		assertEquals("East", loaded.get(east, searchBbox).get("mkgmap:admin_level4"));
+	}
+}
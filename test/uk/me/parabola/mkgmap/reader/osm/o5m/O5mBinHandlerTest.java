@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.o5m;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.Element;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.OsmReadingHooksChain;
+import uk.me.parabola.mkgmap.reader.osm.Relation;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class O5mBinHandlerTest {
+	private static final int NODES = 60;
+	private static final String LONG_NAME = String.join("", Collections.nCopies(30, "long name "));
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("o5mtest", ".o5m");
+		Files.write(file, createFile());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	/**
+	 * The mapped file must give the same elements as the stream. Most tags
+	 * are references to the string table, so the second use of a pair is
+	 * handled with the remembered key and value.
+	 */
+	@Test
+	public void testMappedSameAsStream() throws IOException {
+		List<String> stream = parse(false);
+		List<String> mapped = parse(true);
+		assertEquals(stream, mapped);
+		assertEquals(NODES / 3 + NODES / 6 + 1, stream.size());
+	}
+
+	/**
+	 * The tags are cleaned and dropped in the same way when they are read
+	 * again from the string table.
+	 */
+	@Test
+	public void testTagsFromStringTable() throws IOException {
+		for (boolean mapped : new boolean[] {false, true}) {
+			List<String> result = parse(mapped);
+			String first = result.get(0);
+			String last = result.get(NODES / 3 - 1);
+			assertEquals("Node 3 [amenity=pub, name=The Red Lion]", first);
+			assertEquals("Node " + NODES + " [amenity=pub, name=The Red Lion]", last);
+			for (String s : result) {
+				assertFalse(s, s.contains("note="));
+				assertFalse(s, s.contains("created_by="));
+			}
+			String rel = result.get(result.size() - 1);
+			assertTrue(rel, rel.startsWith("GeneralRelation 1 incomplete [route=bus, type=route] =1 stop=6 =2 stop=12"));
+		}
+	}
+
+	private List<String> parse(boolean mapped) throws IOException {
+		ElementSaver saver = new ElementSaver(new EnhancedProperties());
+		O5mBinHandler handler = new O5mBinHandler();
+		handler.setElementSaver(saver);
+		handler.setHooks(new OsmReadingHooksChain());
+		handler.setUsedTags(new HashSet<>(Arrays.asList("amenity", "name", "highway", "route", "created_by")));
+		Map<String, Set<String>> deleted = new HashMap<>();
+		deleted.put("created_by", new HashSet<>());
+		handler.setTagsToDelete(deleted);
+		handler.setMapInput(mapped);
+		try (FileInputStream is = new FileInputStream(file.toFile())) {
+			handler.parse(is);
+		}
+
+		List<String> result = new ArrayList<>();
+		for (Element el : new TreeMap<>(saver.getNodes()).values())
+			result.add(describe(el));
+		for (Way w : new TreeMap<>(saver.getWays()).values()) {
+			StringBuilder sb = new StringBuilder(describe(w));
+			for (Coord co : w.getPoints())
+				sb.append(' ').append(co.getHighPrecLat()).append(',').append(co.getHighPrecLon());
+			result.add(sb.toString());
+		}
+		for (Relation r : new TreeMap<>(saver.getRelations()).values()) {
+			StringBuilder sb = new StringBuilder(r.getClass().getSimpleName() + ' ' + r.getId());
+			if (r.getTagsIncomplete())
+				sb.append(" incomplete");
+			sb.append(' ').append(r.toTagString());
+			for (Map.Entry<String, Element> member : r.getElements())
+				sb.append(' ').append(member.getKey()).append('=').append(member.getValue().getId());
+			result.add(sb.toString());
+		}
+		return result;
+	}
+
+	private static String describe(Element el) {
+		return el.getClass().getSimpleName() + ' ' + el.getId() + ' ' + el.toTagString();
+	}
+
+	/**
+	 * @return an o5m file with nodes, ways and a relation. The nodes and the
+	 * ways are separated by a reset, the tags repeat so that most of them
+	 * are references to the string table.
+	 */
+	private static byte[] createFile() {
+		O5mWriter w = new O5mWriter();
+		w.out.write(0xff);
+		w.dataSet(0xe0, "o5m2".getBytes(StandardCharsets.US_ASCII));
+
+		long lastId = 0;
+		long lastLat = 0;
+		long lastLon = 0;
+		for (long id = 1; id <= NODES; id++) {
+			ByteArrayOutputStream ds = new ByteArrayOutputStream();
+			w.signed(ds, id - lastId);
+			w.version(ds, id);
+			long lon = 80000000L + id * 1311;
+			long lat = 500000000L + (id * 7919) % 100000;
+			w.signed(ds, lon - lastLon);
+			w.signed(ds, lat - lastLat);
+			lastId = id;
+			lastLon = lon;
+			lastLat = lat;
+			if (id % 3 == 0) {
+				w.pair(ds, "amenity", "pub");
+				// the value is cleaned
+				w.pair(ds, "name", "The  Red Lion ");
+				// not used by the style
+				w.pair(ds, "note", "checked");
+			}
+			if (id % 4 == 0)
+				w.pair(ds, "created_by", "JOSM");
+			w.dataSet(0x10, ds.toByteArray());
+		}
+
+		w.reset();
+		lastId = 0;
+		long lastRef = 0;
+		for (long id = 1; id <= NODES / 6; id++) {
+			ByteArrayOutputStream ds = new ByteArrayOutputStream();
+			w.signed(ds, id - lastId);
+			w.version(ds, id);
+			ByteArrayOutputStream refs = new ByteArrayOutputStream();
+			for (long ref = id * 6 - 5; ref <= id * 6; ref++) {
+				w.signed(refs, ref - lastRef);
+				lastRef = ref;
+			}
+			w.unsigned(ds, refs.size());
+			ds.write(refs.toByteArray(), 0, refs.size());
+			w.pair(ds, "highway", id % 2 == 0 ? "residential" : "service");
+			// too long for the string table
+			w.pair(ds, "name", LONG_NAME);
+			w.pair(ds, "note", "checked");
+			lastId = id;
+			w.dataSet(0x11, ds.toByteArray());
+		}
+
+		ByteArrayOutputStream ds = new ByteArrayOutputStream();
+		w.signed(ds, 1);
+		w.version(ds, 1);
+		ByteArrayOutputStream refs = new ByteArrayOutputStream();
+		long lastWay = 0;
+		// the node references of the ways and the relations share the delta
+		long lastNode = lastRef;
+		for (long id = 1; id <= NODES / 6; id++) {
+			w.signed(refs, id - lastWay);
+			lastWay = id;
+			w.single(refs, "1", "");
+			w.signed(refs, id * 6 - lastNode);
+			lastNode = id * 6;
+			w.single(refs, "0", "stop");
+		}
+		w.unsigned(ds, refs.size());
+		ds.write(refs.toByteArray(), 0, refs.size());
+		w.pair(ds, "type", "route");
+		w.pair(ds, "route", "bus");
+		w.pair(ds, "note", "checked");
+		w.dataSet(0x12, ds.toByteArray());
+		w.out.write(0xfe);
+		return w.out.toByteArray();
+	}
+
+	/**
+	 * Writes the parts of an o5m file, with a string table like the one of
+	 * the reader.
+	 */
+	private static class O5mWriter {
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private final List<String> table = new ArrayList<>();
+
+		void dataSet(int type, byte[] data) {
+			out.write(type);
+			unsigned(out, data.length);
+			out.write(data, 0, data.length);
+		}
+
+		void reset() {
+			out.write(0xff);
+			table.clear();
+		}
+
+		void unsigned(ByteArrayOutputStream os, long n) {
+			while (n >= 0x80) {
+				os.write((int) (n & 0x7f) | 0x80);
+				n >>>= 7;
+			}
+			os.write((int) n);
+		}
+
+		void signed(ByteArrayOutputStream os, long n) {
+			unsigned(os, n >= 0 ? n << 1 : ((-n - 1) << 1) | 1);
+		}
+
+		/**
+		 * Every second element has a time stamp and an author.
+		 */
+		void version(ByteArrayOutputStream os, long id) {
+			if (id % 2 == 1) {
+				unsigned(os, 0);
+				return;
+			}
+			unsigned(os, 1);
+			signed(os, id == 2 ? 1000 : 1);
+			signed(os, 5);
+			if (!ref(os, "42\0mapper")) {
+				unsigned(os, 0);
+				unsigned(os, 42);
+				os.write(0);
+				string(os, "mapper");
+				table.add("42\0mapper");
+			}
+		}
+
+		void pair(ByteArrayOutputStream os, String key, String val) {
+			if (ref(os, key + '\0' + val))
+				return;
+			unsigned(os, 0);
+			int len = string(os, key) + string(os, val);
+			if (len <= 250)
+				table.add(key + '\0' + val);
+		}
+
+		/**
+		 * A member type and role, written as a single string.
+		 */
+		void single(ByteArrayOutputStream os, String type, String role) {
+			if (ref(os, type + role))
+				return;
+			unsigned(os, 0);
+			string(os, type + role);
+			table.add(type + role);
+		}
+
+		private boolean ref(ByteArrayOutputStream os, String s) {
+			int pos = table.lastIndexOf(s);
+			if (pos < 0)
+				return false;
+			unsigned(os, table.size() - pos);
+			return true;
+		}
+
+		private static int string(ByteArrayOutputStream os, String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			os.write(bytes, 0, bytes.length);
+			os.write(0);
+			return bytes.length + 1;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IndexedPolygonTest {
+
+	/**
+	 * A closed star shaped polygon with many points, some of them on
+	 * horizontal or vertical lines.
+	 */
+	private static List<Coord> star(Random random, int numPoints) {
+		List<Coord> points = new ArrayList<>();
+		for (int i = 0; i < numPoints; i++) {
+			double angle = 2 * Math.PI * i / numPoints;
+			double radius = 1000 + random.nextInt(1000);
+			int lat = (int) Math.round(radius * Math.sin(angle));
+			int lon = (int) Math.round(radius * Math.cos(angle));
+			if (i % 7 == 1)
+				lat = points.get(i - 1).getHighPrecLat();
+			if (i % 11 == 1)
+				lon = points.get(i - 1).getHighPrecLon();
+			points.add(Coord.makeHighPrecCoord(lat, lon));
+		}
+		points.add(points.get(0));
+		return points;
+	}
+
+	@Test
+	public void testContainsLikePolygon() {
+		Random random = new Random(17);
+		for (int test = 0; test < 20; test++) {
+			List<Coord> points = star(random, 3 + random.nextInt(300));
+			Polygon polygon = Java2DConverter.createHighPrecPolygon(points);
+			IndexedPolygon indexed = new IndexedPolygon(points);
+			for (int i = 0; i < 5000; i++) {
+				int x = random.nextInt(4400) - 2200;
+				int y = random.nextInt(4400) - 2200;
+				assertEquals(x + " " + y, polygon.contains(x, y), indexed.contains(x, y));
+			}
+			// the points of the polygon are on the border
+			for (Coord co : points) {
+				int x = co.getHighPrecLon();
+				int y = co.getHighPrecLat();
+				assertEquals(polygon.contains(x, y), indexed.contains(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testFindEdges() {
+		List<Coord> points = star(new Random(3), 500);
+		IndexedPolygon indexed = new IndexedPolygon(points);
+		int fromY = 100;
+		int toY = 200;
+		BitSet edges = indexed.findEdges(fromY, toY);
+		assertTrue(edges.cardinality() < points.size() / 2);
+		for (int i = 0; i < points.size(); i++) {
+			int last = (i == 0 ? points.size() : i) - 1;
+			int y0 = Math.min(points.get(last).getHighPrecLat(), points.get(i).getHighPrecLat());
+			int y1 = Math.max(points.get(last).getHighPrecLat(), points.get(i).getHighPrecLat());
+			if (y0 <= toY && y1 >= fromY)
+				assertTrue(Integer.toString(i), edges.get(i));
+		}
+		assertTrue(indexed.findEdges(5000, 6000).isEmpty());
+	}
+}
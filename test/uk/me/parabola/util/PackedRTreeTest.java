@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PackedRTreeTest {
+
+	@Test
+	public void testFindContained() {
+		Random random = new Random(5);
+		List<Rectangle> rectangles = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			int size = 1 + random.nextInt(i % 10 == 0 ? 5000 : 100);
+			rectangles.add(new Rectangle(random.nextInt(10000), random.nextInt(10000), size, 1 + random.nextInt(size)));
+		}
+		PackedRTree tree = new PackedRTree(rectangles);
+		for (Rectangle query : rectangles) {
+			IntArrayList expected = new IntArrayList();
+			for (int i = 0; i < rectangles.size(); i++) {
+				if (query.contains(rectangles.get(i)))
+					expected.add(i);
+			}
+			assertEquals(expected, tree.findContained(query));
+		}
+		assertTrue(new PackedRTree(new ArrayList<>()).findContained(new Rectangle(0, 0, 5, 5)).isEmpty());
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PhaseProfileTest {
+
+	private static void buildTile(String tile) {
+		PhaseProfile.start(tile);
+		try (PhaseProfile.Phase load = PhaseProfile.phase("load")) {
+			for (int i = 0; i < 2; i++) {
+				try (PhaseProfile.Phase parse = PhaseProfile.phase("parse")) {
+					assertNotNull(parse);
+				}
+			}
+		}
+		try (PhaseProfile.Phase write = PhaseProfile.phase("write")) {
+			assertNotNull(write);
+		}
+		PhaseProfile.finish();
+	}
+
+	@Test
+	public void testCsv() {
+		buildTile("2");
+		buildTile("1");
+		StringWriter sw = new StringWriter();
+		PhaseProfile.write(sw, false);
+		String[] lines = sw.toString().split("\\R");
+		assertEquals(10, lines.length);
+		assertEquals("tile,phase,count,wall_ms,cpu_ms,allocated_bytes", lines[0]);
+		// the tiles are sorted, the phases are in the order in which they were entered
+		assertTrue(lines[1].startsWith("1,load,1,"));
+		assertTrue(lines[2].startsWith("1,load/parse,2,"));
+		assertTrue(lines[3].startsWith("1,write,1,"));
+		assertTrue(lines[4].startsWith("2,load,1,"));
+		assertTrue(lines[8].startsWith("total,load/parse,4,"));
+
+		// the results are written only once
+		sw = new StringWriter();
+		PhaseProfile.write(sw, false);
+		assertEquals(1, sw.toString().split("\\R").length);
+	}
+
+	@Test
+	public void testJson() {
+		buildTile("a\"b");
+		StringWriter sw = new StringWriter();
+		PhaseProfile.write(sw, true);
+		String json = sw.toString();
+		assertTrue(json.contains("{\"tile\": \"a\\\"b\", \"phases\": ["));
+		assertTrue(json.contains("{\"phase\": \"load/parse\", \"count\": 2, \"wallMs\": "));
+		assertTrue(json.contains("\"total\": ["));
+	}
+
+	@Test
+	public void testWithoutProfile() {
+		try (PhaseProfile.Phase p = PhaseProfile.phase("load")) {
+			assertNotNull(p);
+		}
+		PhaseProfile.finish();
+		StringWriter sw = new StringWriter();
+		PhaseProfile.write(sw, false);
+		assertEquals(1, sw.toString().split("\\R").length);
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RasterAreaTest {
+	private static final int RASTER = 1 << 15;
+
+	private static void assertSameShapes(List<List<Coord>> expected, List<List<Coord>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			List<Coord> e = expected.get(i);
+			List<Coord> a = actual.get(i);
+			assertEquals(e.size(), a.size());
+			for (int j = 0; j < e.size(); j++) {
+				assertTrue(e.get(j).highPrecEquals(a.get(j)));
+			}
+			assertSame(a.get(0), a.get(a.size() - 1));
+		}
+	}
+
+	@Test
+	public void testSingleCell() {
+		RasterArea ra = new RasterArea(RASTER);
+		ra.addCell(-RASTER, 2 * RASTER);
+		assertTrue(ra.isSingular());
+		assertEquals(new Rectangle(2 * RASTER, -RASTER, RASTER, RASTER), ra.getBounds());
+		List<List<Coord>> shapes = ra.toShapes();
+		assertEquals(1, shapes.size());
+		assertEquals(5, shapes.get(0).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnalignedCell() {
+		new RasterArea(RASTER).addCell(RASTER / 2, 0);
+	}
+
+	@Test
+	public void testHoleAndCornerContact() {
+		// a ring of cells around a hole
+		RasterArea ring = new RasterArea(RASTER);
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				if (row != 1 || col != 1)
+					ring.addCell(row * RASTER, col * RASTER);
+			}
+		}
+		assertFalse(ring.isSingular());
+		assertEquals(2, ring.toShapes().size());
+
+		// two cells that touch at a corner
+		RasterArea diagonal = new RasterArea(RASTER);
+		diagonal.addCell(0, 0);
+		diagonal.addCell(RASTER, RASTER);
+		assertFalse(diagonal.isSingular());
+		assertEquals(2, diagonal.toShapes().size());
+	}
+
+	@Test
+	public void testSameAsArea() {
+		Random random = new Random(42);
+		for (int test = 0; test < 2000; test++) {
+			int width = 1 + random.nextInt(6);
+			int height = 1 + random.nextInt(6);
+			double fill = 0.3 + random.nextDouble() * 0.6;
+			Area area = new Area();
+			RasterArea ra = new RasterArea(RASTER);
+			for (int row = 0; row < height; row++) {
+				for (int col = 0; col < width; col++) {
+					if (random.nextDouble() < fill) {
+						int lat = (row - 3) * RASTER;
+						int lon = (col - 2) * RASTER;
+						area.add(new Area(new Rectangle(lon, lat, RASTER, RASTER)));
+						ra.addCell(lat, lon);
+					}
+				}
+			}
+			assertEquals(area.isSingular(), ra.isSingular());
+			assertEquals(area.getBounds(), ra.getBounds());
+			assertSameShapes(Java2DConverter.areaToShapes(area), ra.toShapes());
+		}
+	}
+
+	/**
+	 * Merge cells one after the other like the SeaGenerator does, the
+	 * areas that can be merged must be the same as with Area.
+	 */
+	@Test
+	public void testMergeSameAsArea() {
+		Random random = new Random(42);
+		for (int test = 0; test < 500; test++) {
+			int width = 2 + random.nextInt(8);
+			int height = 2 + random.nextInt(8);
+			double fill = 0.3 + random.nextDouble() * 0.6;
+			List<Area> areas = new ArrayList<>();
+			List<RasterArea> rasterAreas = new ArrayList<>();
+			for (int row = 0; row < height; row++) {
+				for (int col = 0; col < width; col++) {
+					if (random.nextDouble() >= fill)
+						continue;
+					Area toMerge = new Area(new Rectangle(col * RASTER, row * RASTER, RASTER, RASTER));
+					RasterArea rasterToMerge = new RasterArea(RASTER);
+					rasterToMerge.addCell(row * RASTER, col * RASTER);
+					List<Area> nextAreas = new ArrayList<>();
+					List<RasterArea> nextRasterAreas = new ArrayList<>();
+					for (int i = 0; i < areas.size(); i++) {
+						Area merged = new Area(areas.get(i));
+						merged.add(toMerge);
+						RasterArea rasterMerged = rasterAreas.get(i).mergeSingular(rasterToMerge);
+						assertEquals(merged.isSingular(), rasterMerged != null);
+						if (rasterMerged == null) {
+							nextAreas.add(areas.get(i));
+							nextRasterAreas.add(rasterAreas.get(i));
+						} else {
+							toMerge = merged;
+							rasterToMerge = rasterMerged;
+						}
+					}
+					nextAreas.add(toMerge);
+					nextRasterAreas.add(rasterToMerge);
+					areas = nextAreas;
+					rasterAreas = nextRasterAreas;
+				}
+			}
+			for (int i = 0; i < areas.size(); i++) {
+				assertEquals(areas.get(i).getBounds(), rasterAreas.get(i).getBounds());
+				assertSameShapes(Java2DConverter.areaToShapes(areas.get(i)), rasterAreas.get(i).toShapes());
+			}
+		}
+	}
+}
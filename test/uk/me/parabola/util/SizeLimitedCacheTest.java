@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SizeLimitedCacheTest {
+
+	@Test
+	public void testLoadedOnce() throws Exception {
+		SizeLimitedCache<String, String> cache = new SizeLimitedCache<>("test", 100, String::length);
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread t = new Thread(() -> {
+			try {
+				cache.get("a", () -> {
+					calls.incrementAndGet();
+					started.countDown();
+					release.await();
+					return "value";
+				});
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		t.start();
+		started.await();
+
+		// the second caller waits for the first one
+		Thread t2 = new Thread(() -> {
+			try {
+				assertEquals("value", cache.get("a", () -> {
+					calls.incrementAndGet();
+					return "other";
+				}));
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		t2.start();
+		release.countDown();
+		t.join();
+		t2.join();
+
+		assertEquals("value", cache.get("a", () -> "other"));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsDropped() throws Exception {
+		SizeLimitedCache<String, String> cache = new SizeLimitedCache<>("test", 10, String::length);
+		cache.get("a", () -> "aaaa");
+		cache.get("b", () -> "bbbb");
+		cache.get("a", () -> "aaaa");
+		cache.get("c", () -> "cccc");
+		assertTrue(cache.contains("a"));
+		assertFalse(cache.contains("b"));
+		assertTrue(cache.contains("c"));
+	}
+
+	@Test
+	public void testValueLargerThanLimitIsKept() throws Exception {
+		SizeLimitedCache<String, String> cache = new SizeLimitedCache<>("test", 2, String::length);
+		cache.get("a", () -> "aaaa");
+		assertTrue(cache.contains("a"));
+		cache.get("b", () -> "bbbb");
+		assertFalse(cache.contains("a"));
+		assertTrue(cache.contains("b"));
+	}
+
+	@Test
+	public void testFailureIsNotCached() throws Exception {
+		SizeLimitedCache<String, String> cache = new SizeLimitedCache<>("test", 100, String::length);
+		AtomicInteger calls = new AtomicInteger();
+		try {
+			cache.get("a", () -> {
+				calls.incrementAndGet();
+				throw new FileNotFoundException("a");
+			});
+			fail("exception expected");
+		} catch (FileNotFoundException e) {
+			// expected
+		}
+		assertFalse(cache.contains("a"));
+		assertEquals("a", cache.get("a", () -> {
+			calls.incrementAndGet();
+			return "a";
+		}));
+		assertEquals(2, calls.get());
+	}
+}